@@ -0,0 +1,61 @@
+package de.example.llmbench.jmh;
+
+import de.example.llmbench.api.BenchmarkDto;
+import de.example.llmbench.api.ResultExport;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst die Zeilenerzeugung des CSV- und NDJSON-Exports wie in
+ * {@code BenchResource.runCsv}: eine Zeile je Ergebnis in einen wiederverwendeten
+ * StringBuilder, danach über denselben gepufferten UTF-8-Writer in einen (hier
+ * verworfenen) Ausgabestrom.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CsvExportBenchmark {
+
+    // Anzahl exportierter Ergebnisse
+    @Param({"100", "10000", "1000000"})
+    public int results;
+
+    private BenchmarkDto.SingleRunResult[] arr;
+    private final StringBuilder sb = new StringBuilder(512);
+    private final Writer sink = new BufferedWriter(
+            new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8), 64 * 1024);
+
+    @Setup
+    public void setup() {
+        arr = Results.generate(results, 42);
+    }
+
+    @Benchmark
+    public void csv() throws IOException {
+        sink.write(ResultExport.CSV_HEADER);
+        for (BenchmarkDto.SingleRunResult r : arr) {
+            ResultExport.appendCsv(sb, r, "qwen2.5:3b");
+            ResultExport.drain(sb, sink);
+        }
+        sink.flush();
+    }
+
+    @Benchmark
+    public void ndjson() throws IOException {
+        for (BenchmarkDto.SingleRunResult r : arr) {
+            ResultExport.appendNdjson(sb, r, false);
+            ResultExport.drain(sb, sink);
+        }
+        sink.flush();
+    }
+}
@@ -0,0 +1,124 @@
+package de.example.llmbench.jmh;
+
+import com.sun.net.httpserver.HttpServer;
+import de.example.llmbench.api.BenchmarkDto;
+import de.example.llmbench.api.HttpClients;
+import de.example.llmbench.api.LoadEngine;
+import de.example.llmbench.api.OllamaClient;
+import de.example.llmbench.api.OllamaPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst den Overhead des Harness je Anfrage bei hoher Parallelität gegen einen lokalen
+ * Mock-Server, der sofort eine feste Ollama-Antwort liefert.
+ *
+ * {@code rawHttp} schickt dieselben Anfragen direkt über den geteilten HTTP-Client
+ * (Untergrenze: Netzwerkstack und Mock). {@code harness} führt einen vollständigen Batch
+ * über LoadEngine und OllamaClient aus (Pool-Auswahl, Request-Aufbau, JSON-Auswertung,
+ * Ergebnisobjekte, Watchdog). Die Differenz beider Werte ist der Overhead des Harness
+ * und sollte gegenüber realen Modell-Latenzen (Millisekunden) vernachlässigbar sein.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// Ohne TCP_NODELAY bremst Nagle/Delayed-ACK den JDK-Mock auf ca. 40 ms je Anfrage
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class HarnessOverheadBenchmark {
+
+    // Anfragen je Operation (ausgewiesen wird die Zeit je Anfrage)
+    private static final int RUNS = 1000;
+
+    // Gleichzeitige Anfragen
+    @Param({"1", "16", "128"})
+    public int concurrency;
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private String url;
+    private OllamaClient client;
+    private HttpClient http;
+    private HttpRequest rawRequest;
+
+    @Setup
+    public void setup() throws Exception {
+        byte[] body = JsonExtractionBenchmark.ollamaResponse(64);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        serverThreads = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(serverThreads);
+        server.createContext("/api/generate", ex -> {
+            ex.getRequestBody().readAllBytes();
+            ex.getResponseHeaders().add("Content-Type", "application/json");
+            ex.sendResponseHeaders(200, body.length);
+            ex.getResponseBody().write(body);
+            ex.close();
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort();
+        client = new OllamaClient(new OllamaPool(List.of(url), OllamaPool.ROUND_ROBIN, 0));
+        http = HttpClients.shared();
+        rawRequest = HttpRequest.newBuilder(URI.create(url + "/api/generate"))
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"model\":\"qwen2.5:3b\",\"prompt\":\"Say hello.\",\"stream\":false}"))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+        serverThreads.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RUNS)
+    public int harness() {
+        Callable<BenchmarkDto.SingleRunResult> call =
+                () -> client.call("qwen2.5:3b", "Say hello.", 0.2, 64, 10000, false, null);
+        int ok = 0;
+        try (LoadEngine.Batch batch = LoadEngine.shared().open(null)) {
+            for (BenchmarkDto.SingleRunResult r : batch.runClosedLoop(RUNS, concurrency, 10000, call, null)) {
+                if (r.success()) ok++;
+            }
+        }
+        if (ok != RUNS) throw new IllegalStateException("Only " + ok + " of " + RUNS + " runs succeeded");
+        return ok;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RUNS)
+    public int rawHttp() throws InterruptedException {
+        Semaphore slots = new Semaphore(concurrency);
+        int[] ok = new int[1];
+        try (ExecutorService ex = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < RUNS; i++) {
+                slots.acquire();
+                ex.submit(() -> {
+                    try {
+                        HttpResponse<byte[]> resp = http.send(rawRequest, HttpResponse.BodyHandlers.ofByteArray());
+                        if (resp.statusCode() == 200) synchronized (ok) { ok[0]++; }
+                    } finally {
+                        slots.release();
+                    }
+                    return null;
+                });
+            }
+        }
+        if (ok[0] != RUNS) throw new IllegalStateException("Only " + ok[0] + " of " + RUNS + " requests succeeded");
+        return ok[0];
+    }
+}
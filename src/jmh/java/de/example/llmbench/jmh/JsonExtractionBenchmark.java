@@ -0,0 +1,123 @@
+package de.example.llmbench.jmh;
+
+import de.example.llmbench.api.JsonScanner;
+import de.example.llmbench.api.OllamaJson;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Vergleicht die Extraktion der Ollama-Felder per Regex (bisheriger Weg in OllamaClient)
+ * mit dem Single-Pass-Parser {@link OllamaJson} auf einer realistischen, nicht-streamenden
+ * Antwort inklusive "context"-Array. {@code streamChunks} misst das Parsen einer
+ * Streaming-Antwort mit einer NDJSON-Zeile je Token, wie in OllamaClient.readStream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonExtractionBenchmark {
+
+    // Bisherige Regex-Extraktion als Vergleichsbasis
+    private static final Pattern P_INT_PROMPT = Pattern.compile("\"prompt_eval_count\"\\s*:\\s*(\\d+)");
+    private static final Pattern P_INT_OUTPUT = Pattern.compile("\"eval_count\"\\s*:\\s*(\\d+)");
+    private static final Pattern P_STR_RESPONSE = Pattern.compile("\"response\"\\s*:\\s*\"(.*?)\"", Pattern.DOTALL);
+
+    // Anzahl erzeugter Tokens (bestimmt Länge von Antworttext und context-Array)
+    @Param({"64", "512", "4096"})
+    public int tokens;
+
+    private byte[] body;
+    private byte[][] chunks;
+    private final JsonScanner sc = new JsonScanner();
+
+    @Setup
+    public void setup() {
+        body = ollamaResponse(tokens);
+        chunks = ollamaChunks(tokens);
+    }
+
+    @Benchmark
+    public void regex(Blackhole bh) {
+        String s = new String(body, StandardCharsets.UTF_8);
+        bh.consume(findInt(P_INT_PROMPT, s));
+        bh.consume(findInt(P_INT_OUTPUT, s));
+        bh.consume(findString(P_STR_RESPONSE, s));
+    }
+
+    @Benchmark
+    public void singlePass(Blackhole bh) {
+        OllamaJson.Fields f = new OllamaJson.Fields();
+        OllamaJson.parse(new JsonScanner(body, 0, body.length), f);
+        bh.consume(f.promptEvalCount);
+        bh.consume(f.evalCount);
+        bh.consume(f.response.toString());
+    }
+
+    @Benchmark
+    public void streamChunks(Blackhole bh) {
+        OllamaJson.Fields f = new OllamaJson.Fields();
+        for (byte[] line : chunks) OllamaJson.parse(sc.reset(line, 0, line.length), f);
+        bh.consume(f.evalCount);
+        bh.consume(f.response.toString());
+    }
+
+    /**
+     * Erzeugt die Zeilen einer Streaming-Antwort von /api/generate: ein Fragment je Token,
+     * zuletzt die Abschlusszeile mit Zählern und Timings.
+     */
+    static byte[][] ollamaChunks(int tokens) {
+        byte[][] out = new byte[tokens + 1][];
+        for (int i = 0; i < tokens; i++) {
+            String frag = (i % 16 == 0 ? "\\n" : " ") + (i % 7 == 0 ? "Größe" : "token");
+            out[i] = ("{\"model\":\"qwen2.5:3b\",\"created_at\":\"2024-01-01T00:00:00.123456Z\",\"response\":\""
+                    + frag + "\",\"done\":false}").getBytes(StandardCharsets.UTF_8);
+        }
+        out[tokens] = ("{\"model\":\"qwen2.5:3b\",\"created_at\":\"2024-01-01T00:00:05Z\",\"response\":\"\",\"done\":true,"
+                + "\"done_reason\":\"stop\",\"total_duration\":5043500667,\"load_duration\":5025959,"
+                + "\"prompt_eval_count\":32,\"prompt_eval_duration\":325953000,\"eval_count\":" + tokens
+                + ",\"eval_duration\":4709213000}").getBytes(StandardCharsets.UTF_8);
+        return out;
+    }
+
+    /**
+     * Erzeugt eine Antwort im Format von /api/generate ("stream": false).
+     * Der Text enthält Umlaute und Zeilenumbrüche, das context-Array Prompt- und Ausgabe-Tokens.
+     * Escapte Anführungszeichen fehlen bewusst, da die Regex-Variante dort abbricht und sonst
+     * nur einen Bruchteil des Texts liest.
+     */
+    static byte[] ollamaResponse(int tokens) {
+        StringBuilder sb = new StringBuilder(tokens * 16);
+        sb.append("{\"model\":\"qwen2.5:3b\",\"created_at\":\"2024-01-01T00:00:00Z\",\"response\":\"");
+        for (int i = 0; i < tokens; i++) {
+            sb.append(i % 16 == 0 ? "\\n" : " ").append(i % 7 == 0 ? "Größe" : "token");
+        }
+        sb.append("\",\"done\":true,\"done_reason\":\"stop\",\"context\":[");
+        for (int i = 0; i < tokens + 32; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(100000 + i * 37 % 50000);
+        }
+        sb.append("],\"total_duration\":5043500667,\"load_duration\":5025959,\"prompt_eval_count\":32,")
+          .append("\"prompt_eval_duration\":325953000,\"eval_count\":").append(tokens)
+          .append(",\"eval_duration\":4709213000}");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Integer findInt(Pattern p, String s) {
+        Matcher m = p.matcher(s);
+        return m.find() ? Integer.valueOf(m.group(1)) : null;
+    }
+
+    private static String findString(Pattern p, String s) {
+        Matcher m = p.matcher(s);
+        if (!m.find()) return null;
+        String raw = m.group(1);
+        return raw.replace("\\n", "\n").replace("\\r", "\r").replace("\\t", "\t").replace("\\\"", "\"").replace("\\\\", "\\");
+    }
+}
@@ -0,0 +1,85 @@
+package de.example.llmbench.jmh;
+
+import de.example.llmbench.api.BenchmarkDto;
+import de.example.llmbench.api.KeywordMatcher;
+import de.example.llmbench.api.QualityUtil;
+import de.example.llmbench.api.TextSimilarity;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst die Qualitätsbewertung, die für jeden Lauf mit erwarteten Schlüsselwörtern
+ * ausgeführt wird ({@link QualityUtil#scoreByKeywords} bzw. der je Anfrage vorkompilierte
+ * {@link KeywordMatcher}), und die Konsistenz über alle Antworten eines Laufs
+ * (benachbart per {@link QualityUtil#consistency}, paarweise per {@link TextSimilarity}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QualityBenchmark {
+
+    private static final String[] WORDS = {
+            "Berlin", "ist", "die", "Hauptstadt", "von", "Deutschland", "und", "liegt", "an", "der",
+            "Spree", "Größe", "Einwohner", "Millionen", "Stadt", "Europa", "Geschichte", "Mauer" };
+
+    // Länge der Antwort in Wörtern
+    @Param({"64", "512", "4096"})
+    public int words;
+
+    // Anzahl erwarteter Schlüsselwörter
+    @Param({"3", "20"})
+    public int keywords;
+
+    private String text;
+    private List<String> expected;
+    private List<String> texts;
+    private KeywordMatcher matcher;
+
+    @Setup
+    public void setup() {
+        SplittableRandom rnd = new SplittableRandom(7);
+        text = text(rnd, words);
+        expected = new ArrayList<>();
+        for (int i = 0; i < keywords; i++) expected.add(i % 2 == 0 ? WORDS[rnd.nextInt(WORDS.length)] : "fehlt" + i);
+        texts = new ArrayList<>();
+        for (int i = 0; i < 10; i++) texts.add(text(rnd, words));
+        matcher = KeywordMatcher.compile(expected);
+    }
+
+    @Benchmark
+    public Double scoreByKeywords() {
+        return QualityUtil.scoreByKeywords(text, expected);
+    }
+
+    @Benchmark
+    public Double compiledMatcher() {
+        return matcher.score(text);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(10)
+    public Double consistency() {
+        return QualityUtil.consistency(texts);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(10)
+    public BenchmarkDto.ConsistencyReport pairwiseConsistency() {
+        return TextSimilarity.consistency(texts, TextSimilarity.DEFAULT_SHINGLE);
+    }
+
+    private static String text(SplittableRandom rnd, int n) {
+        StringBuilder sb = new StringBuilder(n * 8);
+        for (int i = 0; i < n; i++) {
+            sb.append(WORDS[rnd.nextInt(WORDS.length)]).append(i % 12 == 11 ? ".\n\t" : "  ");
+        }
+        return sb.toString();
+    }
+}
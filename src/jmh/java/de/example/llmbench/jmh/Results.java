@@ -0,0 +1,46 @@
+package de.example.llmbench.jmh;
+
+import de.example.llmbench.api.BenchmarkDto;
+
+import java.util.SplittableRandom;
+
+/**
+ * Erzeugt reproduzierbare, realistisch verteilte Einzelergebnisse für die Benchmarks
+ * (log-normale Latenzen, Streaming- und Server-Timings, einzelne Fehler).
+ */
+final class Results {
+    // Privater Konstruktor verhindert Instanziierung
+    private Results() {}
+
+    static BenchmarkDto.SingleRunResult[] generate(int n, long seed) {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        BenchmarkDto.SingleRunResult[] out = new BenchmarkDto.SingleRunResult[n];
+        long t = 0;
+        for (int i = 0; i < n; i++) {
+            double latencyMs = Math.exp(6.5 + 0.4 * gaussian(rnd));  // Median ca. 665 ms
+            long dur = (long) (latencyMs * 1_000_000);
+            int output = 32 + rnd.nextInt(96);
+            boolean ok = rnd.nextInt(200) != 0;
+            var b = BenchmarkDto.SingleRunResult.builder("ollama", "qwen2.5:3b")
+                    .node(i % 2 == 0 ? "node-a:11434" : "node-b:11434")
+                    .start(t).end(t + dur)
+                    .headers(t + dur / 3)
+                    .httpStatus(ok ? 200 : 500)
+                    .success(ok)
+                    .tokens(24, output, 24 + output)
+                    .responseBytes(output * 6)
+                    .streaming(latencyMs * 0.2, latencyMs * 0.8 / output, output / (latencyMs / 1000.0))
+                    .serverTimings(rnd.nextInt(50) == 0 ? 900.0 : 0.5, 20.0, latencyMs * 0.75, latencyMs * 0.95)
+                    .quality(rnd.nextInt(4) / 3.0);
+            if (!ok) b.error("HTTP 500, \"model busy\"");
+            out[i] = b.build();
+            t += dur / 4;
+        }
+        return out;
+    }
+
+    private static double gaussian(SplittableRandom rnd) {
+        // Box-Muller
+        return Math.sqrt(-2 * Math.log(1 - rnd.nextDouble())) * Math.cos(2 * Math.PI * rnd.nextDouble());
+    }
+}
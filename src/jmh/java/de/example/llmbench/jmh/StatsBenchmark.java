@@ -0,0 +1,50 @@
+package de.example.llmbench.jmh;
+
+import de.example.llmbench.api.BenchmarkDto;
+import de.example.llmbench.api.LatencyHistogram;
+import de.example.llmbench.api.StatsUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst die Aggregation der Einzelergebnisse: {@link StatsUtil#calc} mit exakten
+ * Perzentilen (Sortieren je Metrik) gegenüber der Variante mit einem bereits während
+ * des Laufs gefüllten {@link LatencyHistogram}, sowie das Füllen des Histogramms selbst.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class StatsBenchmark {
+
+    // Anzahl Einzelergebnisse eines Laufs
+    @Param({"100", "10000", "1000000"})
+    public int results;
+
+    private BenchmarkDto.SingleRunResult[] arr;
+    private LatencyHistogram latencies;
+
+    @Setup
+    public void setup() {
+        arr = Results.generate(results, 42);
+        latencies = StatsUtil.histogram(arr);
+    }
+
+    @Benchmark
+    public BenchmarkDto.Aggregates calcExact() {
+        return StatsUtil.calc(arr);
+    }
+
+    @Benchmark
+    public BenchmarkDto.Aggregates calcWithHistogram() {
+        return StatsUtil.calc(arr, latencies);
+    }
+
+    @Benchmark
+    public LatencyHistogram fillHistogram() {
+        return StatsUtil.histogram(arr);
+    }
+}
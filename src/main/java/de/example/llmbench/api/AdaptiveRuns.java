@@ -0,0 +1,197 @@
+package de.example.llmbench.api;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adaptive Anzahl der Läufe (Anfrage mit {@code targetCiPct}).
+ *
+ * Statt einer festen Zahl von Läufen wird in Runden ausgeführt: zuerst {@code minRuns},
+ * danach jeweils so viele weitere, wie nach der bisherigen Breite der 95-%-Konfidenzintervalle
+ * nötig erscheinen (die Breite fällt etwa mit 1/√n), höchstens aber eine Verdopplung je Runde
+ * und mindestens ein Lauf je Worker. Schluss ist, sobald alle Zielkennzahlen schmal genug
+ * sind, {@code maxRuns} erreicht ist oder der Batch abgebrochen wurde.
+ *
+ * Intervalle:
+ * - p50/p95 der Latenz: verteilungsfrei über Rangstatistiken (Binomialverteilung der Anzahl
+ *   Werte unter dem wahren Perzentil, normal approximiert). Für p95 braucht das rund 110 Werte,
+ *   vorher gibt es kein Intervall und es folgt eine weitere Runde.
+ * - tokensPerSec: Mittelwert ± 1,96 Standardfehler.
+ *
+ * Die Werte werden beim Eintreffen der Ergebnisse mitgeschrieben (threadsicher); gerechnet
+ * wird nur zwischen den Runden.
+ */
+final class AdaptiveRuns {
+
+    /** Kennzahlen, für die ein Ziel gesetzt werden kann. */
+    static final List<String> METRICS = List.of("p50", "p95", "tokensPerSec");
+
+    static final int DEFAULT_MIN_RUNS = 10;
+    static final int DEFAULT_MAX_RUNS = 500;
+
+    // Quantil der Standardnormalverteilung für 95 %
+    private static final double Z = 1.959963984540054;
+
+    private final double target;
+    private final List<String> metrics;
+    private final int minRuns;
+    private final int maxRuns;
+
+    // Latenz ab geplantem Start (> 0, wie StatsUtil) und Tokens/s; Zugriff unter dem Monitor
+    private double[] latency = new double[64];
+    private int latencyCount;
+    private double[] tokensPerSec = new double[64];
+    private int tpsCount;
+
+    private int dispatched;
+    private int rounds;
+    private String stop;
+    private Map<String, BenchmarkDto.ConfidenceInterval> intervals = Map.of();
+
+    private AdaptiveRuns(double target, List<String> metrics, int minRuns, int maxRuns) {
+        this.target = target;
+        this.metrics = metrics;
+        this.minRuns = minRuns;
+        this.maxRuns = maxRuns;
+    }
+
+    /**
+     * Liest den adaptiven Modus aus der Anfrage.
+     *
+     * @return Steuerung oder null, wenn kein {@code targetCiPct} gesetzt ist oder die Anfrage
+     *         die offene Schleife nutzt (dort bestimmen Rate und Dauer die Zahl der Läufe)
+     * @throws IllegalArgumentException bei ungültigem Ziel oder unbekannter Kennzahl
+     */
+    static AdaptiveRuns of(BenchmarkDto.BenchRequest req) {
+        if (req.targetCiPct == null || "open".equalsIgnoreCase(req.mode)) return null;
+        if (!(req.targetCiPct > 0)) throw new IllegalArgumentException("targetCiPct must be > 0");
+        List<String> metrics = req.targetMetrics == null || req.targetMetrics.isEmpty()
+                ? List.of("p50", "p95") : req.targetMetrics;
+        for (String m : metrics) {
+            if (!METRICS.contains(m)) throw new IllegalArgumentException("Unknown target metric: " + m + " " + METRICS);
+        }
+        int max = Math.min(LoadEngine.MAX_RUNS, req.maxRuns == null || req.maxRuns < 1 ? DEFAULT_MAX_RUNS : req.maxRuns);
+        int min = Math.min(max, req.minRuns == null || req.minRuns < 2 ? DEFAULT_MIN_RUNS : req.minRuns);
+        return new AdaptiveRuns(req.targetCiPct, List.copyOf(metrics), min, max);
+    }
+
+    /** Obergrenze aller Läufe. */
+    int maxRuns() { return maxRuns; }
+
+    /**
+     * Nimmt ein fertiges Ergebnis auf (aus den Worker-Threads).
+     */
+    synchronized void record(BenchmarkDto.SingleRunResult r) {
+        double ms = r.latencyMs();
+        if (ms > 0) {
+            if (latencyCount == latency.length) latency = Arrays.copyOf(latency, latencyCount * 2);
+            latency[latencyCount++] = ms;
+        }
+        if (r.tokensPerSec() != null) {
+            if (tpsCount == tokensPerSec.length) tokensPerSec = Arrays.copyOf(tokensPerSec, tpsCount * 2);
+            tokensPerSec[tpsCount++] = r.tokensPerSec();
+        }
+    }
+
+    /**
+     * Bestimmt die Größe der nächsten Runde; wird zwischen den Runden aufgerufen, wenn alle
+     * Läufe der vorigen fertig sind.
+     *
+     * @param concurrency Parallelität (kleinste sinnvolle Runde)
+     * @param cancelled ob der Batch abgebrochen wurde
+     * @return Läufe der nächsten Runde oder 0, wenn Schluss ist
+     */
+    synchronized int nextRound(int concurrency, boolean cancelled) {
+        if (stop != null) return 0;
+        int round;
+        if (dispatched == 0) {
+            round = minRuns;
+        } else {
+            intervals = intervals();
+            if (cancelled) { stop = "cancelled"; return 0; }
+            double ratio = 0;
+            for (String m : metrics) {
+                BenchmarkDto.ConfidenceInterval ci = intervals.get(m);
+                if (ci.n() == 0) { stop = "noData"; return 0; }
+                ratio = Math.max(ratio, ci.widthPct() == null ? Double.POSITIVE_INFINITY : ci.widthPct() / target);
+            }
+            if (ratio <= 1) stop = "converged";
+            else if (dispatched >= maxRuns) stop = "maxRuns";
+            if (stop != null) return 0;
+            // Breite ~ 1/√n: benötigt werden etwa n·ratio² Läufe, je Runde höchstens doppelt so viele
+            double needed = Math.ceil(dispatched * ratio * ratio) - dispatched;
+            round = (int) Math.max(concurrency, Math.min(needed, dispatched));
+        }
+        round = Math.min(round, maxRuns - dispatched);
+        dispatched += round;
+        rounds++;
+        return round;
+    }
+
+    /**
+     * Bericht nach der letzten Runde.
+     */
+    synchronized BenchmarkDto.Convergence report() {
+        if (stop == null) intervals = intervals();
+        return new BenchmarkDto.Convergence(target, metrics, minRuns, maxRuns, dispatched, rounds,
+                "converged".equals(stop), stop, intervals);
+    }
+
+    // Intervalle aller Zielkennzahlen aus den bisherigen Werten
+    private Map<String, BenchmarkDto.ConfidenceInterval> intervals() {
+        double[] lat = Arrays.copyOf(latency, latencyCount);
+        Arrays.sort(lat);
+        Map<String, BenchmarkDto.ConfidenceInterval> out = new LinkedHashMap<>();
+        for (String m : metrics) {
+            out.put(m, switch (m) {
+                case "p50" -> percentile(lat, 0.50);
+                case "p95" -> percentile(lat, 0.95);
+                default -> mean(Arrays.copyOf(tokensPerSec, tpsCount));
+            });
+        }
+        return out;
+    }
+
+    /**
+     * Verteilungsfreies Konfidenzintervall eines Perzentils: die Ränge
+     * n·p ± z·√(n·p·(1−p)) der sortierten Werte.
+     *
+     * @param sorted aufsteigend sortierte Werte
+     * @param p Perzentil (0..1)
+     */
+    static BenchmarkDto.ConfidenceInterval percentile(double[] sorted, double p) {
+        int n = sorted.length;
+        if (n == 0) return new BenchmarkDto.ConfidenceInterval(0, 0, null, null, null);
+        double estimate = StatsUtil.percentile(sorted, p);
+        double spread = Z * Math.sqrt(n * p * (1 - p));
+        // Ränge 1-basiert; liegen sie außerhalb, reichen die Werte noch nicht für ein Intervall
+        long lo = (long) Math.floor(n * p - spread);
+        long hi = (long) Math.ceil(n * p + spread) + 1;
+        if (lo < 1 || hi > n) return new BenchmarkDto.ConfidenceInterval(n, estimate, null, null, null);
+        double lower = sorted[(int) lo - 1], upper = sorted[(int) hi - 1];
+        return new BenchmarkDto.ConfidenceInterval(n, estimate, lower, upper, widthPct(lower, upper, estimate));
+    }
+
+    /**
+     * Konfidenzintervall eines Mittelwerts (Normalapproximation, ab zwei Werten).
+     */
+    static BenchmarkDto.ConfidenceInterval mean(double[] values) {
+        int n = values.length;
+        if (n == 0) return new BenchmarkDto.ConfidenceInterval(0, 0, null, null, null);
+        double sum = 0;
+        for (double v : values) sum += v;
+        double mean = sum / n;
+        if (n < 2) return new BenchmarkDto.ConfidenceInterval(n, mean, null, null, null);
+        double sq = 0;
+        for (double v : values) sq += (v - mean) * (v - mean);
+        double half = Z * Math.sqrt(sq / (n - 1) / n);
+        return new BenchmarkDto.ConfidenceInterval(n, mean, mean - half, mean + half,
+                widthPct(mean - half, mean + half, mean));
+    }
+
+    private static Double widthPct(double lower, double upper, double estimate) {
+        return estimate > 0 ? (upper - lower) / estimate * 100 : null;
+    }
+}
@@ -0,0 +1,356 @@
+package de.example.llmbench.api;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Prozessweite Zugangssteuerung für Aufrufe an die Provider.
+ *
+ * Jede Lane – Provider und Modell, bei fest gewähltem Knoten zusätzlich der Knoten – lässt
+ * höchstens {@code BENCH_ADMISSION_LIMIT} Aufrufe gleichzeitig zu (Standard 64, 0 = unbegrenzt),
+ * über alle Batches und Benutzer hinweg. Ohne festen Knoten teilt sich ein Ollama-Pool eine
+ * Lane. Weitere Aufrufe warten; wird ein Platz frei, bekommt ihn der wartende Batch mit den
+ * wenigsten laufenden Aufrufen (bei Gleichstand der ältere), sodass sich gleichzeitige Batches
+ * die Lane zu gleichen Teilen teilen.
+ *
+ * Isolierte Batches ({@code isolated: true}) bekommen die Lane exklusiv: ab ihrem ersten
+ * Aufruf werden keine fremden Aufrufe mehr zugelassen, die laufenden laufen aus, danach
+ * gehört die Lane dem Batch bis zu seinem Ende ({@link #leave}). Mehrere isolierte Batches
+ * kommen in Ankunftsreihenfolge nacheinander dran. Abgemeldete Batches verschwinden aus der
+ * Lane, sobald ihr letzter Aufruf fertig ist, leere Lanes ganz aus der Übersicht.
+ *
+ * Die Wartezeit steht je Lauf in SingleRunResult#queueWaitMs, getrennt von der gemessenen
+ * Dauer; das Timeout eines Laufs beginnt erst nach der Zulassung (siehe LoadEngine). Warten
+ * ist unterbrechbar (Abbruch des Batches). Der Zustand ist über GET /api/bench/scheduler
+ * abrufbar, unter {@code /metrics} als {@code llmbench_admission_in_flight},
+ * {@code llmbench_admission_queued} und {@code llmbench_admission_wait_seconds} (getrennt nach
+ * geteilter und exklusiver Zulassung).
+ */
+public final class AdmissionController {
+
+    static final int LIMIT = Integer.parseInt(System.getenv().getOrDefault("BENCH_ADMISSION_LIMIT", "64"));
+
+    private static final AdmissionController SHARED = new AdmissionController(LIMIT);
+
+    private static final Metrics M = Metrics.shared();
+    private static final Metrics.Family<Metrics.Gauge> IN_FLIGHT = M.gauge("llmbench_admission_in_flight",
+            "Provider calls admitted and running", "lane");
+    private static final Metrics.Family<Metrics.Gauge> QUEUED = M.gauge("llmbench_admission_queued",
+            "Provider calls waiting for admission", "lane");
+    private static final Metrics.Family<Metrics.Histogram> WAIT = M.histogram("llmbench_admission_wait_seconds",
+            "Time benchmark runs waited for admission", Metrics.LATENCY_BUCKETS, "lane", "mode");
+
+    static {
+        if (Metrics.ENABLED) M.beforeScrape(SHARED::export);
+    }
+
+    private final int limit;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    /**
+     * Erzeugt eine Zugangssteuerung.
+     *
+     * @param limit gleichzeitige Aufrufe je Lane (0 = unbegrenzt)
+     */
+    public AdmissionController(int limit) { this.limit = Math.max(0, limit); }
+
+    /**
+     * Liefert die prozessweit geteilte Zugangssteuerung.
+     */
+    public static AdmissionController shared() { return SHARED; }
+
+    /**
+     * Ein Aufruf, der vor dem Start einen Platz in seiner Lane braucht. LoadEngine wartet
+     * dafür, bevor das Timeout des Laufs beginnt, und trägt Provider und Modell auch in
+     * Ergebnisse ein, die ohne Aufruf entstehen (Abbruch, Fehler).
+     */
+    public interface Gated extends Callable<BenchmarkDto.SingleRunResult> {
+        /** Provider-Name. */
+        String provider();
+
+        /** Modell. */
+        String model();
+
+        /** Schlüssel der Lane (siehe {@link #lane}). */
+        String lane();
+    }
+
+    /**
+     * Schlüssel der Lane eines Aufrufs.
+     *
+     * @param provider Provider-Name
+     * @param model Modell
+     * @param node fest gewählter Knoten oder null
+     */
+    public static String lane(String provider, String model, String node) {
+        return provider + "/" + model + (node == null ? "" : "@" + node);
+    }
+
+    /**
+     * Verknüpft einen Aufruf mit seiner Lane (siehe {@link #lane}).
+     */
+    public static Gated gated(String provider, String model, String node, Callable<BenchmarkDto.SingleRunResult> call) {
+        return new GatedCall(provider, model, lane(provider, model, node), call);
+    }
+
+    private record GatedCall(String provider, String model, String lane,
+                             Callable<BenchmarkDto.SingleRunResult> target) implements Gated {
+        @Override
+        public BenchmarkDto.SingleRunResult call() throws Exception { return target.call(); }
+    }
+
+    /**
+     * Wartet auf einen Platz in der Lane.
+     *
+     * @param lane Schlüssel der Lane
+     * @param batchId aufrufender Batch (für die faire Verteilung und Isolation)
+     * @param isolated ob der Batch die Lane exklusiv bekommt
+     * @return Platz; muss mit {@link Permit#close()} freigegeben werden
+     * @throws InterruptedException wenn der wartende Thread unterbrochen wird (Abbruch)
+     */
+    public Permit acquire(String lane, String batchId, boolean isolated) throws InterruptedException {
+        while (true) {
+            // null: die Lane wurde gerade als leer entfernt, eine neue anlegen
+            Permit p = lanes.computeIfAbsent(lane, Lane::new).acquire(batchId, isolated);
+            if (p != null) return p;
+        }
+    }
+
+    /**
+     * Meldet einen beendeten Batch ab und gibt seine exklusiven Lanes frei.
+     */
+    public void leave(String batchId) {
+        for (Lane l : lanes.values()) l.leave(batchId);
+    }
+
+    /**
+     * Momentaufnahme aller Lanes, nach Schlüssel sortiert.
+     */
+    public BenchmarkDto.SchedulerStatus status() {
+        Map<String, BenchmarkDto.AdmissionLane> sorted = new TreeMap<>();
+        for (Lane l : lanes.values()) sorted.put(l.name, l.status());
+        return new BenchmarkDto.SchedulerStatus(limit, new ArrayList<>(sorted.values()));
+    }
+
+    // Überträgt Warteschlangentiefe und laufende Aufrufe vor jedem Abruf von /metrics
+    private void export() {
+        // Entfernte Lanes nicht mit ihrem letzten Stand weiter melden
+        IN_FLIGHT.clear();
+        QUEUED.clear();
+        for (Lane l : lanes.values()) {
+            BenchmarkDto.AdmissionLane s = l.status();
+            IN_FLIGHT.labels(l.name).set(s.inFlight());
+            QUEUED.labels(l.name).set(s.queued());
+        }
+    }
+
+    /**
+     * Ein zugelassener Aufruf.
+     */
+    public static final class Permit implements AutoCloseable {
+        private final Lane lane;
+        private final Share share;
+        private final long waitNanos;
+        private boolean released;
+
+        private Permit(Lane lane, Share share, long waitNanos) {
+            this.lane = lane;
+            this.share = share;
+            this.waitNanos = waitNanos;
+        }
+
+        /** Wartezeit bis zur Zulassung in ms. */
+        public double waitMs() { return waitNanos / 1_000_000.0; }
+
+        /** Gibt den Platz frei (mehrfacher Aufruf ist wirkungslos). */
+        @Override
+        public void close() {
+            if (released) return;
+            released = true;
+            lane.release(share);
+        }
+    }
+
+    // Ein wartender Aufruf
+    private static final class Waiter {
+        final Condition ready;
+        boolean granted;
+
+        Waiter(Condition ready) { this.ready = ready; }
+    }
+
+    // Anteil eines Batches an einer Lane
+    private static final class Share {
+        final String batchId;
+        final Deque<Waiter> waiters = new ArrayDeque<>();
+        int inFlight;
+        boolean isolated;
+        // Batch hat sich abgemeldet; der Anteil wird entfernt, sobald nichts mehr läuft
+        boolean left;
+
+        Share(String batchId) { this.batchId = batchId; }
+    }
+
+    // Alle Felder unter lock
+    private final class Lane {
+        final String name;
+        final ReentrantLock lock = new ReentrantLock();
+        // Batches in Ankunftsreihenfolge (Gleichstand bei der Verteilung: älterer zuerst)
+        final Map<String, Share> shares = new LinkedHashMap<>();
+        // Isolierte Batches, die auf die Lane warten; owner hat sie gerade
+        final Deque<String> isolatedQueue = new ArrayDeque<>();
+        String owner;
+        int inFlight;
+        int queued;
+        long admitted, delayed, waitNanos, maxWaitNanos;
+        // Aus lanes entfernt; wer sie noch erwischt, legt eine neue an
+        boolean retired;
+
+        Lane(String name) { this.name = name; }
+
+        Permit acquire(String batchId, boolean isolated) throws InterruptedException {
+            long t0 = System.nanoTime();
+            Share s;
+            boolean waited;
+            lock.lock();
+            try {
+                if (retired) return null;
+                s = shares.computeIfAbsent(batchId, Share::new);
+                s.left = false;
+                if (isolated && !s.isolated) {
+                    s.isolated = true;
+                    isolatedQueue.addLast(batchId);
+                }
+                Waiter w = new Waiter(lock.newCondition());
+                s.waiters.addLast(w);
+                queued++;
+                dispatch();
+                waited = !w.granted;
+                while (!w.granted) {
+                    try {
+                        w.ready.await();
+                    } catch (InterruptedException e) {
+                        if (w.granted) {
+                            release(s);
+                        } else {
+                            s.waiters.remove(w);
+                            queued--;
+                            prune(s);
+                        }
+                        throw e;
+                    }
+                }
+                admitted++;
+                if (waited) {
+                    long ns = System.nanoTime() - t0;
+                    delayed++;
+                    waitNanos += ns;
+                    maxWaitNanos = Math.max(maxWaitNanos, ns);
+                }
+            } finally {
+                lock.unlock();
+            }
+            long ns = waited ? System.nanoTime() - t0 : 0;
+            if (Metrics.ENABLED && AdmissionController.this == SHARED) {
+                WAIT.labels(name, s.isolated ? "exclusive" : "shared").observe(ns / 1_000_000_000.0);
+            }
+            return new Permit(this, s, ns);
+        }
+
+        void release(Share s) {
+            lock.lock();
+            try {
+                inFlight--;
+                s.inFlight--;
+                dispatch();
+                prune(s);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void leave(String batchId) {
+            lock.lock();
+            try {
+                Share s = shares.get(batchId);
+                if (s == null) return;
+                s.left = true;
+                isolatedQueue.remove(batchId);
+                if (batchId.equals(owner)) owner = null;
+                dispatch();
+                prune(s);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Entfernt den Anteil eines abgemeldeten Batches, wenn nichts mehr läuft oder wartet,
+        // und die Lane, wenn sie danach leer ist
+        private void prune(Share s) {
+            if (s.left && s.inFlight == 0 && s.waiters.isEmpty()) shares.remove(s.batchId, s);
+            if (shares.isEmpty() && inFlight == 0 && queued == 0 && owner == null && isolatedQueue.isEmpty()) {
+                retired = true;
+                lanes.remove(name, this);
+            }
+        }
+
+        // Vergibt freie Plätze an wartende Aufrufe
+        private void dispatch() {
+            Share next;
+            while ((next = pick()) != null) {
+                Waiter w = next.waiters.pollFirst();
+                w.granted = true;
+                queued--;
+                inFlight++;
+                next.inFlight++;
+                w.ready.signal();
+            }
+        }
+
+        // Batch, der den nächsten Platz bekommt, oder null
+        private Share pick() {
+            if (queued == 0 || (limit > 0 && inFlight >= limit)) return null;
+            if (owner != null) {
+                Share o = shares.get(owner);
+                return o != null && !o.waiters.isEmpty() ? o : null;
+            }
+            String head = isolatedQueue.peekFirst();
+            if (head != null) {
+                // Fremde Aufrufe auslaufen lassen, dann gehört die Lane dem ersten isolierten Batch
+                Share h = shares.get(head);
+                if (inFlight > 0 || h == null || h.waiters.isEmpty()) return null;
+                owner = isolatedQueue.pollFirst();
+                return h;
+            }
+            Share best = null;
+            for (Share s : shares.values()) {
+                if (!s.waiters.isEmpty() && (best == null || s.inFlight < best.inFlight)) best = s;
+            }
+            return best;
+        }
+
+        BenchmarkDto.AdmissionLane status() {
+            lock.lock();
+            try {
+                List<BenchmarkDto.AdmissionBatch> batches = new ArrayList<>(shares.size());
+                for (Share s : shares.values()) {
+                    batches.add(new BenchmarkDto.AdmissionBatch(s.batchId, s.isolated, s.inFlight, s.waiters.size()));
+                }
+                return new BenchmarkDto.AdmissionLane(name, inFlight, queued, owner, isolatedQueue.size(),
+                        admitted, delayed, delayed == 0 ? 0 : waitNanos / 1_000_000.0 / delayed,
+                        maxWaitNanos / 1_000_000.0, batches);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
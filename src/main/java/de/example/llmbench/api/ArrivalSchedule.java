@@ -0,0 +1,124 @@
+package de.example.llmbench.api;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Berechnet geplante Startzeitpunkte für den Open-Loop-Modus.
+ *
+ * Die Ankunftsrate ergibt sich aus einer konstanten Zielrate oder einer Stufenfolge
+ * (rateSteps, je stepSec Sekunden) und wird optional über rampUpSec linear von 0
+ * hochgefahren. Die Rate wird in 1-ms-Schritten integriert; jedes Mal, wenn die
+ * kumulierte Ankunftszahl die nächste ganze Zahl erreicht, wird ein Start geplant.
+ * Abschnitte mit Rate 0 werden übersprungen.
+ *
+ * Ungültige Parameter und Pläne mit mehr Ankünften als erlaubt werden vorab abgelehnt,
+ * statt den Plan stillschweigend zu kürzen; die Dauer ist auf
+ * {@code BENCH_MAX_DURATION_SEC} (Standard 86400) begrenzt.
+ * Diese Klasse ist nicht instanziierbar.
+ */
+public final class ArrivalSchedule {
+    // Privater Konstruktor verhindert Instanziierung
+    private ArrivalSchedule() {}
+
+    static final double MAX_DURATION_SEC = Double.parseDouble(System.getenv().getOrDefault("BENCH_MAX_DURATION_SEC", "86400"));
+
+    // Integrationsschritt in Nanosekunden
+    private static final long STEP_NANOS = 1_000_000L;
+
+    /**
+     * Liefert die geplanten Startzeitpunkte relativ zum Beginn in Nanosekunden.
+     *
+     * @param ratePerSec konstante Zielrate (ignoriert, wenn rateSteps gesetzt ist)
+     * @param durationSec Dauer in Sekunden (bei rateSteps: Anzahl Stufen × stepSec)
+     * @param rampUpSec lineare Anlaufzeit in Sekunden (0 = keine)
+     * @param rateSteps optionale Stufenfolge von Raten
+     * @param stepSec Dauer einer Stufe in Sekunden
+     * @param maxArrivals Obergrenze der geplanten Starts
+     * @return aufsteigend sortierte Offsets in Nanosekunden
+     * @throws IllegalArgumentException bei ungültigen Parametern oder wenn der Plan mehr
+     *         als {@code maxArrivals} Starts ergäbe
+     */
+    public static long[] offsets(double ratePerSec, double durationSec, double rampUpSec,
+                                 List<Double> rateSteps, double stepSec, int maxArrivals) {
+        long planned = planned(ratePerSec, durationSec, rampUpSec, rateSteps, stepSec);
+        if (planned > maxArrivals) {
+            throw new IllegalArgumentException("Open-loop schedule plans " + planned
+                    + " arrivals, more than the limit of " + maxArrivals + " (BENCH_MAX_RUNS)");
+        }
+        boolean stepped = rateSteps != null && !rateSteps.isEmpty();
+        double total = stepped ? rateSteps.size() * stepSec : durationSec;
+        long endNanos = (long) (total * 1_000_000_000L);
+        long stepNanos = (long) (stepSec * 1_000_000_000L);
+
+        long[] out = new long[(int) Math.max(16, Math.min(planned + 1, maxArrivals))];
+        int n = 0;
+        double cumulative = 0;   // bisher angebotene Ankünfte (gebrochen)
+        for (long t = 0; t < endNanos && n < maxArrivals; t += STEP_NANOS) {
+            double sec = t / 1_000_000_000.0;
+            double rate = stepped ? rateSteps.get(Math.min(rateSteps.size() - 1, (int) (sec / stepSec))) : ratePerSec;
+            if (rate == 0) {
+                // Keine Ankünfte bis zur nächsten Stufe bzw. bis zum Ende: direkt dorthin springen
+                long next = stepped ? ((long) (sec / stepSec) + 1) * stepNanos : endNanos;
+                t = Math.max(t, Math.ceilDiv(next, STEP_NANOS) * STEP_NANOS - STEP_NANOS);
+                continue;
+            }
+            if (rampUpSec > 0 && sec < rampUpSec) rate *= sec / rampUpSec;
+            double next = cumulative + rate * (STEP_NANOS / 1_000_000_000.0);
+            // Alle ganzzahligen Ankünfte in diesem Schritt linear interpolieren (erste bei t=0)
+            for (long k = (long) Math.ceil(cumulative); k < next && n < maxArrivals; k++) {
+                if (n == out.length) out = Arrays.copyOf(out, out.length * 2);
+                out[n++] = t + (long) ((k - cumulative) / (next - cumulative) * STEP_NANOS);
+            }
+            cumulative = next;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Prüft die Parameter und schätzt die Zahl der geplanten Starts (Integral der Rate,
+     * aufgerundet; die Integration in 1-ms-Schritten kann um einen Start abweichen).
+     *
+     * @return ungefähre Zahl der Starts
+     * @throws IllegalArgumentException bei negativen oder nicht endlichen Raten, einer Dauer
+     *         außerhalb von (0, BENCH_MAX_DURATION_SEC] oder negativer Anlaufzeit
+     */
+    public static long planned(double ratePerSec, double durationSec, double rampUpSec,
+                               List<Double> rateSteps, double stepSec) {
+        boolean stepped = rateSteps != null && !rateSteps.isEmpty();
+        if (!(rampUpSec >= 0) || Double.isInfinite(rampUpSec)) throw new IllegalArgumentException("rampUpSec must be >= 0");
+        double total;
+        if (stepped) {
+            if (!(stepSec > 0)) throw new IllegalArgumentException("stepSec must be > 0");
+            for (Double r : rateSteps) {
+                if (r == null || !(r >= 0) || Double.isInfinite(r)) {
+                    throw new IllegalArgumentException("rateSteps must be finite rates >= 0: " + rateSteps);
+                }
+            }
+            total = rateSteps.size() * stepSec;
+        } else {
+            if (!(ratePerSec >= 0) || Double.isInfinite(ratePerSec)) throw new IllegalArgumentException("ratePerSec must be >= 0");
+            if (!(durationSec > 0)) throw new IllegalArgumentException("durationSec must be > 0");
+            total = durationSec;
+        }
+        if (total > MAX_DURATION_SEC) {
+            throw new IllegalArgumentException("Open-loop duration " + total + " s exceeds BENCH_MAX_DURATION_SEC ("
+                    + MAX_DURATION_SEC + " s)");
+        }
+        // Integral der Rate je Abschnitt, die Anlaufzeit als Faktor min(1, t/rampUpSec)
+        double arrivals = 0;
+        int sections = stepped ? rateSteps.size() : 1;
+        for (int i = 0; i < sections; i++) {
+            double a = stepped ? i * stepSec : 0, b = stepped ? a + stepSec : total;
+            arrivals += (stepped ? rateSteps.get(i) : ratePerSec) * ramped(a, b, rampUpSec);
+        }
+        return (long) Math.ceil(arrivals - 1e-9);
+    }
+
+    // Integral von min(1, t/ramp) über [a, b]
+    private static double ramped(double a, double b, double ramp) {
+        if (ramp <= 0 || a >= ramp) return b - a;
+        double m = Math.min(b, ramp);
+        return (m * m - a * a) / (2 * ramp) + (b - m);
+    }
+}
@@ -0,0 +1,274 @@
+package de.example.llmbench.api;
+
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Ein asynchron laufender Benchmark-Job.
+ *
+ * Sammelt die Einzelergebnisse, während der Batch läuft, und verteilt sie als
+ * Server-Sent Events an alle angemeldeten Clients. Neue Abonnenten erhalten
+ * zuerst alle bisherigen Ergebnisse, danach die laufenden. Laufende Aggregates
+ * entstehen höchstens alle {@link #AGG_INTERVAL_MS} Millisekunden aus lock-frei
+ * befüllten Histogrammen, außerhalb des Monitors, an dem die Worker ihre Ergebnisse
+ * abliefern; exakt berechnet werden nur die Aggregates der fertigen Antwort.
+ *
+ * Kompakte Jobs ({@code compact: true}) halten die Ergebnisse in ResultColumns; neue
+ * Abonnenten erhalten dann nur die Aggregates, keine bisherigen Einzelergebnisse.
+ */
+public class BenchJob {
+
+    // Mindestabstand zwischen zwei "aggregates"-Events
+    static final long AGG_INTERVAL_MS = 500;
+
+    public enum State { RUNNING, DONE, CANCELLED, FAILED }
+
+    private final String id;
+    private final BenchmarkDto.BenchRequest request;
+    private final Integer planned;
+    private final Instant createdAt = Instant.now();
+    // Grundlage der laufenden Aggregates (Reihenfolge der Kennzahlen wie in StatsUtil#calc)
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LatencyHistogram[] metrics = new LatencyHistogram[METRICS.size()];
+    private final AtomicLong firstStart = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong lastEnd = new AtomicLong(Long.MIN_VALUE);
+
+    // Ergebnisse in Abschlussreihenfolge, solange der Job läuft (danach in response);
+    // Zugriff nur unter dem Monitor des Jobs
+    private final List<BenchmarkDto.SingleRunResult> results = new ArrayList<>();
+    // Kompakte Ablage statt results (null, wenn nicht kompakt); füllt der Service
+    private final ResultColumns columns;
+    private int completed;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    private volatile State state = State.RUNNING;
+    // Gesetzt zusammen mit dem endgültigen Zustand (unter dem Monitor)
+    private volatile Instant finishedAt;
+    private boolean started;
+    private volatile String error;
+    private volatile BenchmarkDto.BenchResponse response;
+    private volatile BenchmarkDto.Aggregates aggregates;
+    private long lastAggNanos;
+
+    // Kennzahlen der Aggregates in der Reihenfolge ihrer MetricSummary-Felder
+    private static final List<Function<BenchmarkDto.SingleRunResult, Double>> METRICS = List.of(
+            BenchmarkDto.SingleRunResult::ttftMs, BenchmarkDto.SingleRunResult::itlMs,
+            BenchmarkDto.SingleRunResult::tokensPerSec, BenchmarkDto.SingleRunResult::loadMs,
+            BenchmarkDto.SingleRunResult::promptEvalMs, BenchmarkDto.SingleRunResult::evalMs,
+            BenchmarkDto.SingleRunResult::serverTotalMs, BenchmarkDto.SingleRunResult::promptTokensPerSec,
+            BenchmarkDto.SingleRunResult::evalTokensPerSec, BenchmarkDto.SingleRunResult::overheadMs,
+            BenchmarkDto.SingleRunResult::headersMs, BenchmarkDto.SingleRunResult::bodyMs,
+            BenchmarkDto.SingleRunResult::queueWaitMs);
+
+    // Ein angemeldeter SSE-Client
+    private record Subscriber(SseEventSink sink, Sse sse) {}
+
+    /**
+     * @throws IllegalArgumentException bei unbekanntem Textmodus eines kompakten Jobs,
+     *         ungültigen Parametern des adaptiven Modus oder einem ungültigen Ankunftsplan
+     */
+    BenchJob(String id, BenchmarkDto.BenchRequest request) {
+        this.id = id;
+        this.request = request;
+        for (int m = 0; m < metrics.length; m++) metrics[m] = new LatencyHistogram();
+        // Adaptiver Modus: Zahl der Läufe steht erst am Ende fest (ungültige Parameter vorab ablehnen)
+        boolean adaptive = AdaptiveRuns.of(request) != null;
+        if ("open".equalsIgnoreCase(request.mode)) BenchmarkService.arrivals(request);
+        this.columns = Boolean.TRUE.equals(request.compact)
+                ? new ResultColumns(ResultColumns.TextMode.parse(request.texts)) : null;
+        this.planned = adaptive || "open".equalsIgnoreCase(request.mode) ? null
+                : request.runs == null || request.runs < 1 ? 1 : Math.min(request.runs, LoadEngine.MAX_RUNS);
+    }
+
+    public String id() { return id; }
+
+    public State state() { return state; }
+
+    /**
+     * true, sobald der Job endgültig beendet ist. Ein abgebrochener Job gilt erst als beendet,
+     * wenn sein Batch ausgelaufen ist (oder er vor dem Start abgebrochen wurde).
+     */
+    public boolean isFinished() { return finishedAt != null; }
+
+    public Instant finishedAt() { return finishedAt; }
+
+    /** Vollständige Antwort, sobald der Job beendet ist (sonst null). */
+    public BenchmarkDto.BenchResponse response() { return response; }
+
+    /**
+     * Führt den Job synchron aus (wird von JobManager in einem eigenen Thread aufgerufen).
+     * Ein schon vorher abgebrochener Job startet keine Läufe.
+     */
+    void execute(BenchmarkService service) {
+        synchronized (this) {
+            if (isFinished()) return;
+            started = true;
+        }
+        try {
+            request.batchId = id;
+            BenchmarkDto.BenchResponse resp = columns != null
+                    ? service.run(request, this::onResult, columns)
+                    : service.run(request, this::onResult);
+            synchronized (this) {
+                response = resp;
+                aggregates = resp.aggregates();
+                // Die Antwort hält dieselben Ergebnisse: keine zweite Kopie aufbewahren
+                results.clear();
+                if (state != State.CANCELLED) state = State.DONE;
+                finishedAt = Instant.now();
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                error = e.getClass().getSimpleName() + ": " + e.getMessage();
+                state = State.FAILED;
+                finishedAt = Instant.now();
+            }
+        } finally {
+            // Nach dem Zustandswechsel kommt kein cancelAhead mehr (siehe cancel)
+            LoadEngine.shared().forgetCancel(id);
+            broadcast("done", MediaType.APPLICATION_JSON_TYPE, BenchmarkDto.JobStatus.class, status());
+            for (Subscriber s : subscribers) close(s);
+            subscribers.clear();
+        }
+    }
+
+    /**
+     * Markiert den Job als abgebrochen und bricht den zugehörigen Batch ab – auch wenn
+     * er noch nicht geöffnet ist (dann startet er bereits abgebrochen). Ein noch nicht
+     * gestarteter Job ist damit sofort beendet und startet keine Läufe mehr.
+     */
+    synchronized void cancel() {
+        if (isFinished()) return;
+        state = State.CANCELLED;
+        if (!started) {
+            finishedAt = Instant.now();
+            return;
+        }
+        LoadEngine.shared().cancelAhead(id);
+    }
+
+    // Wird von den Worker-Threads für jedes fertige Ergebnis aufgerufen
+    private void onResult(BenchmarkDto.SingleRunResult r) {
+        // Lock-frei erfassen; wie bei den exakten Aggregates zählen nur Latenzen > 0
+        double ms = r.latencyMs();
+        if (ms > 0) latencies.record(ms);
+        for (int m = 0; m < metrics.length; m++) {
+            Double v = METRICS.get(m).apply(r);
+            if (v != null) metrics[m].record(v);
+        }
+        firstStart.accumulateAndGet(r.intendedStartNanos() != null ? r.intendedStartNanos() : r.startNanos(), Math::min);
+        lastEnd.accumulateAndGet(r.endNanos(), Math::max);
+
+        boolean due;
+        int index;
+        synchronized (this) {
+            if (columns == null) results.add(r);
+            index = completed++;
+            long now = System.nanoTime();
+            due = now - lastAggNanos >= AGG_INTERVAL_MS * 1_000_000L;
+            if (due) lastAggNanos = now;
+            // Innerhalb des Monitors senden, damit die Reihenfolge zur Wiedergabe passt
+            broadcast("result", MediaType.APPLICATION_JSON_TYPE, Map.class, Map.of("index", index, "result", r));
+        }
+        if (!due) return;
+        BenchmarkDto.Aggregates agg = snapshot(index + 1);
+        synchronized (this) {
+            // Die exakten Aggregates der fertigen Antwort nicht überschreiben
+            if (response != null) return;
+            aggregates = agg;
+            broadcast("aggregates", MediaType.APPLICATION_JSON_TYPE, BenchmarkDto.Aggregates.class, agg);
+        }
+    }
+
+    // Laufende Aggregates aus den Histogrammen; Aufwand unabhängig von der Zahl der Ergebnisse
+    private BenchmarkDto.Aggregates snapshot(int runs) {
+        long first = firstStart.get(), last = lastEnd.get();
+        double throughput = latencies.count() == 0 || last <= first ? 0 : runs / ((last - first) / 1_000_000_000.0);
+        return StatsUtil.calc(runs, latencies, throughput, metrics);
+    }
+
+    /**
+     * Meldet einen SSE-Client an. Bisherige Ergebnisse werden sofort nachgeliefert;
+     * ist der Job schon beendet, folgt direkt das "done"-Event und der Stream wird geschlossen.
+     */
+    void subscribe(SseEventSink sink, Sse sse) {
+        Subscriber sub = new Subscriber(sink, sse);
+        synchronized (this) {
+            List<BenchmarkDto.SingleRunResult> replay = response != null && response.results() != null
+                    ? Arrays.asList(response.results()) : results;
+            for (int i = 0; i < replay.size(); i++) {
+                send(sub, "result", MediaType.APPLICATION_JSON_TYPE, Map.class, Map.of("index", i, "result", replay.get(i)));
+            }
+            if (aggregates != null) send(sub, "aggregates", MediaType.APPLICATION_JSON_TYPE, BenchmarkDto.Aggregates.class, aggregates);
+            if (!isFinished()) {
+                subscribers.add(sub);
+                return;
+            }
+        }
+        send(sub, "done", MediaType.APPLICATION_JSON_TYPE, BenchmarkDto.JobStatus.class, status());
+        close(sub);
+    }
+
+    /**
+     * Liefert den aktuellen Zustand inklusive laufender Aggregates.
+     */
+    public BenchmarkDto.JobStatus status() {
+        int done;
+        State st;
+        Instant finished;
+        synchronized (this) {
+            done = completed;
+            st = state;
+            finished = finishedAt;
+        }
+        return new BenchmarkDto.JobStatus(id, st.name(), createdAt.toString(),
+                finished == null ? null : finished.toString(),
+                done, planned, error, aggregates);
+    }
+
+    /**
+     * Liefert alle Ergebnisse nacheinander (für Exporte); bei kompakten Jobs Zeile für Zeile
+     * aus den Spalten, sonst aus der Antwort.
+     */
+    void forEachResult(Consumer<BenchmarkDto.SingleRunResult> onResult) {
+        if (columns != null) {
+            columns.forEach(onResult);
+        } else if (response != null && response.results() != null) {
+            for (var r : response.results()) onResult.accept(r);
+        }
+    }
+
+    /**
+     * Gibt die kompakte Ablage frei (löscht ausgelagerte Texte), sobald der Job verworfen wird.
+     */
+    void release() {
+        if (columns != null) columns.close();
+    }
+
+    private <T> void broadcast(String name, MediaType type, Class<T> cls, T data) {
+        for (Subscriber s : subscribers) send(s, name, type, cls, data);
+    }
+
+    // Sendet ein Event; geschlossene oder fehlerhafte Clients werden abgemeldet
+    private <T> void send(Subscriber s, String name, MediaType type, Class<T> cls, T data) {
+        if (s.sink().isClosed()) { subscribers.remove(s); return; }
+        OutboundSseEvent ev = s.sse().newEventBuilder().name(name).mediaType(type).data(cls, data).build();
+        s.sink().send(ev).whenComplete((ok, ex) -> { if (ex != null) { subscribers.remove(s); close(s); } });
+    }
+
+    private static void close(Subscriber s) {
+        try { s.sink().close(); } catch (Exception ignore) { }
+    }
+}
@@ -3,18 +3,32 @@ package de.example.llmbench.api;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiConsumer;
 
 /**
  * REST-Resource für Benchmark-Anfragen.
  * 
  * Stellt Endpunkte bereit, um Benchmarks gegen LLM-Modelle auszuführen
- * und die Ergebnisse als JSON oder CSV abzurufen.
+ * und die Ergebnisse als JSON, CSV oder NDJSON abzurufen.
  */
 @Path("/bench")
 public class BenchResource {
 
-    // Service-Instanz für die Benchmark-Logik
-    private final BenchmarkService service = new BenchmarkService();
+    // Service-Instanz für die Benchmark-Logik (prozessweit geteilt)
+    private final BenchmarkService service = BenchmarkService.shared();
+    // Führt Testpläne Schritt für Schritt auf dem Service aus
+    private final TestPlanRunner plans = new TestPlanRunner(service);
+    // Misst Kapazitätskurven über steigende Parallelität
+    private final CapacitySweep sweeps = new CapacitySweep(service);
+    // Führt Matrix-Benchmarks (Modelle × Prompts × Varianten) aus
+    private final MatrixRunner matrices = new MatrixRunner(service);
 
     /**
      * Führt einen Benchmark-Lauf aus und liefert das Ergebnis als JSON.
@@ -31,7 +45,61 @@ public class BenchResource {
     }
 
     /**
-     * Führt einen Benchmark-Lauf aus und liefert das Ergebnis als CSV-Datei.
+     * Führt einen Testplan (eigene Schritte oder Preset) auf dem Server aus und liefert
+     * einen konsolidierten Bericht.
+     * 
+     * @param plan Testplan (wird aus JSON geparst)
+     * @return 200 mit PlanReport, 400 bei unbekanntem Preset
+     */
+    @POST
+    @Path("/plan")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response runPlan(BenchmarkDto.TestPlan plan) {
+        try {
+            return Response.ok(plans.run(plan == null ? new BenchmarkDto.TestPlan() : plan)).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+    }
+
+    /**
+     * Führt einen Parallelitäts-Sweep aus und liefert die Kapazitätskurve mit dem
+     * erkannten Sättigungspunkt.
+     * 
+     * @param sweep Sweep-Parameter (wird aus JSON geparst)
+     * @return Messpunkte je Parallelitätsstufe und Knick
+     */
+    @POST
+    @Path("/sweep")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public BenchmarkDto.SweepReport runSweep(BenchmarkDto.SweepRequest sweep) {
+        return sweeps.run(sweep == null ? new BenchmarkDto.SweepRequest() : sweep);
+    }
+
+    /**
+     * Führt einen Matrix-Benchmark (Modelle × Prompts × Varianten) aus und liefert einen
+     * nach Modell gruppierten Bericht mit Aggregates je Zelle.
+     * 
+     * @param matrix Matrix-Anfrage (wird aus JSON geparst)
+     * @return 200 mit MatrixReport, 400 bei ungültiger Matrix (Provider, Größe, Batch-ID)
+     */
+    @POST
+    @Path("/matrix")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response runMatrix(BenchmarkDto.MatrixRequest matrix) {
+        try {
+            return Response.ok(matrices.run(matrix == null ? new BenchmarkDto.MatrixRequest() : matrix)).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+    }
+
+    /**
+     * Führt einen Benchmark-Lauf aus und streamt das Ergebnis als CSV-Datei.
+     * Jede Zeile wird geschrieben, sobald der zugehörige Lauf fertig ist.
      * 
      * @param req Benchmark-Anfrage (wird aus JSON geparst)
      * @return CSV-Datei mit den wichtigsten Metriken aller Durchläufe
@@ -41,31 +109,102 @@ public class BenchResource {
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces("text/csv")
     public Response runCsv(BenchmarkDto.BenchRequest req) {
-        if (req == null) req = new BenchmarkDto.BenchRequest();
-        var res = service.run(req);
-        StringBuilder sb = new StringBuilder();
-        // CSV-Header
-        sb.append("provider,model,httpStatus,success,durationMs,inputTokens,outputTokens,totalTokens,responseBytes\n");
-        for (var r : res.results()) {
-            double ms = (r.endNanos() - r.startNanos()) / 1_000_000.0;
-            sb.append(r.provider()).append(',')
-              .append(escape(res.request().get("model"))).append(',')
-              .append(r.httpStatus()).append(',')
-              .append(r.success()).append(',')
-              .append(String.format(java.util.Locale.US,"%.1f", ms)).append(',')
-              .append(n(r.inputTokens())).append(',')
-              .append(n(r.outputTokens())).append(',')
-              .append(n(r.totalTokens())).append(',')
-              .append(n(r.responseBytes())).append('\n');
-        }
-        return Response.ok(sb.toString())
+        final BenchmarkDto.BenchRequest r = req == null ? new BenchmarkDto.BenchRequest() : req;
+        return Response.ok(streamRows(r, ResultExport.CSV_HEADER, (sb, x) -> ResultExport.appendCsv(sb, x, r.model)))
                 .header("Content-Disposition", "attachment; filename=\"bench.csv\"")
                 .build();
     }
 
-    // Hilfsmethode zum Escapen von CSV-Feldern (ersetzt Kommas durch Leerzeichen)
-    private static String escape(Object o){ return o==null?"":o.toString().replace(","," "); }
+    /**
+     * Führt einen Benchmark-Lauf aus und streamt jedes Einzelergebnis als JSON-Zeile (NDJSON).
+     * 
+     * @param req Benchmark-Anfrage (wird aus JSON geparst)
+     * @param includeText ob der Antworttext mit exportiert wird (Standard: nein)
+     * @return NDJSON-Stream, eine Zeile pro Durchlauf
+     */
+    @POST
+    @Path("/ndjson")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(ResultExport.NDJSON)
+    public Response runNdjson(BenchmarkDto.BenchRequest req, @QueryParam("text") @DefaultValue("false") boolean includeText) {
+        final BenchmarkDto.BenchRequest r = req == null ? new BenchmarkDto.BenchRequest() : req;
+        return Response.ok(streamRows(r, null, (sb, x) -> ResultExport.appendNdjson(sb, x, includeText)))
+                .header("Content-Disposition", "attachment; filename=\"bench.ndjson\"")
+                .build();
+    }
+
+    /**
+     * Führt den Batch in einem virtuellen Thread aus und schreibt die Ergebnisse in
+     * Abschlussreihenfolge in den Response-Stream. Bricht der Client die Verbindung ab,
+     * wird auch der Batch abgebrochen.
+     */
+    private StreamingOutput streamRows(BenchmarkDto.BenchRequest req, String header,
+                                       BiConsumer<StringBuilder, BenchmarkDto.SingleRunResult> row) {
+        if (req.batchId == null || req.batchId.isBlank()) req.batchId = UUID.randomUUID().toString();
+        return os -> {
+            BlockingQueue<BenchmarkDto.SingleRunResult> queue = new LinkedBlockingQueue<>();
+            Thread.ofVirtual().name("bench-export-" + req.batchId).start(() -> {
+                try {
+                    service.stream(req, queue::add);
+                } finally {
+                    queue.add(END);
+                }
+            });
+            Writer w = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), 64 * 1024);
+            StringBuilder sb = new StringBuilder(512);
+            try {
+                if (header != null) w.write(header);
+                while (true) {
+                    var r = queue.poll();
+                    if (r == null) {
+                        // Nichts mehr gepuffert: bisherige Zeilen an den Client geben
+                        w.flush();
+                        r = queue.take();
+                    }
+                    if (r == END) break;
+                    row.accept(sb, r);
+                    ResultExport.drain(sb, w);
+                }
+                w.flush();
+            } catch (IOException e) {
+                LoadEngine.shared().cancel(req.batchId);
+                throw e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LoadEngine.shared().cancel(req.batchId);
+                throw new InterruptedIOException("Export interrupted");
+            }
+        };
+    }
+
+    /**
+     * Bricht einen laufenden Batch ab. Noch nicht gestartete Läufe entfallen,
+     * laufende HTTP-Aufrufe werden unterbrochen.
+     * 
+     * @param id Batch-ID (aus der Anfrage oder dem Feld request.batchId der Antwort)
+     * @return 204 bei Erfolg, 404 falls kein Batch mit dieser ID läuft
+     */
+    @DELETE
+    @Path("/batches/{id}")
+    public Response cancel(@PathParam("id") String id) {
+        return LoadEngine.shared().cancel(id)
+                ? Response.noContent().build()
+                : Response.status(Response.Status.NOT_FOUND).build();
+    }
+
+    /**
+     * Zustand der prozessweiten Zugangssteuerung: je Lane (Provider/Modell) laufende und
+     * wartende Aufrufe, Wartezeiten und beteiligte Batches (siehe AdmissionController).
+     * 
+     * @return Momentaufnahme aller Lanes
+     */
+    @GET
+    @Path("/scheduler")
+    @Produces(MediaType.APPLICATION_JSON)
+    public BenchmarkDto.SchedulerStatus scheduler() {
+        return AdmissionController.shared().status();
+    }
 
-    // Hilfsmethode für Null-sichere Integer-Ausgabe
-    private static String n(Integer i){ return i==null? "": i.toString(); }
+    // Endmarke für die Export-Queue
+    private static final BenchmarkDto.SingleRunResult END = BenchmarkDto.SingleRunResult.failure(null, null, 0, 0, 0, null);
 }
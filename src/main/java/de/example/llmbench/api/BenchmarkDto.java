@@ -3,6 +3,7 @@ package de.example.llmbench.api;
 import java.time.Instant;
 import java.util.List;
 import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -13,6 +14,18 @@ import java.util.Map;
  * - SingleRunResult: Ergebnis eines einzelnen Durchlaufs
  * - Aggregates: Statistische Auswertung mehrerer Durchläufe
  * - BenchResponse: Antwortobjekt mit allen Ergebnissen und Metadaten
+ * - JobStatus: Zustand eines asynchron laufenden Benchmark-Jobs
+ * - TestPlan/PlanStep: deklarativer Testplan, PlanReport/StepReport: dessen Ergebnis
+ * - SweepRequest/SweepReport: Parallelitäts-Sweep mit Kapazitätskurve
+ * - RunInfo/HistoryReport: gespeicherte Läufe (siehe ResultStore)
+ * - MetricDelta/CompareReport: Regressionsvergleich zweier gespeicherter Läufe
+ * - NodeStatus: Zustand eines Ollama-Knotens im Pool (siehe OllamaPool)
+ * - MatrixRequest/MatrixReport: Modelle × Prompts × Varianten in einer Anfrage (siehe MatrixRunner)
+ * - DatasetQuery/DatasetRecord/DatasetInfo: Prompt-Datensätze aus Dateien (siehe PromptDataset)
+ * - ModelInfo: Modell mit Metadaten aus dem Modellkatalog (siehe ModelCatalog)
+ * - ConsistencyReport: paarweise Konsistenz der Antworttexte (siehe TextSimilarity)
+ * - Convergence/ConfidenceInterval: erreichte Genauigkeit im adaptiven Modus (siehe AdaptiveRuns)
+ * - SchedulerStatus/AdmissionLane/AdmissionBatch: Zugangssteuerung (siehe AdmissionController)
  */
 public class BenchmarkDto {
 
@@ -30,11 +43,83 @@ public class BenchmarkDto {
         public Integer runs;              // Anzahl der Durchläufe
         public Integer timeoutMs;         // Timeout pro Anfrage (ms)
         public Integer concurrency;       // Parallele Anfragen
+        public Boolean stream;            // Streaming-Modus (TTFT/ITL-Messung)
+        public String batchId;            // Optional: ID zum Abbrechen des Batches
+
+        // Lastmodell: "closed" (Standard, concurrency Worker) oder "open" (feste Ankunftsrate)
+        public String mode;
+        public Double ratePerSec;         // Open-Loop: Ziel-Anfragen pro Sekunde
+        public Double durationSec;        // Open-Loop: Dauer statt Anzahl Läufe
+        public Double rampUpSec;          // Open-Loop: lineare Anlaufzeit
+        public List<Double> rateSteps;    // Open-Loop: optionale Stufenfolge von Raten
+        public Double stepSec;            // Open-Loop: Dauer einer Stufe
 
         // Optional: Erwartete Schlüsselwörter für Qualitätsbewertung
         public List<String> expectedKeywords;
 
+        // Optional: paarweise Konsistenz aller Antworttexte bewerten (siehe TextSimilarity)
+        public Boolean consistency;
+        public Integer shingleSize;       // Wörter je Shingle (Standard 2)
+
+        // Optional: Markierung des gespeicherten Laufs (z.B. "baseline" für Vergleiche)
+        public String tag;
+
+        // Optional: alle Läufe auf einen Knoten des Pools legen (Name oder URL, siehe OllamaPool)
+        public String node;
+
+        // Optional: Ergebnisse kompakt in Spalten statt als Einzelergebnisse halten (siehe ResultColumns);
+        // die Antwort enthält dann keine results, nur Aggregates
+        public Boolean compact;
+        public String texts;              // kompakt: Antworttexte "drop" (Standard), "hash" oder "spill"
+
+        // Optional: adaptive Anzahl der Läufe statt runs – weitere Runden, bis die 95-%-Konfidenzintervalle
+        // der Zielkennzahlen schmal genug sind (siehe AdaptiveRuns; nur geschlossene Schleife)
+        public Double targetCiPct;        // Zielbreite des Intervalls in % des Schätzwerts
+        public List<String> targetMetrics; // "p50", "p95", "tokensPerSec" (Standard: p50, p95)
+        public Integer minRuns;           // Läufe der ersten Runde (Standard 10)
+        public Integer maxRuns;           // Obergrenze aller Läufe (Standard 500)
+
+        // Optional: exklusiver Zugriff auf Endpunkt/Modell – andere Batches warten, bis dieser fertig ist
+        // (siehe AdmissionController)
+        public Boolean isolated;
+
         public BenchRequest() {}
+
+        /**
+         * Flache Kopie aller Parameter (z.B. als Basis für die Schritte eines Testplans).
+         */
+        public BenchRequest copy() {
+            BenchRequest c = new BenchRequest();
+            c.provider = provider;
+            c.model = model;
+            c.prompt = prompt;
+            c.temperature = temperature;
+            c.maxTokens = maxTokens;
+            c.runs = runs;
+            c.timeoutMs = timeoutMs;
+            c.concurrency = concurrency;
+            c.stream = stream;
+            c.batchId = batchId;
+            c.mode = mode;
+            c.ratePerSec = ratePerSec;
+            c.durationSec = durationSec;
+            c.rampUpSec = rampUpSec;
+            c.rateSteps = rateSteps;
+            c.stepSec = stepSec;
+            c.expectedKeywords = expectedKeywords;
+            c.consistency = consistency;
+            c.shingleSize = shingleSize;
+            c.tag = tag;
+            c.node = node;
+            c.compact = compact;
+            c.texts = texts;
+            c.targetCiPct = targetCiPct;
+            c.targetMetrics = targetMetrics;
+            c.minRuns = minRuns;
+            c.maxRuns = maxRuns;
+            c.isolated = isolated;
+            return c;
+        }
     }
 
     /**
@@ -44,6 +129,7 @@ public class BenchmarkDto {
     public static record SingleRunResult(
             String provider,
             String model,
+            String node,            // Knoten, der die Anfrage bearbeitet hat (null ohne Pool)
             long startNanos,
             long endNanos,
             int httpStatus,
@@ -58,14 +144,159 @@ public class BenchmarkDto {
             String text,
 
             // Qualitätsbewertung (0..1, falls berechnet)
-            Double quality
+            Double quality,
+
+            // Streaming-Metriken (nur bei stream=true gesetzt)
+            Double ttftMs,          // Zeit bis zum ersten Token
+            Double itlMs,           // mittlerer Abstand zwischen zwei Chunks
+            Double tokensPerSec,    // Ausgabe-Tokens pro Sekunde
+
+            // Server-Timings laut Ollama in ms (null, wenn der Server sie nicht liefert)
+            Double loadMs,          // Laden des Modells (Cold Start)
+            Double promptEvalMs,    // Verarbeitung des Prompts
+            Double evalMs,          // Erzeugung der Ausgabe
+            Double serverTotalMs,   // Gesamtdauer auf dem Server
+            // Daraus abgeleitet (beim Bauen berechnet)
+            Double promptTokensPerSec,  // Prompt-Tokens pro Sekunde Prompt-Verarbeitung
+            Double evalTokensPerSec,    // Ausgabe-Tokens pro Sekunde reiner Decode-Zeit
+            Double overheadMs,          // Client-Dauer minus Server-Gesamtdauer (Netz, Warteschlange)
+
+            // Phasen der HTTP-Anfrage aus Sicht des Clients (null, wenn keine Antwort ankam)
+            Double headersMs,           // Start bis Status/Header: Verbindungsaufbau, Senden, Server bis zum ersten Byte
+            Double bodyMs,              // Header bis Ende: Lesen und Auswerten der Antwort
+
+            // Geplanter Startzeitpunkt im Open-Loop-Modus (null im Closed-Loop-Modus)
+            Long intendedStartNanos,
+
+            // Wartezeit auf einen Platz beim AdmissionController vor dem Start (null ohne Begrenzung);
+            // nicht in durationMs enthalten, im Open-Loop-Modus aber in latencyMs (ab geplantem Start)
+            Double queueWaitMs
     ) {
         /**
          * Berechnet die Dauer des Durchlaufs in Millisekunden.
          */
         public double durationMs() { return (endNanos - startNanos) / 1_000_000.0; }
+
+        /**
+         * Latenz aus Sicht des Aufrufers in Millisekunden: ab dem geplanten Start, falls
+         * vorhanden, sonst ab dem tatsächlichen Start. Verzögerungen durch Rückstau
+         * werden so nicht verschluckt (Coordinated Omission).
+         */
+        public double latencyMs() {
+            long from = intendedStartNanos != null ? intendedStartNanos : startNanos;
+            return (endNanos - from) / 1_000_000.0;
+        }
+
+        /**
+         * Erzeugt ein Fehlerergebnis ohne Token- und Streaming-Metriken.
+         */
+        public static SingleRunResult failure(String provider, String model, long startNanos, long endNanos, int httpStatus, String error) {
+            return builder(provider, model).start(startNanos).end(endNanos).httpStatus(httpStatus).error(error).build();
+        }
+
+        /**
+         * Liefert einen Builder mit Provider und Modell vorbelegt.
+         */
+        public static Builder builder(String provider, String model) { return new Builder(provider, model); }
+
+        /**
+         * Liefert einen Builder, der mit allen Werten dieses Ergebnisses vorbelegt ist.
+         */
+        public Builder toBuilder() {
+            return new Builder(provider, model)
+                    .node(node)
+                    .start(startNanos).end(endNanos)
+                    .httpStatus(httpStatus).success(success).error(error)
+                    .tokens(inputTokens, outputTokens, totalTokens)
+                    .responseBytes(responseBytes)
+                    .text(text).quality(quality)
+                    .streaming(ttftMs, itlMs, tokensPerSec)
+                    .serverTimings(loadMs, promptEvalMs, evalMs, serverTotalMs)
+                    .headers(headersMs == null ? null : startNanos + Math.round(headersMs * 1_000_000.0))
+                    .intendedStart(intendedStartNanos)
+                    .queueWait(queueWaitMs);
+        }
+
+        /**
+         * Builder für SingleRunResult – die Anzahl optionaler Felder macht den
+         * kanonischen Konstruktor unhandlich.
+         */
+        public static final class Builder {
+            private final String provider;
+            private final String model;
+            private String node;
+            private long startNanos, endNanos;
+            private int httpStatus;
+            private boolean success;
+            private String error;
+            private Integer inputTokens, outputTokens, totalTokens, responseBytes;
+            private String text;
+            private Double quality;
+            private Double ttftMs, itlMs, tokensPerSec;
+            private Double loadMs, promptEvalMs, evalMs, serverTotalMs;
+            private Long headersNanos;
+            private Long intendedStartNanos;
+            private Double queueWaitMs;
+
+            private Builder(String provider, String model) { this.provider = provider; this.model = model; }
+
+            public Builder node(String node) { this.node = node; return this; }
+            public Builder start(long nanos) { this.startNanos = nanos; return this; }
+            public Builder end(long nanos) { this.endNanos = nanos; return this; }
+            public Builder httpStatus(int status) { this.httpStatus = status; return this; }
+            public Builder success(boolean ok) { this.success = ok; return this; }
+            public Builder error(String error) { this.error = error; return this; }
+            public Builder tokens(Integer input, Integer output, Integer total) {
+                this.inputTokens = input; this.outputTokens = output; this.totalTokens = total; return this;
+            }
+            public Builder responseBytes(Integer bytes) { this.responseBytes = bytes; return this; }
+            public Builder text(String text) { this.text = text; return this; }
+            public Builder quality(Double quality) { this.quality = quality; return this; }
+            public Builder streaming(Double ttftMs, Double itlMs, Double tokensPerSec) {
+                this.ttftMs = ttftMs; this.itlMs = itlMs; this.tokensPerSec = tokensPerSec; return this;
+            }
+            public Builder serverTimings(Double loadMs, Double promptEvalMs, Double evalMs, Double totalMs) {
+                this.loadMs = loadMs; this.promptEvalMs = promptEvalMs; this.evalMs = evalMs; this.serverTotalMs = totalMs; return this;
+            }
+            /** Zeitpunkt (System.nanoTime), zu dem Status und Header eintrafen. */
+            public Builder headers(Long nanos) { this.headersNanos = nanos; return this; }
+            public Builder intendedStart(Long nanos) { this.intendedStartNanos = nanos; return this; }
+            public Builder queueWait(Double ms) { this.queueWaitMs = ms; return this; }
+
+            public SingleRunResult build() {
+                Double overhead = serverTotalMs == null || endNanos <= startNanos ? null
+                        : (endNanos - startNanos) / 1_000_000.0 - serverTotalMs;
+                return new SingleRunResult(provider, model, node, startNanos, endNanos, httpStatus, success, error,
+                        inputTokens, outputTokens, totalTokens, responseBytes, text, quality,
+                        ttftMs, itlMs, tokensPerSec,
+                        loadMs, promptEvalMs, evalMs, serverTotalMs,
+                        perSec(inputTokens, promptEvalMs), perSec(outputTokens, evalMs), overhead,
+                        headersNanos == null ? null : (headersNanos - startNanos) / 1_000_000.0,
+                        headersNanos == null || endNanos < headersNanos ? null : (endNanos - headersNanos) / 1_000_000.0,
+                        intendedStartNanos, queueWaitMs);
+            }
+
+            // Tokens pro Sekunde aus Anzahl und Dauer in ms (null, wenn nicht bestimmbar)
+            private static Double perSec(Integer tokens, Double ms) {
+                return tokens == null || tokens <= 0 || ms == null || ms <= 0 ? null : tokens / (ms / 1000.0);
+            }
+        }
     }
 
+    /**
+     * Verteilung einer einzelnen Kennzahl über mehrere Durchläufe
+     * (z.B. TTFT oder Tokens/s). Nur Läufe mit gesetztem Wert zählen in n.
+     */
+    public static record MetricSummary(
+            int n,
+            double avg,
+            double min,
+            double max,
+            double p50,
+            double p90,
+            double p95
+    ) {}
+
     /**
      * Statistische Auswertung mehrerer Durchläufe.
      * Enthält typische Metriken wie Durchschnitt, Minimum, Maximum und Perzentile.
@@ -77,10 +308,40 @@ public class BenchmarkDto {
             double maxMs,
             double p50Ms,
             double p90Ms,
-            double p95Ms
+            double p95Ms,
+            double p99Ms,
+            double p999Ms,
+            double throughputRps,         // abgeschlossene Läufe pro Sekunde Wandzeit
+            // Streaming-Kennzahlen (null, wenn kein Lauf Streaming-Werte liefert)
+            MetricSummary ttftMs,
+            MetricSummary itlMs,
+            MetricSummary tokensPerSec,
+            // Server-Timings und abgeleitete Raten (null, wenn der Server keine liefert)
+            MetricSummary loadMs,
+            MetricSummary promptEvalMs,
+            MetricSummary evalMs,
+            MetricSummary serverTotalMs,
+            MetricSummary promptTokensPerSec,
+            MetricSummary evalTokensPerSec,
+            MetricSummary overheadMs,
+            // Phasen der HTTP-Anfrage (null, wenn keine Antwort ankam)
+            MetricSummary headersMs,
+            MetricSummary bodyMs,
+            // Wartezeit beim AdmissionController (null ohne Begrenzung; nicht in den Latenzen oben)
+            MetricSummary queueWaitMs
             // Hinweis: Quality-Statistik fügen wir nicht hier ein,
             // sondern als Felder im request-Block unten.
-    ) {}
+    ) {
+        /**
+         * Kopie mit anderer ITL-Verteilung (z.B. aus den einzelnen Chunk-Abständen statt
+         * aus den Mittelwerten je Lauf).
+         */
+        public Aggregates withItlMs(MetricSummary itl) {
+            return new Aggregates(runs, avgMs, minMs, maxMs, p50Ms, p90Ms, p95Ms, p99Ms, p999Ms, throughputRps,
+                    ttftMs, itl, tokensPerSec, loadMs, promptEvalMs, evalMs, serverTotalMs,
+                    promptTokensPerSec, evalTokensPerSec, overheadMs, headersMs, bodyMs, queueWaitMs);
+        }
+    }
 
     /**
      * Antwortobjekt für einen Benchmark-Lauf.
@@ -90,26 +351,511 @@ public class BenchmarkDto {
             String timestamp,
             Map<String, Object> request,
             SingleRunResult[] results,
-            Aggregates aggregates
+            Aggregates aggregates,
+            Map<String, Aggregates> nodes,  // je Knoten (null, wenn alle Läufe auf einem Knoten liefen)
+            ConsistencyReport consistency,  // nur mit consistency=true
+            Convergence convergence,        // nur im adaptiven Modus (targetCiPct)
+            Long runId,                 // ID im ResultStore (null, wenn nicht gespeichert)
+            String storeError           // Grund, wenn der Lauf nicht gespeichert werden konnte
     ) {
         /**
          * Hilfsmethode zum Erzeugen einer BenchResponse aus Anfrage, Ergebnissen und Statistik.
-         * Die Anfrageparameter werden als Map serialisiert.
+         * Die Anfrageparameter werden als Map serialisiert; verteilen sich die Läufe auf
+         * mehrere Knoten, kommen Aggregates je Knoten hinzu.
          */
         public static BenchResponse of(BenchRequest req, SingleRunResult[] results, Aggregates agg) {
             Map<String, Object> reqMap = new LinkedHashMap<>();
             reqMap.put("provider", req.provider);
             reqMap.put("model", req.model);
+            reqMap.put("batchId", req.batchId);
             reqMap.put("runs", req.runs);
             reqMap.put("concurrency", req.concurrency);
+            if (req.targetCiPct != null) {
+                reqMap.put("targetCiPct", req.targetCiPct);
+                reqMap.put("targetMetrics", req.targetMetrics);
+                reqMap.put("minRuns", req.minRuns);
+                reqMap.put("maxRuns", req.maxRuns);
+            }
+            if ("open".equalsIgnoreCase(req.mode)) {
+                reqMap.put("mode", "open");
+                reqMap.put("ratePerSec", req.ratePerSec);
+                reqMap.put("durationSec", req.durationSec);
+                reqMap.put("rampUpSec", req.rampUpSec);
+                reqMap.put("rateSteps", req.rateSteps);
+                reqMap.put("stepSec", req.stepSec);
+            }
             reqMap.put("timeoutMs", req.timeoutMs);
             reqMap.put("temperature", req.temperature);
             reqMap.put("maxTokens", req.maxTokens);
+            reqMap.put("stream", req.stream);
             reqMap.put("promptChars", req.prompt == null ? 0 : req.prompt.length());
             if (req.expectedKeywords != null && !req.expectedKeywords.isEmpty()) {
                 reqMap.put("expectedKeywords", req.expectedKeywords);
             }
-            return new BenchResponse(Instant.now().toString(), reqMap, results, agg);
+            if (Boolean.TRUE.equals(req.isolated)) reqMap.put("isolated", true);
+            if (req.tag != null) reqMap.put("tag", req.tag);
+            if (req.node != null) reqMap.put("node", req.node);
+            // Metadaten aus dem Modellkatalog (nur falls bereits geladen), z.B. zum Gruppieren nach Quantisierung
+            ModelInfo info = req.model == null ? null : ModelCatalog.shared().lookup(req.provider, req.model);
+            if (info != null) {
+                reqMap.put("family", info.family());
+                reqMap.put("parameterSize", info.parameterSize());
+                reqMap.put("quantization", info.quantization());
+            }
+            reqMap.put("promptHash", ResultStore.promptHash(req.prompt));
+            return new BenchResponse(Instant.now().toString(), reqMap, results, agg, StatsUtil.byNode(results), null, null, null, null);
+        }
+
+        /**
+         * Antwort eines kompakten Laufs: ohne Einzelergebnisse, Knoten-Aggregates aus den Spalten.
+         */
+        public static BenchResponse compact(BenchRequest req, ResultColumns cols, Aggregates agg) {
+            BenchResponse r = of(req, (SingleRunResult[]) null, agg);
+            r.request.put("compact", true);
+            r.request.put("texts", cols.textMode().name().toLowerCase(Locale.ROOT));
+            return new BenchResponse(r.timestamp, r.request, null, agg, StatsUtil.byNode(cols), null, null, null, null);
+        }
+
+        /**
+         * Kopie mit gesetzter Run-ID aus dem ResultStore bzw. dem Grund, warum nicht gespeichert wurde.
+         */
+        public BenchResponse withRunId(Long id, String error) {
+            return new BenchResponse(timestamp, request, results, aggregates, nodes, consistency, convergence, id, error);
+        }
+
+        /**
+         * Kopie mit Konsistenzbericht.
+         */
+        public BenchResponse withConsistency(ConsistencyReport c) {
+            return new BenchResponse(timestamp, request, results, aggregates, nodes, c, convergence, runId, storeError);
+        }
+
+        /**
+         * Kopie mit den erreichten Konfidenzintervallen des adaptiven Modus.
+         */
+        public BenchResponse withConvergence(Convergence c) {
+            return new BenchResponse(timestamp, request, results, aggregates, nodes, consistency, c, runId, storeError);
+        }
+    }
+
+    /**
+     * Zustand der Zugangssteuerung (siehe AdmissionController, GET /api/bench/scheduler).
+     */
+    public static record SchedulerStatus(
+            int limit,                  // gleichzeitige Aufrufe je Lane (0 = unbegrenzt)
+            List<AdmissionLane> lanes
+    ) {}
+
+    /**
+     * Eine Lane: Provider, Modell und ggf. fest gewählter Knoten.
+     */
+    public static record AdmissionLane(
+            String lane,
+            int inFlight,               // laufende Aufrufe
+            int queued,                 // wartende Aufrufe (Warteschlangentiefe)
+            String isolatedBatch,       // Batch mit exklusivem Zugriff oder null
+            int isolatedWaiting,        // Batches, die auf exklusiven Zugriff warten
+            long admitted,              // zugelassene Aufrufe seit Start
+            long delayed,               // davon mit Wartezeit
+            double avgWaitMs,           // mittlere Wartezeit der verzögerten Aufrufe
+            double maxWaitMs,
+            List<AdmissionBatch> batches
+    ) {}
+
+    /**
+     * Anteil eines Batches an einer Lane.
+     */
+    public static record AdmissionBatch(
+            String batchId,
+            boolean isolated,
+            int inFlight,
+            int queued
+    ) {}
+
+    /**
+     * Ergebnis des adaptiven Modus (siehe AdaptiveRuns): erreichte 95-%-Konfidenzintervalle
+     * der Zielkennzahlen und warum keine weitere Runde gestartet wurde.
+     */
+    public static record Convergence(
+            double targetCiPct,
+            List<String> metrics,
+            int minRuns,
+            int maxRuns,
+            int runs,                   // tatsächlich ausgeführte Läufe
+            int rounds,
+            boolean converged,          // alle Intervalle höchstens targetCiPct breit
+            String stop,                // converged, maxRuns, noData oder cancelled
+            Map<String, ConfidenceInterval> intervals
+    ) {}
+
+    /**
+     * 95-%-Konfidenzintervall einer Kennzahl. Perzentile: verteilungsfreies Intervall aus
+     * Rangstatistiken; Mittelwerte: Normalapproximation.
+     */
+    public static record ConfidenceInterval(
+            int n,                      // Werte
+            double estimate,
+            Double lower,               // null, solange zu wenige Werte für ein Intervall vorliegen
+            Double upper,
+            Double widthPct             // (upper - lower) in % des Schätzwerts
+    ) {}
+
+    /**
+     * Paarweise Konsistenz der Antworttexte eines Laufs (Jaccard-Ähnlichkeit über
+     * Wort-Shingles, siehe TextSimilarity). Alle Werte zwischen 0 und 1.
+     */
+    public static record ConsistencyReport(
+            int texts,                  // verglichene Texte
+            Integer available,          // nicht-leere Texte insgesamt, falls nur eine Auswahl verglichen wurde
+            long pairs,                 // verglichene Paare
+            String method,              // exact, minhash (geschätzt) oder hash (nur identische Texte, kompakt)
+            int shingleSize,
+            double mean,                // mittlere Ähnlichkeit aller Paare
+            double min,                 // unähnlichstes Paar
+            double p10,                 // 10 % der Paare sind unähnlicher
+            double median,
+            double adjacent,            // Mittel benachbarter Antworten (Ausführungsreihenfolge)
+            int outlier,                // Index (in results) der Antwort mit der geringsten mittleren Ähnlichkeit
+            double outlierMean          // deren mittlere Ähnlichkeit zu allen anderen
+    ) {
+    }
+
+    /**
+     * Zustand eines asynchronen Benchmark-Jobs (siehe JobResource).
+     * aggregates sind die laufend aktualisierten Statistiken der bisher fertigen Läufe.
+     */
+    public static record JobStatus(
+            String id,
+            String state,               // RUNNING, DONE, CANCELLED, FAILED
+            String createdAt,
+            String finishedAt,
+            int completed,              // fertige Läufe
+            Integer planned,            // geplante Läufe (null im Open-Loop-Modus)
+            String error,
+            Aggregates aggregates
+    ) {}
+
+    /**
+     * Deklarativer Testplan, der vollständig auf dem Server ausgeführt wird (siehe TestPlanRunner).
+     * Die Schritte überschreiben einzelne Felder der Basisanfrage. Ohne eigene Schritte
+     * wird das angegebene Preset verwendet (coldWarm, consistency, parallel).
+     */
+    public static class TestPlan {
+        public String name;               // Optional: Bezeichnung für den Bericht
+        public String preset;             // coldWarm, consistency oder parallel
+        public BenchRequest base;         // gemeinsame Parameter aller Schritte
+        public List<PlanStep> steps;      // eigene Schritte (haben Vorrang vor dem Preset)
+        public Boolean includeResults;    // Einzelergebnisse mit ausliefern (Standard: nein)
+
+        public TestPlan() {}
+    }
+
+    /**
+     * Ein Schritt eines Testplans. Nicht gesetzte Felder werden aus der Basisanfrage übernommen.
+     */
+    public static class PlanStep {
+        public String name;
+        public Integer runs;                    // gemessene Läufe
+        public Integer concurrency;
+        public List<Integer> concurrencySweep;  // ein Teilschritt je Parallelität
+        public Integer warmupRuns;              // Aufwärmläufe vorab, nicht in der Statistik
+        public Boolean coldStart;               // Modell vorher entladen (echter Cold Start)
+        public Boolean stream;
+        public Boolean consistency;             // Konsistenz der Antworttexte bewerten
+
+        public PlanStep() {}
+    }
+
+    /**
+     * Ergebnis eines (Teil-)Schritts eines Testplans.
+     */
+    public static record StepReport(
+            String name,
+            int concurrency,
+            int runs,
+            int warmupRuns,
+            boolean coldStart,
+            int succeeded,
+            String note,                // z.B. fehlgeschlagenes Entladen des Modells
+            Aggregates aggregates,
+            Double consistency,         // mittlere Jaccard-Ähnlichkeit benachbarter Antworten
+            ConsistencyReport pairwise, // paarweise Konsistenz aller Antworten (mit consistency)
+            SingleRunResult[] results   // nur mit includeResults
+    ) {}
+
+    /**
+     * Konsolidierter Bericht eines Testplans.
+     */
+    public static record PlanReport(
+            String timestamp,
+            String name,
+            Map<String, Object> request,
+            double durationMs,
+            List<StepReport> steps
+    ) {}
+
+    /**
+     * Parameter eines Parallelitäts-Sweeps (siehe CapacitySweep).
+     * Ohne levels wird die Parallelität ab 1 verdoppelt, bis maxConcurrency erreicht ist.
+     */
+    public static class SweepRequest {
+        public BenchRequest base;         // Prompt, Modell usw. für alle Stufen
+        public List<Integer> levels;      // explizite Parallelitätsstufen (aufsteigend)
+        public Integer maxConcurrency;    // höchste Stufe bei automatischer Verdopplung (Standard 32)
+        public Integer runsPerWorker;     // gemessene Läufe je Worker einer Stufe (Standard 4)
+        public Integer warmupRuns;        // Aufwärmläufe vor jeder Stufe, nicht in der Statistik
+        public Double minScaling;         // Mindest-Skalierung je Stufe, darunter gilt der Knick als erreicht (Standard 0.25)
+        public Double maxErrorRate;       // Fehlerquote, ab der eine Stufe als überlastet gilt (Standard 0.05)
+        public Boolean stopAtKnee;        // nach der ersten gesättigten Stufe abbrechen (Standard true)
+
+        public SweepRequest() {}
+    }
+
+    /**
+     * Messpunkt einer Parallelitätsstufe.
+     */
+    public static record SweepPoint(
+            int concurrency,
+            int runs,
+            int succeeded,
+            double errorRate,
+            double throughputRps,         // abgeschlossene Läufe pro Sekunde
+            double outputTokensPerSec,    // erzeugte Tokens pro Sekunde über alle Worker
+            double p50Ms,
+            double p95Ms,
+            double p99Ms,
+            Double scaling                // relativer Durchsatzgewinn / relative Parallelitätssteigerung (1 = linear)
+    ) {}
+
+    /**
+     * Kapazitätskurve eines Sweeps inklusive erkanntem Sättigungspunkt.
+     */
+    public static record SweepReport(
+            String timestamp,
+            Map<String, Object> request,
+            double durationMs,
+            List<SweepPoint> points,
+            Integer kneeConcurrency,      // höchste Stufe, die noch skaliert (null ohne Messpunkte)
+            boolean saturated,            // false, wenn auch die höchste Stufe noch skaliert
+            String kneeReason
+    ) {}
+
+    /**
+     * Metadaten eines gespeicherten Batches im ResultStore.
+     */
+    public static record RunInfo(
+            long runId,
+            String timestamp,
+            String provider,
+            String model,
+            String promptHash,          // FNV-1a-Hash des Prompts (hex)
+            String tag,                 // Markierung aus der Anfrage (null, wenn keine)
+            int samples,                // gespeicherte Einzelergebnisse
+            int concurrency,
+            boolean stream,
+            double spanMs               // Wandzeit vom ersten Start bis zum letzten Ende
+    ) {}
+
+    /**
+     * Ergebnis einer History-Abfrage: passende Läufe (neueste zuerst, begrenzt)
+     * und Aggregates über alle Einzelergebnisse aller passenden Läufe.
+     */
+    public static record HistoryReport(
+            int matchedRuns,
+            long samples,
+            List<RunInfo> runs,
+            Aggregates aggregates
+    ) {}
+
+    /**
+     * Veränderung einer Kennzahl zwischen Baseline und Kandidat.
+     * Das Konfidenzintervall bezieht sich auf die Differenz (Kandidat minus Baseline).
+     */
+    public static record MetricDelta(
+            String metric,              // z.B. latencyMs.p95, tokensPerSec.mean
+            boolean higherIsBetter,
+            double baseline,
+            double candidate,
+            double delta,               // candidate - baseline
+            Double deltaPct,            // relativ zur Baseline (null bei Baseline 0)
+            Double ciLow,               // Bootstrap-Konfidenzintervall der Differenz
+            Double ciHigh,
+            Double pValue,              // Mann-Whitney-U (zweiseitig) auf den Einzelwerten
+            boolean significant,        // Konfidenzintervall schließt 0 aus
+            boolean regression          // signifikant schlechter und über der Toleranz
+    ) {}
+
+    /**
+     * Ergebnis eines Regressionsvergleichs; passed ist false, sobald eine Kennzahl regressiert.
+     */
+    public static record CompareReport(
+            RunInfo baseline,
+            RunInfo candidate,
+            double confidence,
+            double maxRegressionPct,
+            List<MetricDelta> metrics,
+            List<String> regressions,
+            boolean passed
+    ) {}
+
+    /**
+     * Zustand eines Ollama-Knotens im Pool (siehe OllamaPool).
+     */
+    public static record NodeStatus(
+            String name,                // Host:Port, wie in SingleRunResult.node
+            String url,
+            boolean healthy,
+            int outstanding,            // aktuell offene Anfragen
+            long dispatched,            // insgesamt zugeteilte Anfragen
+            long failures,              // davon fehlgeschlagen (Verbindung, Timeout)
+            String lastCheck,           // Zeitpunkt des letzten Health-Checks
+            Double checkMs,             // Antwortzeit des letzten Health-Checks
+            String lastError
+    ) {}
+
+    /**
+     * Matrix-Benchmark: alle Kombinationen aus Modellen, Prompts und Parametervarianten
+     * in einer Anfrage (siehe MatrixRunner). Nicht gesetzte Listen fallen auf die
+     * entsprechenden Werte der Basisanfrage zurück; base.runs ist die Anzahl Läufe je Zelle.
+     */
+    public static class MatrixRequest {
+        public BenchRequest base;               // gemeinsame Parameter aller Zellen
+        public List<String> models;
+        public List<MatrixPrompt> prompts;
+        public DatasetQuery dataset;            // Prompts aus einem Datensatz statt "prompts"
+        public List<MatrixVariant> variants;
+        public Integer concurrency;             // globales Budget gleichzeitiger Läufe (Standard: base.concurrency)
+        public Integer modelsInParallel;        // Modelle, die gleichzeitig laufen dürfen (Standard 1)
+        public Integer warmupRuns;              // je Modell vor dessen Zellen, nicht in der Statistik (Standard 1)
+        public Boolean includeResults;          // Einzelergebnisse mit ausliefern (Standard: nein)
+
+        public MatrixRequest() {}
+    }
+
+    /**
+     * Ein Prompt der Matrix mit optionalen eigenen Schlüsselwörtern für die Qualitätsbewertung.
+     */
+    public static class MatrixPrompt {
+        public String id;                       // Bezeichnung im Bericht (Standard: p1, p2, ...)
+        public String prompt;
+        public List<String> expectedKeywords;   // Standard: base.expectedKeywords
+
+        public MatrixPrompt() {}
+    }
+
+    /**
+     * Eine Parametervariante der Matrix. Nicht gesetzte Felder kommen aus der Basisanfrage.
+     */
+    public static class MatrixVariant {
+        public String name;                     // Bezeichnung im Bericht (Standard: v1, v2, ...)
+        public String provider;
+        public Double temperature;
+        public Integer maxTokens;
+        public Boolean stream;
+
+        public MatrixVariant() {}
+    }
+
+    /**
+     * Ergebnis einer Zelle (Modell × Prompt × Variante).
+     */
+    public static record MatrixCell(
+            String model,
+            String prompt,              // ID des Prompts
+            String variant,             // Name der Variante
+            int runs,
+            int succeeded,
+            Aggregates aggregates,
+            Double quality,             // mittlere Keyword-Trefferquote (null ohne Keywords)
+            Long runId,                 // ID im ResultStore (null, wenn nicht gespeichert)
+            String storeError,          // Grund, wenn die Zelle nicht gespeichert werden konnte
+            SingleRunResult[] results   // nur mit includeResults
+    ) {}
+
+    /**
+     * Alle Zellen eines Modells mit Aggregates über sämtliche Läufe des Modells.
+     */
+    public static record MatrixModelReport(
+            String model,
+            double durationMs,          // Dauer der Phase, in der das Modell lief
+            int warmupRuns,
+            String note,                // z.B. Abbruch
+            ModelInfo info,             // Metadaten aus dem Modellkatalog (null, falls nicht geladen)
+            Aggregates aggregates,
+            List<MatrixCell> cells
+    ) {}
+
+    /**
+     * Gruppierter Bericht eines Matrix-Benchmarks (je Modell, darin je Zelle).
+     */
+    public static record MatrixReport(
+            String timestamp,
+            Map<String, Object> request,
+            double durationMs,
+            int cells,
+            int runs,
+            List<MatrixModelReport> models,
+            Map<String, Aggregates> quantizations   // alle Läufe je Quantisierung (null bei weniger als zwei)
+    ) {}
+
+    /**
+     * Auswahl von Datensätzen aus einer Prompt-Datei (siehe PromptDataset).
+     * Ohne limit werden alle passenden Datensätze gelesen (höchstens BENCH_DATASET_MAX_RECORDS).
+     */
+    public static class DatasetQuery {
+        public String name;                     // Dateiname im Datensatz-Verzeichnis, z.B. "suite.jsonl"
+        public String tag;                      // nur Datensätze mit dieser Markierung
+        public Integer limit;                   // Anzahl Datensätze
+        public Boolean sample;                  // zufällige Stichprobe statt der ersten limit Datensätze
+        public Boolean shuffle;                 // Reihenfolge mischen
+        public Long seed;                       // Startwert für sample/shuffle (reproduzierbar)
+        public Boolean perRecord;               // Matrix: jeder Datensatz als eigene Zelle statt gepoolt
+
+        public DatasetQuery() {}
+    }
+
+    /**
+     * Ein Datensatz einer Prompt-Datei.
+     */
+    public static record DatasetRecord(
+            String id,                  // aus der Datei, sonst null
+            String prompt,
+            List<String> expectedKeywords,
+            List<String> tags,
+            long line                   // Zeile in der Datei (ab 1)
+    ) {}
+
+    /**
+     * Beschreibung einer Prompt-Datei im Datensatz-Verzeichnis.
+     */
+    public static record DatasetInfo(
+            String name,
+            String format,              // "jsonl" oder "csv"
+            boolean gzip,
+            long bytes,
+            String modified,
+            Long records                // nur nach Upload gezählt, sonst null
+    ) {}
+
+    /**
+     * Ein Modell mit Metadaten aus /api/tags und /api/show (Ollama). Andere Provider
+     * liefern meist nur den Namen; fehlende Angaben sind null.
+     */
+    public static record ModelInfo(
+            String name,
+            String family,              // z.B. "llama", "qwen2"
+            String parameterSize,       // Angabe des Servers, z.B. "3.1B"
+            Long parameterCount,        // exakte Parameterzahl (aus /api/show)
+            String quantization,        // z.B. "Q4_K_M"
+            String format,              // z.B. "gguf"
+            Long sizeBytes,
+            Long contextLength,         // maximale Kontextlänge (aus /api/show)
+            String digest,
+            String modifiedAt
+    ) {
+        /** Modell ohne Metadaten. */
+        public static ModelInfo named(String name) {
+            return new ModelInfo(name, null, null, null, null, null, null, null, null, null);
         }
     }
 }
@@ -10,4 +10,6 @@ public final class BenchmarkModels {
 
     // Konstanten für Provider-Namen
     public static final String PROVIDER_OLLAMA = "ollama";
+    // OpenAI-kompatible Server (/v1/chat/completions: vLLM, llama.cpp, LM Studio, ...)
+    public static final String PROVIDER_OPENAI = "openai";
 }
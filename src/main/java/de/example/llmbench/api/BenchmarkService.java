@@ -1,19 +1,36 @@
 package de.example.llmbench.api;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.*;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 /**
  * Service-Klasse für das Ausführen von Benchmark-Anfragen.
  * 
- * Stellt Methoden bereit, um mehrere Durchläufe gegen ein LLM-Modell (z.B. Ollama)
- * parallel auszuführen und die Ergebnisse zu sammeln.
+ * Stellt Methoden bereit, um mehrere Durchläufe gegen ein LLM-Modell (Ollama oder ein
+ * anderes Backend, siehe LlmProvider) parallel auszuführen und die Ergebnisse zu sammeln.
  */
 public class BenchmarkService {
 
-    // Client für Ollama-Provider
-    private final OllamaClient ollama = new OllamaClient();
+    private static final BenchmarkService SHARED = new BenchmarkService();
+
+    // Modell, falls die Anfrage keines angibt
+    static final String DEFAULT_MODEL = "qwen2.5:3b";
+
+    // Verfügbare Provider (Ollama, OpenAI-kompatibel, per ServiceLoader ergänzt)
+    private final ProviderRegistry providers = ProviderRegistry.shared();
+    // Last-Engine für die parallele Ausführung
+    private final LoadEngine engine = LoadEngine.shared();
+    // Ablage für die History (speichert nichts, wenn abgeschaltet)
+    private final ResultStore store = ResultStore.shared();
+
+    /**
+     * Liefert die prozessweit geteilte Service-Instanz (ein HTTP-Client für alle Anfragen).
+     */
+    public static BenchmarkService shared() { return SHARED; }
 
     /**
      * Führt mehrere Benchmark-Durchläufe (Batch) aus.
@@ -23,61 +40,181 @@ public class BenchmarkService {
      * @return Array mit Einzelergebnissen aller Durchläufe
      */
     public BenchmarkDto.SingleRunResult[] runOnceBatch(BenchmarkDto.BenchRequest req) {
+        return runOnceBatch(req, null);
+    }
+
+    /**
+     * Führt mehrere Benchmark-Durchläufe (Batch) auf der Last-Engine aus.
+     * Jeder Lauf bekommt einen eigenen virtuellen Thread; die Parallelität wird
+     * durch die Anfrage bestimmt. Über {@code req.batchId} kann der Batch per
+     * {@link LoadEngine#cancel(String)} abgebrochen werden.
+     * 
+     * @param req Benchmark-Anfrage mit Parametern
+     * @param onResult wird für jedes fertige Ergebnis aufgerufen (darf null sein)
+     * @return Array mit Einzelergebnissen aller Durchläufe
+     */
+    public BenchmarkDto.SingleRunResult[] runOnceBatch(BenchmarkDto.BenchRequest req,
+                                                       Consumer<BenchmarkDto.SingleRunResult> onResult) {
+        return execute(req, onResult, true, true, null, null);
+    }
+
+    /**
+     * Führt einen Batch aus, ohne die Ergebnisse zu sammeln. Jedes Ergebnis wird nur an
+     * {@code onResult} übergeben – z.B. für Exporte, die Zeile für Zeile schreiben.
+     * 
+     * @param req Benchmark-Anfrage mit Parametern
+     * @param onResult Empfänger der Einzelergebnisse (aus mehreren Threads aufgerufen)
+     */
+    public void stream(BenchmarkDto.BenchRequest req, Consumer<BenchmarkDto.SingleRunResult> onResult) {
+        execute(req, onResult, false, true, null, null);
+    }
+
+    // retain: Ergebnisse sammeln; score: Qualität schon im Lauf bewerten (sonst im Empfänger);
+    // adaptive: Läufe in Runden bis zur gewünschten Genauigkeit statt req.runs (darf null sein);
+    // itl: nimmt jeden Chunk-Abstand der Streaming-Läufe auf (darf null sein)
+    private BenchmarkDto.SingleRunResult[] execute(BenchmarkDto.BenchRequest req,
+                                                   Consumer<BenchmarkDto.SingleRunResult> onResult,
+                                                   boolean retain, boolean score, AdaptiveRuns adaptive,
+                                                   LatencyHistogram itl) {
         String provider = req.provider == null ? BenchmarkModels.PROVIDER_OLLAMA : req.provider.toLowerCase();
-        int runs = req.runs == null || req.runs < 1 ? 1 : Math.min(req.runs, 200);
-        int timeoutMs = req.timeoutMs == null ? 60000 : req.timeoutMs;
-        double temp = req.temperature == null ? 0.2 : req.temperature;
-        int maxTok = req.maxTokens == null ? 64 : req.maxTokens;
-        String model = req.model == null ? "qwen2.5:3b" : req.model;
-        String prompt = req.prompt == null ? "Say hello." : req.prompt;
+        int runs = req.runs == null || req.runs < 1 ? 1 : Math.min(req.runs, LoadEngine.MAX_RUNS);
+        int timeoutMs = timeoutMs(req);
+        String model = req.model == null ? DEFAULT_MODEL : req.model;
+        if (adaptive != null) runs = adaptive.maxRuns();
         int conc = req.concurrency == null || req.concurrency < 1 ? 1 : Math.min(req.concurrency, runs);
 
-        List<BenchmarkDto.SingleRunResult> out = new ArrayList<>(runs);
-
-        // Nur Ollama wird unterstützt, andere Provider werden abgelehnt
-        if (!BenchmarkModels.PROVIDER_OLLAMA.equals(provider)) {
-            out.add(new BenchmarkDto.SingleRunResult(provider, model, System.nanoTime(), System.nanoTime(), 0, false, "Unsupported provider", null, null, null, null, null, null));
-            return out.toArray(new BenchmarkDto.SingleRunResult[0]);
+        // Unbekannte Provider, ungültige Knoten und ungültige Ankunftspläne werden abgelehnt
+        Callable<BenchmarkDto.SingleRunResult> call;
+        long[] offsets;
+        try {
+            call = call(req, score, itl);
+            offsets = "open".equalsIgnoreCase(req.mode) ? arrivals(req) : null;
+        } catch (IllegalArgumentException e) {
+            return reject(provider, model, e.getMessage(), onResult);
         }
 
-        // Thread-Pool für parallele Ausführung
-        ExecutorService pool = Executors.newFixedThreadPool(conc);
+        LoadEngine.Batch batch;
         try {
-            List<Future<BenchmarkDto.SingleRunResult>> futures = new ArrayList<>(runs);
-            for (int i = 0; i < runs; i++) {
-                // Jeder Durchlauf wird als Task eingereiht
-                futures.add(pool.submit(() -> ollama.callOnce(model, prompt, temp, maxTok, timeoutMs)));
-            }
-            for (Future<BenchmarkDto.SingleRunResult> f : futures) {
-                try {
-                    // Ergebnis mit Timeout abholen
-                    BenchmarkDto.SingleRunResult r = f.get(timeoutMs + 5000L, TimeUnit.MILLISECONDS);
-                    // Qualitätsbewertung berechnen, falls Keywords vorhanden
-                    Double q = QualityUtil.scoreByKeywords(r.text(), req.expectedKeywords);
-                    if (q != null) {
-                        r = new BenchmarkDto.SingleRunResult(
-                                r.provider(), r.model(), r.startNanos(), r.endNanos(),
-                                r.httpStatus(), r.success(), r.error(),
-                                r.inputTokens(), r.outputTokens(), r.totalTokens(), r.responseBytes(),
-                                r.text(), q
-                        );
-                    }
-                    out.add(r);
-                } catch (Exception e) {
-                    // Fehler oder Timeout: Fehlerergebnis erzeugen
-                    long end = System.nanoTime();
-                    long approxStart = end - TimeUnit.MILLISECONDS.toNanos(timeoutMs);
-                    out.add(new BenchmarkDto.SingleRunResult(
-                            provider, model, approxStart, end, 0, false,
-                            e.getClass().getSimpleName() + ": " + e.getMessage(),
-                            null, null, null, null, null, null
-                    ));
-                }
+            batch = engine.open(req.batchId);
+        } catch (IllegalStateException e) {
+            return reject(provider, model, e.getMessage(), onResult);
+        }
+        if (!retain) batch.discardResults();
+        if (Boolean.TRUE.equals(req.isolated)) batch.isolate();
+
+        try (batch) {
+            req.batchId = batch.id();
+            if (offsets != null) {
+                // Offene Schleife: Starts nach Ankunftsrate statt nach freien Workern
+                return batch.runOpenLoop(offsets, timeoutMs, call, onResult);
             }
-        } finally {
-            pool.shutdownNow();
+            if (adaptive != null) return rounds(batch, adaptive, conc, timeoutMs, call, onResult);
+            return batch.runClosedLoop(runs, conc, timeoutMs, call, onResult);
         }
-        return out.toArray(new BenchmarkDto.SingleRunResult[0]);
+    }
+
+    /**
+     * Geplante Starts der offenen Schleife (fehlende Werte mit Standardwerten).
+     *
+     * @throws IllegalArgumentException bei ungültigen Parametern oder mehr Starts als
+     *         {@code BENCH_MAX_RUNS} (siehe ArrivalSchedule)
+     */
+    static long[] arrivals(BenchmarkDto.BenchRequest req) {
+        return ArrivalSchedule.offsets(
+                req.ratePerSec == null ? 1.0 : req.ratePerSec,
+                req.durationSec == null ? 10.0 : req.durationSec,
+                req.rampUpSec == null ? 0.0 : req.rampUpSec,
+                req.rateSteps,
+                req.stepSec == null ? 10.0 : req.stepSec,
+                LoadEngine.MAX_RUNS);
+    }
+
+    // Adaptiver Modus: Runden im selben Batch, bis AdaptiveRuns keine weitere mehr verlangt
+    private static BenchmarkDto.SingleRunResult[] rounds(LoadEngine.Batch batch, AdaptiveRuns adaptive, int conc, int timeoutMs,
+                                                        Callable<BenchmarkDto.SingleRunResult> call,
+                                                        Consumer<BenchmarkDto.SingleRunResult> onResult) {
+        Consumer<BenchmarkDto.SingleRunResult> sink = r -> {
+            adaptive.record(r);
+            if (onResult != null) onResult.accept(r);
+        };
+        List<BenchmarkDto.SingleRunResult> all = new ArrayList<>();
+        for (int n; (n = adaptive.nextRound(conc, batch.isCancelled())) > 0; ) {
+            all.addAll(Arrays.asList(batch.runClosedLoop(n, Math.min(conc, n), timeoutMs, call, sink)));
+        }
+        return all.toArray(BenchmarkDto.SingleRunResult[]::new);
+    }
+
+    /**
+     * Baut den Aufruf eines einzelnen Laufs mit den Parametern der Anfrage (fehlende Werte
+     * mit Standardwerten) inklusive Qualitätsbewertung – z.B. für Batches, deren Läufe
+     * unterschiedliche Anfragen ausführen (siehe MatrixRunner).
+     * 
+     * @param req Benchmark-Anfrage
+     * @return Aufruf eines Laufs
+     * @throws IllegalArgumentException bei unbekanntem Provider oder ungültigem Knoten
+     */
+    Callable<BenchmarkDto.SingleRunResult> call(BenchmarkDto.BenchRequest req) {
+        return call(req, true, null);
+    }
+
+    private Callable<BenchmarkDto.SingleRunResult> call(BenchmarkDto.BenchRequest req, boolean score, LatencyHistogram itl) {
+        int timeoutMs = timeoutMs(req);
+        double temp = req.temperature == null ? 0.2 : req.temperature;
+        int maxTok = req.maxTokens == null ? 64 : req.maxTokens;
+        String model = req.model == null ? DEFAULT_MODEL : req.model;
+        String prompt = req.prompt == null ? "Say hello." : req.prompt;
+        boolean stream = Boolean.TRUE.equals(req.stream);
+        String node = req.node;
+        LongConsumer gaps = itl == null || !stream ? null : ns -> itl.record(ns / 1_000_000.0);
+        // Einmal je Anfrage kompiliert, danach ein Durchlauf je Antwort
+        KeywordMatcher keywords = score ? KeywordMatcher.compile(req.expectedKeywords) : null;
+
+        LlmProvider client = providers.get(req.provider);
+        if (client == null) throw new IllegalArgumentException("Unsupported provider");
+        String nodeError = client.checkNode(node);
+        if (nodeError != null) throw new IllegalArgumentException(nodeError);
+
+        // Zugelassen wird je Provider und Modell (bei festem Knoten je Knoten), siehe AdmissionController
+        return AdmissionController.gated(client.name(), model, node, () -> {
+            // Live-Metriken: laufende Anfragen, Latenz, Status (siehe RunMetrics)
+            Metrics.Gauge inFlight = RunMetrics.started(client.name(), model);
+            BenchmarkDto.SingleRunResult r = null;
+            try {
+                r = client.call(model, prompt, temp, maxTok, timeoutMs, stream, node, gaps);
+            } finally {
+                RunMetrics.finished(inFlight, client.name(), model, r);
+            }
+            // Qualitätsbewertung berechnen, falls Keywords vorhanden
+            Double q = keywords == null ? null : keywords.score(r.text());
+            return q == null ? r : r.toBuilder().quality(q).build();
+        });
+    }
+
+    // Timeout eines Laufs in ms (Standard 60 s)
+    static int timeoutMs(BenchmarkDto.BenchRequest req) {
+        return req.timeoutMs == null ? 60000 : req.timeoutMs;
+    }
+
+    /**
+     * Entlädt das Modell der Anfrage auf dem Provider, um einen Cold Start vorzubereiten
+     * (auf allen Knoten des Pools bzw. nur auf {@code req.node}).
+     * 
+     * @param req Anfrage (Provider, Modell, Timeout, Knoten)
+     * @return null bei Erfolg, sonst eine Fehlerbeschreibung
+     */
+    public String unload(BenchmarkDto.BenchRequest req) {
+        LlmProvider client = providers.get(req.provider);
+        if (client == null) return "Unsupported provider";
+        return client.unload(req.model == null ? DEFAULT_MODEL : req.model, timeoutMs(req), req.node);
+    }
+
+    // Einzelnes Fehlerergebnis für Anfragen, die gar nicht erst ausgeführt werden
+    private static BenchmarkDto.SingleRunResult[] reject(String provider, String model, String error,
+                                                         Consumer<BenchmarkDto.SingleRunResult> onResult) {
+        long now = System.nanoTime();
+        var r = BenchmarkDto.SingleRunResult.failure(provider, model, now, now, 0, error);
+        if (onResult != null) onResult.accept(r);
+        return new BenchmarkDto.SingleRunResult[] { r };
     }
 
     /**
@@ -87,7 +224,44 @@ public class BenchmarkService {
      * @return Antwortobjekt mit Einzelergebnissen und Statistiken
      */
     public BenchmarkDto.BenchResponse run(BenchmarkDto.BenchRequest req) {
-        var results = runOnceBatch(req);
+        return run(req, null);
+    }
+
+    /**
+     * Führt einen vollständigen Benchmark-Lauf aus und meldet jedes Einzelergebnis,
+     * sobald es vorliegt (z.B. für Live-Fortschritt). Das Ergebnis wird im
+     * {@link ResultStore} abgelegt; die Run-ID steht in der Antwort.
+     * 
+     * @param req Benchmark-Anfrage mit Parametern
+     * @param onResult wird für jedes fertige Ergebnis aufgerufen (darf null sein)
+     * @return Antwortobjekt mit Einzelergebnissen und Statistiken
+     */
+    public BenchmarkDto.BenchResponse run(BenchmarkDto.BenchRequest req, Consumer<BenchmarkDto.SingleRunResult> onResult) {
+        AdaptiveRuns adaptive;
+        ResultColumns.TextMode mode = null;
+        try {
+            adaptive = AdaptiveRuns.of(req);
+            if (Boolean.TRUE.equals(req.compact)) mode = ResultColumns.TextMode.parse(req.texts);
+        } catch (IllegalArgumentException e) {
+            // Wie ein unbekannter Provider: ein Fehlerergebnis, nichts ausgeführt
+            var rejected = reject(req.provider == null ? BenchmarkModels.PROVIDER_OLLAMA : req.provider,
+                    req.model == null ? DEFAULT_MODEL : req.model, e.getMessage(), onResult);
+            return BenchmarkDto.BenchResponse.of(req, rejected, StatsUtil.calc(rejected, null));
+        }
+        if (mode != null) {
+            try (ResultColumns cols = new ResultColumns(mode)) {
+                return run(req, onResult, cols, adaptive);
+            }
+        }
+
+        // Latenzen werden lock-frei erfasst, sobald ein Lauf fertig ist (wie im exakten Pfad nur > 0)
+        LatencyHistogram latencies = new LatencyHistogram();
+        LatencyHistogram itl = new LatencyHistogram();
+        var results = execute(req, r -> {
+            double ms = r.latencyMs();
+            if (ms > 0) latencies.record(ms);
+            if (onResult != null) onResult.accept(r);
+        }, true, true, adaptive, itl);
 
         // Optional: Durchschnittliche Qualitätsbewertung berechnen
         Double qAvg = java.util.Arrays.stream(results)
@@ -96,14 +270,71 @@ public class BenchmarkService {
                 .mapToDouble(Double::doubleValue)
                 .average().orElse(Double.NaN);
 
-        var agg = StatsUtil.calc(results);
-        var resp = BenchmarkDto.BenchResponse.of(req, results, agg);
+        var agg = withItl(StatsUtil.calc(results, latencies), itl);
+        Long runId = store.append(req, results);
+        var resp = BenchmarkDto.BenchResponse.of(req, results, agg).withRunId(runId, storeError(runId, results.length));
+
+        // Optional: paarweise Konsistenz aller Antworttexte (parallel berechnet)
+        if (Boolean.TRUE.equals(req.consistency)) {
+            List<String> texts = new java.util.ArrayList<>(results.length);
+            for (var r : results) texts.add(r.text());
+            int k = req.shingleSize == null ? TextSimilarity.DEFAULT_SHINGLE : req.shingleSize;
+            resp = resp.withConsistency(TextSimilarity.consistency(texts, k));
+        }
+        // Adaptiver Modus: erreichte Konfidenzintervalle neben den Aggregates
+        return adaptive == null ? resp : resp.withConvergence(adaptive.report());
+    }
+
+    /**
+     * Führt einen Lauf aus, dessen Ergebnisse nur kompakt in {@code into} abgelegt werden
+     * (siehe ResultColumns): kein Array aus Einzelergebnissen, die Antwort enthält nur
+     * Aggregates. Die Qualität wird einmal im Empfänger bewertet und direkt in die Spalten
+     * geschrieben; eine Kopie des Ergebnisses entsteht nur für {@code onResult}.
+     *
+     * @param req Benchmark-Anfrage mit Parametern
+     * @param onResult wird für jedes fertige Ergebnis aufgerufen (darf null sein)
+     * @param into Ablage der Ergebnisse (bleibt beim Aufrufer, z.B. für Exporte)
+     * @return Antwortobjekt ohne Einzelergebnisse
+     * @throws IllegalArgumentException bei ungültigen Parametern des adaptiven Modus
+     */
+    public BenchmarkDto.BenchResponse run(BenchmarkDto.BenchRequest req, Consumer<BenchmarkDto.SingleRunResult> onResult,
+                                          ResultColumns into) {
+        return run(req, onResult, into, AdaptiveRuns.of(req));
+    }
+
+    private BenchmarkDto.BenchResponse run(BenchmarkDto.BenchRequest req, Consumer<BenchmarkDto.SingleRunResult> onResult,
+                                           ResultColumns into, AdaptiveRuns adaptive) {
+        KeywordMatcher keywords = KeywordMatcher.compile(req.expectedKeywords);
+        LatencyHistogram itl = new LatencyHistogram();
+        execute(req, r -> {
+            Double q = keywords == null ? null : keywords.score(r.text());
+            into.add(r, q);
+            if (onResult != null) onResult.accept(q == null ? r : r.toBuilder().quality(q).build());
+        }, false, false, adaptive, itl);
 
-        // Trick: zusätzliche Infos in die vorhandene Request-Map einfügen
-        if (req.expectedKeywords != null && !req.expectedKeywords.isEmpty()) {
-            // Die Map in BenchResponse ist unveränderlich deklariert, aber wir können eine neue Map erzeugen,
-            // nur wenn du möchtest. Einfacher: Aggregates so lassen und den Frontend‑Teil später erweitern.
+        var agg = withItl(StatsUtil.calc(into), itl);
+        Long runId = store.append(req, into);
+        var resp = BenchmarkDto.BenchResponse.compact(req, into, agg).withRunId(runId, storeError(runId, into.size()));
+
+        // Konsistenz aus den ausgelagerten Texten bzw. nur über identische Texte (Hashes)
+        if (Boolean.TRUE.equals(req.consistency)) {
+            int k = req.shingleSize == null ? TextSimilarity.DEFAULT_SHINGLE : req.shingleSize;
+            long[][] hashes = into.textHashes();
+            resp = resp.withConsistency(hashes != null ? TextSimilarity.identical(hashes[0], hashes[1])
+                    : into.textMode() == ResultColumns.TextMode.SPILL ? TextSimilarity.consistency(into.texts(), k)
+                    : null);
         }
-        return resp;
+        return adaptive == null ? resp : resp.withConvergence(adaptive.report());
+    }
+
+    // Schreibfehler der Ablage für die Antwort; leere oder abgeschaltete Läufe sind kein Fehler
+    private String storeError(Long runId, int count) {
+        return runId == null && count > 0 && store.enabled() ? store.error() : null;
+    }
+
+    // ITL-Perzentile aus den einzelnen Chunk-Abständen statt aus den Mittelwerten je Lauf,
+    // damit Stockungen innerhalb eines Laufs sichtbar bleiben
+    private static BenchmarkDto.Aggregates withItl(BenchmarkDto.Aggregates agg, LatencyHistogram itl) {
+        return itl.count() == 0 ? agg : agg.withItlMs(StatsUtil.summarize(itl));
     }
 }
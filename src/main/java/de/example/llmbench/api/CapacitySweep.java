@@ -0,0 +1,143 @@
+package de.example.llmbench.api;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Misst die Kapazitätskurve eines Modells über steigende Parallelität.
+ *
+ * Jede Stufe führt dieselbe Anfrage mit {@code runsPerWorker × concurrency} Läufen aus
+ * und erfasst Durchsatz (Anfragen/s, Tokens/s) sowie p50/p95/p99. Als Sättigungspunkt
+ * (Knick) gilt die höchste Stufe, bis zu der der Durchsatz noch nennenswert mitwächst:
+ * Die Skalierung einer Stufe ist der relative Durchsatzgewinn geteilt durch die relative
+ * Erhöhung der Parallelität (1 = linear, 0 = kein Gewinn). Fällt sie unter
+ * {@code minScaling} oder steigt die Fehlerquote über {@code maxErrorRate}, ist der
+ * Knick erreicht – zusätzliche Parallelität erhöht dann nur noch die Latenz.
+ */
+public class CapacitySweep {
+
+    // Standardwerte, falls die Anfrage sie nicht setzt
+    static final int DEFAULT_MAX_CONCURRENCY = 32;
+    static final int DEFAULT_RUNS_PER_WORKER = 4;
+    static final double DEFAULT_MIN_SCALING = 0.25;
+    static final double DEFAULT_MAX_ERROR_RATE = 0.05;
+
+    private final BenchmarkService service;
+
+    public CapacitySweep(BenchmarkService service) { this.service = service; }
+
+    /**
+     * Führt den Sweep aus. Die Stufen laufen nacheinander; mit {@code stopAtKnee}
+     * (Standard) endet der Sweep an der ersten gesättigten Stufe.
+     *
+     * @param sweep Parameter des Sweeps
+     * @return Kapazitätskurve mit Sättigungspunkt
+     */
+    public BenchmarkDto.SweepReport run(BenchmarkDto.SweepRequest sweep) {
+        BenchmarkDto.BenchRequest base = sweep.base == null ? new BenchmarkDto.BenchRequest() : sweep.base;
+        List<Integer> levels = levels(sweep);
+        int perWorker = sweep.runsPerWorker == null || sweep.runsPerWorker < 1 ? DEFAULT_RUNS_PER_WORKER : sweep.runsPerWorker;
+        int warmup = sweep.warmupRuns == null ? 0 : Math.max(0, sweep.warmupRuns);
+        double minScaling = sweep.minScaling == null ? DEFAULT_MIN_SCALING : sweep.minScaling;
+        double maxErrorRate = sweep.maxErrorRate == null ? DEFAULT_MAX_ERROR_RATE : sweep.maxErrorRate;
+        boolean stopAtKnee = !Boolean.FALSE.equals(sweep.stopAtKnee);
+
+        long start = System.nanoTime();
+        List<BenchmarkDto.SweepPoint> points = new ArrayList<>();
+        Integer knee = null;
+        boolean saturated = false;
+        String reason = null;
+
+        for (int c : levels) {
+            BenchmarkDto.BenchRequest req = base.copy();
+            req.batchId = null;
+            req.mode = null;
+            // Der Messpunkt zählt Erfolge und Tokens aus den Einzelergebnissen
+            req.compact = null;
+            req.concurrency = c;
+            req.runs = (int) Math.min(LoadEngine.MAX_RUNS, (long) c * perWorker);
+            if (warmup > 0) {
+                BenchmarkDto.BenchRequest w = req.copy();
+                w.runs = warmup;
+                service.stream(w, r -> { });
+            }
+
+            BenchmarkDto.SweepPoint prev = points.isEmpty() ? null : points.get(points.size() - 1);
+            BenchmarkDto.SweepPoint p = measure(c, service.run(req), prev);
+            points.add(p);
+
+            // Knick bestimmen: die letzte Stufe vor der ersten gesättigten
+            if (saturated) continue;
+            if (p.errorRate() > maxErrorRate) {
+                saturated = true;
+                reason = "Error rate " + percent(p.errorRate()) + " at concurrency " + c;
+            } else if (prev != null && p.scaling() != null && p.scaling() < minScaling) {
+                saturated = true;
+                knee = prev.concurrency();
+                reason = "Throughput " + fixed(prev.throughputRps()) + " -> " + fixed(p.throughputRps())
+                        + " req/s from concurrency " + prev.concurrency() + " to " + c
+                        + " (scaling " + String.format(Locale.ROOT, "%.3f", p.scaling()) + "), p95 " + fixed(prev.p95Ms()) + " -> " + fixed(p.p95Ms()) + " ms";
+            } else {
+                knee = c;
+            }
+            if (saturated && stopAtKnee) break;
+        }
+        if (!saturated && knee != null) reason = "Still scaling at concurrency " + knee + "; raise maxConcurrency";
+
+        return new BenchmarkDto.SweepReport(Instant.now().toString(),
+                BenchmarkDto.BenchResponse.of(base, null, null).request(),
+                (System.nanoTime() - start) / 1_000_000.0,
+                points, knee, saturated, reason);
+    }
+
+    // Verdichtet das Ergebnis einer Stufe zu einem Messpunkt
+    private static BenchmarkDto.SweepPoint measure(int c, BenchmarkDto.BenchResponse resp, BenchmarkDto.SweepPoint prev) {
+        BenchmarkDto.SingleRunResult[] results = resp.results();
+        BenchmarkDto.Aggregates agg = resp.aggregates();
+        int ok = 0;
+        long outTokens = 0;
+        for (var r : results) {
+            if (!r.success()) continue;
+            ok++;
+            if (r.outputTokens() != null) outTokens += r.outputTokens();
+        }
+        int n = results.length;
+        double errorRate = n == 0 ? 0 : (n - ok) / (double) n;
+        // Nur erfolgreiche Läufe zählen als Durchsatz
+        double rps = n == 0 ? 0 : agg.throughputRps() * ok / n;
+        double tokPerSec = n == 0 ? 0 : agg.throughputRps() * outTokens / n;
+        Double scaling = null;
+        if (prev != null && prev.throughputRps() > 0 && c > prev.concurrency()) {
+            scaling = (rps / prev.throughputRps() - 1) / (c / (double) prev.concurrency() - 1);
+        }
+        return new BenchmarkDto.SweepPoint(c, n, ok, errorRate, rps, tokPerSec,
+                agg.p50Ms(), agg.p95Ms(), agg.p99Ms(), scaling);
+    }
+
+    /**
+     * Liefert die Stufen eines Sweeps: explizite Stufen (aufsteigend, ohne Duplikate)
+     * oder 1, 2, 4, … bis maxConcurrency.
+     */
+    static List<Integer> levels(BenchmarkDto.SweepRequest sweep) {
+        List<Integer> out = new ArrayList<>();
+        if (sweep.levels != null && !sweep.levels.isEmpty()) {
+            sweep.levels.stream().filter(c -> c != null && c > 0).distinct().sorted().forEach(out::add);
+            return out;
+        }
+        int max = sweep.maxConcurrency == null || sweep.maxConcurrency < 1 ? DEFAULT_MAX_CONCURRENCY : sweep.maxConcurrency;
+        for (int c = 1; c < max; c *= 2) out.add(c);
+        out.add(max);
+        return out;
+    }
+
+    // Eine Nachkommastelle für die Begründung (kein heißer Pfad, daher String.format)
+    private static String fixed(double v) {
+        return String.format(Locale.ROOT, "%.1f", v);
+    }
+
+    private static String percent(double v) {
+        return fixed(v * 100) + "%";
+    }
+}
@@ -0,0 +1,62 @@
+package de.example.llmbench.api;
+
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * REST-Resource für Regressionsvergleiche zwischen gespeicherten Läufen.
+ *
+ * Baseline und Kandidat werden per Run-ID oder Tag (neuester Lauf mit diesem Tag)
+ * angegeben; ohne Kandidat wird der zuletzt gespeicherte Lauf verwendet. Mit
+ * {@code gate=true} antwortet der Endpunkt bei einer Regression mit 417, sodass
+ * ein CI-Schritt z.B. per {@code curl --fail} abbricht.
+ */
+@Path("/bench/compare")
+public class CompareResource {
+
+    private final ResultStore store = ResultStore.shared();
+    private final RunComparison comparison = new RunComparison(store);
+
+    /**
+     * Vergleicht zwei gespeicherte Läufe.
+     *
+     * @param baseline Run-ID der Baseline
+     * @param baselineTag alternativ: Tag der Baseline
+     * @param candidate Run-ID des Kandidaten
+     * @param candidateTag alternativ: Tag des Kandidaten (Standard: zuletzt gespeicherter Lauf)
+     * @param confidence Konfidenzniveau (Standard 0.95)
+     * @param maxRegressionPct tolerierte Verschlechterung in Prozent (Standard 5)
+     * @param gate bei true: 417 statt 200, wenn eine Regression erkannt wurde
+     * @return CompareReport; 400/404 bei ungültiger Auswahl, 503 wenn die Ablage abgeschaltet ist
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response compare(@QueryParam("baseline") Long baseline,
+                            @QueryParam("baselineTag") String baselineTag,
+                            @QueryParam("candidate") Long candidate,
+                            @QueryParam("candidateTag") String candidateTag,
+                            @QueryParam("confidence") @DefaultValue("0.95") double confidence,
+                            @QueryParam("maxRegressionPct") @DefaultValue("5") double maxRegressionPct,
+                            @QueryParam("gate") @DefaultValue("false") boolean gate) {
+        if (!store.enabled()) return Response.status(Response.Status.SERVICE_UNAVAILABLE).entity(store.error()).build();
+        if (baseline == null && baselineTag == null) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("baseline or baselineTag required").build();
+        }
+        if (!(confidence > 0 && confidence < 1)) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("confidence must be between 0 and 1").build();
+        }
+        Long base = baseline != null ? baseline : store.latestWithTag(baselineTag);
+        Long cand = candidate != null ? candidate : candidateTag != null ? store.latestWithTag(candidateTag) : store.latest();
+        if (base == null || cand == null) {
+            return Response.status(Response.Status.NOT_FOUND).entity("No stored run for baseline or candidate").build();
+        }
+        if (base.equals(cand)) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Baseline and candidate are the same run: " + base).build();
+        }
+        BenchmarkDto.CompareReport report = comparison.compare(base, cand, confidence, maxRegressionPct);
+        if (report == null) return Response.status(Response.Status.NOT_FOUND).build();
+        return Response.status(gate && !report.passed() ? Response.Status.EXPECTATION_FAILED : Response.Status.OK)
+                .entity(report).build();
+    }
+}
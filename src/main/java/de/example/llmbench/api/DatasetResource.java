@@ -0,0 +1,137 @@
+package de.example.llmbench.api;
+
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * REST-Resource für Prompt-Datensätze (siehe PromptDataset).
+ *
+ * Dateien werden per PUT hochgeladen oder direkt im Verzeichnis {@code BENCH_DATASET_DIR}
+ * abgelegt und in Matrix-Benchmarks über {@code dataset} referenziert.
+ */
+@Path("/datasets")
+public class DatasetResource {
+
+    private final PromptDataset datasets = PromptDataset.shared();
+
+    /**
+     * Listet alle Datensatz-Dateien.
+     *
+     * @return Map mit Verzeichnis und Dateien
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response list() {
+        try {
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("dir", datasets.dir().toString());
+            out.put("datasets", datasets.list());
+            return Response.ok(out).build();
+        } catch (IOException e) {
+            return Response.serverError().entity(e.getMessage()).build();
+        }
+    }
+
+    /**
+     * Liefert eine Auswahl von Datensätzen einer Datei, z.B. als Vorschau vor einem Lauf.
+     *
+     * @param name Dateiname
+     * @param tag optional: nur Datensätze mit dieser Markierung
+     * @param limit Anzahl Datensätze (Standard 20)
+     * @param sample zufällige Stichprobe statt der ersten Datensätze
+     * @param shuffle Reihenfolge mischen
+     * @param seed optional: Startwert für sample/shuffle
+     * @return Beschreibung der Datei und ausgewählte Datensätze; 400 bei ungültigem Inhalt, 404 falls unbekannt
+     */
+    @GET
+    @Path("/{name}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response records(@PathParam("name") String name,
+                            @QueryParam("tag") String tag,
+                            @QueryParam("limit") @DefaultValue("20") int limit,
+                            @QueryParam("sample") @DefaultValue("false") boolean sample,
+                            @QueryParam("shuffle") @DefaultValue("false") boolean shuffle,
+                            @QueryParam("seed") Long seed) {
+        BenchmarkDto.DatasetQuery q = new BenchmarkDto.DatasetQuery();
+        q.name = name;
+        q.tag = tag;
+        q.limit = limit;
+        q.sample = sample;
+        q.shuffle = shuffle;
+        q.seed = seed;
+        try {
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("dataset", datasets.info(name));
+            out.put("records", datasets.select(q));
+            return Response.ok(out).build();
+        } catch (NoSuchFileException e) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        } catch (IOException e) {
+            return Response.serverError().entity(e.getMessage()).build();
+        }
+    }
+
+    /**
+     * Lädt eine Datei hoch bzw. ersetzt sie. Der Inhalt wird gestreamt und vor dem
+     * Ersetzen vollständig geprüft.
+     *
+     * @param name Dateiname (Endung .jsonl, .ndjson oder .csv, optional .gz)
+     * @param length angekündigte Größe (Content-Length, fehlt bei chunked Uploads)
+     * @param body Dateiinhalt
+     * @return Beschreibung inklusive Anzahl der Datensätze; 400 bei ungültigem Namen oder Inhalt,
+     *         413 wenn die Datei größer als {@code BENCH_DATASET_MAX_BYTES} ist
+     */
+    @PUT
+    @Path("/{name}")
+    @Consumes(MediaType.WILDCARD)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response upload(@PathParam("name") String name, @HeaderParam("Content-Length") Long length,
+                           InputStream body) {
+        // Angekündigte Übergröße gar nicht erst lesen; sonst bricht store beim Überschreiten ab
+        if (length != null && PromptDataset.MAX_BYTES > 0 && length > PromptDataset.MAX_BYTES) {
+            return tooLarge("Dataset exceeds " + PromptDataset.MAX_BYTES + " bytes (BENCH_DATASET_MAX_BYTES)");
+        }
+        try {
+            return Response.ok(datasets.store(name, body)).build();
+        } catch (PromptDataset.TooLargeException e) {
+            return tooLarge(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        } catch (IOException e) {
+            return Response.serverError().entity(e.getMessage()).build();
+        }
+    }
+
+    private static Response tooLarge(String message) {
+        return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE).entity(message).build();
+    }
+
+    /**
+     * Löscht eine Datei.
+     *
+     * @param name Dateiname
+     * @return 204 bei Erfolg, 404 falls unbekannt
+     */
+    @DELETE
+    @Path("/{name}")
+    public Response delete(@PathParam("name") String name) {
+        try {
+            return datasets.delete(name)
+                    ? Response.noContent().build()
+                    : Response.status(Response.Status.NOT_FOUND).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        } catch (IOException e) {
+            return Response.serverError().entity(e.getMessage()).build();
+        }
+    }
+}
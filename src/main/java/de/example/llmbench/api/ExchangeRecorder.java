@@ -0,0 +1,159 @@
+package de.example.llmbench.api;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Zeichnet echte Austausche mit {@code /api/generate} samt Zeitverlauf auf, damit der
+ * {@link OllamaSimulator} sie später ohne GPU wiedergeben kann.
+ *
+ * Eingeschaltet über {@code BENCH_RECORD_FILE} (Pfad einer NDJSON-Datei, an die angehängt
+ * wird). Je Austausch entsteht eine Zeile mit Modell, Prompt-Hash, HTTP-Status, Zeit bis zu
+ * den Headern und Gesamtdauer sowie
+ * - bei Streaming: jede NDJSON-Zeile der Antwort mit ihrem Zeitpunkt relativ zum Start
+ *   ({@code chunks: [{"t": ms, "line": "..."}]}) – daraus ergeben sich TTFT und Token-Takt,
+ * - sonst: der vollständige Antwort-Body ({@code body}).
+ * Aufgezeichnet werden nur Anfragen, auf die eine Antwort kam; Verbindungsfehler und
+ * Timeouts nicht. Ohne {@code BENCH_RECORD_FILE} entsteht keinerlei Aufwand.
+ */
+public final class ExchangeRecorder {
+
+    static final String FILE = System.getenv("BENCH_RECORD_FILE");
+
+    private static final ExchangeRecorder SHARED = new ExchangeRecorder(FILE == null || FILE.isBlank() ? null : Path.of(FILE));
+
+    private final Path file;
+    private BufferedWriter writer;      // unter dem Monitor dieser Instanz
+    private volatile String error;
+
+    /**
+     * Erzeugt einen Recorder.
+     *
+     * @param file Ziel-Datei oder null (aus)
+     */
+    public ExchangeRecorder(Path file) { this.file = file; }
+
+    /**
+     * Liefert den prozessweit geteilten Recorder.
+     */
+    public static ExchangeRecorder shared() { return SHARED; }
+
+    /** Ob aufgezeichnet wird. */
+    public boolean enabled() { return file != null; }
+
+    /** Ziel-Datei oder null. */
+    public Path file() { return file; }
+
+    /** Letzter Schreibfehler oder null. */
+    public String error() { return error; }
+
+    /**
+     * Beginnt die Aufzeichnung eines Austauschs.
+     *
+     * @return Aufzeichnung oder null, wenn der Recorder aus ist
+     */
+    public Exchange begin(String model, String prompt, boolean stream, long startNanos) {
+        return file == null ? null : new Exchange(model, prompt, stream, startNanos);
+    }
+
+    /**
+     * Ein laufender Austausch. Wird nur vom Thread der Anfrage benutzt.
+     */
+    public final class Exchange {
+        private final String model;
+        private final String prompt;
+        private final boolean stream;
+        private final long start;
+        private int status;
+        private long[] times = new long[64];
+        private final List<byte[]> lines = new ArrayList<>();
+        private byte[] body;
+
+        private Exchange(String model, String prompt, boolean stream, long start) {
+            this.model = model;
+            this.prompt = prompt;
+            this.stream = stream;
+            this.start = start;
+        }
+
+        /** HTTP-Status der Antwort. */
+        public void status(int status) { this.status = status; }
+
+        /** Eine vollständige NDJSON-Zeile der Streaming-Antwort (wird kopiert). */
+        public void chunk(long nanos, byte[] buf, int off, int len) {
+            if (lines.size() == times.length) times = Arrays.copyOf(times, times.length * 2);
+            times[lines.size()] = nanos;
+            lines.add(Arrays.copyOfRange(buf, off, off + len));
+        }
+
+        /** Vollständiger Body einer nicht-streamenden Antwort. */
+        public void body(byte[] body) { this.body = body; }
+
+        /**
+         * Schließt den Austausch ab und hängt ihn an die Datei an. Ohne Antwort
+         * (kein Zeitpunkt der Header) wird nichts geschrieben.
+         *
+         * @param headersNanos Zeitpunkt der Header (0, falls keine Antwort kam)
+         * @param endNanos Ende des Austauschs
+         */
+        public void finish(long headersNanos, long endNanos) {
+            if (headersNanos == 0 || status == 0) return;
+            StringBuilder sb = new StringBuilder(256 + (body == null ? lines.size() * 160 : body.length * 5 / 4));
+            sb.append("{\"recordedAt\":");
+            ResultExport.jsonString(sb, Instant.now().toString());
+            sb.append(",\"model\":");
+            ResultExport.jsonString(sb, model);
+            sb.append(",\"promptHash\":");
+            ResultExport.jsonString(sb, ResultStore.promptHash(prompt));
+            sb.append(",\"promptChars\":").append(prompt == null ? 0 : prompt.length())
+              .append(",\"stream\":").append(stream)
+              .append(",\"status\":").append(status)
+              .append(",\"headersMs\":");
+            ResultExport.fixed3(sb, (headersNanos - start) / 1_000_000.0);
+            sb.append(",\"totalMs\":");
+            ResultExport.fixed3(sb, (endNanos - start) / 1_000_000.0);
+            if (stream) {
+                sb.append(",\"chunks\":[");
+                for (int i = 0; i < lines.size(); i++) {
+                    if (i > 0) sb.append(',');
+                    sb.append("{\"t\":");
+                    ResultExport.fixed3(sb, (times[i] - start) / 1_000_000.0);
+                    sb.append(",\"line\":");
+                    ResultExport.jsonString(sb, new String(lines.get(i), StandardCharsets.UTF_8));
+                    sb.append('}');
+                }
+                sb.append(']');
+            } else {
+                sb.append(",\"body\":");
+                ResultExport.jsonString(sb, body == null ? "" : new String(body, StandardCharsets.UTF_8));
+            }
+            sb.append("}\n");
+            write(sb);
+        }
+    }
+
+    private synchronized void write(CharSequence line) {
+        try {
+            if (writer == null) {
+                Path dir = file.toAbsolutePath().getParent();
+                if (dir != null) Files.createDirectories(dir);
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            writer.append(line);
+            // Jede Zeile sofort sichtbar: Aufzeichnungen sind selten und sollen Abbrüche überstehen
+            writer.flush();
+            error = null;
+        } catch (IOException e) {
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+}
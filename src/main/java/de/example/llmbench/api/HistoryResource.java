@@ -0,0 +1,126 @@
+package de.example.llmbench.api;
+
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.function.BiConsumer;
+
+/**
+ * REST-Resource für gespeicherte Benchmark-Ergebnisse (siehe ResultStore).
+ *
+ * Abfragen filtern nach Provider, Modell, Prompt-Hash und Zeitraum und liefern
+ * Aggregates über alle passenden Läufe, ohne sie vollständig in den Speicher zu laden.
+ */
+@Path("/bench/history")
+public class HistoryResource {
+
+    private final ResultStore store = ResultStore.shared();
+
+    /**
+     * Fragt gespeicherte Läufe ab.
+     *
+     * @param provider optional: Provider
+     * @param model optional: Modell
+     * @param promptHash optional: Prompt-Hash (request.promptHash einer BenchResponse)
+     * @param tag optional: Markierung aus der Anfrage
+     * @param from optional: frühester Zeitpunkt (ISO-8601, inklusive)
+     * @param to optional: spätester Zeitpunkt (ISO-8601, exklusive)
+     * @param limit maximale Anzahl gelisteter Läufe (Standard 50)
+     * @return HistoryReport; 400 bei ungültigen Parametern, 503 wenn die Ablage abgeschaltet ist
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response query(@QueryParam("provider") String provider,
+                          @QueryParam("model") String model,
+                          @QueryParam("promptHash") String promptHash,
+                          @QueryParam("tag") String tag,
+                          @QueryParam("from") String from,
+                          @QueryParam("to") String to,
+                          @QueryParam("limit") @DefaultValue("50") int limit) {
+        if (!store.enabled()) return Response.status(Response.Status.SERVICE_UNAVAILABLE).entity(store.error()).build();
+        try {
+            return Response.ok(store.query(provider, model, promptHash, tag,
+                    from == null ? null : Instant.parse(from),
+                    to == null ? null : Instant.parse(to),
+                    Math.max(0, limit))).build();
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+    }
+
+    /**
+     * Liefert die Metadaten eines gespeicherten Laufs.
+     *
+     * @param runId Run-ID (runId einer BenchResponse)
+     * @return RunInfo, 404 falls unbekannt
+     */
+    @GET
+    @Path("/{runId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response run(@PathParam("runId") long runId) {
+        BenchmarkDto.RunInfo info = store.run(runId);
+        return info == null ? Response.status(Response.Status.NOT_FOUND).build() : Response.ok(info).build();
+    }
+
+    /**
+     * Exportiert die gespeicherten Einzelergebnisse eines Laufs als CSV.
+     *
+     * @param runId Run-ID
+     * @return CSV-Datei, 404 falls unbekannt
+     */
+    @GET
+    @Path("/{runId}/csv")
+    @Produces("text/csv")
+    public Response csv(@PathParam("runId") long runId) {
+        return export(runId, "csv", ResultExport.CSV_HEADER, (sb, r) -> ResultExport.appendCsv(sb, r, null));
+    }
+
+    /**
+     * Exportiert die gespeicherten Einzelergebnisse eines Laufs als NDJSON.
+     *
+     * @param runId Run-ID
+     * @return NDJSON-Datei, 404 falls unbekannt
+     */
+    @GET
+    @Path("/{runId}/ndjson")
+    @Produces(ResultExport.NDJSON)
+    public Response ndjson(@PathParam("runId") long runId) {
+        return export(runId, "ndjson", null, (sb, r) -> ResultExport.appendNdjson(sb, r, false));
+    }
+
+    // Liest die Samples direkt aus der Ablage und schreibt sie Zeile für Zeile
+    private Response export(long runId, String ext, String header, BiConsumer<StringBuilder, BenchmarkDto.SingleRunResult> row) {
+        if (store.run(runId) == null) return Response.status(Response.Status.NOT_FOUND).build();
+        StreamingOutput out = os -> {
+            Writer w = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), 64 * 1024);
+            StringBuilder sb = new StringBuilder(512);
+            if (header != null) w.write(header);
+            try {
+                store.forEachSample(runId, r -> {
+                    row.accept(sb, r);
+                    try {
+                        ResultExport.drain(sb, w);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            w.flush();
+        };
+        return Response.ok(out)
+                .header("Content-Disposition", "attachment; filename=\"run-" + runId + "." + ext + "\"")
+                .build();
+    }
+}
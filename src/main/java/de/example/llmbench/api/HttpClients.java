@@ -0,0 +1,116 @@
+package de.example.llmbench.api;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prozessweit geteilter HTTP-Client für alle Provider und Health-Checks.
+ *
+ * Ein gemeinsamer Client teilt sich einen Verbindungspool: Keep-Alive-Verbindungen
+ * werden über alle Läufe hinweg wiederverwendet, statt je Client neu aufgebaut zu
+ * werden. Konfiguration über Umgebungsvariablen:
+ * - {@code BENCH_HTTP_VERSION}: http1.1 (Standard) oder h2c/http2 (HTTP/2 mit Upgrade bzw. ALPN)
+ * - {@code BENCH_HTTP_POOL_SIZE}: maximale Zahl gehaltener Keep-Alive-Verbindungen (0 = unbegrenzt)
+ * - {@code BENCH_HTTP_KEEPALIVE_SEC}: Leerlaufzeit, nach der gehaltene Verbindungen schließen
+ * - {@code BENCH_HTTP_EXECUTOR}: virtual (Standard, virtueller Thread je Aufgabe),
+ *   default (Cached-Pool des JDK) oder eine Zahl n (fester Pool mit n Threads)
+ * - {@code BENCH_HTTP_CONNECT_TIMEOUT_MS}: Timeout für den Verbindungsaufbau
+ *
+ * Poolgröße und Keep-Alive setzt das JDK nur über die System-Properties
+ * {@code jdk.httpclient.connectionPoolSize} bzw. {@code jdk.httpclient.keepalive.timeout};
+ * sie werden beim Laden dieser Klasse gesetzt, sofern nicht bereits vorgegeben.
+ * Diese Klasse ist nicht instanziierbar.
+ */
+public final class HttpClients {
+    // Privater Konstruktor verhindert Instanziierung
+    private HttpClients() {}
+
+    static final String VERSION = System.getenv().getOrDefault("BENCH_HTTP_VERSION", "http1.1");
+    static final String POOL_SIZE = System.getenv("BENCH_HTTP_POOL_SIZE");
+    static final String KEEPALIVE_SEC = System.getenv("BENCH_HTTP_KEEPALIVE_SEC");
+    static final String EXECUTOR = System.getenv().getOrDefault("BENCH_HTTP_EXECUTOR", "virtual");
+    static final int CONNECT_TIMEOUT_MS = Integer.parseInt(System.getenv().getOrDefault("BENCH_HTTP_CONNECT_TIMEOUT_MS", "10000"));
+
+    private static final HttpClient SHARED;
+
+    static {
+        // Muss vor dem ersten Client gesetzt sein: das JDK liest die Werte nur einmal
+        if (POOL_SIZE != null) setIfAbsent("jdk.httpclient.connectionPoolSize", POOL_SIZE);
+        if (KEEPALIVE_SEC != null) setIfAbsent("jdk.httpclient.keepalive.timeout", KEEPALIVE_SEC);
+
+        HttpClient.Builder b = HttpClient.newBuilder()
+                .version(version(VERSION))
+                .connectTimeout(Duration.ofMillis(CONNECT_TIMEOUT_MS));
+        Executor executor = executor(EXECUTOR);
+        if (executor != null) b.executor(executor);
+        SHARED = b.build();
+    }
+
+    /**
+     * Liefert den geteilten Client.
+     */
+    public static HttpClient shared() { return SHARED; }
+
+    /**
+     * Wirksame Einstellungen des geteilten Clients (z.B. für /api/nodes).
+     */
+    public static Map<String, Object> config() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("version", SHARED.version().name());
+        out.put("poolSize", Integer.getInteger("jdk.httpclient.connectionPoolSize", 0));
+        out.put("keepAliveSec", Integer.getInteger("jdk.httpclient.keepalive.timeout", 30));
+        out.put("executor", EXECUTOR);
+        out.put("connectTimeoutMs", CONNECT_TIMEOUT_MS);
+        return out;
+    }
+
+    /**
+     * Umhüllt einen BodyHandler so, dass der Zeitpunkt festgehalten wird, zu dem Status und
+     * Header eingetroffen sind (das JDK ruft den Handler genau dann auf). Damit lässt sich
+     * die Dauer einer Anfrage in Verbindungsaufbau/Senden/Server bis zum ersten Byte und
+     * das Lesen der Antwort aufteilen.
+     *
+     * @param handler eigentlicher Handler
+     * @param headersAt erhält in [0] den Zeitpunkt (System.nanoTime) der Header
+     * @return umhüllter Handler
+     */
+    public static <T> HttpResponse.BodyHandler<T> timed(HttpResponse.BodyHandler<T> handler, long[] headersAt) {
+        return info -> {
+            headersAt[0] = System.nanoTime();
+            return handler.apply(info);
+        };
+    }
+
+    static HttpClient.Version version(String name) {
+        return switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "h2c", "h2", "http2", "http/2", "http_2" -> HttpClient.Version.HTTP_2;
+            case "http1.1", "http/1.1", "http_1_1", "1.1" -> HttpClient.Version.HTTP_1_1;
+            default -> throw new IllegalArgumentException("Unsupported BENCH_HTTP_VERSION: " + name);
+        };
+    }
+
+    // Executor für asynchrone Aufgaben des Clients (null = Standard des JDK)
+    private static Executor executor(String name) {
+        String n = name.trim().toLowerCase(Locale.ROOT);
+        if (n.equals("default")) return null;
+        if (n.equals("virtual")) return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("llmbench-http-", 0).factory());
+        int threads = Integer.parseInt(n);
+        AtomicInteger seq = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "llmbench-http-" + seq.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static void setIfAbsent(String property, String value) {
+        if (System.getProperty(property) == null) System.setProperty(property, value);
+    }
+}
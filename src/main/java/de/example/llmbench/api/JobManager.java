@@ -0,0 +1,82 @@
+package de.example.llmbench.api;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Verwaltet asynchrone Benchmark-Jobs.
+ *
+ * Jeder Job läuft in einem eigenen virtuellen Thread. Beendete Jobs bleiben für
+ * spätere Abfragen und Exporte im Speicher, aber höchstens {@link #RETENTION}
+ * Stück – ältere werden in Abschlussreihenfolge verworfen.
+ */
+public final class JobManager {
+
+    // Maximale Anzahl aufbewahrter, beendeter Jobs (über Umgebungsvariable konfigurierbar)
+    static final int RETENTION = Integer.parseInt(System.getenv().getOrDefault("BENCH_JOB_RETENTION", "20"));
+
+    private static final JobManager SHARED = new JobManager(BenchmarkService.shared());
+
+    private final BenchmarkService service;
+    private final Map<String, BenchJob> jobs = new ConcurrentHashMap<>();
+    // Beendete Jobs in Abschlussreihenfolge (für die Begrenzung)
+    private final Deque<String> finished = new ArrayDeque<>();
+
+    JobManager(BenchmarkService service) { this.service = service; }
+
+    /**
+     * Liefert den prozessweit geteilten JobManager.
+     */
+    public static JobManager shared() { return SHARED; }
+
+    /**
+     * Startet einen neuen Job im Hintergrund und kehrt sofort zurück.
+     *
+     * @param req Benchmark-Anfrage
+     * @return der gestartete Job
+     * @throws IllegalArgumentException bei unbekanntem Textmodus (kompakt) oder ungültigem adaptivem Modus
+     */
+    public BenchJob submit(BenchmarkDto.BenchRequest req) {
+        BenchJob job = new BenchJob(UUID.randomUUID().toString(), req);
+        jobs.put(job.id(), job);
+        Thread.ofVirtual().name("bench-job-" + job.id()).start(() -> {
+            try {
+                job.execute(service);
+            } finally {
+                retire(job);
+            }
+        });
+        return job;
+    }
+
+    /** Liefert einen Job oder null. */
+    public BenchJob get(String id) { return jobs.get(id); }
+
+    /** Alle bekannten (laufenden und aufbewahrten) Jobs. */
+    public Collection<BenchJob> all() { return jobs.values(); }
+
+    /**
+     * Bricht einen laufenden Job ab.
+     *
+     * @return false, falls der Job unbekannt ist
+     */
+    public boolean cancel(String id) {
+        BenchJob job = jobs.get(id);
+        if (job == null) return false;
+        job.cancel();
+        return true;
+    }
+
+    // Merkt einen beendeten Job vor und verwirft die ältesten über dem Limit
+    private synchronized void retire(BenchJob job) {
+        finished.addLast(job.id());
+        while (finished.size() > RETENTION) {
+            BenchJob old = jobs.remove(finished.removeFirst());
+            if (old != null) old.release();
+        }
+    }
+}
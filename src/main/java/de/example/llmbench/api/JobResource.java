@@ -0,0 +1,181 @@
+package de.example.llmbench.api;
+
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * REST-Resource für asynchrone Benchmark-Jobs.
+ * 
+ * Ein Job wird per POST gestartet und liefert sofort seine ID. Fortschritt,
+ * Einzelergebnisse und laufende Statistiken können als Server-Sent Events
+ * abonniert werden; das Endergebnis steht nach Abschluss per GET bereit.
+ */
+@Path("/bench/jobs")
+public class JobResource {
+
+    private final JobManager jobs = JobManager.shared();
+
+    /**
+     * Startet einen Benchmark als Hintergrund-Job.
+     * 
+     * @param req Benchmark-Anfrage (wie bei POST /api/bench)
+     * @return 202 mit Job-Status; Location zeigt auf den Job, 400 bei ungültigem Textmodus oder adaptivem Modus
+     */
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response submit(BenchmarkDto.BenchRequest req) {
+        if (req == null) req = new BenchmarkDto.BenchRequest();
+        BenchJob job;
+        try {
+            job = jobs.submit(req);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+        return Response.accepted(job.status())
+                .location(URI.create("bench/jobs/" + job.id()))
+                .build();
+    }
+
+    /**
+     * Listet alle laufenden und aufbewahrten Jobs, neueste zuerst.
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<BenchmarkDto.JobStatus> list() {
+        return jobs.all().stream()
+                .map(BenchJob::status)
+                .sorted(Comparator.comparing(BenchmarkDto.JobStatus::createdAt).reversed())
+                .toList();
+    }
+
+    /**
+     * Liefert den Zustand eines Jobs; nach Abschluss die vollständige BenchResponse.
+     * 
+     * @param id Job-ID
+     * @return JobStatus (laufend) oder BenchResponse (beendet), 404 falls unbekannt
+     */
+    @GET
+    @Path("/{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response get(@PathParam("id") String id) {
+        BenchJob job = jobs.get(id);
+        if (job == null) return Response.status(Response.Status.NOT_FOUND).build();
+        Object body = job.response() != null ? job.response() : job.status();
+        return Response.ok(body).build();
+    }
+
+    /**
+     * Abonniert den Fortschritt eines Jobs als Server-Sent Events.
+     * Events: "result" (Index und Einzelergebnis), "aggregates" (laufende Statistik),
+     * "done" (JobStatus, danach wird der Stream geschlossen).
+     * 
+     * @param id Job-ID
+     */
+    @GET
+    @Path("/{id}/events")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void events(@PathParam("id") String id, @Context SseEventSink sink, @Context Sse sse) {
+        BenchJob job = jobs.get(id);
+        if (job == null) {
+            sink.send(sse.newEventBuilder().name("error").data("Unknown job: " + id).build());
+            sink.close();
+            return;
+        }
+        job.subscribe(sink, sse);
+    }
+
+    /**
+     * Exportiert die Ergebnisse eines beendeten Jobs als CSV, ohne den Benchmark erneut auszuführen.
+     * 
+     * @param id Job-ID
+     * @return CSV-Datei; 404 falls unbekannt, 409 solange der Job läuft, 410 falls er ohne Ergebnisse endete
+     */
+    @GET
+    @Path("/{id}/csv")
+    @Produces("text/csv")
+    public Response csv(@PathParam("id") String id) {
+        return export(id, "csv", ResultExport.CSV_HEADER,
+                (sb, r, model) -> ResultExport.appendCsv(sb, r, model));
+    }
+
+    /**
+     * Exportiert die Ergebnisse eines beendeten Jobs als NDJSON.
+     * 
+     * @param id Job-ID
+     * @param includeText ob der Antworttext mit exportiert wird (Standard: nein)
+     * @return NDJSON-Datei; 404 falls unbekannt, 409 solange der Job läuft, 410 falls er ohne Ergebnisse endete
+     */
+    @GET
+    @Path("/{id}/ndjson")
+    @Produces(ResultExport.NDJSON)
+    public Response ndjson(@PathParam("id") String id, @QueryParam("text") @DefaultValue("false") boolean includeText) {
+        return export(id, "ndjson", null,
+                (sb, r, model) -> ResultExport.appendNdjson(sb, r, includeText));
+    }
+
+    // Zeilenformat für den Export gespeicherter Ergebnisse
+    private interface RowWriter {
+        void append(StringBuilder sb, BenchmarkDto.SingleRunResult r, String model);
+    }
+
+    private Response export(String id, String ext, String header, RowWriter row) {
+        BenchJob job = jobs.get(id);
+        if (job == null) return Response.status(Response.Status.NOT_FOUND).build();
+        if (!job.isFinished()) return Response.status(Response.Status.CONFLICT).entity("Job still running").build();
+        BenchmarkDto.BenchResponse resp = job.response();
+        if (resp == null) {
+            // Vor dem Start abgebrochen oder fehlgeschlagen: es kommen keine Ergebnisse mehr
+            BenchmarkDto.JobStatus st = job.status();
+            String msg = "Job " + st.state() + " without results" + (st.error() == null ? "" : ": " + st.error());
+            return Response.status(Response.Status.GONE).entity(msg).build();
+        }
+        String model = (String) resp.request().get("model");
+        StreamingOutput out = os -> {
+            Writer w = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), 64 * 1024);
+            StringBuilder sb = new StringBuilder(512);
+            if (header != null) w.write(header);
+            job.forEachResult(r -> {
+                row.append(sb, r, model);
+                try {
+                    ResultExport.drain(sb, w);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            w.flush();
+        };
+        return Response.ok(out)
+                .header("Content-Disposition", "attachment; filename=\"bench-" + id + "." + ext + "\"")
+                .build();
+    }
+
+    /**
+     * Bricht einen laufenden Job ab; bereits fertige Ergebnisse bleiben erhalten.
+     * 
+     * @param id Job-ID
+     * @return 204 bei Erfolg, 404 falls unbekannt
+     */
+    @DELETE
+    @Path("/{id}")
+    public Response cancel(@PathParam("id") String id) {
+        return jobs.cancel(id)
+                ? Response.noContent().build()
+                : Response.status(Response.Status.NOT_FOUND).build();
+    }
+}
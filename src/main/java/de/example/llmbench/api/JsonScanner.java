@@ -0,0 +1,348 @@
+package de.example.llmbench.api;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimaler Pull-Parser für JSON direkt auf UTF-8-Bytes.
+ *
+ * Der Scanner liest in einem Durchgang ohne Zwischenobjekte: Schlüssel werden
+ * byteweise mit vorab kodierten Kandidaten verglichen ({@link #nextKey(byte[][])}),
+ * nicht benötigte Werte (z.B. das große "context"-Array von Ollama) werden
+ * übersprungen, Strings nur bei Bedarf dekodiert. Escapes inkl. \\uXXXX und
+ * Surrogatpaaren werden vollständig unterstützt.
+ *
+ * Ungültiges JSON führt zu einer IllegalArgumentException.
+ */
+public final class JsonScanner {
+
+    /** Rückgabewert von nextKey/nextName: Objekt ist zu Ende. */
+    public static final int END = -2;
+    /** Rückgabewert von nextKey: Schlüssel ist keiner der Kandidaten. */
+    public static final int UNKNOWN = -1;
+
+    private byte[] buf;
+    private int pos;
+    private int end;
+
+    public JsonScanner() { }
+
+    public JsonScanner(byte[] buf, int off, int len) { reset(buf, off, len); }
+
+    /**
+     * Setzt den Scanner auf einen neuen Bereich (wiederverwendbar, z.B. pro NDJSON-Zeile).
+     */
+    public JsonScanner reset(byte[] buf, int off, int len) {
+        this.buf = buf;
+        this.pos = off;
+        this.end = off + len;
+        return this;
+    }
+
+    /**
+     * Kodiert Schlüsselnamen für {@link #nextKey(byte[][])}.
+     */
+    public static byte[][] keys(String... names) {
+        byte[][] out = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) out[i] = names[i].getBytes(StandardCharsets.UTF_8);
+        return out;
+    }
+
+    /** Prüft, ob (nach Whitespace) noch Eingabe folgt. */
+    public boolean hasMore() {
+        skipWs();
+        return pos < end;
+    }
+
+    /** Liefert das nächste Nicht-Whitespace-Zeichen, ohne es zu verbrauchen (-1 am Ende). */
+    public int peek() {
+        skipWs();
+        return pos < end ? buf[pos] : -1;
+    }
+
+    /** Prüft, ob der nächste Wert null ist, und verbraucht ihn in diesem Fall. */
+    public boolean consumeNull() {
+        skipWs();
+        if (pos + 4 <= end && buf[pos] == 'n' && buf[pos + 1] == 'u' && buf[pos + 2] == 'l' && buf[pos + 3] == 'l') {
+            pos += 4;
+            return true;
+        }
+        return false;
+    }
+
+    /** Erwartet den Beginn eines Objekts. */
+    public void beginObject() { expect('{'); }
+
+    /** Erwartet den Beginn eines Arrays. */
+    public void beginArray() { expect('['); }
+
+    /**
+     * Liest den nächsten Schlüssel des aktuellen Objekts inklusive ':'.
+     *
+     * @param candidates mit {@link #keys(String...)} kodierte Namen
+     * @return Index des passenden Kandidaten, {@link #UNKNOWN} oder {@link #END}
+     */
+    public int nextKey(byte[][] candidates) {
+        if (!nextMember('}')) return END;
+        expect('"');
+        int start = pos;
+        boolean escaped = false;
+        while (pos < end && buf[pos] != '"') {
+            if (buf[pos] == '\\') { escaped = true; pos++; }
+            pos++;
+        }
+        if (pos >= end) throw error("Unterminated key");
+        int len = pos - start;
+        pos++;
+        expect(':');
+        if (escaped) return UNKNOWN;
+        for (int i = 0; i < candidates.length; i++) {
+            byte[] c = candidates[i];
+            if (c.length == len && regionEquals(start, c)) return i;
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Liest den nächsten Schlüssel des aktuellen Objekts als String inklusive ':'.
+     *
+     * @return Schlüssel oder null am Ende des Objekts
+     */
+    public String nextName() {
+        if (!nextMember('}')) return null;
+        String name = readString();
+        expect(':');
+        return name;
+    }
+
+    /**
+     * Prüft, ob das aktuelle Array ein weiteres Element hat (verbraucht ',' bzw. ']').
+     */
+    public boolean nextElement() {
+        return nextMember(']');
+    }
+
+    /** Liest einen String-Wert (null-Literal ergibt null). */
+    public String readString() {
+        if (consumeNull()) return null;
+        expect('"');
+        int start = pos;
+        while (pos < end) {
+            byte b = buf[pos];
+            if (b == '"') {
+                String s = new String(buf, start, pos - start, StandardCharsets.UTF_8);
+                pos++;
+                return s;
+            }
+            if (b == '\\') break;
+            pos++;
+        }
+        StringBuilder sb = new StringBuilder((pos - start) + 16);
+        sb.append(new String(buf, start, pos - start, StandardCharsets.UTF_8));
+        readStringRest(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Hängt einen String-Wert dekodiert an einen StringBuilder an (ohne Zwischen-String
+     * für Werte ohne Multi-Byte-Zeichen und Escapes). null-Literal hängt nichts an.
+     *
+     * @return Anzahl angehängter Zeichen
+     */
+    public int appendString(StringBuilder sb) {
+        if (consumeNull()) return 0;
+        expect('"');
+        int before = sb.length();
+        while (pos < end) {
+            byte b = buf[pos];
+            if (b == '"') { pos++; return sb.length() - before; }
+            if (b == '\\' || b < 0) break;
+            sb.append((char) b);
+            pos++;
+        }
+        readStringRest(sb);
+        return sb.length() - before;
+    }
+
+    // Liest den Rest eines Strings ab pos (nach dem öffnenden Quote) mit Escape-Behandlung
+    private void readStringRest(StringBuilder sb) {
+        int seg = pos;
+        while (pos < end) {
+            byte b = buf[pos];
+            if (b == '"') {
+                flush(sb, seg);
+                pos++;
+                return;
+            }
+            if (b != '\\') { pos++; continue; }
+            flush(sb, seg);
+            if (++pos >= end) break;
+            switch (buf[pos++]) {
+                case '"' -> sb.append('"');
+                case '\\' -> sb.append('\\');
+                case '/' -> sb.append('/');
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> sb.append(hex4());
+                default -> throw error("Invalid escape");
+            }
+            seg = pos;
+        }
+        throw error("Unterminated string");
+    }
+
+    // Hängt den unescapten Abschnitt [seg, pos) als UTF-8 an
+    private void flush(StringBuilder sb, int seg) {
+        int i = seg;
+        while (i < pos) {
+            int b = buf[i];
+            if (b >= 0) { sb.append((char) b); i++; continue; }
+            // Mehrbyte-Sequenzen direkt dekodieren; ungültige oder abgeschnittene Folgen wie String(byte[], UTF_8)
+            if ((b & 0xE0) == 0xC0 && i + 1 < pos && isCont(buf[i + 1])) {
+                sb.append((char) (((b & 0x1F) << 6) | (buf[i + 1] & 0x3F)));
+                i += 2;
+            } else if ((b & 0xF0) == 0xE0 && i + 2 < pos && isCont(buf[i + 1]) && isCont(buf[i + 2])) {
+                sb.append((char) (((b & 0x0F) << 12) | ((buf[i + 1] & 0x3F) << 6) | (buf[i + 2] & 0x3F)));
+                i += 3;
+            } else if ((b & 0xF8) == 0xF0 && i + 3 < pos && isCont(buf[i + 1]) && isCont(buf[i + 2]) && isCont(buf[i + 3])) {
+                sb.appendCodePoint(((b & 0x07) << 18) | ((buf[i + 1] & 0x3F) << 12) | ((buf[i + 2] & 0x3F) << 6) | (buf[i + 3] & 0x3F));
+                i += 4;
+            } else {
+                sb.append(new String(buf, i, pos - i, StandardCharsets.UTF_8));
+                return;
+            }
+        }
+    }
+
+    private static boolean isCont(byte b) { return (b & 0xC0) == 0x80; }
+
+    private char hex4() {
+        if (pos + 4 > end) throw error("Truncated \\u escape");
+        int v = 0;
+        for (int i = 0; i < 4; i++) {
+            int d = Character.digit(buf[pos++], 16);
+            if (d < 0) throw error("Invalid \\u escape");
+            v = (v << 4) | d;
+        }
+        // Surrogatpaare ergeben sich aus zwei aufeinanderfolgenden Escapes von selbst
+        return (char) v;
+    }
+
+    /** Liest eine Ganzzahl; Dezimalzahlen werden abgeschnitten. */
+    public long readLong() {
+        skipWs();
+        int start = pos;
+        boolean neg = false;
+        if (pos < end && buf[pos] == '-') { neg = true; pos++; }
+        long v = 0;
+        int digits = 0;
+        while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+            v = v * 10 + (buf[pos++] - '0');
+            digits++;
+        }
+        if (digits == 0) throw error("Number expected");
+        if (pos < end && (buf[pos] == '.' || buf[pos] == 'e' || buf[pos] == 'E')) {
+            pos = start;
+            return (long) readDouble();
+        }
+        return neg ? -v : v;
+    }
+
+    /** Liest eine Zahl als double. */
+    public double readDouble() {
+        skipWs();
+        int start = pos;
+        while (pos < end && isNumberChar(buf[pos])) pos++;
+        if (pos == start) throw error("Number expected");
+        return Double.parseDouble(new String(buf, start, pos - start, StandardCharsets.ISO_8859_1));
+    }
+
+    /** Liest true/false. */
+    public boolean readBoolean() {
+        skipWs();
+        if (pos + 4 <= end && buf[pos] == 't' && buf[pos + 1] == 'r' && buf[pos + 2] == 'u' && buf[pos + 3] == 'e') {
+            pos += 4;
+            return true;
+        }
+        if (pos + 5 <= end && buf[pos] == 'f' && buf[pos + 1] == 'a' && buf[pos + 2] == 'l' && buf[pos + 3] == 's' && buf[pos + 4] == 'e') {
+            pos += 5;
+            return false;
+        }
+        throw error("Boolean expected");
+    }
+
+    /** Überspringt den nächsten Wert beliebigen Typs. */
+    public void skipValue() {
+        skipWs();
+        if (pos >= end) throw error("Value expected");
+        byte b = buf[pos];
+        if (b == '"') {
+            skipString();
+        } else if (b == '{' || b == '[') {
+            int depth = 0;
+            while (pos < end) {
+                byte c = buf[pos];
+                if (c == '"') { skipString(); continue; }
+                pos++;
+                if (c == '{' || c == '[') depth++;
+                else if ((c == '}' || c == ']') && --depth == 0) return;
+            }
+            throw error("Unterminated container");
+        } else {
+            // Zahl oder Literal bis zum nächsten Trenner
+            while (pos < end) {
+                byte c = buf[pos];
+                if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\n' || c == '\r' || c == '\t') break;
+                pos++;
+            }
+        }
+    }
+
+    private void skipString() {
+        pos++; // öffnendes Quote
+        while (pos < end) {
+            byte c = buf[pos++];
+            if (c == '\\') pos++;
+            else if (c == '"') return;
+        }
+        throw error("Unterminated string");
+    }
+
+    // Verbraucht ',' zwischen Elementen; false und Verbrauch der Klammer am Ende
+    private boolean nextMember(char close) {
+        skipWs();
+        if (pos < end && buf[pos] == ',') { pos++; skipWs(); }
+        if (pos < end && buf[pos] == close) { pos++; return false; }
+        if (pos >= end) throw error("Unexpected end of input");
+        return true;
+    }
+
+    private void expect(char c) {
+        skipWs();
+        if (pos >= end || buf[pos] != c) throw error("'" + c + "' expected");
+        pos++;
+    }
+
+    private void skipWs() {
+        while (pos < end) {
+            byte b = buf[pos];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') return;
+            pos++;
+        }
+    }
+
+    private boolean regionEquals(int start, byte[] c) {
+        for (int i = 0; i < c.length; i++) if (buf[start + i] != c[i]) return false;
+        return true;
+    }
+
+    private static boolean isNumberChar(byte b) {
+        return (b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E';
+    }
+
+    private IllegalArgumentException error(String msg) {
+        return new IllegalArgumentException("Invalid JSON at offset " + pos + ": " + msg);
+    }
+}
@@ -0,0 +1,214 @@
+package de.example.llmbench.api;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Vorkompilierter Mehrfach-Matcher für die Qualitätsbewertung nach Schlüsselwörtern
+ * (Aho-Corasick).
+ *
+ * Wird einmal je Anfrage aus den erwarteten Schlüsselwörtern gebaut und findet danach in
+ * einem einzigen Durchlauf über den Antworttext alle Schlüsselwörter – unabhängig von
+ * deren Anzahl. Die Normalisierung (Kleinschreibung, Whitespace zu einem Leerzeichen
+ * zusammenfassen, Trimmen) geschieht beim Durchlauf ohne Regex und ohne Zwischen-Strings;
+ * das Ergebnis entspricht {@code normalize(text).contains(normalize(keyword))} je
+ * Schlüsselwort.
+ *
+ * Instanzen sind unveränderlich und können von beliebig vielen Threads gleichzeitig
+ * verwendet werden.
+ */
+public final class KeywordMatcher {
+
+    // Automat: je Zustand sortierte Übergangszeichen und Zielzustände
+    private final char[][] keys;
+    private final int[][] next;
+    private final int[] fail;
+    // Schlüsselwort-Gruppe, die in diesem Zustand endet (-1: keine)
+    private final int[] out;
+    // Nächster Zustand auf der Fail-Kette, in dem eine Gruppe endet (-1: keiner)
+    private final int[] dict;
+    // Anzahl der Schlüsselwörter je Gruppe (gleiche normalisierte Form)
+    private final int[] weight;
+    // Bewertbare Schlüsselwörter (nicht leer), inklusive solcher, die leer normalisieren
+    private final int total;
+
+    private KeywordMatcher(char[][] keys, int[][] next, int[] fail, int[] out, int[] dict, int[] weight, int total) {
+        this.keys = keys;
+        this.next = next;
+        this.fail = fail;
+        this.out = out;
+        this.dict = dict;
+        this.weight = weight;
+        this.total = total;
+    }
+
+    /**
+     * Baut den Matcher. Leere oder nur aus Whitespace bestehende Schlüsselwörter werden
+     * wie in {@link QualityUtil#scoreByKeywords} übergangen.
+     *
+     * @param keywords erwartete Schlüsselwörter (darf null sein)
+     * @return Matcher oder null, falls kein bewertbares Schlüsselwort vorhanden ist
+     */
+    public static KeywordMatcher compile(List<String> keywords) {
+        if (keywords == null || keywords.isEmpty()) return null;
+        Map<String, Integer> groups = new HashMap<>();
+        List<String> patterns = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        int total = 0;
+        for (String kw : keywords) {
+            if (kw == null || kw.isBlank()) continue;
+            total++;
+            String k = QualityUtil.normalize(kw);
+            if (k.isEmpty()) continue;
+            Integer g = groups.get(k);
+            if (g == null) {
+                groups.put(k, patterns.size());
+                patterns.add(k);
+                weights.add(1);
+            } else {
+                weights.set(g, weights.get(g) + 1);
+            }
+        }
+        if (total == 0) return null;
+
+        // Trie aufbauen
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> ends = new ArrayList<>();
+        trie.add(new HashMap<>());
+        ends.add(-1);
+        for (int g = 0; g < patterns.size(); g++) {
+            String p = patterns.get(g);
+            int s = 0;
+            for (int i = 0; i < p.length(); i++) {
+                Integer t = trie.get(s).get(p.charAt(i));
+                if (t == null) {
+                    t = trie.size();
+                    trie.get(s).put(p.charAt(i), t);
+                    trie.add(new HashMap<>());
+                    ends.add(-1);
+                }
+                s = t;
+            }
+            ends.set(s, g);
+        }
+
+        int n = trie.size();
+        char[][] keys = new char[n][];
+        int[][] next = new int[n][];
+        int[] out = new int[n];
+        for (int s = 0; s < n; s++) {
+            Map<Character, Integer> edges = trie.get(s);
+            char[] k = new char[edges.size()];
+            int i = 0;
+            for (char c : edges.keySet()) k[i++] = c;
+            Arrays.sort(k);
+            int[] t = new int[k.length];
+            for (i = 0; i < k.length; i++) t[i] = edges.get(k[i]);
+            keys[s] = k;
+            next[s] = t;
+            out[s] = ends.get(s);
+        }
+
+        // Fail- und Ausgabe-Verweise in Breitensuche
+        int[] fail = new int[n];
+        int[] dict = new int[n];
+        Arrays.fill(dict, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int t : next[0]) queue.add(t);
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            for (int i = 0; i < keys[s].length; i++) {
+                char c = keys[s][i];
+                int t = next[s][i];
+                int f = fail[s];
+                int g;
+                while ((g = step(keys, next, f, c)) < 0 && f != 0) f = fail[f];
+                fail[t] = g < 0 || g == t ? 0 : g;
+                dict[t] = out[fail[t]] >= 0 ? fail[t] : dict[fail[t]];
+                queue.add(t);
+            }
+        }
+
+        int[] weight = weights.stream().mapToInt(Integer::intValue).toArray();
+        return new KeywordMatcher(keys, next, fail, out, dict, weight, total);
+    }
+
+    /**
+     * Anzahl der bewertbaren Schlüsselwörter (Nenner des Qualitätswerts).
+     */
+    public int size() { return total; }
+
+    /**
+     * Zählt, wie viele Schlüsselwörter im Text vorkommen (jedes höchstens einmal).
+     *
+     * @param text Antworttext (darf null sein)
+     * @return Anzahl gefundener Schlüsselwörter
+     */
+    public int countMatches(String text) {
+        if (text == null || weight.length == 0) return 0;
+        String s = text.toLowerCase(Locale.ROOT);
+        boolean[] found = new boolean[weight.length];
+        int remaining = weight.length;
+        int hits = 0;
+        int state = 0;
+        boolean started = false, space = false;
+        for (int i = 0, len = s.length(); i < len; i++) {
+            char c = s.charAt(i);
+            if (QualityUtil.isSpace(c)) {
+                // Whitespace-Folgen zählen als ein Leerzeichen, führende und abschließende gar nicht
+                space = started;
+                continue;
+            }
+            if (space) {
+                // Normalisierte Schlüsselwörter enden nie auf einem Leerzeichen: keine Ausgabe prüfen
+                state = advance(state, ' ');
+                space = false;
+            }
+            started = true;
+            state = advance(state, c);
+            for (int m = out[state] >= 0 ? state : dict[state]; m >= 0; m = dict[m]) {
+                int g = out[m];
+                if (!found[g]) {
+                    found[g] = true;
+                    hits += weight[g];
+                    if (--remaining == 0) return hits;
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Qualitätswert wie {@link QualityUtil#scoreByKeywords}: Anteil der gefundenen
+     * Schlüsselwörter zwischen 0.0 und 1.0.
+     *
+     * @param text Antworttext
+     * @return Qualitätswert oder null, falls der Text leer ist
+     */
+    public Double score(String text) {
+        if (text == null || text.isBlank()) return null;
+        return Math.max(0.0, Math.min(1.0, countMatches(text) / (double) total));
+    }
+
+    private int advance(int state, char c) {
+        int t;
+        while ((t = step(keys, next, state, c)) < 0 && state != 0) state = fail[state];
+        return t < 0 ? 0 : t;
+    }
+
+    // Direkter Übergang oder -1; wenige Kanten linear, viele per Binärsuche
+    private static int step(char[][] keys, int[][] next, int state, char c) {
+        char[] k = keys[state];
+        if (k.length <= 8) {
+            for (int i = 0; i < k.length; i++) if (k[i] == c) return next[state][i];
+            return -1;
+        }
+        int i = Arrays.binarySearch(k, c);
+        return i >= 0 ? next[state][i] : -1;
+    }
+}
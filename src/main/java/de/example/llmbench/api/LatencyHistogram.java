@@ -0,0 +1,196 @@
+package de.example.llmbench.api;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Logarithmisch unterteiltes Latenz-Histogramm mit fester Speichergröße (nach dem Vorbild von HdrHistogram).
+ *
+ * Werte werden in Mikrosekunden erfasst. Bis 256 µs ist jede Mikrosekunde ein eigener
+ * Bucket, darüber wird jede Zweierpotenz in 128 gleich breite Buckets geteilt – der
+ * relative Fehler bleibt damit unter 0,8 %. Der Wertebereich reicht bis 2^40 µs
+ * (ca. 12 Tage), größere Werte landen im letzten Bucket.
+ *
+ * {@link #record(double)} ist lock-frei und kann von beliebig vielen Worker-Threads
+ * gleichzeitig aufgerufen werden. Histogramme lassen sich über {@link #add(LatencyHistogram)}
+ * oder über einen serialisierbaren {@link Snapshot} (z.B. von anderen Knoten) zusammenführen.
+ */
+public final class LatencyHistogram {
+
+    // Anzahl der linearen Sub-Buckets (2^SUB_BITS) und Hälfte davon je Zweierpotenz
+    private static final int SUB_BITS = 8;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int HALF_COUNT = SUB_COUNT >> 1;
+    // Größter exakt abbildbarer Exponent (2^40 µs)
+    private static final int MAX_EXP = 40;
+    private static final int BUCKETS = SUB_COUNT + (MAX_EXP - SUB_BITS + 1) * HALF_COUNT;
+    private static final long MAX_VALUE = (1L << (MAX_EXP + 1)) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumMicros = new AtomicLong();
+    private final AtomicLong minMicros = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maxMicros = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Erfasst einen Wert in Millisekunden. Negative Werte und NaN werden ignoriert.
+     *
+     * @param ms Wert in Millisekunden
+     */
+    public void record(double ms) {
+        if (!(ms >= 0)) return;
+        recordMicros(Math.round(ms * 1000.0));
+    }
+
+    /**
+     * Erfasst einen Wert in Mikrosekunden.
+     *
+     * @param micros Wert in Mikrosekunden (>= 0)
+     */
+    public void recordMicros(long micros) {
+        long v = Math.min(Math.max(0, micros), MAX_VALUE);
+        counts.incrementAndGet(index(v));
+        count.incrementAndGet();
+        sumMicros.addAndGet(v);
+        minMicros.accumulateAndGet(v, Math::min);
+        maxMicros.accumulateAndGet(v, Math::max);
+    }
+
+    /**
+     * Addiert alle Werte eines anderen Histogramms (z.B. eines weiteren Batches).
+     *
+     * @param other anderes Histogramm
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = other.counts.get(i);
+            if (c != 0) counts.addAndGet(i, c);
+        }
+        long n = other.count.get();
+        if (n == 0) return;
+        count.addAndGet(n);
+        sumMicros.addAndGet(other.sumMicros.get());
+        minMicros.accumulateAndGet(other.minMicros.get(), Math::min);
+        maxMicros.accumulateAndGet(other.maxMicros.get(), Math::max);
+    }
+
+    /** Anzahl erfasster Werte. */
+    public long count() { return count.get(); }
+
+    /** Durchschnitt in Millisekunden (exakt, nicht aus den Buckets geschätzt). */
+    public double mean() {
+        long n = count.get();
+        return n == 0 ? 0 : sumMicros.get() / 1000.0 / n;
+    }
+
+    /** Kleinster Wert in Millisekunden (exakt). */
+    public double min() { return count.get() == 0 ? 0 : minMicros.get() / 1000.0; }
+
+    /** Größter Wert in Millisekunden (exakt). */
+    public double max() { return count.get() == 0 ? 0 : maxMicros.get() / 1000.0; }
+
+    /**
+     * Liefert das Perzentil p (0..1) in Millisekunden.
+     * Innerhalb eines Buckets werden die Werte als gleichverteilt angenommen und
+     * zwischen benachbarten Rängen linear interpoliert.
+     *
+     * @param p Perzentil zwischen 0 und 1 (z.B. 0.999)
+     * @return geschätzter Wert in Millisekunden
+     */
+    public double percentile(double p) {
+        long n = count.get();
+        if (n == 0) return 0;
+        double rank = Math.max(0, Math.min(1, p)) * (n - 1);
+        long lo = (long) Math.floor(rank);
+        double frac = rank - lo;
+        double a = valueAtRank(lo);
+        double v = frac == 0 ? a : a + frac * (valueAtRank(lo + 1) - a);
+        return Math.max(min(), Math.min(max(), v / 1000.0));
+    }
+
+    // Wert (µs) des Elements mit 0-basiertem Rang in der sortierten Folge
+    private double valueAtRank(long rank) {
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = counts.get(i);
+            if (c == 0) continue;
+            if (rank < seen + c) {
+                long pos = rank - seen;
+                return lowerBound(i) + (pos + 0.5) / c * width(i);
+            }
+            seen += c;
+        }
+        return maxMicros.get();
+    }
+
+    /**
+     * Liefert eine serialisierbare Momentaufnahme (nur belegte Buckets).
+     */
+    public Snapshot snapshot() {
+        int used = 0;
+        for (int i = 0; i < BUCKETS; i++) if (counts.get(i) != 0) used++;
+        int[] idx = new int[used];
+        long[] cnt = new long[used];
+        int k = 0;
+        for (int i = 0; i < BUCKETS && k < used; i++) {
+            long c = counts.get(i);
+            if (c != 0) { idx[k] = i; cnt[k] = c; k++; }
+        }
+        long n = count.get();
+        return new Snapshot(n, sumMicros.get(), n == 0 ? 0 : minMicros.get(), n == 0 ? 0 : maxMicros.get(),
+                Arrays.copyOf(idx, k), Arrays.copyOf(cnt, k));
+    }
+
+    /**
+     * Baut ein Histogramm aus einer Momentaufnahme wieder auf.
+     */
+    public static LatencyHistogram fromSnapshot(Snapshot s) {
+        LatencyHistogram h = new LatencyHistogram();
+        if (s == null || s.count() == 0) return h;
+        for (int i = 0; i < s.indexes().length; i++) {
+            int idx = s.indexes()[i];
+            if (idx >= 0 && idx < BUCKETS) h.counts.addAndGet(idx, s.counts()[i]);
+        }
+        h.count.set(s.count());
+        h.sumMicros.set(s.sumMicros());
+        h.minMicros.set(s.minMicros());
+        h.maxMicros.set(s.maxMicros());
+        return h;
+    }
+
+    /**
+     * Serialisierbare, dünn besetzte Form eines Histogramms zum Austausch zwischen Batches oder Knoten.
+     */
+    public static record Snapshot(
+            long count,
+            long sumMicros,
+            long minMicros,
+            long maxMicros,
+            int[] indexes,
+            long[] counts
+    ) {}
+
+    // Bucket-Index für einen Wert in µs
+    static int index(long v) {
+        if (v < SUB_COUNT) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int shift = exp - (SUB_BITS - 1);
+        int mantissa = (int) (v >>> shift);
+        return SUB_COUNT + (shift - 1) * HALF_COUNT + (mantissa - HALF_COUNT);
+    }
+
+    // Untere Grenze (µs) eines Buckets
+    static long lowerBound(int index) {
+        if (index < SUB_COUNT) return index;
+        int k = index - SUB_COUNT;
+        int shift = k / HALF_COUNT + 1;
+        long mantissa = k % HALF_COUNT + HALF_COUNT;
+        return mantissa << shift;
+    }
+
+    // Breite (µs) eines Buckets
+    static long width(int index) {
+        return index < SUB_COUNT ? 1 : 1L << ((index - SUB_COUNT) / HALF_COUNT + 1);
+    }
+}
@@ -0,0 +1,104 @@
+package de.example.llmbench.api;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Schnittstelle für LLM-Backends, die von BenchmarkService gemessen werden.
+ *
+ * Eine Implementierung führt einzelne Aufrufe aus und liefert die Messwerte in einem
+ * SingleRunResult: Zeitstempel, HTTP-Status, Antworttext und die Token-Zählung des
+ * Servers (inputTokens/outputTokens/totalTokens, null wenn der Server keine liefert).
+ * Im Streaming-Modus werden zusätzlich TTFT, Inter-Token-Latenz und Tokens/s gemessen.
+ * Fehler landen im Ergebnis (success=false, error), nicht als Exception.
+ *
+ * Eingebaut sind Ollama und OpenAI-kompatible Server; weitere Backends werden über
+ * {@link java.util.ServiceLoader} gefunden (META-INF/services/de.example.llmbench.api.LlmProvider)
+ * oder per {@link ProviderRegistry#register(LlmProvider)} registriert.
+ */
+public interface LlmProvider {
+
+    /**
+     * Name des Providers, wie er in BenchRequest.provider angegeben wird (klein geschrieben).
+     */
+    String name();
+
+    /**
+     * Basis-URL des Backends (zur Anzeige).
+     */
+    String baseUrl();
+
+    /**
+     * Führt einen einzelnen Aufruf durch.
+     *
+     * @param model Modellname
+     * @param prompt Eingabetext
+     * @param temperature Sampling-Temperatur
+     * @param maxTokens Maximale Token-Anzahl
+     * @param timeoutMs Timeout in Millisekunden
+     * @param stream true für Streaming mit TTFT/ITL-Messung
+     * @param node fester Knoten (siehe {@link #checkNode(String)}) oder null
+     * @return Ergebnisobjekt mit Metriken und Antworttext
+     */
+    BenchmarkDto.SingleRunResult call(String model, String prompt, double temperature, int maxTokens, int timeoutMs,
+                                      boolean stream, String node);
+
+    /**
+     * Wie {@link #call(String, String, double, int, int, boolean, String)}, meldet im
+     * Streaming-Modus aber zusätzlich jeden Abstand zwischen zwei Chunks. Daraus berechnet
+     * BenchmarkService die ITL-Perzentile eines Batches; itlMs im Ergebnis bleibt der
+     * Mittelwert des Laufs. Standard: keine Meldungen.
+     *
+     * @param chunkGaps Empfänger der Abstände in Nanosekunden (darf null sein)
+     */
+    default BenchmarkDto.SingleRunResult call(String model, String prompt, double temperature, int maxTokens,
+                                              int timeoutMs, boolean stream, String node, LongConsumer chunkGaps) {
+        return call(model, prompt, temperature, maxTokens, timeoutMs, stream, node);
+    }
+
+    /**
+     * Listet die Modelle, die das Backend anbietet.
+     *
+     * @param timeoutMs Timeout in Millisekunden
+     * @return Modellnamen in der Reihenfolge des Servers
+     * @throws IOException bei Verbindungsfehlern oder einem HTTP-Fehlerstatus
+     * @throws InterruptedException wenn der Aufruf unterbrochen wird
+     */
+    List<String> models(int timeoutMs) throws IOException, InterruptedException;
+
+    /**
+     * Listet die Modelle mit Metadaten (Größe, Quantisierung, Parameter) für den
+     * Modellkatalog. Standard: nur die Namen aus {@link #models(int)}.
+     *
+     * @param timeoutMs Timeout in Millisekunden je Abfrage
+     * @return Modelle in der Reihenfolge des Servers
+     * @throws IOException bei Verbindungsfehlern oder einem HTTP-Fehlerstatus
+     * @throws InterruptedException wenn der Aufruf unterbrochen wird
+     */
+    default List<BenchmarkDto.ModelInfo> catalog(int timeoutMs) throws IOException, InterruptedException {
+        return models(timeoutMs).stream().map(BenchmarkDto.ModelInfo::named).toList();
+    }
+
+    /**
+     * Prüft, ob ein fester Knoten angesprochen werden kann.
+     *
+     * @param node Knoten aus BenchRequest.node oder null
+     * @return null, wenn der Knoten gültig (oder keiner angegeben) ist, sonst eine Fehlerbeschreibung
+     */
+    default String checkNode(String node) {
+        return node == null ? null : "Provider " + name() + " does not support node selection";
+    }
+
+    /**
+     * Entlädt ein Modell, damit der nächste Aufruf einen Cold Start misst.
+     *
+     * @param model Modellname
+     * @param timeoutMs Timeout in Millisekunden
+     * @param node fester Knoten oder null
+     * @return null bei Erfolg, sonst eine Fehlerbeschreibung
+     */
+    default String unload(String model, int timeoutMs, String node) {
+        return "Provider " + name() + " does not support unloading models";
+    }
+}
@@ -0,0 +1,361 @@
+package de.example.llmbench.api;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Wiederverwendbare Last-Engine auf Basis virtueller Threads.
+ *
+ * Jeder Batch bekommt einen eigenen Executor (ein virtueller Thread pro Lauf),
+ * der beim Schließen auf alle Läufe wartet – damit endet kein Lauf außerhalb
+ * seines Batches. Die Parallelität wird über eine Semaphore begrenzt, nicht über
+ * die Größe eines Thread-Pools, sodass auch tausende gleichzeitige Läufe keine
+ * Plattform-Threads binden.
+ */
+public final class LoadEngine {
+
+    // Obergrenze für Läufe pro Batch (über Umgebungsvariable konfigurierbar)
+    public static final int MAX_RUNS = Integer.parseInt(System.getenv().getOrDefault("BENCH_MAX_RUNS", "10000"));
+
+    private static final LoadEngine SHARED = new LoadEngine();
+
+    // Watchdog, der hängende Läufe nach Ablauf des Timeouts unterbricht
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "llmbench-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Prozessweite Begrenzung der Aufrufe je Provider/Modell über alle Batches
+    private static final AdmissionController ADMISSION = AdmissionController.shared();
+
+    // Aktive Batches nach ID, damit sie von außen abgebrochen werden können
+    private final Map<String, Batch> active = new ConcurrentHashMap<>();
+    // IDs, die schon vor dem Öffnen ihres Batches abgebrochen wurden (siehe cancelAhead)
+    private final Set<String> cancelledAhead = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Liefert die prozessweit geteilte Engine.
+     */
+    public static LoadEngine shared() { return SHARED; }
+
+    /**
+     * Öffnet einen neuen Batch. Ist keine ID angegeben, wird eine erzeugt.
+     *
+     * @param id gewünschte Batch-ID oder null
+     * @return offener Batch (muss geschlossen werden)
+     */
+    public Batch open(String id) {
+        String batchId = id == null || id.isBlank() ? UUID.randomUUID().toString() : id;
+        Batch b = new Batch(batchId);
+        if (active.putIfAbsent(batchId, b) != null) {
+            b.executor.close();
+            throw new IllegalStateException("Batch already running: " + batchId);
+        }
+        if (cancelledAhead.remove(batchId)) b.cancelled = true;
+        return b;
+    }
+
+    /**
+     * Anzahl der gerade laufenden Batches.
+     */
+    public int activeBatches() { return active.size(); }
+
+    /**
+     * Bricht einen laufenden Batch ab.
+     *
+     * @param id Batch-ID
+     * @return true, falls der Batch existierte
+     */
+    public boolean cancel(String id) {
+        Batch b = active.get(id);
+        if (b == null) return false;
+        b.cancel();
+        return true;
+    }
+
+    /**
+     * Bricht einen Batch ab, auch wenn er noch nicht geöffnet ist: {@link #open} liefert ihn
+     * dann bereits abgebrochen (für Jobs, deren Batch erst nach der Annahme startet).
+     * Wird der Batch nie geöffnet, muss der Eintrag mit {@link #forgetCancel} entfernt werden.
+     *
+     * @param id Batch-ID
+     */
+    public void cancelAhead(String id) {
+        cancelledAhead.add(id);
+        Batch b = active.get(id);
+        if (b != null) {
+            cancelledAhead.remove(id);
+            b.cancel();
+        }
+    }
+
+    /**
+     * Entfernt einen vorgemerkten Abbruch (siehe {@link #cancelAhead}).
+     */
+    public void forgetCancel(String id) { cancelledAhead.remove(id); }
+
+    /**
+     * Ein einzelner Batch von Läufen mit gemeinsamer Abbruchsteuerung.
+     */
+    public final class Batch implements AutoCloseable {
+        private final String id;
+        private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        private final Set<Interrupter> inFlight = ConcurrentHashMap.newKeySet();
+        private volatile boolean cancelled;
+        private boolean retain = true;
+        private boolean isolated;
+
+        private Batch(String id) { this.id = id; }
+
+        /**
+         * Ergebnisse nicht sammeln, sondern nur an onResult weiterreichen
+         * (z.B. für Streaming-Exporte). Die run-Methoden liefern dann ein leeres Array.
+         */
+        public Batch discardResults() { this.retain = false; return this; }
+
+        /**
+         * Lanes der Aufrufe exklusiv belegen, statt sie fair mit anderen Batches zu teilen
+         * (siehe AdmissionController). Die Lanes werden erst mit {@link #close()} wieder frei.
+         */
+        public Batch isolate() { this.isolated = true; return this; }
+
+        public String id() { return id; }
+
+        public boolean isCancelled() { return cancelled; }
+
+        /**
+         * Führt {@code runs} Läufe mit höchstens {@code concurrency} gleichzeitigen Aufrufen aus
+         * (geschlossene Schleife: ein neuer Lauf startet erst, wenn ein Slot frei wird).
+         *
+         * @param runs Anzahl der Läufe
+         * @param concurrency maximale Anzahl gleichzeitiger Läufe
+         * @param timeoutMs Zeit, nach der ein Lauf unterbrochen wird
+         * @param call eigentlicher Aufruf eines Laufs
+         * @param onResult wird für jedes Ergebnis sofort nach Abschluss aufgerufen (darf null sein)
+         * @return Ergebnisse in Startreihenfolge; nicht mehr gestartete Läufe fehlen
+         */
+        public BenchmarkDto.SingleRunResult[] runClosedLoop(int runs, int concurrency, long timeoutMs,
+                                                           Callable<BenchmarkDto.SingleRunResult> call,
+                                                           Consumer<BenchmarkDto.SingleRunResult> onResult) {
+            return runClosedLoop(runs, concurrency, timeoutMs, i -> call, onResult);
+        }
+
+        /**
+         * Wie {@link #runClosedLoop(int, int, long, Callable, Consumer)}, aber mit einem eigenen
+         * Aufruf je Lauf (z.B. verschiedene Prompts oder Modelle in einem Batch). Das Ergebnis
+         * von Lauf i steht an Position i (nicht mehr gestartete Läufe fehlen am Ende).
+         *
+         * @param calls liefert den Aufruf für den Lauf mit dem angegebenen Index
+         */
+        public BenchmarkDto.SingleRunResult[] runClosedLoop(int runs, int concurrency, long timeoutMs,
+                                                           IntFunction<Callable<BenchmarkDto.SingleRunResult>> calls,
+                                                           Consumer<BenchmarkDto.SingleRunResult> onResult) {
+            BenchmarkDto.SingleRunResult[] results = new BenchmarkDto.SingleRunResult[retain ? runs : 0];
+            Semaphore slots = new Semaphore(concurrency);
+            CountDownLatch done = new CountDownLatch(runs);
+            int started = 0;
+            try {
+                for (; started < runs && !cancelled; started++) {
+                    slots.acquire();
+                    if (cancelled) { slots.release(); break; }
+                    final int idx = started;
+                    executor.execute(() -> {
+                        try {
+                            BenchmarkDto.SingleRunResult r = runGuarded(calls.apply(idx), timeoutMs, null);
+                            if (retain) results[idx] = r;
+                            if (onResult != null) onResult.accept(r);
+                        } finally {
+                            slots.release();
+                            done.countDown();
+                        }
+                    });
+                }
+                // Nicht gestartete Läufe zählen als erledigt
+                for (int i = started; i < runs; i++) done.countDown();
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+            }
+            return compact(results, started);
+        }
+
+        /**
+         * Führt Läufe zu festen, geplanten Startzeitpunkten aus (offene Schleife).
+         * Jeder Lauf startet unabhängig davon, wie viele Aufrufe noch offen sind, und
+         * bekommt seinen geplanten Start als intendedStartNanos. Gerät der Dispatcher
+         * in Verzug, zählt die Verspätung damit zur gemessenen Latenz.
+         *
+         * @param offsetsNanos geplante Starts relativ zum Beginn (aufsteigend)
+         * @param timeoutMs Zeit, nach der ein Lauf unterbrochen wird
+         * @param call eigentlicher Aufruf eines Laufs
+         * @param onResult wird für jedes Ergebnis sofort nach Abschluss aufgerufen (darf null sein)
+         * @return Ergebnisse in Startreihenfolge; nicht mehr gestartete Läufe fehlen
+         */
+        public BenchmarkDto.SingleRunResult[] runOpenLoop(long[] offsetsNanos, long timeoutMs,
+                                                         Callable<BenchmarkDto.SingleRunResult> call,
+                                                         Consumer<BenchmarkDto.SingleRunResult> onResult) {
+            int runs = offsetsNanos.length;
+            BenchmarkDto.SingleRunResult[] results = new BenchmarkDto.SingleRunResult[retain ? runs : 0];
+            CountDownLatch done = new CountDownLatch(runs);
+            long t0 = System.nanoTime();
+            int started = 0;
+            try {
+                for (; started < runs && !cancelled; started++) {
+                    final long intended = t0 + offsetsNanos[started];
+                    long wait;
+                    while ((wait = intended - System.nanoTime()) > 0 && !cancelled) {
+                        LockSupport.parkNanos(wait);
+                        if (Thread.interrupted()) throw new InterruptedException();
+                    }
+                    if (cancelled) break;
+                    final int idx = started;
+                    executor.execute(() -> {
+                        try {
+                            BenchmarkDto.SingleRunResult r = runGuarded(call, timeoutMs, intended);
+                            if (retain) results[idx] = r;
+                            if (onResult != null) onResult.accept(r);
+                        } finally {
+                            done.countDown();
+                        }
+                    });
+                }
+                for (int i = started; i < runs; i++) done.countDown();
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+            }
+            return compact(results, started);
+        }
+
+        // Entfernt Lücken nicht gestarteter Läufe
+        private BenchmarkDto.SingleRunResult[] compact(BenchmarkDto.SingleRunResult[] results, int started) {
+            int n = 0;
+            for (int i = 0; i < Math.min(started, results.length); i++) if (results[i] != null) results[n++] = results[i];
+            return n == results.length ? results : java.util.Arrays.copyOf(results, n);
+        }
+
+        /**
+         * Führt einen Aufruf aus und unterbricht ihn, falls er das Timeout überschreitet
+         * oder der Batch abgebrochen wird. Unterbrechung bricht laufende HTTP-Aufrufe ab.
+         * Braucht der Aufruf einen Platz in einer Lane (AdmissionController.Gated), wird
+         * vorher darauf gewartet; das Timeout beginnt erst danach, die Wartezeit steht in
+         * queueWaitMs.
+         *
+         * @param intended geplanter Start (offene Schleife) oder null
+         */
+        private BenchmarkDto.SingleRunResult runGuarded(Callable<BenchmarkDto.SingleRunResult> call, long timeoutMs,
+                                                        Long intended) {
+            Interrupter self = new Interrupter(Thread.currentThread());
+            long start = System.nanoTime();
+            AtomicBoolean timedOut = new AtomicBoolean();
+            AdmissionController.Gated gated = call instanceof AdmissionController.Gated g ? g : null;
+            AdmissionController.Permit permit = null;
+            ScheduledFuture<?> guard = null;
+            inFlight.add(self);
+            try {
+                if (cancelled) throw new CancellationException();
+                if (gated != null) {
+                    permit = ADMISSION.acquire(gated.lane(), id, isolated);
+                    start = System.nanoTime();
+                }
+                guard = WATCHDOG.schedule(() -> { timedOut.set(true); self.interrupt(); },
+                        timeoutMs + 5000L, TimeUnit.MILLISECONDS);
+                if (cancelled) throw new CancellationException();
+                BenchmarkDto.SingleRunResult r = call.call();
+                boolean failed = !r.success() && (cancelled || timedOut.get());
+                if (!failed && permit == null && intended == null) return r;
+                BenchmarkDto.SingleRunResult.Builder b = r.toBuilder();
+                if (failed) b.error(reason(timedOut.get(), timeoutMs));
+                return finish(b, permit, intended);
+            } catch (Exception e) {
+                // Provider und Modell auch bei Abbruch vor dem Aufruf (sonst leere Zeilen im Export)
+                return finish(BenchmarkDto.SingleRunResult.failure(
+                        gated == null ? null : gated.provider(), gated == null ? null : gated.model(),
+                        start, System.nanoTime(), 0,
+                        cancelled || timedOut.get() ? reason(timedOut.get(), timeoutMs)
+                                : e.getClass().getSimpleName() + ": " + e.getMessage()).toBuilder(), permit, intended);
+            } finally {
+                if (guard != null) guard.cancel(false);
+                if (permit != null) permit.close();
+                inFlight.remove(self);
+                // Danach unterbricht weder Watchdog noch cancel() diesen Thread (sonst träfe es onResult)
+                self.disarm();
+            }
+        }
+
+        private BenchmarkDto.SingleRunResult finish(BenchmarkDto.SingleRunResult.Builder b,
+                                                    AdmissionController.Permit permit, Long intended) {
+            if (permit != null) b.queueWait(permit.waitMs());
+            if (intended != null) b.intendedStart(intended);
+            return b.build();
+        }
+
+        private String reason(boolean timedOut, long timeoutMs) {
+            return timedOut ? "Timeout after " + (timeoutMs + 5000L) + " ms" : "Cancelled";
+        }
+
+        /**
+         * Bricht den Batch ab: keine neuen Läufe, laufende Aufrufe werden unterbrochen.
+         */
+        public void cancel() {
+            cancelled = true;
+            for (Interrupter t : inFlight) t.interrupt();
+        }
+
+        /**
+         * Unterbrechung eines laufenden Aufrufs. Unterbrochen wird nur, solange der Lauf
+         * scharf ist; {@link #disarm()} wartet auf eine gerade laufende Unterbrechung und
+         * löscht danach den Unterbrechungsstatus.
+         */
+        private static final class Interrupter {
+            private final Thread thread;
+            private final ReentrantLock lock = new ReentrantLock();
+            private boolean armed = true;
+
+            Interrupter(Thread thread) { this.thread = thread; }
+
+            void interrupt() {
+                lock.lock();
+                try {
+                    if (armed) thread.interrupt();
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            // Nur vom Thread des Laufs aufzurufen
+            void disarm() {
+                lock.lock();
+                try {
+                    armed = false;
+                } finally {
+                    lock.unlock();
+                }
+                Thread.interrupted(); // Unterbrechungsstatus nicht weiterreichen
+            }
+        }
+
+        /**
+         * Wartet auf alle Läufe des Batches und meldet ihn ab.
+         */
+        @Override
+        public void close() {
+            try {
+                executor.close();
+            } finally {
+                ADMISSION.leave(id);
+                active.remove(id, this);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package de.example.llmbench.api;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Append-only Datei mit Datensätzen fester Länge, die abschnittsweise in den Speicher
+ * eingeblendet wird (memory-mapped).
+ *
+ * Slot 0 ist der Header (Magic, Datensatzlänge, Anzahl), Datensatz i liegt in Slot i + 1.
+ * Die Datei wächst in Abschnitten von {@code chunkBytes}; ein Datensatz liegt nie über
+ * einer Abschnittsgrenze. Schreiben ist nur für einen Thread gedacht (Aufrufer
+ * synchronisiert), Lesen ist für alle Datensätze unterhalb von {@link #count()} aus
+ * beliebigen Threads möglich: die Anzahl wird erst nach den Daten veröffentlicht.
+ */
+final class MappedRecordFile {
+
+    private static final int MAGIC = 0x4C4C4D42; // "LLMB"
+
+    private final FileChannel channel;
+    private final int recordSize;
+    private final int perChunk;
+    private final long chunkBytes;
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+    private volatile long count;
+
+    /**
+     * Öffnet oder erzeugt die Datei.
+     *
+     * @param file Pfad
+     * @param recordSize Länge eines Datensatzes in Bytes (mindestens 16, Vielfaches von 8)
+     * @param chunkBytes Größe eines eingeblendeten Abschnitts (Vielfaches von recordSize)
+     */
+    MappedRecordFile(Path file, int recordSize, int chunkBytes) throws IOException {
+        if (recordSize < 16 || recordSize % 8 != 0 || chunkBytes % recordSize != 0) throw new IllegalArgumentException("Invalid record layout");
+        this.recordSize = recordSize;
+        this.perChunk = chunkBytes / recordSize;
+        this.chunkBytes = chunkBytes;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer head = chunk(0);
+        if (head.getInt(0) == 0) {
+            head.putInt(0, MAGIC);
+            head.putInt(4, recordSize);
+            head.putLong(8, 0);
+        } else if (head.getInt(0) != MAGIC || head.getInt(4) != recordSize) {
+            throw new IOException("Incompatible record file " + file);
+        }
+        long n = head.getLong(8);
+        chunk(n / perChunk);
+        this.count = n;
+    }
+
+    /** Anzahl gespeicherter Datensätze. */
+    long count() { return count; }
+
+    /**
+     * Liefert den Abschnitt, in dem Datensatz {@code index} liegt; zusammen mit
+     * {@link #offset(long)} für absolute Zugriffe (getLong(offset + feld) usw.).
+     */
+    MappedByteBuffer buffer(long index) { return chunks[(int) ((index + 1) / perChunk)]; }
+
+    /** Position von Datensatz {@code index} innerhalb seines Abschnitts. */
+    int offset(long index) { return (int) ((index + 1) % perChunk) * recordSize; }
+
+    /**
+     * Reserviert den nächsten Datensatz (noch nicht sichtbar) und liefert seinen Index.
+     * Der Datensatz ist mit Nullen vorbelegt, falls er neu ist.
+     */
+    long reserve(long pending) throws IOException {
+        long index = count + pending;
+        chunk((index + 1) / perChunk);
+        MappedByteBuffer b = buffer(index);
+        int off = offset(index);
+        for (int i = 0; i < recordSize; i += 8) b.putLong(off + i, 0);
+        return index;
+    }
+
+    /**
+     * Macht {@code n} reservierte Datensätze sichtbar (Header und Zähler).
+     */
+    void publish(long n) {
+        long c = count + n;
+        chunks[0].putLong(8, c);
+        count = c;
+    }
+
+    // Blendet Abschnitte bis einschließlich {@code index} ein (vergrößert die Datei bei Bedarf)
+    private MappedByteBuffer chunk(long index) throws IOException {
+        MappedByteBuffer[] cur = chunks;
+        if (index < cur.length) return cur[(int) index];
+        MappedByteBuffer[] next = Arrays.copyOf(cur, (int) index + 1);
+        for (int i = cur.length; i <= index; i++) {
+            next[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * chunkBytes, chunkBytes);
+        }
+        chunks = next;
+        return next[(int) index];
+    }
+}
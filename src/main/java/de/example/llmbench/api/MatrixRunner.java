@@ -0,0 +1,281 @@
+package de.example.llmbench.api;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+/**
+ * Führt Matrix-Benchmarks (Modelle × Prompts × Parametervarianten) auf dem Server aus.
+ *
+ * Die Modelle laufen in Phasen nacheinander – standardmäßig eines pro Phase –, damit
+ * der Server nicht ständig Modelle wechseln muss und Ladezeiten die Messung verfälschen.
+ * Innerhalb einer Phase teilen sich alle Zellen ein globales Budget gleichzeitiger
+ * Läufe; die Läufe der Zellen werden verschränkt gestartet, sodass zeitliche Schwankungen
+ * alle Zellen gleichermaßen treffen. Vor jeder Phase laufen Aufwärmläufe je Modell,
+ * die nicht in die Statistik eingehen.
+ *
+ * Statt einzelner Prompts kann ein Datensatz (siehe PromptDataset) angegeben werden.
+ * Standardmäßig bilden dessen Datensätze gepoolt eine einzige Prompt-Spalte: Jede Zelle
+ * durchläuft alle Datensätze (je Wiederholung einmal), bewertet jeden mit dessen eigenen
+ * Schlüsselwörtern und fasst sie zu einem Ergebnis zusammen. Mit {@code perRecord}
+ * wird jeder Datensatz eine eigene Zelle.
+ */
+public class MatrixRunner {
+
+    // Standardwerte, falls die Anfrage sie nicht setzt
+    static final int DEFAULT_MODELS_IN_PARALLEL = 1;
+    static final int DEFAULT_WARMUP_RUNS = 1;
+
+    private final BenchmarkService service;
+    private final LoadEngine engine = LoadEngine.shared();
+    private final ResultStore store = ResultStore.shared();
+    private final PromptDataset datasets = PromptDataset.shared();
+    private final ModelCatalog catalog = ModelCatalog.shared();
+
+    public MatrixRunner(BenchmarkService service) { this.service = service; }
+
+    // Eine Zelle: Anfrage für Ablage und Aufwärmen sowie die vorbereiteten Aufrufe
+    // (einer je Prompt; bei gepooltem Datensatz einer je Datensatz, reihum ausgeführt)
+    private record Cell(String model, String prompt, String variant, BenchmarkDto.BenchRequest req,
+                        BenchmarkDto.BenchRequest warmup, List<Callable<BenchmarkDto.SingleRunResult>> calls) {}
+
+    /**
+     * Führt einen Matrix-Benchmark aus.
+     *
+     * @param matrix Modelle, Prompts, Varianten und Budget
+     * @return nach Modell gruppierter Bericht mit Aggregates je Zelle
+     * @throws IllegalArgumentException bei unbekanntem Provider, zu vielen Läufen, belegter Batch-ID
+     *         oder ungültigem Datensatz
+     */
+    public BenchmarkDto.MatrixReport run(BenchmarkDto.MatrixRequest matrix) {
+        BenchmarkDto.BenchRequest base = matrix.base == null ? new BenchmarkDto.BenchRequest() : matrix.base;
+        List<String> models = matrix.models != null && !matrix.models.isEmpty()
+                ? matrix.models : List.of(base.model == null ? BenchmarkService.DEFAULT_MODEL : base.model);
+        boolean hasPrompts = matrix.prompts != null && !matrix.prompts.isEmpty();
+        List<BenchmarkDto.MatrixPrompt> prompts = hasPrompts ? matrix.prompts : List.of(prompt(base));
+        // Gepoolter Datensatz: eine Prompt-Spalte, deren Läufe reihum alle Datensätze ausführen
+        List<BenchmarkDto.MatrixPrompt> pooled = null;
+        BenchmarkDto.DatasetQuery dataset = matrix.dataset;
+        if (dataset != null) {
+            if (hasPrompts) throw new IllegalArgumentException("Set either prompts or dataset");
+            List<BenchmarkDto.MatrixPrompt> records = records(dataset);
+            if (Boolean.TRUE.equals(dataset.perRecord)) {
+                prompts = records;
+            } else {
+                pooled = records;
+                BenchmarkDto.MatrixPrompt p = new BenchmarkDto.MatrixPrompt();
+                p.id = dataset.name;
+                prompts = List.of(p);
+            }
+        }
+        List<BenchmarkDto.MatrixVariant> variants = matrix.variants != null && !matrix.variants.isEmpty()
+                ? matrix.variants : List.of(new BenchmarkDto.MatrixVariant());
+        int runs = base.runs == null || base.runs < 1 ? 1 : base.runs;
+        long perCell = pooled == null ? runs : (long) runs * pooled.size();
+        int budget = matrix.concurrency != null ? matrix.concurrency
+                : base.concurrency != null ? base.concurrency : 1;
+        budget = Math.max(1, budget);
+        int inParallel = matrix.modelsInParallel == null ? DEFAULT_MODELS_IN_PARALLEL : Math.max(1, matrix.modelsInParallel);
+        int warmup = matrix.warmupRuns == null ? DEFAULT_WARMUP_RUNS : Math.max(0, matrix.warmupRuns);
+        boolean includeResults = Boolean.TRUE.equals(matrix.includeResults);
+
+        long total = (long) models.size() * prompts.size() * variants.size() * perCell;
+        if (total > LoadEngine.MAX_RUNS) {
+            throw new IllegalArgumentException("Matrix too large: " + total + " runs (max " + LoadEngine.MAX_RUNS + ")");
+        }
+        int runsPerCell = (int) perCell;
+
+        // Alle Zellen vorab bauen: ungültige Provider oder Knoten fallen vor dem ersten Lauf auf
+        Map<String, List<Cell>> cellsByModel = new LinkedHashMap<>();
+        for (String model : models) {
+            List<Cell> cells = new ArrayList<>(prompts.size() * variants.size());
+            for (int p = 0; p < prompts.size(); p++) {
+                for (int v = 0; v < variants.size(); v++) {
+                    BenchmarkDto.MatrixPrompt mp = prompts.get(p);
+                    BenchmarkDto.MatrixVariant mv = variants.get(v);
+                    String promptId = mp.id != null ? mp.id : "p" + (p + 1);
+                    String variantName = mv.name != null ? mv.name : "v" + (v + 1);
+                    BenchmarkDto.BenchRequest req = cellRequest(base, model, mp, mv, promptId, variantName);
+                    if (pooled == null) {
+                        cells.add(new Cell(model, promptId, variantName, req, req, List.of(service.call(req))));
+                        continue;
+                    }
+                    // Eigener Aufruf je Datensatz (Prompt und Schlüsselwörter des Datensatzes);
+                    // abgelegt wird die Zelle unter dem Namen des Datensatzes als Prompt
+                    List<Callable<BenchmarkDto.SingleRunResult>> calls = new ArrayList<>(pooled.size());
+                    BenchmarkDto.BenchRequest first = null;
+                    for (BenchmarkDto.MatrixPrompt rec : pooled) {
+                        BenchmarkDto.BenchRequest r = cellRequest(base, model, rec, mv, promptId, variantName);
+                        if (first == null) first = r;
+                        calls.add(service.call(r));
+                    }
+                    req.prompt = "dataset:" + dataset.name;
+                    req.expectedKeywords = null;
+                    cells.add(new Cell(model, promptId, variantName, req, first, calls));
+                }
+            }
+            cellsByModel.putIfAbsent(model, cells);
+        }
+
+        String batchId = base.batchId != null ? base.batchId : UUID.randomUUID().toString();
+        // Modellkatalog schon jetzt im Hintergrund laden; die Metadaten kommen erst in den Bericht
+        catalog.lookup(base.provider, models.get(0));
+        Map<String, List<BenchmarkDto.SingleRunResult>> byQuantization = new TreeMap<>();
+        long start = System.nanoTime();
+        List<BenchmarkDto.MatrixModelReport> reports = new ArrayList<>();
+        List<String> order = new ArrayList<>(cellsByModel.keySet());
+        boolean cancelled = false;
+        for (int g = 0; g < order.size() && !cancelled; g += inParallel) {
+            List<String> group = order.subList(g, Math.min(order.size(), g + inParallel));
+            List<Cell> cells = new ArrayList<>();
+            for (String model : group) cells.addAll(cellsByModel.get(model));
+
+            // Aufwärmen je Modell der Phase (lädt das Modell, bevor gemessen wird)
+            if (warmup > 0) {
+                for (String model : group) {
+                    BenchmarkDto.BenchRequest w = cellsByModel.get(model).get(0).warmup().copy();
+                    w.runs = warmup;
+                    w.concurrency = 1;
+                    w.batchId = null;
+                    service.stream(w, r -> { });
+                }
+            }
+
+            // Läufe verschränkt: Wiederholung für Wiederholung über alle Zellen der Phase
+            // (gepoolt: Wiederholung k führt in jeder Zelle den k-ten Datensatz aus)
+            int n = cells.size() * runsPerCell;
+            long phaseStart = System.nanoTime();
+            BenchmarkDto.SingleRunResult[] results;
+            try (LoadEngine.Batch batch = engine.open(batchId)) {
+                results = batch.runClosedLoop(n, Math.min(budget, n), BenchmarkService.timeoutMs(base),
+                        i -> call(cells.get(i % cells.size()), i / cells.size()), null);
+                cancelled = batch.isCancelled();
+            } catch (IllegalStateException e) {
+                throw new IllegalArgumentException(e.getMessage());
+            }
+            double phaseMs = (System.nanoTime() - phaseStart) / 1_000_000.0;
+
+            for (String model : group) {
+                List<BenchmarkDto.MatrixCell> cellReports = new ArrayList<>();
+                List<BenchmarkDto.SingleRunResult> all = new ArrayList<>();
+                for (int c = 0; c < cells.size(); c++) {
+                    Cell cell = cells.get(c);
+                    if (!cell.model().equals(model)) continue;
+                    List<BenchmarkDto.SingleRunResult> rs = new ArrayList<>(runsPerCell);
+                    for (int i = c; i < results.length; i += cells.size()) rs.add(results[i]);
+                    all.addAll(rs);
+                    cellReports.add(cellReport(cell, rs.toArray(BenchmarkDto.SingleRunResult[]::new), includeResults));
+                }
+                BenchmarkDto.ModelInfo info = catalog.lookup(base.provider, model);
+                if (info != null && info.quantization() != null) {
+                    byQuantization.computeIfAbsent(info.quantization(), k -> new ArrayList<>()).addAll(all);
+                }
+                reports.add(new BenchmarkDto.MatrixModelReport(model, phaseMs, warmup,
+                        cancelled ? "Cancelled" : null, info,
+                        StatsUtil.calc(all.toArray(BenchmarkDto.SingleRunResult[]::new)), cellReports));
+            }
+        }
+
+        Map<String, Object> request = BenchmarkDto.BenchResponse.of(base, null, null).request();
+        // Modell, Prompt und Läufe stehen je Zelle fest
+        request.remove("model");
+        request.remove("runs");
+        request.remove("promptChars");
+        request.remove("promptHash");
+        request.put("batchId", batchId);
+        request.put("models", models);
+        request.put("prompts", pooled == null ? prompts.size() : pooled.size());
+        if (dataset != null) {
+            request.put("dataset", dataset.name);
+            request.put("datasetPooled", pooled != null);
+            if (dataset.tag != null) request.put("datasetTag", dataset.tag);
+            if (dataset.seed != null) request.put("datasetSeed", dataset.seed);
+        }
+        request.put("variants", variants.size());
+        request.put("runsPerCell", runsPerCell);
+        request.put("concurrency", budget);
+        request.put("modelsInParallel", inParallel);
+        request.put("warmupRuns", warmup);
+        // Aggregates je Quantisierung, sobald mindestens zwei verschiedene beteiligt sind
+        Map<String, BenchmarkDto.Aggregates> quantizations = null;
+        if (byQuantization.size() > 1) {
+            quantizations = new LinkedHashMap<>();
+            for (var q : byQuantization.entrySet()) {
+                quantizations.put(q.getKey(), StatsUtil.calc(q.getValue().toArray(BenchmarkDto.SingleRunResult[]::new)));
+            }
+        }
+        int cellCount = models.size() * prompts.size() * variants.size();
+        return new BenchmarkDto.MatrixReport(Instant.now().toString(), request,
+                (System.nanoTime() - start) / 1_000_000.0, cellCount, (int) total, reports, quantizations);
+    }
+
+    // Wertet eine Zelle aus und legt sie als eigenen Lauf im ResultStore ab
+    private BenchmarkDto.MatrixCell cellReport(Cell cell, BenchmarkDto.SingleRunResult[] results, boolean includeResults) {
+        int ok = 0, nq = 0;
+        double q = 0;
+        for (var r : results) {
+            if (r.success()) ok++;
+            if (r.quality() != null) { q += r.quality(); nq++; }
+        }
+        Long runId = results.length == 0 ? null : store.append(cell.req(), results);
+        String storeError = runId == null && results.length > 0 && store.enabled() ? store.error() : null;
+        return new BenchmarkDto.MatrixCell(cell.model(), cell.prompt(), cell.variant(), results.length, ok,
+                StatsUtil.calc(results), nq == 0 ? null : q / nq, runId, storeError, includeResults ? results : null);
+    }
+
+    // Anfrage einer Zelle: Basis plus Modell, Prompt und Variante
+    private static BenchmarkDto.BenchRequest cellRequest(BenchmarkDto.BenchRequest base, String model,
+                                                         BenchmarkDto.MatrixPrompt p, BenchmarkDto.MatrixVariant v,
+                                                         String promptId, String variantName) {
+        BenchmarkDto.BenchRequest req = base.copy();
+        req.mode = null;
+        req.batchId = null;
+        req.model = model;
+        req.prompt = p.prompt != null ? p.prompt : base.prompt;
+        if (p.expectedKeywords != null) req.expectedKeywords = p.expectedKeywords;
+        if (v.provider != null) req.provider = v.provider;
+        if (v.temperature != null) req.temperature = v.temperature;
+        if (v.maxTokens != null) req.maxTokens = v.maxTokens;
+        if (v.stream != null) req.stream = v.stream;
+        // Tag je Zelle, damit sich Zellen verschiedener Matrix-Läufe vergleichen lassen
+        if (base.tag != null) req.tag = base.tag + "/" + model + "/" + promptId + "/" + variantName;
+        return req;
+    }
+
+    private static Callable<BenchmarkDto.SingleRunResult> call(Cell cell, int repetition) {
+        List<Callable<BenchmarkDto.SingleRunResult>> calls = cell.calls();
+        return calls.get(repetition % calls.size());
+    }
+
+    // Datensätze als Prompts (ID aus der Datei, sonst Zeilennummer)
+    private List<BenchmarkDto.MatrixPrompt> records(BenchmarkDto.DatasetQuery q) {
+        List<BenchmarkDto.DatasetRecord> records;
+        try {
+            records = datasets.select(q);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Dataset " + q.name + ": " + e.getClass().getSimpleName() + " " + e.getMessage());
+        }
+        if (records.isEmpty()) throw new IllegalArgumentException("Dataset " + q.name + ": no matching records");
+        List<BenchmarkDto.MatrixPrompt> out = new ArrayList<>(records.size());
+        for (BenchmarkDto.DatasetRecord r : records) {
+            BenchmarkDto.MatrixPrompt p = new BenchmarkDto.MatrixPrompt();
+            p.id = r.id() != null ? r.id() : "line" + r.line();
+            p.prompt = r.prompt();
+            p.expectedKeywords = r.expectedKeywords();
+            out.add(p);
+        }
+        return out;
+    }
+
+    private static BenchmarkDto.MatrixPrompt prompt(BenchmarkDto.BenchRequest base) {
+        BenchmarkDto.MatrixPrompt p = new BenchmarkDto.MatrixPrompt();
+        p.prompt = base.prompt;
+        return p;
+    }
+}
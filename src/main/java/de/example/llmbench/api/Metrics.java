@@ -0,0 +1,263 @@
+package de.example.llmbench.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Eingebettete Metrik-Registry für Live-Telemetrie laufender Benchmarks im
+ * Prometheus-Textformat (Version 0.0.4), abrufbar über {@code /metrics} (siehe MetricsServlet).
+ *
+ * Unterstützt Zähler, Gauges und Histogramme mit Labels. Alle Aktualisierungen sind
+ * lock-frei ({@link LongAdder}, {@link DoubleAdder}, CAS) und damit aus beliebig vielen
+ * Worker-Threads möglich. Werte, die nur beim Abruf aktuell sein müssen (z.B. Zustand
+ * der Ollama-Knoten), werden über {@link #beforeScrape(Runnable)} unmittelbar vor dem
+ * Ausgeben gesetzt.
+ *
+ * Damit beliebige Modellnamen die Zahl der Zeitreihen nicht sprengen, nimmt jede Metrik
+ * höchstens {@code BENCH_METRICS_MAX_SERIES} (Standard 1000) Label-Kombinationen auf;
+ * alle weiteren werden unter dem Labelwert "other" zusammengefasst.
+ */
+public final class Metrics {
+
+    // Abschalten über BENCH_METRICS=false (dann liefert /metrics 404)
+    static final boolean ENABLED = Boolean.parseBoolean(System.getenv().getOrDefault("BENCH_METRICS", "true"));
+    static final int MAX_SERIES = Integer.parseInt(System.getenv().getOrDefault("BENCH_METRICS_MAX_SERIES", "1000"));
+
+    /** Bucket-Grenzen in Sekunden für Latenzen von LLM-Anfragen (5 ms bis 2 min). */
+    public static final double[] LATENCY_BUCKETS = {
+            0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120 };
+    /** Bucket-Grenzen für Tokens pro Sekunde. */
+    public static final double[] RATE_BUCKETS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000 };
+
+    private static final Metrics SHARED = new Metrics();
+
+    private final Map<String, Family<?>> families = new ConcurrentHashMap<>();
+    private final List<Family<?>> order = new CopyOnWriteArrayList<>();
+    private final List<Runnable> scrapeHooks = new CopyOnWriteArrayList<>();
+
+    Metrics() {}
+
+    /**
+     * Liefert die prozessweit geteilte Registry.
+     */
+    public static Metrics shared() { return SHARED; }
+
+    /**
+     * Registriert einen Zähler (oder liefert den vorhandenen gleichen Namens).
+     *
+     * @param name Metrikname, sollte auf _total enden
+     * @param help Beschreibung für # HELP
+     * @param labels Label-Namen
+     */
+    public Family<Counter> counter(String name, String help, String... labels) {
+        return register(name, help, "counter", labels, Counter::new);
+    }
+
+    /**
+     * Registriert eine Gauge (oder liefert die vorhandene gleichen Namens).
+     */
+    public Family<Gauge> gauge(String name, String help, String... labels) {
+        return register(name, help, "gauge", labels, Gauge::new);
+    }
+
+    /**
+     * Registriert ein Histogramm mit festen Bucket-Grenzen (aufsteigend, ohne +Inf).
+     */
+    public Family<Histogram> histogram(String name, String help, double[] buckets, String... labels) {
+        double[] bounds = buckets.clone();
+        return register(name, help, "histogram", labels, () -> new Histogram(bounds));
+    }
+
+    /**
+     * Registriert eine Aktion, die vor jeder Ausgabe läuft (z.B. um Gauges aus
+     * vorhandenen Zuständen zu übernehmen).
+     */
+    public void beforeScrape(Runnable hook) { scrapeHooks.add(hook); }
+
+    @SuppressWarnings("unchecked")
+    private <T> Family<T> register(String name, String help, String type, String[] labels,
+                                   Supplier<T> factory) {
+        Family<?> f = families.computeIfAbsent(name, n -> {
+            Family<T> created = new Family<>(n, help, type, labels, factory);
+            order.add(created);
+            return created;
+        });
+        if (!f.type.equals(type)) throw new IllegalArgumentException("Metric " + name + " already registered as " + f.type);
+        return (Family<T>) f;
+    }
+
+    /**
+     * Schreibt alle Metriken im Prometheus-Textformat.
+     *
+     * @param out Ziel
+     */
+    public void write(StringBuilder out) {
+        for (Runnable hook : scrapeHooks) {
+            try {
+                hook.run();
+            } catch (RuntimeException e) {
+                // Ein fehlerhafter Hook darf den Abruf nicht verhindern
+            }
+        }
+        for (Family<?> f : order) f.write(out);
+    }
+
+    /**
+     * Alle Zeitreihen einer Metrik, je Kombination von Labelwerten eine.
+     */
+    public static final class Family<T> {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final String[] labels;
+        private final Supplier<T> factory;
+        private final Map<List<String>, T> children = new ConcurrentHashMap<>();
+        private final List<String> overflow;
+
+        private Family(String name, String help, String type, String[] labels, Supplier<T> factory) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.labels = labels.clone();
+            this.factory = factory;
+            String[] other = new String[labels.length];
+            Arrays.fill(other, "other");
+            this.overflow = List.of(other);
+        }
+
+        /**
+         * Liefert die Zeitreihe zu den Labelwerten (in der Reihenfolge der Label-Namen).
+         * null-Werte werden als leerer String ausgegeben.
+         */
+        public T labels(String... values) {
+            if (values.length != labels.length) {
+                throw new IllegalArgumentException(name + " expects " + labels.length + " label values");
+            }
+            List<String> key = new ArrayList<>(values.length);
+            for (String v : values) key.add(v == null ? "" : v);
+            T child = children.get(key);
+            if (child != null) return child;
+            if (children.size() >= MAX_SERIES) return children.computeIfAbsent(overflow, k -> factory.get());
+            return children.computeIfAbsent(List.copyOf(key), k -> factory.get());
+        }
+
+        /** Entfernt alle Zeitreihen (z.B. für Knoten, die es nicht mehr gibt). */
+        public void clear() { children.clear(); }
+
+        private void write(StringBuilder out) {
+            if (children.isEmpty()) return;
+            out.append("# HELP ").append(name).append(' ').append(escapeHelp(help)).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            for (Map.Entry<List<String>, T> e : children.entrySet()) {
+                List<String> values = e.getKey();
+                switch (e.getValue()) {
+                    case Counter c -> sample(out, name, values, null, null, c.get());
+                    case Gauge g -> sample(out, name, values, null, null, g.get());
+                    case Histogram h -> h.write(out, name, this, values);
+                    default -> { }
+                }
+            }
+        }
+
+        private void sample(StringBuilder out, String metric, List<String> values, String extraName, String extraValue, double v) {
+            out.append(metric);
+            if (labels.length > 0 || extraName != null) {
+                out.append('{');
+                for (int i = 0; i < labels.length; i++) {
+                    if (i > 0) out.append(',');
+                    out.append(labels[i]).append("=\"").append(escapeLabel(values.get(i))).append('"');
+                }
+                if (extraName != null) {
+                    if (labels.length > 0) out.append(',');
+                    out.append(extraName).append("=\"").append(extraValue).append('"');
+                }
+                out.append('}');
+            }
+            out.append(' ').append(format(v)).append('\n');
+        }
+    }
+
+    /** Monoton steigender Zähler. */
+    public static final class Counter {
+        private final DoubleAdder value = new DoubleAdder();
+
+        public void inc() { value.add(1); }
+
+        /** Erhöht um n (negative Werte werden ignoriert). */
+        public void inc(double n) { if (n > 0) value.add(n); }
+
+        public double get() { return value.sum(); }
+    }
+
+    /** Beliebig veränderlicher Wert. */
+    public static final class Gauge {
+        private final AtomicLong bits = new AtomicLong(Double.doubleToRawLongBits(0));
+
+        public void set(double v) { bits.set(Double.doubleToRawLongBits(v)); }
+
+        public void inc() { add(1); }
+
+        public void dec() { add(-1); }
+
+        public void add(double d) {
+            bits.updateAndGet(b -> Double.doubleToRawLongBits(Double.longBitsToDouble(b) + d));
+        }
+
+        public double get() { return Double.longBitsToDouble(bits.get()); }
+    }
+
+    /** Histogramm mit festen Buckets; ausgegeben werden kumulierte Zähler je Obergrenze. */
+    public static final class Histogram {
+        private final double[] bounds;
+        private final LongAdder[] counts;     // letzter Eintrag: +Inf
+        private final DoubleAdder sum = new DoubleAdder();
+
+        private Histogram(double[] bounds) {
+            this.bounds = bounds;
+            this.counts = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < counts.length; i++) counts[i] = new LongAdder();
+        }
+
+        /** Erfasst einen Wert; NaN wird ignoriert. */
+        public void observe(double v) {
+            if (Double.isNaN(v)) return;
+            int i = Arrays.binarySearch(bounds, v);
+            counts[i >= 0 ? i : -i - 1].increment();
+            sum.add(v);
+        }
+
+        private void write(StringBuilder out, String name, Family<?> f, List<String> values) {
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i].sum();
+                String le = i < bounds.length ? format(bounds[i]) : "+Inf";
+                f.sample(out, name + "_bucket", values, "le", le, cumulative);
+            }
+            f.sample(out, name + "_sum", values, null, null, sum.sum());
+            f.sample(out, name + "_count", values, null, null, cumulative);
+        }
+    }
+
+    static String format(double v) {
+        if (Double.isNaN(v)) return "NaN";
+        if (Double.isInfinite(v)) return v > 0 ? "+Inf" : "-Inf";
+        if (v == Math.rint(v) && Math.abs(v) < 1e15) return Long.toString((long) v);
+        return Double.toString(v);
+    }
+
+    private static String escapeLabel(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String escapeHelp(String s) {
+        return s.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,56 @@
+package de.example.llmbench.api;
+
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+/**
+ * Stellt die Metriken der Anwendung (siehe Metrics) unter {@code /metrics} im
+ * Prometheus-Textformat bereit – außerhalb von {@code /api}, wo Prometheus sie standardmäßig sucht.
+ *
+ * Neben den Läufen (siehe RunMetrics) werden beim Abruf die Zahl laufender Batches und
+ * der Zustand der Ollama-Knoten (gesund, offene Anfragen) übernommen.
+ */
+@WebServlet(urlPatterns = "/metrics", loadOnStartup = 1)
+public class MetricsServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Override
+    public void init() {
+        Metrics metrics = Metrics.shared();
+        LoadEngine engine = LoadEngine.shared();
+        OllamaPool pool = OllamaPool.shared();
+        Metrics.Family<Metrics.Gauge> batches = metrics.gauge("llmbench_batches_active",
+                "Benchmark batches currently running");
+        Metrics.Family<Metrics.Gauge> up = metrics.gauge("llmbench_node_up",
+                "Whether the Ollama node passed its last health check", "node");
+        Metrics.Family<Metrics.Gauge> outstanding = metrics.gauge("llmbench_node_outstanding_requests",
+                "Requests currently dispatched to the Ollama node", "node");
+        metrics.beforeScrape(() -> {
+            batches.labels().set(engine.activeBatches());
+            for (BenchmarkDto.NodeStatus s : pool.status()) {
+                up.labels(s.name()).set(s.healthy() ? 1 : 0);
+                outstanding.labels(s.name()).set(s.outstanding());
+            }
+        });
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (!Metrics.ENABLED) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        StringBuilder out = new StringBuilder(4096);
+        Metrics.shared().write(out);
+        resp.setContentType(CONTENT_TYPE);
+        resp.setHeader("Cache-Control", "no-store");
+        resp.getWriter().write(out.toString());
+    }
+}
@@ -0,0 +1,171 @@
+package de.example.llmbench.api;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Zwischenspeicher der Modelllisten aller Provider mit Metadaten.
+ *
+ * Eine Liste gilt {@code BENCH_MODELS_TTL_SEC} Sekunden (Standard 60) als frisch.
+ * Danach wird sie weiter sofort ausgeliefert und im Hintergrund neu geladen
+ * (stale-while-revalidate); erst wenn sie zusätzlich älter als
+ * {@code BENCH_MODELS_MAX_STALE_SEC} (Standard 3600) ist, wartet die Abfrage auf das
+ * Neuladen. Nur die allererste Abfrage je Provider wartet immer. Schlägt das Laden
+ * fehl, bleibt die letzte erfolgreiche Liste erhalten und der Fehler wird mitgeliefert;
+ * der nächste Versuch folgt frühestens nach Ablauf der TTL. Pro Provider läuft
+ * höchstens ein Ladevorgang gleichzeitig.
+ */
+public final class ModelCatalog {
+
+    // Gültigkeit und maximale Veraltung (über Umgebungsvariablen konfigurierbar)
+    static final int TTL_SEC = Integer.parseInt(System.getenv().getOrDefault("BENCH_MODELS_TTL_SEC", "60"));
+    static final int MAX_STALE_SEC = Integer.parseInt(System.getenv().getOrDefault("BENCH_MODELS_MAX_STALE_SEC", "3600"));
+    // Timeout je Abfrage beim Provider
+    private static final int TIMEOUT_MS = 10000;
+
+    private static final ModelCatalog SHARED = new ModelCatalog(ProviderRegistry.shared());
+
+    /**
+     * Stand der Modellliste eines Providers.
+     *
+     * @param models Modelle nach Name sortiert (letzter erfolgreicher Stand)
+     * @param fetchedAt Zeitpunkt des letzten erfolgreichen Ladens (null, falls noch nie)
+     * @param fetchedNanos dito als System.nanoTime (0, falls noch nie)
+     * @param checkedNanos letzter Ladeversuch (System.nanoTime)
+     * @param error Fehler des letzten Ladeversuchs oder null
+     * @param etag Prüfsumme über Modelle und Fehler (für bedingte GETs)
+     */
+    public record Snapshot(List<BenchmarkDto.ModelInfo> models, Instant fetchedAt, long fetchedNanos,
+                           long checkedNanos, String error, String etag) {
+
+        /** Alter des letzten erfolgreichen Stands in Sekunden (null, falls noch nie geladen). */
+        public Double ageSec() {
+            return fetchedNanos == 0 ? null : (System.nanoTime() - fetchedNanos) / 1_000_000_000.0;
+        }
+
+        /** Ob die TTL seit dem letzten Ladeversuch abgelaufen ist. */
+        public boolean stale() {
+            return System.nanoTime() - checkedNanos > TTL_SEC * 1_000_000_000L;
+        }
+    }
+
+    // Zustand je Provider: aktueller Stand und ggf. laufender Ladevorgang
+    private static final class Entry {
+        volatile Snapshot snapshot;
+        CompletableFuture<Snapshot> pending;    // unter dem Monitor des Entry
+    }
+
+    private final ProviderRegistry providers;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Ladevorgänge laufen auf virtuellen Threads und blockieren keine Anfrage
+    private final ExecutorService loader = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("llmbench-models-", 0).factory());
+
+    ModelCatalog(ProviderRegistry providers) { this.providers = providers; }
+
+    /**
+     * Liefert den prozessweit geteilten Katalog.
+     */
+    public static ModelCatalog shared() { return SHARED; }
+
+    /**
+     * Liefert die Modellliste eines Providers nach den oben beschriebenen Regeln.
+     *
+     * @param provider Provider
+     * @param refresh true, um auf jeden Fall neu zu laden und darauf zu warten
+     * @return aktueller Stand (nie null)
+     */
+    public Snapshot get(LlmProvider provider, boolean refresh) {
+        Entry e = entry(provider.name());
+        Snapshot s = e.snapshot;
+        if (s == null || refresh) return refresh(provider, e).join();
+        if (!s.stale()) return s;
+        CompletableFuture<Snapshot> f = refresh(provider, e);
+        boolean expired = s.fetchedNanos() != 0
+                && System.nanoTime() - s.fetchedNanos() > (TTL_SEC + (long) MAX_STALE_SEC) * 1_000_000_000L;
+        return expired ? f.join() : s;
+    }
+
+    /**
+     * Sucht die Metadaten eines Modells, ohne zu warten: Ist der Katalog des Providers
+     * noch nicht geladen oder veraltet, wird er im Hintergrund geladen.
+     *
+     * @param provider Provider-Name oder null (Ollama)
+     * @param model Modellname
+     * @return Metadaten oder null, falls (noch) unbekannt
+     */
+    public BenchmarkDto.ModelInfo lookup(String provider, String model) {
+        LlmProvider p = providers.get(provider);
+        if (p == null || model == null) return null;
+        Entry e = entry(p.name());
+        Snapshot s = e.snapshot;
+        if (s == null || s.stale()) refresh(p, e);
+        if (s == null) return null;
+        for (BenchmarkDto.ModelInfo m : s.models()) if (m.name().equals(model)) return m;
+        return null;
+    }
+
+    /**
+     * Wirft alle Stände weg (z.B. nach dem Laden neuer Modelle auf dem Server).
+     */
+    public void invalidate() { entries.clear(); }
+
+    private Entry entry(String provider) {
+        return entries.computeIfAbsent(provider.toLowerCase(Locale.ROOT), k -> new Entry());
+    }
+
+    // Startet einen Ladevorgang bzw. schließt sich einem laufenden an
+    private CompletableFuture<Snapshot> refresh(LlmProvider provider, Entry e) {
+        synchronized (e) {
+            if (e.pending != null) return e.pending;
+            CompletableFuture<Snapshot> f = CompletableFuture.supplyAsync(() -> load(provider, e.snapshot), loader);
+            e.pending = f;
+            f.whenComplete((s, ex) -> {
+                synchronized (e) {
+                    if (s != null) e.snapshot = s;
+                    e.pending = null;
+                }
+            });
+            return f;
+        }
+    }
+
+    private static Snapshot load(LlmProvider provider, Snapshot previous) {
+        long now = System.nanoTime();
+        try {
+            // Deduplizieren und nach Name sortieren
+            Map<String, BenchmarkDto.ModelInfo> byName = new LinkedHashMap<>();
+            for (BenchmarkDto.ModelInfo m : provider.catalog(TIMEOUT_MS)) byName.putIfAbsent(m.name(), m);
+            List<BenchmarkDto.ModelInfo> models = new ArrayList<>(byName.values());
+            models.sort(Comparator.comparing(BenchmarkDto.ModelInfo::name, String.CASE_INSENSITIVE_ORDER));
+            List<BenchmarkDto.ModelInfo> list = List.copyOf(models);
+            return new Snapshot(list, Instant.now(), now, now, null, etag(list, null));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return failed(previous, now, "Interrupted");
+        } catch (Exception ex) {
+            return failed(previous, now, ex.getClass().getSimpleName() + ": " + ex.getMessage());
+        }
+    }
+
+    // Fehlschlag: letzten erfolgreichen Stand behalten, Fehler vermerken
+    private static Snapshot failed(Snapshot previous, long now, String error) {
+        List<BenchmarkDto.ModelInfo> models = previous == null ? List.of() : previous.models();
+        return new Snapshot(models, previous == null ? null : previous.fetchedAt(),
+                previous == null ? 0 : previous.fetchedNanos(), now, error, etag(models, error));
+    }
+
+    // Schwache Prüfsumme: ändert sich nur mit dem Inhalt, nicht mit dem Alter
+    private static String etag(List<BenchmarkDto.ModelInfo> models, String error) {
+        return ResultStore.promptHash(models + "|" + error);
+    }
+}
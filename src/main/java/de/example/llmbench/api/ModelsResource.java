@@ -1,89 +1,77 @@
 package de.example.llmbench.api;
 
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
-import java.time.Duration;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
- * REST-Resource zum Auflisten verfügbarer LLM-Modelle vom Ollama-Server.
- * 
- * Fragt die Ollama-API ab und gibt die Modellnamen sowie Metadaten als JSON zurück.
+ * REST-Resource zum Auflisten verfügbarer LLM-Modelle eines Providers (Standard: Ollama).
+ *
+ * Die Liste kommt aus dem {@link ModelCatalog} und wird daher sofort ausgeliefert,
+ * auch wenn das Backend langsam ist; veraltete Stände werden im Hintergrund erneuert.
+ * Neben den Modellnamen enthält die Antwort Metadaten je Modell (Größe, Quantisierung,
+ * Parameter). Über ETag und If-None-Match sind bedingte Abfragen möglich (304).
  * Fehler werden im Ergebnisobjekt als Feld "error" ausgegeben, niemals als Exception.
  */
 @Path("/models")
 public class ModelsResource {
 
-    // Regex-Pattern zum Extrahieren von Modellnamen aus der Ollama-API-Antwort
-    private static final Pattern NAME_PATTERN =
-            Pattern.compile("\"name\"\\s*:\\s*\"([^\"]+)\"");
+    private final ProviderRegistry providers = ProviderRegistry.shared();
+    private final ModelCatalog catalog = ModelCatalog.shared();
 
     /**
-     * Listet alle verfügbaren Modelle vom Ollama-Server auf.
-     * 
-     * @return Map mit Basis-URL, Modellnamen, Status und ggf. Fehlerdetails
+     * Listet alle verfügbaren Modelle eines Providers auf.
+     *
+     * @param provider Provider-Name (Standard: ollama)
+     * @param refresh true, um die Liste sofort neu zu laden
+     * @param request für die Auswertung von If-None-Match
+     * @return Map mit Provider, Basis-URL, Modellnamen und -Metadaten, Alter und ggf. Fehler; 304 bei unveränderter Liste
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Map<String, Object> list() {
-        String base = System.getenv().getOrDefault("OLLAMA_BASE_URL", "http://ollama:11434");
+    public Response list(@QueryParam("provider") String provider,
+                         @QueryParam("refresh") @DefaultValue("false") boolean refresh,
+                         @Context Request request) {
         Map<String, Object> out = new LinkedHashMap<>();
-        out.put("baseUrl", base);
+        LlmProvider p = providers.get(provider);
+        out.put("provider", p == null ? provider : p.name());
+        out.put("providers", providers.names());
 
-        List<String> models = new ArrayList<>();
-        String raw = null;
-        String error = null;
-
-        try {
-            // HTTP-Client mit Timeout
-            HttpClient http = HttpClient.newBuilder()
-                    .connectTimeout(Duration.ofSeconds(5))
-                    .build();
-
-            // Anfrage an die Ollama-API
-            HttpRequest req = HttpRequest.newBuilder()
-                    .uri(URI.create(base + "/api/tags"))
-                    .timeout(Duration.ofSeconds(10))
-                    .header("Accept", "application/json")
-                    .GET()
-                    .build();
-
-            HttpResponse<byte[]> resp = http.send(req, HttpResponse.BodyHandlers.ofByteArray());
-            int status = resp.statusCode();
-            raw = new String(resp.body(), StandardCharsets.UTF_8);
-            out.put("upstreamStatus", status);
-
-            if (status >= 200 && status < 300) {
-                // Modellnamen extrahieren
-                Matcher m = NAME_PATTERN.matcher(raw);
-                while (m.find()) {
-                    models.add(m.group(1));
-                }
-                // Deduplizieren und sortieren
-                LinkedHashSet<String> set = new LinkedHashSet<>(models);
-                models = new ArrayList<>(set);
-                Collections.sort(models, String.CASE_INSENSITIVE_ORDER);
-            } else {
-                error = "Upstream returned status " + status;
-            }
-        } catch (Exception ex) {
-            error = ex.getClass().getSimpleName() + ": " + ex.getMessage();
+        if (p == null) {
+            out.put("count", 0);
+            out.put("models", List.of());
+            out.put("error", "Unsupported provider");
+            return Response.ok(out).build();
         }
 
-        out.put("count", models.size());
-        out.put("models", models);
-        out.put("error", error);
-        if (error != null) out.put("raw", raw); // damit man im Zweifel sieht, was kam
-        return out; // niemals Exception werfen → kein 500 mehr
+        ModelCatalog.Snapshot s = catalog.get(p, refresh);
+        // Schwaches ETag: Alter und Zeitstempel ändern sich, der Inhalt nicht
+        EntityTag tag = new EntityTag(s.etag(), true);
+        CacheControl cache = new CacheControl();
+        cache.setNoCache(true);
+        Response.ResponseBuilder notModified = request == null ? null : request.evaluatePreconditions(tag);
+        if (notModified != null) return notModified.tag(tag).cacheControl(cache).build();
+
+        List<String> names = new ArrayList<>(s.models().size());
+        for (BenchmarkDto.ModelInfo m : s.models()) names.add(m.name());
+        out.put("baseUrl", p.baseUrl());
+        out.put("count", names.size());
+        out.put("models", names);
+        out.put("details", s.models());
+        out.put("fetchedAt", s.fetchedAt() == null ? null : s.fetchedAt().toString());
+        out.put("ageSec", s.ageSec());
+        out.put("stale", s.stale());
+        out.put("error", s.error());
+        return Response.ok(out).tag(tag).cacheControl(cache).build();
     }
 }
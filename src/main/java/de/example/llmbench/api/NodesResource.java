@@ -0,0 +1,54 @@
+package de.example.llmbench.api;
+
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * REST-Resource für die Ollama-Knoten des Pools (siehe OllamaPool).
+ *
+ * Zeigt je Knoten Gesundheitszustand, offene und verteilte Anfragen; damit lässt
+ * sich prüfen, ob die Last gleichmäßig verteilt wird. Dazu kommen die Einstellungen
+ * des geteilten HTTP-Clients (siehe HttpClients).
+ */
+@Path("/nodes")
+public class NodesResource {
+
+    private final OllamaPool pool = OllamaPool.shared();
+
+    /**
+     * Listet alle Knoten mit ihrem aktuellen Zustand.
+     *
+     * @return Map mit Verteilstrategie, HTTP-Einstellungen und Zustand je Knoten
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> list() {
+        return report(pool.status());
+    }
+
+    /**
+     * Führt sofort einen Health-Check aller Knoten aus (z.B. nach einem Neustart eines Knotens).
+     *
+     * @return Map mit Verteilstrategie und Zustand je Knoten nach der Prüfung
+     */
+    @POST
+    @Path("/check")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> check() {
+        return report(pool.check());
+    }
+
+    private Map<String, Object> report(Object nodes) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("balance", pool.balance());
+        out.put("http", HttpClients.config());
+        out.put("nodes", nodes);
+        return out;
+    }
+}
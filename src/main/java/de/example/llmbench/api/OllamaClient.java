@@ -1,32 +1,138 @@
 package de.example.llmbench.api;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.*;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
 
 /**
  * Client für den Zugriff auf die Ollama-API.
  * 
  * Stellt Methoden bereit, um ein Modell mit einem Prompt anzusprechen und
- * relevante Metriken sowie den Antworttext zu extrahieren.
+ * relevante Metriken sowie den Antworttext zu extrahieren. Jede Anfrage geht an
+ * einen Knoten des {@link OllamaPool}; das Ergebnis ist mit dem Knoten markiert.
  */
-public class OllamaClient {
+public class OllamaClient implements LlmProvider {
 
-    // HTTP-Client für Anfragen an Ollama
-    private final HttpClient http = HttpClient.newBuilder().build();
-    // Basis-URL für Ollama-API (über Umgebungsvariable konfigurierbar)
-    private final String baseUrl = System.getenv().getOrDefault("OLLAMA_BASE_URL", "http://localhost:11434");
+    // HTTP-Client für Anfragen an Ollama (prozessweit geteilt, siehe HttpClients)
+    private final HttpClient http = HttpClients.shared();
+    // Knoten der Ollama-API (über Umgebungsvariablen konfigurierbar)
+    private final OllamaPool pool;
+    // Aufzeichnung für den Simulator (nur mit BENCH_RECORD_FILE aktiv)
+    private final ExchangeRecorder recorder = ExchangeRecorder.shared();
 
-    // Regex-Patterns zum Extrahieren von Zahlen und Antworttext aus der JSON-Antwort
-    private static final Pattern P_INT_PROMPT = Pattern.compile("\"prompt_eval_count\"\\s*:\\s*(\\d+)");
-    private static final Pattern P_INT_OUTPUT = Pattern.compile("\"eval_count\"\\s*:\\s*(\\d+)");
-    private static final Pattern P_STR_RESPONSE = Pattern.compile("\"response\"\\s*:\\s*\"(.*?)\"", Pattern.DOTALL);
+    /**
+     * Client auf dem prozessweit geteilten Pool.
+     */
+    public OllamaClient() { this(OllamaPool.shared()); }
 
     /**
-     * Führt einen einzelnen Aufruf gegen die Ollama-API durch.
+     * Client auf einem eigenen Pool.
+     *
+     * @param pool Knoten, auf die die Anfragen verteilt werden
+     */
+    public OllamaClient(OllamaPool pool) { this.pool = pool; }
+
+    @Override
+    public String name() { return BenchmarkModels.PROVIDER_OLLAMA; }
+
+    /**
+     * URL des ersten gesunden Knotens im Pool.
+     */
+    @Override
+    public String baseUrl() { return pool.preferred().url(); }
+
+    @Override
+    public BenchmarkDto.SingleRunResult call(String model, String prompt, double temperature, int maxTokens, int timeoutMs,
+                                             boolean stream, String node) {
+        return callOnce(model, prompt, temperature, maxTokens, timeoutMs, stream, node, null);
+    }
+
+    @Override
+    public BenchmarkDto.SingleRunResult call(String model, String prompt, double temperature, int maxTokens, int timeoutMs,
+                                             boolean stream, String node, LongConsumer chunkGaps) {
+        return callOnce(model, prompt, temperature, maxTokens, timeoutMs, stream, node, chunkGaps);
+    }
+
+    /**
+     * Gültig sind die Knoten des Pools (Name oder URL).
+     */
+    @Override
+    public String checkNode(String node) {
+        return node == null || pool.node(node) != null ? null : "Unknown node: " + node;
+    }
+
+    /**
+     * Listet die Modelle des ersten gesunden Knotens ({@code GET /api/tags}); alle Knoten
+     * eines Pools sollten dieselben Modelle haben.
+     */
+    @Override
+    public List<String> models(int timeoutMs) throws IOException, InterruptedException {
+        byte[] body = tags(pool.preferred(), timeoutMs);
+        try {
+            return OllamaJson.modelNames(body);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Listet die Modelle mit Metadaten aus /api/tags und ergänzt sie parallel um
+     * Parameterzahl und Kontextlänge aus /api/show. Schlägt /api/show für ein Modell
+     * fehl, bleiben dessen Angaben aus /api/tags erhalten.
+     */
+    @Override
+    public List<BenchmarkDto.ModelInfo> catalog(int timeoutMs) throws IOException, InterruptedException {
+        OllamaPool.Node node = pool.preferred();
+        List<BenchmarkDto.ModelInfo> models;
+        try {
+            models = OllamaJson.modelInfos(tags(node, timeoutMs));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+
+        List<CompletableFuture<BenchmarkDto.ModelInfo>> shows = new ArrayList<>(models.size());
+        for (BenchmarkDto.ModelInfo m : models) {
+            HttpRequest req = HttpRequest.newBuilder()
+                    .uri(URI.create(node.url() + "/api/show"))
+                    .timeout(Duration.ofMillis(Math.max(1000, timeoutMs)))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"model\":" + jsonString(m.name()) + "}"))
+                    .build();
+            shows.add(http.sendAsync(req, HttpResponse.BodyHandlers.ofByteArray())
+                    .thenApply(resp -> resp.statusCode() == 200 ? OllamaJson.show(resp.body(), m) : m)
+                    .exceptionally(ex -> m));
+        }
+        List<BenchmarkDto.ModelInfo> out = new ArrayList<>(models.size());
+        for (var f : shows) out.add(f.join());
+        return out;
+    }
+
+    // Rohantwort von /api/tags eines Knotens
+    private byte[] tags(OllamaPool.Node node, int timeoutMs) throws IOException, InterruptedException {
+        HttpRequest req = HttpRequest.newBuilder()
+                .uri(URI.create(node.url() + "/api/tags"))
+                .timeout(Duration.ofMillis(Math.max(1000, timeoutMs)))
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        HttpResponse<byte[]> resp = http.send(req, HttpResponse.BodyHandlers.ofByteArray());
+        if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
+            throw new IOException("Upstream returned status " + resp.statusCode() + ": "
+                    + new String(resp.body(), StandardCharsets.UTF_8));
+        }
+        return resp.body();
+    }
+
+    /**
+     * Führt einen einzelnen, nicht-streamenden Aufruf gegen die Ollama-API durch.
      * 
      * @param model Modellname
      * @param prompt Eingabetext
@@ -36,13 +142,54 @@ public class OllamaClient {
      * @return Ergebnisobjekt mit Metriken und Antworttext
      */
     public BenchmarkDto.SingleRunResult callOnce(String model, String prompt, double temperature, int maxTokens, int timeoutMs) {
+        return callOnce(model, prompt, temperature, maxTokens, timeoutMs, false);
+    }
+
+    /**
+     * Führt einen einzelnen Aufruf gegen die Ollama-API durch.
+     * Im Streaming-Modus werden die NDJSON-Chunks inkrementell gelesen und
+     * Time-to-first-Token, Inter-Token-Latenz und Tokens/s gemessen.
+     * 
+     * @param model Modellname
+     * @param prompt Eingabetext
+     * @param temperature Sampling-Temperatur
+     * @param maxTokens Maximale Token-Anzahl
+     * @param timeoutMs Timeout in Millisekunden
+     * @param stream true für "stream": true mit TTFT/ITL-Messung
+     * @return Ergebnisobjekt mit Metriken und Antworttext
+     */
+    public BenchmarkDto.SingleRunResult callOnce(String model, String prompt, double temperature, int maxTokens, int timeoutMs, boolean stream) {
+        return callOnce(model, prompt, temperature, maxTokens, timeoutMs, stream, null);
+    }
+
+    /**
+     * Führt einen einzelnen Aufruf auf einem bestimmten oder vom Pool gewählten Knoten durch.
+     * 
+     * @param model Modellname
+     * @param prompt Eingabetext
+     * @param temperature Sampling-Temperatur
+     * @param maxTokens Maximale Token-Anzahl
+     * @param timeoutMs Timeout in Millisekunden
+     * @param stream true für "stream": true mit TTFT/ITL-Messung
+     * @param node fester Knoten (Name oder URL) oder null für die Lastverteilung des Pools
+     * @return Ergebnisobjekt mit Metriken und Antworttext
+     */
+    public BenchmarkDto.SingleRunResult callOnce(String model, String prompt, double temperature, int maxTokens, int timeoutMs,
+                                                 boolean stream, String node) {
+        return callOnce(model, prompt, temperature, maxTokens, timeoutMs, stream, node, null);
+    }
+
+    private BenchmarkDto.SingleRunResult callOnce(String model, String prompt, double temperature, int maxTokens, int timeoutMs,
+                                                  boolean stream, String node, LongConsumer chunkGaps) {
 
         long start = System.nanoTime();
-        int status = 0;
-        boolean ok = false;
-        String err = null;
-        Integer promptTok = null, outputTok = null, totalTok = null, respBytes = null;
-        String answerText = null;
+        var out = BenchmarkDto.SingleRunResult.builder(BenchmarkModels.PROVIDER_OLLAMA, model).start(start);
+        OllamaPool.Node target = pool.acquire(node);
+        if (target == null) return out.end(start).error("Unknown node: " + node).build();
+        out.node(target.name());
+        Exception failure = null;
+        long[] headersAt = new long[1];
+        ExchangeRecorder.Exchange rec = recorder.begin(model, prompt, stream, start);
 
         try {
             // JSON-Body für die Anfrage erzeugen
@@ -50,77 +197,233 @@ public class OllamaClient {
                 {
                   "model": %s,
                   "prompt": %s,
-                  "stream": false,
+                  "stream": %s,
                   "options": { "temperature": %s, "num_predict": %s }
                 }
                 """.formatted(
                     jsonString(model),
                     jsonString(prompt == null ? "" : prompt),
+                    Boolean.toString(stream),
                     Double.toString(temperature),
                     Integer.toString(maxTokens <= 0 ? 1 : maxTokens)
                 );
 
             HttpRequest req = HttpRequest.newBuilder()
-                    .uri(URI.create(baseUrl + "/api/generate"))
+                    .uri(URI.create(target.url() + "/api/generate"))
                     .timeout(Duration.ofMillis(Math.max(1000, timeoutMs)))
                     .header("Content-Type", "application/json")
                     .POST(HttpRequest.BodyPublishers.ofString(body))
                     .build();
 
-            HttpResponse<byte[]> resp = http.send(req, HttpResponse.BodyHandlers.ofByteArray());
-            status = resp.statusCode();
-            String s = resp.body() == null ? "" : new String(resp.body(), StandardCharsets.UTF_8);
-            respBytes = resp.body() == null ? 0 : resp.body().length;
+            if (stream) {
+                readStream(http.send(req, HttpClients.timed(HttpResponse.BodyHandlers.ofInputStream(), headersAt)), start, out, rec, chunkGaps);
+            } else {
+                readFull(http.send(req, HttpClients.timed(HttpResponse.BodyHandlers.ofByteArray(), headersAt)), start, out, rec);
+            }
 
-            // Token-Anzahlen und Antworttext extrahieren
-            promptTok = findInt(P_INT_PROMPT, s);
-            outputTok = findInt(P_INT_OUTPUT, s);
-            totalTok  = (promptTok != null && outputTok != null) ? promptTok + outputTok : null;
+        } catch (Exception ex) {
+            failure = ex;
+            out.error(ex.getClass().getSimpleName() + ": " + ex.getMessage());
+        } finally {
+            pool.release(target, failure);
+        }
 
-            // Antworttext extrahieren, falls vorhanden
-            answerText = findString(P_STR_RESPONSE, s);
+        if (headersAt[0] != 0) out.headers(headersAt[0]);
+        long end = System.nanoTime();
+        if (rec != null && failure == null) rec.finish(headersAt[0], end);
+        return out.end(end).build();
+    }
 
-            ok = status >= 200 && status < 300;
-            if (!ok) err = s;
+    /**
+     * Entlädt ein Modell aus dem Speicher des Ollama-Servers ("keep_alive": 0), damit der
+     * nächste Aufruf einen echten Cold Start misst – auf allen gesunden Knoten des Pools
+     * bzw. nur auf dem angegebenen.
+     * 
+     * @param model Modellname
+     * @param timeoutMs Timeout in Millisekunden
+     * @param node fester Knoten (Name oder URL) oder null für alle gesunden Knoten
+     * @return null bei Erfolg, sonst eine Fehlerbeschreibung je fehlgeschlagenem Knoten
+     */
+    @Override
+    public String unload(String model, int timeoutMs, String node) {
+        List<OllamaPool.Node> targets = node == null ? pool.available()
+                : pool.node(node) == null ? List.of() : List.of(pool.node(node));
+        if (targets.isEmpty()) return "Unknown node: " + node;
+        StringBuilder errors = new StringBuilder();
+        for (OllamaPool.Node n : targets) {
+            String err = unload(n, model, timeoutMs);
+            if (err == null) continue;
+            if (!errors.isEmpty()) errors.append("; ");
+            errors.append(targets.size() > 1 ? n.name() + ": " + err : err);
+        }
+        return errors.isEmpty() ? null : errors.toString();
+    }
 
-        } catch (Exception ex) {
-            err = ex.getClass().getSimpleName() + ": " + ex.getMessage();
+    private String unload(OllamaPool.Node node, String model, int timeoutMs) {
+        try {
+            String body = "{\"model\":" + jsonString(model) + ",\"keep_alive\":0}";
+            HttpRequest req = HttpRequest.newBuilder()
+                    .uri(URI.create(node.url() + "/api/generate"))
+                    .timeout(Duration.ofMillis(Math.max(1000, timeoutMs)))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
+            int status = resp.statusCode();
+            return status >= 200 && status < 300 ? null : "HTTP " + status + ": " + resp.body();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "Interrupted";
+        } catch (Exception e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
         }
+    }
 
+    /**
+     * Wertet eine vollständig gepufferte Antwort ("stream": false) aus.
+     * Die Felder werden in einem Durchgang direkt aus den Bytes gelesen.
+     */
+    private static void readFull(HttpResponse<byte[]> resp, long start, BenchmarkDto.SingleRunResult.Builder out,
+                                 ExchangeRecorder.Exchange rec) {
+        int status = resp.statusCode();
+        byte[] body = resp.body() == null ? new byte[0] : resp.body();
         long end = System.nanoTime();
-        return new BenchmarkDto.SingleRunResult(
-                BenchmarkModels.PROVIDER_OLLAMA, model, start, end,
-                status, ok, err, promptTok, outputTok, totalTok, respBytes,
-                answerText,  // text
-                null         // quality noch nicht gesetzt
-        );
+        if (rec != null) { rec.status(status); rec.body(body); }
+
+        boolean ok = status >= 200 && status < 300;
+        out.httpStatus(status).success(ok).responseBytes(body.length);
+        if (!ok) {
+            out.error(new String(body, StandardCharsets.UTF_8));
+            return;
+        }
+
+        OllamaJson.Fields f = new OllamaJson.Fields();
+        try {
+            OllamaJson.parse(new JsonScanner(body, 0, body.length), f);
+        } catch (IllegalArgumentException e) {
+            out.success(false).error(e.getMessage());
+            return;
+        }
+
+        // Token-Anzahlen und Antworttext übernehmen
+        Integer promptTok = f.promptEvalCount;
+        Integer outputTok = f.evalCount;
+        Integer totalTok  = (promptTok != null && outputTok != null) ? promptTok + outputTok : null;
+        out.tokens(promptTok, outputTok, totalTok)
+           .text(f.response.isEmpty() && f.error != null ? null : f.response.toString())
+           // Ohne Streaming nur Ende-zu-Ende-Rate (inkl. Prompt-Verarbeitung)
+           .streaming(null, null, rate(outputTok, end - start));
+        serverTimings(f, out);
+        if (f.error != null) out.success(false).error(f.error);
     }
 
     /**
-     * Hilfsmethode zum Serialisieren eines Strings als JSON-String (mit Escaping).
+     * Liest eine NDJSON-Streaming-Antwort Zeile für Zeile, ohne den Body komplett zu puffern.
+     * Jede Zeile mit nicht-leerem "response"-Fragment zählt als Chunk; der Zeitpunkt des
+     * ersten Chunks ergibt die TTFT, die Abstände der folgenden Chunks die Inter-Token-Latenz.
+     * Die Zeilen werden direkt auf den Bytes geparst; die Fragmente landen ohne
+     * Zwischen-Strings im Antworttext. Jeder Abstand zweier Chunks geht zusätzlich an
+     * {@code chunkGaps} (falls gesetzt).
      */
-    private static String jsonString(String s) {
-        String e = s.replace("\\", "\\\\").replace("\"", "\\\"")
-                .replace("\n", "\\n").replace("\r", "\\r");
-        return "\"" + e + "\"";
+    private static void readStream(HttpResponse<InputStream> resp, long start, BenchmarkDto.SingleRunResult.Builder out,
+                                   ExchangeRecorder.Exchange rec, LongConsumer chunkGaps) throws IOException {
+        int status = resp.statusCode();
+        boolean httpOk = status >= 200 && status < 300;
+        out.httpStatus(status);
+        if (rec != null) rec.status(status);
+
+        OllamaJson.Fields f = new OllamaJson.Fields();
+        JsonScanner sc = new JsonScanner();
+        String error = null;
+        long bytes = 0;
+        long firstChunk = 0, lastChunk = 0;
+        int chunks = 0;
+
+        try (InputStream in = resp.body()) {
+            byte[] buf = new byte[8192];
+            byte[] line = new byte[1024];
+            int lineLen = 0;
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                bytes += n;
+                for (int i = 0; i < n; i++) {
+                    byte b = buf[i];
+                    if (b != '\n') {
+                        if (lineLen == line.length) line = Arrays.copyOf(line, line.length * 2);
+                        line[lineLen++] = b;
+                        continue;
+                    }
+                    // Vollständige Zeile: Zeitstempel sofort nehmen, dann parsen
+                    long now = System.nanoTime();
+                    int len = lineLen;
+                    lineLen = 0;
+                    if (rec != null) rec.chunk(now, line, 0, len);
+                    if (!httpOk) { error = new String(line, 0, len, StandardCharsets.UTF_8); continue; }
+                    if (!sc.reset(line, 0, len).hasMore()) continue;
+                    try {
+                        OllamaJson.parse(sc, f);
+                    } catch (IllegalArgumentException e) {
+                        error = e.getMessage();
+                        continue;
+                    }
+                    if (f.responseChars > 0) {
+                        if (chunks == 0) firstChunk = now;
+                        else if (chunkGaps != null) chunkGaps.accept(now - lastChunk);
+                        lastChunk = now;
+                        chunks++;
+                    }
+                }
+            }
+            if (lineLen > 0 && rec != null) rec.chunk(System.nanoTime(), line, 0, lineLen);
+            if (lineLen > 0 && !httpOk) {
+                error = new String(line, 0, lineLen, StandardCharsets.UTF_8);
+            }
+        }
+        if (f.error != null) error = f.error;
+
+        // Die Abschlusszeile ("done": true) trägt die Token-Zählung
+        Integer promptTok = f.promptEvalCount, outputTok = f.evalCount;
+        boolean ok = httpOk && error == null;
+        Integer totalTok = (promptTok != null && outputTok != null) ? promptTok + outputTok : null;
+        Double ttft = chunks > 0 ? (firstChunk - start) / 1_000_000.0 : null;
+        Double itl = chunks > 1 ? (lastChunk - firstChunk) / 1_000_000.0 / (chunks - 1) : null;
+        // Decode-Rate nach dem ersten Token; Ollama liefert i.d.R. ein Token pro Chunk
+        int decoded = outputTok != null ? outputTok : chunks;
+        Double tps = chunks > 1 ? rate(decoded - 1, lastChunk - firstChunk) : null;
+
+        out.success(ok).error(error)
+           .responseBytes((int) Math.min(Integer.MAX_VALUE, bytes))
+           .tokens(promptTok, outputTok, totalTok)
+           .text(chunks > 0 ? f.response.toString() : null)
+           .streaming(ttft, itl, tps);
+        serverTimings(f, out);
     }
 
     /**
-     * Extrahiert eine Ganzzahl aus einem String mittels Regex.
+     * Übernimmt die Server-Timings (Nanosekunden laut Ollama) in Millisekunden.
      */
-    private static Integer findInt(Pattern p, String s) {
-        Matcher m = p.matcher(s);
-        return m.find() ? Integer.valueOf(m.group(1)) : null;
+    private static void serverTimings(OllamaJson.Fields f, BenchmarkDto.SingleRunResult.Builder out) {
+        out.serverTimings(ms(f.loadDurationNs), ms(f.promptEvalDurationNs), ms(f.evalDurationNs), ms(f.totalDurationNs));
+    }
+
+    private static Double ms(Long nanos) {
+        return nanos == null ? null : nanos / 1_000_000.0;
     }
 
     /**
-     * Extrahiert einen String aus einem JSON-Feld mittels Regex und unescaped gängige Sequenzen.
+     * Tokens pro Sekunde für eine Dauer in Nanosekunden (null, wenn nicht bestimmbar).
      */
-    private static String findString(Pattern p, String s) {
-        Matcher m = p.matcher(s);
-        if (!m.find()) return null;
-        String raw = m.group(1);
-        // einfache Unescape-Behandlung für gängigste Sequenzen
-        return raw.replace("\\n", "\n").replace("\\r", "\r").replace("\\t", "\t").replace("\\\"", "\"").replace("\\\\", "\\");
+    private static Double rate(Integer tokens, long nanos) {
+        if (tokens == null || tokens <= 0 || nanos <= 0) return null;
+        return tokens / (nanos / 1_000_000_000.0);
+    }
+
+    /**
+     * Hilfsmethode zum Serialisieren eines Strings als JSON-String (mit Escaping).
+     */
+    private static String jsonString(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2);
+        ResultExport.jsonString(sb, s);
+        return sb.toString();
     }
 }
@@ -0,0 +1,236 @@
+package de.example.llmbench.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Extrahiert die Felder einer Ollama-Antwort von /api/generate in einem Durchgang.
+ *
+ * Funktioniert für die vollständige Antwort ("stream": false) ebenso wie für einzelne
+ * NDJSON-Zeilen im Streaming-Modus. Unbekannte Felder – insbesondere das große
+ * "context"-Array – werden übersprungen, ohne sie zu dekodieren.
+ * Diese Klasse ist nicht instanziierbar.
+ */
+public final class OllamaJson {
+    // Privater Konstruktor verhindert Instanziierung
+    private OllamaJson() {}
+
+    private static final int K_RESPONSE = 0, K_DONE = 1, K_ERROR = 2, K_MODEL = 3,
+            K_PROMPT_EVAL_COUNT = 4, K_EVAL_COUNT = 5, K_TOTAL_DURATION = 6, K_LOAD_DURATION = 7,
+            K_PROMPT_EVAL_DURATION = 8, K_EVAL_DURATION = 9;
+
+    private static final byte[][] KEYS = JsonScanner.keys(
+            "response", "done", "error", "model",
+            "prompt_eval_count", "eval_count", "total_duration", "load_duration",
+            "prompt_eval_duration", "eval_duration");
+
+    private static final byte[][] MODELS_KEYS = JsonScanner.keys("models");
+    private static final byte[][] NAME_KEYS = JsonScanner.keys("name");
+
+    private static final int M_NAME = 0, M_SIZE = 1, M_DIGEST = 2, M_MODIFIED = 3, M_DETAILS = 4;
+    private static final byte[][] MODEL_KEYS = JsonScanner.keys("name", "size", "digest", "modified_at", "details");
+
+    private static final int D_FAMILY = 0, D_PARAMETER_SIZE = 1, D_QUANTIZATION = 2, D_FORMAT = 3;
+    private static final byte[][] DETAIL_KEYS = JsonScanner.keys("family", "parameter_size", "quantization_level", "format");
+
+    private static final int S_DETAILS = 0, S_MODEL_INFO = 1;
+    private static final byte[][] SHOW_KEYS = JsonScanner.keys("details", "model_info");
+
+    /**
+     * Ergebnisfelder einer Antwort bzw. NDJSON-Zeile. Wiederverwendbar über {@link #clear()};
+     * der Antworttext wird an {@link #response} angehängt, damit Streaming-Chunks ohne
+     * Zwischen-Strings zusammengesetzt werden können.
+     */
+    public static final class Fields {
+        public final StringBuilder response = new StringBuilder();
+        public int responseChars;              // in der letzten Zeile angehängte Zeichen
+        public boolean done;
+        public String error;
+        public String model;
+        public Integer promptEvalCount;
+        public Integer evalCount;
+        public Long totalDurationNs;
+        public Long loadDurationNs;
+        public Long promptEvalDurationNs;
+        public Long evalDurationNs;
+
+        /** Setzt alle Felder inklusive des Antworttexts zurück. */
+        public void clear() {
+            response.setLength(0);
+            responseChars = 0;
+            done = false;
+            error = null;
+            model = null;
+            promptEvalCount = evalCount = null;
+            totalDurationNs = loadDurationNs = promptEvalDurationNs = evalDurationNs = null;
+        }
+    }
+
+    /**
+     * Parst ein JSON-Objekt und überträgt die bekannten Felder nach {@code out}.
+     * Nicht enthaltene Felder behalten ihren bisherigen Wert, sodass mehrere
+     * NDJSON-Zeilen nacheinander in dieselben Fields gelesen werden können.
+     *
+     * @param sc wiederverwendbarer Scanner, bereits auf den Bereich gesetzt
+     * @param out Ziel
+     */
+    public static void parse(JsonScanner sc, Fields out) {
+        out.responseChars = 0;
+        sc.beginObject();
+        int k;
+        while ((k = sc.nextKey(KEYS)) != JsonScanner.END) {
+            if (sc.consumeNull()) continue;
+            switch (k) {
+                case K_RESPONSE -> out.responseChars = sc.appendString(out.response);
+                case K_DONE -> out.done = sc.readBoolean();
+                case K_ERROR -> out.error = sc.readString();
+                case K_MODEL -> out.model = sc.readString();
+                case K_PROMPT_EVAL_COUNT -> out.promptEvalCount = (int) sc.readLong();
+                case K_EVAL_COUNT -> out.evalCount = (int) sc.readLong();
+                case K_TOTAL_DURATION -> out.totalDurationNs = sc.readLong();
+                case K_LOAD_DURATION -> out.loadDurationNs = sc.readLong();
+                case K_PROMPT_EVAL_DURATION -> out.promptEvalDurationNs = sc.readLong();
+                case K_EVAL_DURATION -> out.evalDurationNs = sc.readLong();
+                default -> sc.skipValue();
+            }
+        }
+    }
+
+    /**
+     * Liest die Modellnamen einer Antwort von /api/tags ({"models": [{"name": ...}, ...]}).
+     *
+     * @param buf UTF-8-Bytes
+     * @return Modellnamen in der Reihenfolge der Antwort
+     */
+    public static List<String> modelNames(byte[] buf) {
+        List<String> names = new ArrayList<>();
+        JsonScanner sc = new JsonScanner(buf, 0, buf.length);
+        sc.beginObject();
+        int k;
+        while ((k = sc.nextKey(MODELS_KEYS)) != JsonScanner.END) {
+            if (k == JsonScanner.UNKNOWN) { sc.skipValue(); continue; }
+            if (sc.consumeNull()) continue;
+            sc.beginArray();
+            while (sc.nextElement()) {
+                sc.beginObject();
+                int f;
+                while ((f = sc.nextKey(NAME_KEYS)) != JsonScanner.END) {
+                    if (f == 0 && sc.peek() == '"') names.add(sc.readString());
+                    else sc.skipValue();
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Liest die Modelle einer Antwort von /api/tags mit Größe, Digest und den Angaben
+     * aus "details" (Familie, Parametergröße, Quantisierung, Format).
+     *
+     * @param buf UTF-8-Bytes
+     * @return Modelle in der Reihenfolge der Antwort
+     */
+    public static List<BenchmarkDto.ModelInfo> modelInfos(byte[] buf) {
+        List<BenchmarkDto.ModelInfo> out = new ArrayList<>();
+        JsonScanner sc = new JsonScanner(buf, 0, buf.length);
+        sc.beginObject();
+        int k;
+        while ((k = sc.nextKey(MODELS_KEYS)) != JsonScanner.END) {
+            if (k == JsonScanner.UNKNOWN) { sc.skipValue(); continue; }
+            if (sc.consumeNull()) continue;
+            sc.beginArray();
+            while (sc.nextElement()) {
+                String name = null, digest = null, modified = null;
+                Long size = null;
+                String[] details = new String[4];
+                sc.beginObject();
+                int f;
+                while ((f = sc.nextKey(MODEL_KEYS)) != JsonScanner.END) {
+                    if (sc.consumeNull()) continue;
+                    switch (f) {
+                        case M_NAME -> name = sc.readString();
+                        case M_SIZE -> size = sc.readLong();
+                        case M_DIGEST -> digest = sc.readString();
+                        case M_MODIFIED -> modified = sc.readString();
+                        case M_DETAILS -> details(sc, details);
+                        default -> sc.skipValue();
+                    }
+                }
+                if (name != null) {
+                    out.add(new BenchmarkDto.ModelInfo(name, details[D_FAMILY], details[D_PARAMETER_SIZE], null,
+                            details[D_QUANTIZATION], details[D_FORMAT], size, null, digest, modified));
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Ergänzt ein Modell um die Angaben einer Antwort von /api/show: exakte Parameterzahl
+     * ("general.parameter_count") und Kontextlänge ("&lt;architektur&gt;.context_length") aus
+     * "model_info" sowie fehlende Angaben aus "details".
+     *
+     * @param buf UTF-8-Bytes
+     * @param base Modell aus /api/tags
+     * @return ergänztes Modell
+     */
+    public static BenchmarkDto.ModelInfo show(byte[] buf, BenchmarkDto.ModelInfo base) {
+        String[] details = new String[4];
+        Long parameterCount = null, contextLength = null;
+        JsonScanner sc = new JsonScanner(buf, 0, buf.length);
+        sc.beginObject();
+        int k;
+        while ((k = sc.nextKey(SHOW_KEYS)) != JsonScanner.END) {
+            if (sc.consumeNull()) continue;
+            switch (k) {
+                case S_DETAILS -> details(sc, details);
+                case S_MODEL_INFO -> {
+                    // Schlüssel hängen von der Architektur ab, daher per Name statt fester Kandidaten
+                    sc.beginObject();
+                    String key;
+                    while ((key = sc.nextName()) != null) {
+                        boolean number = sc.peek() == '-' || (sc.peek() >= '0' && sc.peek() <= '9');
+                        if (number && key.equals("general.parameter_count")) parameterCount = sc.readLong();
+                        else if (number && key.endsWith(".context_length")) contextLength = sc.readLong();
+                        else sc.skipValue();
+                    }
+                }
+                default -> sc.skipValue();
+            }
+        }
+        return new BenchmarkDto.ModelInfo(base.name(),
+                base.family() != null ? base.family() : details[D_FAMILY],
+                base.parameterSize() != null ? base.parameterSize() : details[D_PARAMETER_SIZE],
+                parameterCount != null ? parameterCount : base.parameterCount(),
+                base.quantization() != null ? base.quantization() : details[D_QUANTIZATION],
+                base.format() != null ? base.format() : details[D_FORMAT],
+                base.sizeBytes(),
+                contextLength != null ? contextLength : base.contextLength(),
+                base.digest(), base.modifiedAt());
+    }
+
+    // Liest das "details"-Objekt; leere Strings zählen als nicht gesetzt
+    private static void details(JsonScanner sc, String[] out) {
+        sc.beginObject();
+        int d;
+        while ((d = sc.nextKey(DETAIL_KEYS)) != JsonScanner.END) {
+            if (d == JsonScanner.UNKNOWN || sc.peek() != '"') { sc.skipValue(); continue; }
+            String v = sc.readString();
+            if (!v.isEmpty()) out[d] = v;
+        }
+    }
+
+    /**
+     * Parst eine vollständige Antwort aus einem Byte-Array.
+     *
+     * @param buf UTF-8-Bytes
+     * @param off Startoffset
+     * @param len Länge
+     * @return neu befüllte Fields
+     */
+    public static Fields parse(byte[] buf, int off, int len) {
+        Fields f = new Fields();
+        parse(new JsonScanner(buf, off, len), f);
+        return f;
+    }
+}
@@ -0,0 +1,312 @@
+package de.example.llmbench.api;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pool mehrerer Ollama-Knoten mit Lastverteilung und Health-Checks.
+ *
+ * Die Knoten kommen aus {@code OLLAMA_BASE_URLS} (kommagetrennt), ersatzweise aus
+ * {@code OLLAMA_BASE_URL}. Verteilt wird per Round-Robin oder an den Knoten mit den
+ * wenigsten offenen Anfragen ({@code OLLAMA_BALANCE}, Standard: least-outstanding).
+ * Ein Knoten gilt als ungesund, sobald sein Health-Check ({@code GET /api/tags})
+ * fehlschlägt oder keine Verbindung zustande kommt; er bekommt dann keine Anfragen,
+ * bis ein späterer Check wieder gelingt. Ohne periodische Checks
+ * ({@code OLLAMA_HEALTH_INTERVAL_SEC=0}) prüft die Auswahl ungesunde Knoten nebenbei erneut,
+ * zuerst nach einer Sekunde, dann mit verdoppeltem Abstand bis höchstens einer Minute.
+ * Sind alle Knoten ungesund, wird trotzdem
+ * verteilt – die Läufe schlagen dann sichtbar fehl, statt still zu verschwinden.
+ */
+public final class OllamaPool {
+
+    public static final String ROUND_ROBIN = "round-robin";
+    public static final String LEAST_OUTSTANDING = "least-outstanding";
+
+    // Verteilstrategie und Health-Check-Intervall (0 = passive Erkennung, erneute Prüfung bei der Auswahl)
+    static final String BALANCE = System.getenv().getOrDefault("OLLAMA_BALANCE", LEAST_OUTSTANDING);
+    static final int HEALTH_INTERVAL_SEC = Integer.parseInt(System.getenv().getOrDefault("OLLAMA_HEALTH_INTERVAL_SEC", "15"));
+    private static final Duration HEALTH_TIMEOUT = Duration.ofSeconds(2);
+    // Abstand der nachträglichen Prüfungen ungesunder Knoten ohne periodische Checks
+    private static final long PROBE_MIN_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long PROBE_MAX_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final Logger LOG = Logger.getLogger(OllamaPool.class.getName());
+
+    private static final OllamaPool SHARED = new OllamaPool(endpoints(), BALANCE, HEALTH_INTERVAL_SEC);
+
+    private final Node[] nodes;
+    private final boolean roundRobin;
+    private final AtomicInteger cursor = new AtomicInteger();
+    // Ohne periodische Checks: ungesunde Knoten bei der Auswahl erneut prüfen
+    private final boolean reprobe;
+    // Geteilter Client: Health-Checks halten dieselben Keep-Alive-Verbindungen warm wie die Läufe
+    private final HttpClient http = HttpClients.shared();
+
+    /**
+     * Ein Ollama-Knoten mit Zählern für offene und verteilte Anfragen.
+     */
+    public static final class Node {
+        private final String name;
+        private final String url;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicLong dispatched = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private volatile boolean healthy = true;
+        private volatile String lastError;
+        private volatile Instant lastCheck;
+        private volatile Double checkMs;
+        // Nächste nachträgliche Prüfung (System.nanoTime) und Abstand zur übernächsten
+        private final AtomicLong nextProbe = new AtomicLong();
+        private volatile long probeDelay = PROBE_MIN_NANOS;
+
+        private Node(String url) {
+            this.url = url;
+            // Knotenname ohne Schema, z.B. "gpu1:11434"
+            int scheme = url.indexOf("://");
+            this.name = scheme >= 0 ? url.substring(scheme + 3) : url;
+        }
+
+        /** Name des Knotens (Host:Port), unter dem die Ergebnisse markiert werden. */
+        public String name() { return name; }
+
+        /** Basis-URL der Ollama-API dieses Knotens. */
+        public String url() { return url; }
+
+        /** false, solange der letzte Health-Check oder Verbindungsaufbau fehlgeschlagen ist. */
+        public boolean healthy() { return healthy; }
+    }
+
+    /**
+     * Erzeugt einen Pool.
+     *
+     * @param urls Basis-URLs der Knoten (mindestens eine)
+     * @param balance round-robin oder least-outstanding
+     * @param healthIntervalSec Abstand der Health-Checks in Sekunden (0 = keine; ungesunde
+     *                          Knoten werden dann bei der Auswahl erneut geprüft)
+     */
+    public OllamaPool(List<String> urls, String balance, int healthIntervalSec) {
+        if (urls.isEmpty()) throw new IllegalArgumentException("No Ollama endpoints configured");
+        this.nodes = urls.stream().map(Node::new).toArray(Node[]::new);
+        this.roundRobin = ROUND_ROBIN.equalsIgnoreCase(balance);
+        this.reprobe = healthIntervalSec <= 0;
+        if (healthIntervalSec > 0) {
+            ScheduledExecutorService checker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "llmbench-health");
+                t.setDaemon(true);
+                return t;
+            });
+            checker.scheduleWithFixedDelay(this::scheduledCheck, 0, healthIntervalSec, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Liefert den prozessweit geteilten Pool.
+     */
+    public static OllamaPool shared() { return SHARED; }
+
+    // Basis-URLs aus der Umgebung, ohne abschließenden Schrägstrich
+    static List<String> endpoints() {
+        String list = System.getenv("OLLAMA_BASE_URLS");
+        if (list == null || list.isBlank()) list = System.getenv().getOrDefault("OLLAMA_BASE_URL", "http://localhost:11434");
+        return Arrays.stream(list.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(s -> s.endsWith("/") ? s.substring(0, s.length() - 1) : s)
+                .distinct()
+                .toList();
+    }
+
+    /** Alle Knoten in der konfigurierten Reihenfolge. */
+    public List<Node> nodes() { return List.of(nodes); }
+
+    /** Gesunde Knoten; sind alle ungesund, alle Knoten. */
+    public List<Node> available() { return List.of(healthy()); }
+
+    /** Strategie der Lastverteilung. */
+    public String balance() { return roundRobin ? ROUND_ROBIN : LEAST_OUTSTANDING; }
+
+    /**
+     * Sucht einen Knoten nach Name oder Basis-URL.
+     *
+     * @param nameOrUrl z.B. "gpu1:11434" oder "http://gpu1:11434"
+     * @return Knoten oder null, falls unbekannt
+     */
+    public Node node(String nameOrUrl) {
+        if (nameOrUrl == null) return null;
+        for (Node n : nodes) {
+            if (n.name.equals(nameOrUrl) || n.url.equals(nameOrUrl)) return n;
+        }
+        return null;
+    }
+
+    /**
+     * Erster gesunder Knoten (sonst der erste) – für einzelne Verwaltungsaufrufe.
+     */
+    public Node preferred() {
+        for (Node n : nodes) if (n.healthy) return n;
+        return nodes[0];
+    }
+
+    /**
+     * Wählt einen Knoten für die nächste Anfrage und zählt sie als offen.
+     * Jeder Aufruf muss mit {@link #release(Node, Throwable)} abgeschlossen werden.
+     *
+     * @param pinned optional: fester Knoten (Name oder URL), sonst null
+     * @return gewählter Knoten oder null, falls der feste Knoten unbekannt ist
+     */
+    public Node acquire(String pinned) {
+        Node n = pinned != null ? node(pinned) : select();
+        if (n == null) return null;
+        n.outstanding.incrementAndGet();
+        n.dispatched.incrementAndGet();
+        return n;
+    }
+
+    /**
+     * Schließt eine Anfrage ab. Verbindungsfehler markieren den Knoten als ungesund;
+     * Timeouts und HTTP-Fehler nicht, da der Knoten dann erreichbar, nur langsam ist.
+     *
+     * @param n Knoten aus {@link #acquire(String)}
+     * @param error Fehler der Anfrage oder null
+     */
+    public void release(Node n, Throwable error) {
+        n.outstanding.decrementAndGet();
+        if (error == null) return;
+        n.failures.incrementAndGet();
+        if (error instanceof ConnectException || error instanceof HttpConnectTimeoutException) {
+            n.lastError = error.getClass().getSimpleName() + ": " + error.getMessage();
+            markUnhealthy(n);
+        }
+    }
+
+    private void markUnhealthy(Node n) {
+        if (n.healthy) {
+            n.probeDelay = PROBE_MIN_NANOS;
+            n.nextProbe.set(System.nanoTime() + PROBE_MIN_NANOS);
+        }
+        n.healthy = false;
+    }
+
+    private static void markHealthy(Node n) {
+        n.healthy = true;
+        n.lastError = null;
+        n.probeDelay = PROBE_MIN_NANOS;
+    }
+
+    // Startet fällige Prüfungen ungesunder Knoten im Hintergrund; pro Fälligkeit nur ein Aufrufer
+    private void reprobe() {
+        long now = System.nanoTime();
+        for (Node n : nodes) {
+            if (n.healthy) continue;
+            long due = n.nextProbe.get();
+            if (now - due < 0) continue;
+            long delay = n.probeDelay;
+            if (!n.nextProbe.compareAndSet(due, now + delay)) continue;
+            n.probeDelay = Math.min(delay * 2, PROBE_MAX_NANOS);
+            probe(n);
+        }
+    }
+
+    // Gesunde Knoten reihum bzw. mit den wenigsten offenen Anfragen (Gleichstand reihum)
+    private Node select() {
+        if (reprobe) reprobe();
+        Node[] candidates = healthy();
+        int start = Math.floorMod(cursor.getAndIncrement(), candidates.length);
+        if (roundRobin || candidates.length == 1) return candidates[start];
+        Node best = candidates[start];
+        int min = best.outstanding.get();
+        for (int i = 1; i < candidates.length && min > 0; i++) {
+            Node c = candidates[(start + i) % candidates.length];
+            int o = c.outstanding.get();
+            if (o < min) { best = c; min = o; }
+        }
+        return best;
+    }
+
+    private Node[] healthy() {
+        int count = 0;
+        for (Node n : nodes) if (n.healthy) count++;
+        if (count == nodes.length || count == 0) return nodes;
+        Node[] out = new Node[count];
+        int i = 0;
+        for (Node n : nodes) if (n.healthy) out[i++] = n;
+        return out;
+    }
+
+    // Ein Fehler darf die folgenden Checks nicht beenden (der Executor bricht sonst still ab)
+    private void scheduledCheck() {
+        try {
+            check();
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Ollama health check failed", e);
+        }
+    }
+
+    /**
+     * Prüft alle Knoten parallel per {@code GET /api/tags} und aktualisiert ihren Zustand.
+     *
+     * @return Zustand aller Knoten nach der Prüfung
+     */
+    public List<BenchmarkDto.NodeStatus> check() {
+        List<CompletableFuture<Void>> pending = new ArrayList<>(nodes.length);
+        for (Node n : nodes) pending.add(probe(n));
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+        return status();
+    }
+
+    // Health-Check eines Knotens per GET /api/tags
+    private CompletableFuture<Void> probe(Node n) {
+        long start = System.nanoTime();
+        HttpRequest req = HttpRequest.newBuilder()
+                .uri(URI.create(n.url + "/api/tags"))
+                .timeout(HEALTH_TIMEOUT)
+                .GET()
+                .build();
+        return http.sendAsync(req, HttpResponse.BodyHandlers.discarding()).handle((resp, ex) -> {
+            n.lastCheck = Instant.now();
+            n.checkMs = (System.nanoTime() - start) / 1_000_000.0;
+            if (ex != null) {
+                Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                n.lastError = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+                markUnhealthy(n);
+            } else if (resp.statusCode() >= 200 && resp.statusCode() < 300) {
+                markHealthy(n);
+            } else {
+                n.lastError = "HTTP " + resp.statusCode();
+                markUnhealthy(n);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Momentaufnahme aller Knoten (Zustand und Zähler).
+     */
+    public List<BenchmarkDto.NodeStatus> status() {
+        List<BenchmarkDto.NodeStatus> out = new ArrayList<>(nodes.length);
+        for (Node n : nodes) {
+            Instant checked = n.lastCheck;
+            out.add(new BenchmarkDto.NodeStatus(n.name, n.url, n.healthy, n.outstanding.get(),
+                    n.dispatched.get(), n.failures.get(), checked == null ? null : checked.toString(),
+                    n.checkMs, n.lastError));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,547 @@
+package de.example.llmbench.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lokaler Ollama-Simulator für reproduzierbare Lasttests ohne GPU.
+ *
+ * Beantwortet {@code GET /api/tags}, {@code POST /api/show} und {@code POST /api/generate}
+ * (mit und ohne Streaming) wie ein Ollama-Server, sodass der Benchmark unverändert per
+ * {@code OLLAMA_BASE_URL} darauf zeigen kann. Zwei Betriebsarten:
+ * - Wiedergabe ({@code BENCH_SIM_REPLAY}): Aufzeichnungen des {@link ExchangeRecorder}
+ *   werden mit ihrem ursprünglichen Zeitverlauf abgespielt (je Modell reihum; Modelle ohne
+ *   Aufzeichnung bekommen alle Aufzeichnungen). Wurde mit Streaming aufgezeichnet und ohne
+ *   angefragt, kommt der zusammengesetzte Body zum Endzeitpunkt – und umgekehrt wird ein
+ *   gepufferter Body in Wort-Chunks gleichmäßig zwischen Header- und Endzeitpunkt verteilt.
+ * - Synthetisch (ohne Aufzeichnungen): TTFT und Inter-Token-Latenz werden log-normal um
+ *   {@code BENCH_SIM_TTFT_MS} bzw. {@code BENCH_SIM_ITL_MS} gestreut (Streuung
+ *   {@code BENCH_SIM_JITTER}), mit festem Startwert je Anfrage ({@code BENCH_SIM_SEED}).
+ *
+ * {@code BENCH_SIM_PARALLEL} begrenzt wie {@code OLLAMA_NUM_PARALLEL} die gleichzeitig
+ * bearbeiteten Anfragen (weitere warten), {@code BENCH_SIM_SPEED} skaliert alle Zeiten
+ * (0 = ohne Wartezeit). Start: {@code java -cp target/classes de.example.llmbench.api.OllamaSimulator}.
+ */
+public final class OllamaSimulator {
+
+    /**
+     * Einstellungen des Simulators.
+     *
+     * @param port TCP-Port (0 = frei wählen)
+     * @param replay Aufzeichnungsdateien (leer = synthetisch)
+     * @param speed Zeitfaktor (1 = Originaltempo, 0 = ohne Wartezeit)
+     * @param ttftMs Median der Zeit bis zum ersten Token
+     * @param itlMs Median der Inter-Token-Latenz
+     * @param jitter Streuung (Sigma der Log-Normalverteilung, 0 = konstant)
+     * @param tokens Tokens je Antwort (num_predict der Anfrage begrenzt zusätzlich)
+     * @param parallel gleichzeitig bearbeitete Anfragen (0 = unbegrenzt)
+     * @param seed Startwert der Zufallszahlen
+     * @param models Modellnamen für /api/tags
+     */
+    public record Config(int port, List<Path> replay, double speed, double ttftMs, double itlMs,
+                         double jitter, int tokens, int parallel, long seed, List<String> models) {
+
+        /**
+         * Liest die Einstellungen aus den Umgebungsvariablen {@code BENCH_SIM_*}.
+         */
+        public static Config fromEnv() {
+            var env = System.getenv();
+            List<Path> replay = new ArrayList<>();
+            for (String p : env.getOrDefault("BENCH_SIM_REPLAY", "").split(",")) {
+                if (!p.isBlank()) replay.add(Path.of(p.trim()));
+            }
+            List<String> models = new ArrayList<>();
+            for (String m : env.getOrDefault("BENCH_SIM_MODELS", "sim:latest").split(",")) {
+                if (!m.isBlank()) models.add(m.trim());
+            }
+            return new Config(
+                    Integer.parseInt(env.getOrDefault("BENCH_SIM_PORT", "11435")),
+                    replay,
+                    Double.parseDouble(env.getOrDefault("BENCH_SIM_SPEED", "1.0")),
+                    Double.parseDouble(env.getOrDefault("BENCH_SIM_TTFT_MS", "150")),
+                    Double.parseDouble(env.getOrDefault("BENCH_SIM_ITL_MS", "25")),
+                    Double.parseDouble(env.getOrDefault("BENCH_SIM_JITTER", "0.2")),
+                    Integer.parseInt(env.getOrDefault("BENCH_SIM_TOKENS", "64")),
+                    Integer.parseInt(env.getOrDefault("BENCH_SIM_PARALLEL", "0")),
+                    Long.parseLong(env.getOrDefault("BENCH_SIM_SEED", "42")),
+                    models);
+        }
+    }
+
+    // Eine aufgezeichnete Antwort (Zeiten in ms relativ zum Start der Anfrage)
+    private record Recording(String model, boolean stream, int status, double headersMs, double totalMs,
+                             double[] t, String[] lines, String body) { }
+
+    private static final byte[][] REC_KEYS = JsonScanner.keys(
+            "model", "stream", "status", "headersMs", "totalMs", "chunks", "body");
+    private static final byte[][] CHUNK_KEYS = JsonScanner.keys("t", "line");
+    private static final byte[][] REQ_KEYS = JsonScanner.keys("model", "prompt", "stream", "options", "keep_alive");
+    private static final byte[][] OPTION_KEYS = JsonScanner.keys("num_predict");
+
+    // Wortschatz der synthetischen Antworten
+    private static final String[] WORDS = {
+            "the", "model", "answers", "with", "a", "short", "and", "simple", "text", "about",
+            "load", "tests", "latency", "tokens", "per", "second", "is", "measured", "here", "."
+    };
+
+    private final Config config;
+    private final List<Recording> recordings;
+    private final Map<String, List<Recording>> byModel = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> cursor = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Semaphore slots;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Erzeugt einen Simulator und lädt die Aufzeichnungen.
+     *
+     * @param config Einstellungen
+     * @throws IOException wenn eine Aufzeichnungsdatei nicht lesbar ist
+     * @throws IllegalArgumentException bei ungültigen Aufzeichnungen
+     */
+    public OllamaSimulator(Config config) throws IOException {
+        this.config = config;
+        this.recordings = new ArrayList<>();
+        for (Path p : config.replay()) recordings.addAll(load(p));
+        for (Recording r : recordings) byModel.computeIfAbsent(r.model(), m -> new ArrayList<>()).add(r);
+        this.slots = config.parallel() > 0 ? new Semaphore(config.parallel(), true) : null;
+    }
+
+    /**
+     * Startet den Simulator mit den Einstellungen aus der Umgebung.
+     */
+    public static void main(String[] args) throws IOException {
+        OllamaSimulator sim = new OllamaSimulator(Config.fromEnv()).start();
+        System.out.println("Ollama-Simulator auf http://127.0.0.1:" + sim.port() + " ("
+                + (sim.recordings.isEmpty() ? "synthetisch" : sim.recordings.size() + " Aufzeichnungen") + ")");
+    }
+
+    /**
+     * Startet den HTTP-Server (ein virtueller Thread je Anfrage).
+     *
+     * @return this
+     */
+    public synchronized OllamaSimulator start() throws IOException {
+        // Ohne TCP_NODELAY verzögern Nagle und verzögerte ACKs kleine Antworten um ~40 ms
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(config.port()), 1024);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/tags", ex -> handle(ex, this::tags));
+        server.createContext("/api/show", ex -> handle(ex, this::show));
+        server.createContext("/api/generate", ex -> handle(ex, this::generate));
+        server.start();
+        return this;
+    }
+
+    /**
+     * Beendet den Server; laufende Antworten werden abgebrochen.
+     */
+    public synchronized void stop() {
+        if (server != null) server.stop(0);
+        if (executor != null) executor.shutdownNow();
+        server = null;
+        executor = null;
+    }
+
+    /**
+     * Tatsächlich belegter Port.
+     */
+    public int port() { return server.getAddress().getPort(); }
+
+    private interface Handler {
+        void handle(HttpExchange ex, byte[] body) throws IOException;
+    }
+
+    private static void handle(HttpExchange ex, Handler h) {
+        try (ex) {
+            byte[] body;
+            try (InputStream in = ex.getRequestBody()) { body = in.readAllBytes(); }
+            h.handle(ex, body);
+        } catch (IllegalArgumentException e) {
+            try {
+                send(ex, 400, error(e.getMessage()));
+            } catch (IOException ignored) {
+                // Client ist weg
+            }
+        } catch (IOException e) {
+            // Client hat die Verbindung geschlossen
+        }
+    }
+
+    private void tags(HttpExchange ex, byte[] body) throws IOException {
+        StringBuilder sb = new StringBuilder("{\"models\":[");
+        int i = 0;
+        for (String m : modelNames()) {
+            if (i++ > 0) sb.append(',');
+            sb.append("{\"name\":");
+            ResultExport.jsonString(sb, m);
+            sb.append(",\"model\":");
+            ResultExport.jsonString(sb, m);
+            sb.append(",\"size\":0,\"digest\":");
+            ResultExport.jsonString(sb, ResultStore.promptHash(m));
+            sb.append(",\"modified_at\":");
+            ResultExport.jsonString(sb, Instant.EPOCH.toString());
+            sb.append(",\"details\":").append(DETAILS).append('}');
+        }
+        send(ex, 200, sb.append("]}").toString());
+    }
+
+    private void show(HttpExchange ex, byte[] body) throws IOException {
+        send(ex, 200, "{\"details\":" + DETAILS + ",\"model_info\":{}}");
+    }
+
+    private static final String DETAILS =
+            "{\"format\":\"gguf\",\"family\":\"sim\",\"parameter_size\":\"0B\",\"quantization_level\":\"SIM\"}";
+
+    // Konfigurierte Modelle plus alle Modelle der Aufzeichnungen
+    private Set<String> modelNames() {
+        Set<String> names = new LinkedHashSet<>(config.models());
+        for (Recording r : recordings) names.add(r.model());
+        return names;
+    }
+
+    // Felder einer Anfrage an /api/generate
+    private record Generate(String model, String prompt, boolean stream, Integer numPredict, boolean unload) { }
+
+    private static Generate parseGenerate(byte[] body) {
+        JsonScanner sc = new JsonScanner(body, 0, body.length);
+        String model = null, prompt = null;
+        boolean stream = true;                  // Standard von Ollama
+        Integer numPredict = null;
+        boolean unload = false;
+        sc.beginObject();
+        int k;
+        while ((k = sc.nextKey(REQ_KEYS)) != JsonScanner.END) {
+            if (sc.consumeNull()) continue;
+            switch (k) {
+                case 0 -> model = sc.readString();
+                case 1 -> prompt = sc.readString();
+                case 2 -> stream = sc.readBoolean();
+                case 3 -> {
+                    sc.beginObject();
+                    int o;
+                    while ((o = sc.nextKey(OPTION_KEYS)) != JsonScanner.END) {
+                        if (o == 0 && !sc.consumeNull()) numPredict = (int) sc.readLong();
+                        else if (o != 0) sc.skipValue();
+                    }
+                }
+                // "0" bzw. 0 entlädt, Angaben wie "5m" nicht
+                case 4 -> unload = sc.peek() == '"' ? "0".equals(sc.readString()) : sc.readLong() == 0;
+                default -> sc.skipValue();
+            }
+        }
+        if (model == null || model.isBlank()) throw new IllegalArgumentException("model is required");
+        return new Generate(model, prompt, stream, numPredict, unload);
+    }
+
+    private void generate(HttpExchange ex, byte[] body) throws IOException {
+        long start = System.nanoTime();
+        Generate g = parseGenerate(body);
+        if (g.unload() && g.prompt() == null) {
+            send(ex, 200, "{\"model\":" + quote(g.model()) + ",\"created_at\":" + quote(Instant.now().toString())
+                    + ",\"response\":\"\",\"done\":true,\"done_reason\":\"unload\"}");
+            return;
+        }
+        long seq = sequence.getAndIncrement();
+        if (slots != null) {
+            try {
+                slots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        try {
+            // Wartezeit auf einen freien Platz verschiebt den Zeitverlauf wie bei Ollama
+            long begin = System.nanoTime();
+            Recording rec = pick(g.model());
+            if (rec == null) synthetic(ex, g, seq, start, begin);
+            else replay(ex, g, rec, begin);
+        } finally {
+            if (slots != null) slots.release();
+        }
+    }
+
+    // Aufzeichnungen des Modells reihum, sonst alle Aufzeichnungen; null = synthetisch
+    private Recording pick(String model) {
+        if (recordings.isEmpty()) return null;
+        List<Recording> list = byModel.getOrDefault(model, recordings);
+        long i = cursor.computeIfAbsent(list == recordings ? "" : model, m -> new AtomicLong()).getAndIncrement();
+        return list.get((int) (i % list.size()));
+    }
+
+    private void replay(HttpExchange ex, Generate g, Recording rec, long begin) throws IOException {
+        if (rec.status() < 200 || rec.status() >= 300) {
+            sleepUntil(begin, rec.totalMs());
+            String err = rec.body() != null ? rec.body()
+                    : rec.lines().length > 0 ? rec.lines()[0] : error("recorded status " + rec.status());
+            send(ex, rec.status(), err);
+            return;
+        }
+        if (!g.stream()) {
+            sleepUntil(begin, rec.totalMs());
+            send(ex, 200, rec.stream() ? combine(rec.lines(), g.model()) : rename(rec.body(), g.model()));
+            return;
+        }
+        sleepUntil(begin, rec.headersMs());
+        ex.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        ex.sendResponseHeaders(200, 0);
+        OutputStream out = ex.getResponseBody();
+        if (rec.stream()) {
+            for (int i = 0; i < rec.lines().length; i++) {
+                sleepUntil(begin, rec.t()[i]);
+                writeLine(out, rename(rec.lines()[i], g.model()));
+            }
+            return;
+        }
+        // Gepufferte Aufzeichnung als Stream: Wörter gleichmäßig bis zum Endzeitpunkt verteilen
+        byte[] body = bytes(rec.body());
+        OllamaJson.Fields f = OllamaJson.parse(body, 0, body.length);
+        List<String> parts = splitWords(f.response.toString());
+        String created = quote(Instant.now().toString());
+        double from = rec.headersMs(), span = Math.max(0, rec.totalMs() - rec.headersMs());
+        for (int i = 0; i < parts.size(); i++) {
+            sleepUntil(begin, from + span * (i + 1) / (parts.size() + 1));
+            writeLine(out, chunk(g.model(), created, parts.get(i)));
+        }
+        sleepUntil(begin, rec.totalMs());
+        writeLine(out, rename(finalLine(f), g.model()));
+    }
+
+    private void synthetic(HttpExchange ex, Generate g, long seq, long start, long begin) throws IOException {
+        SplittableRandom rnd = new SplittableRandom(config.seed() + seq);
+        int tokens = Math.max(1, g.numPredict() != null && g.numPredict() > 0
+                ? Math.min(g.numPredict(), config.tokens()) : config.tokens());
+        double[] at = new double[tokens];
+        double t = draw(rnd, config.ttftMs());
+        for (int i = 0; i < tokens; i++) {
+            if (i > 0) t += draw(rnd, config.itlMs());
+            at[i] = t;
+        }
+        int promptTokens = Math.max(1, (g.prompt() == null ? 0 : g.prompt().length()) / 4);
+        StringBuilder text = new StringBuilder();
+
+        if (!g.stream()) {
+            for (int i = 0; i < tokens; i++) text.append(word(rnd, i));
+            sleepUntil(begin, at[tokens - 1]);
+            send(ex, 200, done(g.model(), text.toString(), promptTokens, tokens, start, begin, at));
+            return;
+        }
+        ex.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        ex.sendResponseHeaders(200, 0);
+        OutputStream out = ex.getResponseBody();
+        // Zeitstempel einmal je Antwort: Formatieren je Chunk kostet bei hoher Last spürbar CPU
+        String created = quote(Instant.now().toString());
+        for (int i = 0; i < tokens; i++) {
+            sleepUntil(begin, at[i]);
+            writeLine(out, chunk(g.model(), created, word(rnd, i)));
+        }
+        writeLine(out, done(g.model(), "", promptTokens, tokens, start, begin, at));
+    }
+
+    // Log-normal gestreute Dauer in ms um den Median
+    private double draw(SplittableRandom rnd, double medianMs) {
+        if (config.jitter() <= 0) return medianMs;
+        return medianMs * Math.exp(config.jitter() * rnd.nextGaussian());
+    }
+
+    private static String word(SplittableRandom rnd, int i) {
+        String w = WORDS[rnd.nextInt(WORDS.length)];
+        return i == 0 ? w : " " + w;
+    }
+
+    // Abschlusszeile mit Token-Zählern und Server-Zeiten wie bei Ollama
+    private String done(String model, String text, int promptTokens, int tokens, long start, long begin, double[] at) {
+        long ttftNs = (long) (at[0] * config.speed() * 1e6);
+        long evalNs = (long) ((at[at.length - 1] - at[0]) * config.speed() * 1e6);
+        return "{\"model\":" + quote(model) + ",\"created_at\":" + quote(Instant.now().toString())
+                + ",\"response\":" + quote(text) + ",\"done\":true,\"done_reason\":\"stop\""
+                + ",\"total_duration\":" + (System.nanoTime() - start)
+                + ",\"load_duration\":" + (begin - start)
+                + ",\"prompt_eval_count\":" + promptTokens
+                + ",\"prompt_eval_duration\":" + ttftNs
+                + ",\"eval_count\":" + tokens
+                + ",\"eval_duration\":" + evalNs + "}";
+    }
+
+    private static String chunk(String model, String created, String fragment) {
+        return "{\"model\":" + quote(model) + ",\"created_at\":" + created
+                + ",\"response\":" + quote(fragment) + ",\"done\":false}";
+    }
+
+    // Fasst aufgezeichnete Stream-Zeilen zu einem gepufferten Body zusammen
+    private static String combine(String[] lines, String model) {
+        OllamaJson.Fields f = new OllamaJson.Fields();
+        JsonScanner sc = new JsonScanner();
+        for (String line : lines) {
+            byte[] b = bytes(line);
+            if (b.length > 0) OllamaJson.parse(sc.reset(b, 0, b.length), f);
+        }
+        if (f.error != null) return error(f.error);
+        return rename(finalLine(f), model);
+    }
+
+    // Abschluss-Objekt mit Antworttext und den Zählern/Zeiten aus den Fields
+    private static String finalLine(OllamaJson.Fields f) {
+        StringBuilder sb = new StringBuilder("{\"model\":").append(quote(f.model == null ? "" : f.model))
+                .append(",\"created_at\":").append(quote(Instant.now().toString()))
+                .append(",\"response\":").append(quote(f.response.toString()))
+                .append(",\"done\":true");
+        if (f.totalDurationNs != null) sb.append(",\"total_duration\":").append(f.totalDurationNs);
+        if (f.loadDurationNs != null) sb.append(",\"load_duration\":").append(f.loadDurationNs);
+        if (f.promptEvalCount != null) sb.append(",\"prompt_eval_count\":").append(f.promptEvalCount);
+        if (f.promptEvalDurationNs != null) sb.append(",\"prompt_eval_duration\":").append(f.promptEvalDurationNs);
+        if (f.evalCount != null) sb.append(",\"eval_count\":").append(f.evalCount);
+        if (f.evalDurationNs != null) sb.append(",\"eval_duration\":").append(f.evalDurationNs);
+        return sb.append('}').toString();
+    }
+
+    // Ersetzt das aufgezeichnete Modell durch das angefragte (erstes "model"-Feld)
+    private static String rename(String json, String model) {
+        int i = json.indexOf("\"model\"");
+        if (i < 0) return json;
+        int from = i + 7;
+        while (from < json.length() && (json.charAt(from) == ':' || json.charAt(from) == ' ')) from++;
+        if (from >= json.length() || json.charAt(from) != '"') return json;
+        int to = from + 1;
+        while (to < json.length() && json.charAt(to) != '"') {
+            if (json.charAt(to) == '\\') to++;
+            to++;
+        }
+        if (to >= json.length()) return json;
+        return json.substring(0, from) + quote(model) + json.substring(to + 1);
+    }
+
+    // Wörter inklusive führendem Leerzeichen, wie Ollama Tokens streamt
+    private static List<String> splitWords(String text) {
+        List<String> out = new ArrayList<>();
+        int s = 0;
+        for (int i = 1; i <= text.length(); i++) {
+            if (i == text.length() || text.charAt(i) == ' ') {
+                if (i > s) out.add(text.substring(s, i));
+                s = i;
+            }
+        }
+        return out;
+    }
+
+    // Wartet bis begin + ms (skaliert mit speed)
+    private void sleepUntil(long begin, double ms) {
+        if (config.speed() <= 0) return;
+        long remaining = begin + (long) (ms * config.speed() * 1_000_000) - System.nanoTime();
+        if (remaining <= 0) return;
+        try {
+            Thread.sleep(Duration.ofNanos(remaining));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void writeLine(OutputStream out, String line) throws IOException {
+        out.write(bytes(line + "\n"));
+        out.flush();
+    }
+
+    private static void send(HttpExchange ex, int status, String json) throws IOException {
+        byte[] b = bytes(json);
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(status, b.length);
+        try (OutputStream out = ex.getResponseBody()) { out.write(b); }
+    }
+
+    private static String error(String msg) { return "{\"error\":" + quote(msg) + "}"; }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2);
+        ResultExport.jsonString(sb, s);
+        return sb.toString();
+    }
+
+    private static byte[] bytes(String s) { return s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8); }
+
+    // Liest eine Aufzeichnungsdatei des ExchangeRecorder (eine Zeile je Austausch)
+    private static List<Recording> load(Path file) throws IOException {
+        List<Recording> out = new ArrayList<>();
+        JsonScanner sc = new JsonScanner();
+        int lineNo = 0;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            lineNo++;
+            if (line.isBlank()) continue;
+            byte[] b = bytes(line);
+            try {
+                out.add(recording(sc.reset(b, 0, b.length)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(file + ":" + lineNo + ": " + e.getMessage(), e);
+            }
+        }
+        return out;
+    }
+
+    private static Recording recording(JsonScanner sc) {
+        String model = "";
+        boolean stream = false;
+        int status = 200;
+        double headersMs = 0, totalMs = 0;
+        List<Double> t = new ArrayList<>();
+        List<String> lines = new ArrayList<>();
+        String body = null;
+        sc.beginObject();
+        int k;
+        while ((k = sc.nextKey(REC_KEYS)) != JsonScanner.END) {
+            if (sc.consumeNull()) continue;
+            switch (k) {
+                case 0 -> model = sc.readString();
+                case 1 -> stream = sc.readBoolean();
+                case 2 -> status = (int) sc.readLong();
+                case 3 -> headersMs = sc.readDouble();
+                case 4 -> totalMs = sc.readDouble();
+                case 5 -> {
+                    sc.beginArray();
+                    while (sc.nextElement()) {
+                        double at = 0;
+                        String l = "";
+                        sc.beginObject();
+                        int c;
+                        while ((c = sc.nextKey(CHUNK_KEYS)) != JsonScanner.END) {
+                            if (c == 0) at = sc.readDouble();
+                            else if (c == 1) l = sc.readString();
+                            else sc.skipValue();
+                        }
+                        t.add(at);
+                        lines.add(l);
+                    }
+                }
+                case 6 -> body = sc.readString();
+                default -> sc.skipValue();
+            }
+        }
+        if (!stream && body == null) body = "";
+        return new Recording(model, stream, status, headersMs, totalMs,
+                t.stream().mapToDouble(Double::doubleValue).toArray(), lines.toArray(String[]::new), body);
+    }
+}
@@ -0,0 +1,275 @@
+package de.example.llmbench.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Client für OpenAI-kompatible Server ({@code /v1/chat/completions}), z.B. vLLM,
+ * llama.cpp-Server oder LM Studio.
+ *
+ * Misst mit denselben Kennzahlen wie der Ollama-Client, sodass verschiedene
+ * Serving-Stacks auf derselben Hardware direkt vergleichbar sind. Im Streaming-Modus
+ * werden die SSE-Chunks inkrementell gelesen; die Token-Zählung kommt aus "usage"
+ * (per {@code stream_options.include_usage} auch beim Streaming angefordert).
+ */
+public class OpenAiClient implements LlmProvider {
+
+    // HTTP-Client für Anfragen an den Server (prozessweit geteilt, siehe HttpClients)
+    private final HttpClient http = HttpClients.shared();
+    // Basis-URL inkl. /v1 und optionaler API-Key (über Umgebungsvariablen konfigurierbar)
+    private final String baseUrl;
+    private final String apiKey;
+
+    /**
+     * Client mit Basis-URL und API-Key aus {@code OPENAI_BASE_URL} und {@code OPENAI_API_KEY}.
+     */
+    public OpenAiClient() {
+        this(System.getenv().getOrDefault("OPENAI_BASE_URL", "http://localhost:8000/v1"), System.getenv("OPENAI_API_KEY"));
+    }
+
+    /**
+     * Client für einen bestimmten Server.
+     *
+     * @param baseUrl Basis-URL inkl. Versionspfad, z.B. http://gpu1:8000/v1
+     * @param apiKey Bearer-Token oder null
+     */
+    public OpenAiClient(String baseUrl, String apiKey) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.apiKey = apiKey == null || apiKey.isBlank() ? null : apiKey;
+    }
+
+    @Override
+    public String name() { return BenchmarkModels.PROVIDER_OPENAI; }
+
+    @Override
+    public String baseUrl() { return baseUrl; }
+
+    /**
+     * Führt einen einzelnen Chat-Completion-Aufruf durch.
+     *
+     * @param model Modellname
+     * @param prompt Eingabetext (als einzelne User-Nachricht)
+     * @param temperature Sampling-Temperatur
+     * @param maxTokens Maximale Token-Anzahl
+     * @param timeoutMs Timeout in Millisekunden
+     * @param stream true für "stream": true mit TTFT/ITL-Messung
+     * @param node wird nicht unterstützt (muss null sein, siehe {@link #checkNode(String)})
+     * @return Ergebnisobjekt mit Metriken und Antworttext
+     */
+    @Override
+    public BenchmarkDto.SingleRunResult call(String model, String prompt, double temperature, int maxTokens, int timeoutMs,
+                                             boolean stream, String node) {
+        return call(model, prompt, temperature, maxTokens, timeoutMs, stream, node, null);
+    }
+
+    @Override
+    public BenchmarkDto.SingleRunResult call(String model, String prompt, double temperature, int maxTokens, int timeoutMs,
+                                             boolean stream, String node, LongConsumer chunkGaps) {
+
+        long start = System.nanoTime();
+        var out = BenchmarkDto.SingleRunResult.builder(BenchmarkModels.PROVIDER_OPENAI, model).start(start);
+        long[] headersAt = new long[1];
+
+        try {
+            // JSON-Body für die Anfrage erzeugen
+            String body = """
+                {
+                  "model": %s,
+                  "messages": [ { "role": "user", "content": %s } ],
+                  "temperature": %s,
+                  "max_tokens": %s,
+                  "stream": %s%s
+                }
+                """.formatted(
+                    jsonString(model),
+                    jsonString(prompt == null ? "" : prompt),
+                    Double.toString(temperature),
+                    Integer.toString(maxTokens <= 0 ? 1 : maxTokens),
+                    Boolean.toString(stream),
+                    stream ? ",\n  \"stream_options\": { \"include_usage\": true }" : ""
+                );
+
+            HttpRequest req = request("/chat/completions", timeoutMs)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+
+            if (stream) {
+                readStream(http.send(req, HttpClients.timed(HttpResponse.BodyHandlers.ofInputStream(), headersAt)), start, out, chunkGaps);
+            } else {
+                readFull(http.send(req, HttpClients.timed(HttpResponse.BodyHandlers.ofByteArray(), headersAt)), start, out);
+            }
+
+        } catch (Exception ex) {
+            out.error(ex.getClass().getSimpleName() + ": " + ex.getMessage());
+        }
+
+        if (headersAt[0] != 0) out.headers(headersAt[0]);
+        return out.end(System.nanoTime()).build();
+    }
+
+    /**
+     * Listet die Modelle des Servers ({@code GET /v1/models}).
+     */
+    @Override
+    public List<String> models(int timeoutMs) throws IOException, InterruptedException {
+        HttpResponse<byte[]> resp = http.send(request("/models", timeoutMs).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
+            throw new IOException("Upstream returned status " + resp.statusCode() + ": "
+                    + new String(resp.body(), StandardCharsets.UTF_8));
+        }
+        try {
+            return OpenAiJson.modelIds(resp.body());
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private HttpRequest.Builder request(String path, int timeoutMs) {
+        HttpRequest.Builder b = HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + path))
+                .timeout(Duration.ofMillis(Math.max(1000, timeoutMs)));
+        if (apiKey != null) b.header("Authorization", "Bearer " + apiKey);
+        return b;
+    }
+
+    /**
+     * Wertet eine vollständig gepufferte Antwort ("stream": false) aus.
+     */
+    private static void readFull(HttpResponse<byte[]> resp, long start, BenchmarkDto.SingleRunResult.Builder out) {
+        int status = resp.statusCode();
+        byte[] body = resp.body() == null ? new byte[0] : resp.body();
+        long end = System.nanoTime();
+
+        boolean ok = status >= 200 && status < 300;
+        out.httpStatus(status).success(ok).responseBytes(body.length);
+        if (!ok) {
+            out.error(new String(body, StandardCharsets.UTF_8));
+            return;
+        }
+
+        OpenAiJson.Fields f = new OpenAiJson.Fields();
+        try {
+            OpenAiJson.parse(new JsonScanner(body, 0, body.length), f);
+        } catch (IllegalArgumentException e) {
+            out.success(false).error(e.getMessage());
+            return;
+        }
+
+        out.tokens(f.promptTokens, f.completionTokens, total(f))
+           .text(f.error != null && f.content.isEmpty() ? null : f.content.toString())
+           // Ohne Streaming nur Ende-zu-Ende-Rate (inkl. Prompt-Verarbeitung)
+           .streaming(null, null, rate(f.completionTokens, end - start))
+           .serverTimings(null, f.promptMs, f.predictedMs, null);
+        if (f.error != null) out.success(false).error(f.error);
+    }
+
+    /**
+     * Liest eine SSE-Streaming-Antwort ("data: {...}" je Chunk, Abschluss mit "data: [DONE]")
+     * Zeile für Zeile. Jeder Chunk mit nicht-leerem Inhalt zählt; der Zeitpunkt des ersten
+     * ergibt die TTFT, die Abstände der folgenden die Inter-Token-Latenz.
+     */
+    private static void readStream(HttpResponse<InputStream> resp, long start, BenchmarkDto.SingleRunResult.Builder out,
+                                   LongConsumer chunkGaps) throws IOException {
+        int status = resp.statusCode();
+        boolean httpOk = status >= 200 && status < 300;
+        out.httpStatus(status);
+
+        OpenAiJson.Fields f = new OpenAiJson.Fields();
+        JsonScanner sc = new JsonScanner();
+        StringBuilder errorBody = httpOk ? null : new StringBuilder();
+        String error = null;
+        long bytes = 0;
+        long firstChunk = 0, lastChunk = 0;
+        int chunks = 0;
+
+        try (InputStream in = resp.body()) {
+            byte[] buf = new byte[8192];
+            byte[] line = new byte[1024];
+            int lineLen = 0;
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                bytes += n;
+                if (!httpOk) { errorBody.append(new String(buf, 0, n, StandardCharsets.UTF_8)); continue; }
+                for (int i = 0; i < n; i++) {
+                    byte b = buf[i];
+                    if (b != '\n') {
+                        if (lineLen == line.length) line = Arrays.copyOf(line, line.length * 2);
+                        line[lineLen++] = b;
+                        continue;
+                    }
+                    // Vollständige Zeile: Zeitstempel sofort nehmen, dann parsen
+                    long now = System.nanoTime();
+                    int len = lineLen;
+                    lineLen = 0;
+                    if (len > 0 && line[len - 1] == '\r') len--;
+                    int off = dataOffset(line, len);
+                    if (off < 0) continue;                              // Kommentar, event:, Leerzeile
+                    if (len - off == 6 && line[off] == '[' && line[off + 1] == 'D') continue;  // [DONE]
+                    if (!sc.reset(line, off, len - off).hasMore()) continue;
+                    try {
+                        OpenAiJson.parse(sc, f);
+                    } catch (IllegalArgumentException e) {
+                        error = e.getMessage();
+                        continue;
+                    }
+                    if (f.contentChars > 0) {
+                        if (chunks == 0) firstChunk = now;
+                        else if (chunkGaps != null) chunkGaps.accept(now - lastChunk);
+                        lastChunk = now;
+                        chunks++;
+                    }
+                }
+            }
+        }
+        if (errorBody != null) error = errorBody.toString();
+        if (f.error != null) error = f.error;
+
+        // Die Token-Zählung steht im letzten Chunk ("usage"); ohne sie zählen die Chunks
+        boolean ok = httpOk && error == null;
+        Double ttft = chunks > 0 ? (firstChunk - start) / 1_000_000.0 : null;
+        Double itl = chunks > 1 ? (lastChunk - firstChunk) / 1_000_000.0 / (chunks - 1) : null;
+        int decoded = f.completionTokens != null ? f.completionTokens : chunks;
+        Double tps = chunks > 1 ? rate(decoded - 1, lastChunk - firstChunk) : null;
+
+        out.success(ok).error(error)
+           .responseBytes((int) Math.min(Integer.MAX_VALUE, bytes))
+           .tokens(f.promptTokens, f.completionTokens, total(f))
+           .text(chunks > 0 ? f.content.toString() : null)
+           .streaming(ttft, itl, tps)
+           .serverTimings(null, f.promptMs, f.predictedMs, null);
+    }
+
+    // Beginn der Nutzdaten einer "data:"-Zeile (führendes Leerzeichen übersprungen), sonst -1
+    private static int dataOffset(byte[] line, int len) {
+        if (len < 5 || line[0] != 'd' || line[1] != 'a' || line[2] != 't' || line[3] != 'a' || line[4] != ':') return -1;
+        return len > 5 && line[5] == ' ' ? 6 : 5;
+    }
+
+    private static Integer total(OpenAiJson.Fields f) {
+        if (f.totalTokens != null) return f.totalTokens;
+        return f.promptTokens != null && f.completionTokens != null ? f.promptTokens + f.completionTokens : null;
+    }
+
+    /**
+     * Tokens pro Sekunde für eine Dauer in Nanosekunden (null, wenn nicht bestimmbar).
+     */
+    private static Double rate(Integer tokens, long nanos) {
+        if (tokens == null || tokens <= 0 || nanos <= 0) return null;
+        return tokens / (nanos / 1_000_000_000.0);
+    }
+
+    private static String jsonString(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2);
+        ResultExport.jsonString(sb, s);
+        return sb.toString();
+    }
+}
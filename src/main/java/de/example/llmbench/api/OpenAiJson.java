@@ -0,0 +1,189 @@
+package de.example.llmbench.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Extrahiert die Felder einer Antwort von /v1/chat/completions in einem Durchgang.
+ *
+ * Funktioniert für die vollständige Antwort ("message") ebenso wie für einzelne
+ * SSE-Chunks im Streaming-Modus ("delta"). Ausgewertet wird nur die erste Auswahl
+ * (choices[0]). Zusätzlich werden die Server-Timings gelesen, die llama.cpp unter
+ * "timings" liefert.
+ * Diese Klasse ist nicht instanziierbar.
+ */
+public final class OpenAiJson {
+    // Privater Konstruktor verhindert Instanziierung
+    private OpenAiJson() {}
+
+    private static final int K_CHOICES = 0, K_USAGE = 1, K_ERROR = 2, K_MODEL = 3, K_TIMINGS = 4;
+    private static final byte[][] KEYS = JsonScanner.keys("choices", "usage", "error", "model", "timings");
+
+    private static final int C_MESSAGE = 0, C_DELTA = 1, C_FINISH_REASON = 2, C_TEXT = 3;
+    private static final byte[][] CHOICE_KEYS = JsonScanner.keys("message", "delta", "finish_reason", "text");
+
+    private static final byte[][] CONTENT_KEYS = JsonScanner.keys("content");
+    private static final byte[][] MESSAGE_KEYS = JsonScanner.keys("message");
+
+    private static final int U_PROMPT = 0, U_COMPLETION = 1, U_TOTAL = 2;
+    private static final byte[][] USAGE_KEYS = JsonScanner.keys("prompt_tokens", "completion_tokens", "total_tokens");
+
+    private static final int T_PROMPT_MS = 0, T_PREDICTED_MS = 1;
+    private static final byte[][] TIMING_KEYS = JsonScanner.keys("prompt_ms", "predicted_ms");
+
+    private static final byte[][] DATA_KEYS = JsonScanner.keys("data");
+    private static final byte[][] ID_KEYS = JsonScanner.keys("id");
+
+    /**
+     * Ergebnisfelder einer Antwort bzw. eines SSE-Chunks. Wiederverwendbar über
+     * {@link #clear()}; der Antworttext wird an {@link #content} angehängt.
+     */
+    public static final class Fields {
+        public final StringBuilder content = new StringBuilder();
+        public int contentChars;               // im letzten Chunk angehängte Zeichen
+        public String finishReason;
+        public String error;
+        public String model;
+        public Integer promptTokens;
+        public Integer completionTokens;
+        public Integer totalTokens;
+        public Double promptMs;                // nur llama.cpp
+        public Double predictedMs;             // nur llama.cpp
+
+        /** Setzt alle Felder inklusive des Antworttexts zurück. */
+        public void clear() {
+            content.setLength(0);
+            contentChars = 0;
+            finishReason = error = model = null;
+            promptTokens = completionTokens = totalTokens = null;
+            promptMs = predictedMs = null;
+        }
+    }
+
+    /**
+     * Parst ein JSON-Objekt und überträgt die bekannten Felder nach {@code out}.
+     * Nicht enthaltene Felder behalten ihren bisherigen Wert, sodass mehrere
+     * Chunks nacheinander in dieselben Fields gelesen werden können.
+     *
+     * @param sc wiederverwendbarer Scanner, bereits auf den Bereich gesetzt
+     * @param out Ziel
+     */
+    public static void parse(JsonScanner sc, Fields out) {
+        out.contentChars = 0;
+        sc.beginObject();
+        int k;
+        while ((k = sc.nextKey(KEYS)) != JsonScanner.END) {
+            if (sc.consumeNull()) continue;
+            switch (k) {
+                case K_CHOICES -> choices(sc, out);
+                case K_USAGE -> usage(sc, out);
+                case K_ERROR -> out.error = error(sc);
+                case K_MODEL -> out.model = sc.readString();
+                case K_TIMINGS -> timings(sc, out);
+                default -> sc.skipValue();
+            }
+        }
+    }
+
+    // Nur choices[0]; weitere Auswahlen (n > 1) werden übersprungen
+    private static void choices(JsonScanner sc, Fields out) {
+        sc.beginArray();
+        boolean first = true;
+        while (sc.nextElement()) {
+            if (!first) { sc.skipValue(); continue; }
+            if (sc.consumeNull()) continue;
+            first = false;
+            sc.beginObject();
+            int k;
+            while ((k = sc.nextKey(CHOICE_KEYS)) != JsonScanner.END) {
+                if (sc.consumeNull()) continue;
+                switch (k) {
+                    case C_MESSAGE, C_DELTA -> {
+                        sc.beginObject();
+                        int c;
+                        while ((c = sc.nextKey(CONTENT_KEYS)) != JsonScanner.END) {
+                            // role, tool_calls und Content-Arrays (multimodal) überspringen
+                            if (c == 0 && (sc.peek() == '"' || sc.peek() == 'n')) out.contentChars += sc.appendString(out.content);
+                            else sc.skipValue();
+                        }
+                    }
+                    // Legacy-Format /v1/completions
+                    case C_TEXT -> out.contentChars += sc.appendString(out.content);
+                    case C_FINISH_REASON -> out.finishReason = sc.readString();
+                    default -> sc.skipValue();
+                }
+            }
+        }
+    }
+
+    private static void usage(JsonScanner sc, Fields out) {
+        sc.beginObject();
+        int k;
+        while ((k = sc.nextKey(USAGE_KEYS)) != JsonScanner.END) {
+            if (sc.consumeNull()) continue;
+            switch (k) {
+                case U_PROMPT -> out.promptTokens = (int) sc.readLong();
+                case U_COMPLETION -> out.completionTokens = (int) sc.readLong();
+                case U_TOTAL -> out.totalTokens = (int) sc.readLong();
+                default -> sc.skipValue();
+            }
+        }
+    }
+
+    private static void timings(JsonScanner sc, Fields out) {
+        sc.beginObject();
+        int k;
+        while ((k = sc.nextKey(TIMING_KEYS)) != JsonScanner.END) {
+            if (sc.consumeNull()) continue;
+            switch (k) {
+                case T_PROMPT_MS -> out.promptMs = sc.readDouble();
+                case T_PREDICTED_MS -> out.predictedMs = sc.readDouble();
+                default -> sc.skipValue();
+            }
+        }
+    }
+
+    // "error" ist je nach Server ein Objekt mit "message" oder ein einfacher String
+    private static String error(JsonScanner sc) {
+        if (sc.peek() != '{') {
+            if (sc.peek() == '"') return sc.readString();
+            sc.skipValue();
+            return "error";
+        }
+        sc.beginObject();
+        String message = "error";
+        int k;
+        while ((k = sc.nextKey(MESSAGE_KEYS)) != JsonScanner.END) {
+            if (k == 0 && sc.peek() == '"') message = sc.readString();
+            else sc.skipValue();
+        }
+        return message;
+    }
+
+    /**
+     * Liest die Modell-IDs einer Antwort von /v1/models ({"data": [{"id": ...}, ...]}).
+     *
+     * @param buf UTF-8-Bytes
+     * @return Modell-IDs in der Reihenfolge der Antwort
+     */
+    public static List<String> modelIds(byte[] buf) {
+        List<String> ids = new ArrayList<>();
+        JsonScanner sc = new JsonScanner(buf, 0, buf.length);
+        sc.beginObject();
+        int k;
+        while ((k = sc.nextKey(DATA_KEYS)) != JsonScanner.END) {
+            if (k == JsonScanner.UNKNOWN) { sc.skipValue(); continue; }
+            if (sc.consumeNull()) continue;
+            sc.beginArray();
+            while (sc.nextElement()) {
+                sc.beginObject();
+                int f;
+                while ((f = sc.nextKey(ID_KEYS)) != JsonScanner.END) {
+                    if (f == 0 && sc.peek() == '"') ids.add(sc.readString());
+                    else sc.skipValue();
+                }
+            }
+        }
+        return ids;
+    }
+}
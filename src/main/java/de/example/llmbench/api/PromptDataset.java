@@ -0,0 +1,437 @@
+package de.example.llmbench.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Prompt-Datensätze aus JSONL- oder CSV-Dateien eines lokalen Verzeichnisses.
+ *
+ * Dateien werden gestreamt und nie vollständig geladen: JSONL-Zeilen liest der
+ * JsonScanner direkt auf den Bytes, CSV wird nach RFC 4180 gelesen (Felder in
+ * Anführungszeichen dürfen Kommas und Zeilenumbrüche enthalten). Eine zufällige
+ * Stichprobe entsteht per Reservoir-Sampling in einem Durchgang, sodass nur die
+ * ausgewählten Datensätze im Speicher liegen. Dateien mit der Endung .gz werden
+ * beim Lesen entpackt.
+ *
+ * Formate:
+ * - JSONL (.jsonl, .ndjson): ein Objekt je Zeile mit "prompt" sowie optional "id",
+ *   "expectedKeywords" (bzw. "expected_keywords") und "tags" (Array oder String)
+ * - CSV (.csv): Kopfzeile mit den Spalten prompt, id, expectedKeywords, tags;
+ *   Listen innerhalb einer Zelle durch ';' oder '|' getrennt
+ */
+public final class PromptDataset {
+
+    // Verzeichnis der Datensätze (über Umgebungsvariable konfigurierbar)
+    static final String DIR = System.getenv().getOrDefault("BENCH_DATASET_DIR",
+            Path.of(ResultStore.DATA_DIR, "datasets").toString());
+    // Obergrenze der Datensätze einer Auswahl (begrenzt den Speicherbedarf)
+    static final int MAX_RECORDS = Integer.parseInt(System.getenv().getOrDefault("BENCH_DATASET_MAX_RECORDS", "10000"));
+    // Obergrenze einer hochgeladenen Datei in Bytes (Standard 64 MiB, 0 = unbegrenzt)
+    static final long MAX_BYTES = Long.parseLong(System.getenv().getOrDefault("BENCH_DATASET_MAX_BYTES", "67108864"));
+
+    private static final PromptDataset SHARED = new PromptDataset(Path.of(DIR));
+
+    // Zulässige Dateinamen: keine Pfade, die Endung bestimmt das Format
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]*\\.(jsonl|ndjson|csv)(\\.gz)?");
+
+    private static final int K_PROMPT = 0, K_ID = 1, K_KEYWORDS = 2, K_KEYWORDS_SNAKE = 3, K_TAGS = 4;
+    private static final byte[][] KEYS = JsonScanner.keys("prompt", "id", "expectedKeywords", "expected_keywords", "tags");
+
+    // Trennzeichen von Listen in CSV-Zellen
+    private static final Pattern LIST_SEPARATOR = Pattern.compile("[;|]");
+
+    private final Path dir;
+
+    /**
+     * Datensätze in einem bestimmten Verzeichnis.
+     *
+     * @param dir Verzeichnis (wird beim ersten Upload angelegt)
+     */
+    public PromptDataset(Path dir) { this.dir = dir; }
+
+    /**
+     * Liefert die prozessweit geteilte Instanz für {@code BENCH_DATASET_DIR}.
+     */
+    public static PromptDataset shared() { return SHARED; }
+
+    public Path dir() { return dir; }
+
+    /**
+     * Listet alle Datensatz-Dateien des Verzeichnisses, alphabetisch.
+     */
+    public List<BenchmarkDto.DatasetInfo> list() throws IOException {
+        if (!Files.isDirectory(dir)) return List.of();
+        List<BenchmarkDto.DatasetInfo> out = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path p : files) {
+                if (Files.isRegularFile(p) && NAME.matcher(p.getFileName().toString()).matches()) out.add(info(p, null));
+            }
+        }
+        out.sort(Comparator.comparing(BenchmarkDto.DatasetInfo::name));
+        return out;
+    }
+
+    /**
+     * Beschreibt eine Datensatz-Datei.
+     *
+     * @param name Dateiname
+     * @throws NoSuchFileException falls die Datei fehlt
+     * @throws IllegalArgumentException bei ungültigem Dateinamen
+     */
+    public BenchmarkDto.DatasetInfo info(String name) throws IOException {
+        return info(existing(name), null);
+    }
+
+    /**
+     * Speichert eine Datei unter dem angegebenen Namen. Der Inhalt wird vor dem Ersetzen
+     * vollständig geprüft, sodass eine fehlerhafte Datei keine gültige überschreibt.
+     *
+     * @param name Dateiname, die Endung bestimmt das Format
+     * @param in Inhalt (wird gestreamt)
+     * @return Beschreibung inklusive Anzahl der Datensätze
+     * @throws IllegalArgumentException bei ungültigem Namen oder Inhalt
+     * @throws TooLargeException wenn der Inhalt {@code BENCH_DATASET_MAX_BYTES} übersteigt
+     */
+    public BenchmarkDto.DatasetInfo store(String name, InputStream in) throws IOException {
+        Path target = path(name);
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, ".upload-", ".tmp");
+        try {
+            copy(in, tmp);
+            long[] count = {0};
+            read(tmp, name, r -> { count[0]++; return true; });
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return info(target, count[0]);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // Schreibt den Upload in die temporäre Datei und bricht ab, sobald er MAX_BYTES übersteigt
+    private static void copy(InputStream in, Path tmp) throws IOException {
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            byte[] buf = new byte[64 * 1024];
+            long total = 0;
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                total += n;
+                if (MAX_BYTES > 0 && total > MAX_BYTES) throw new TooLargeException(MAX_BYTES);
+                out.write(buf, 0, n);
+            }
+        }
+    }
+
+    /**
+     * Ein Upload ist größer als {@code BENCH_DATASET_MAX_BYTES}.
+     */
+    public static final class TooLargeException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        TooLargeException(long limit) {
+            super("Dataset exceeds " + limit + " bytes (BENCH_DATASET_MAX_BYTES)");
+        }
+    }
+
+    /**
+     * Löscht eine Datensatz-Datei.
+     *
+     * @return true, falls die Datei existierte
+     */
+    public boolean delete(String name) throws IOException {
+        return Files.deleteIfExists(path(name));
+    }
+
+    /**
+     * Liest alle Datensätze einer Datei nacheinander.
+     *
+     * @param name Dateiname
+     * @param sink erhält jeden Datensatz; false beendet das Lesen vorzeitig
+     * @throws NoSuchFileException falls die Datei fehlt
+     * @throws IllegalArgumentException bei ungültigem Namen oder Inhalt (mit Zeilennummer)
+     */
+    public void forEach(String name, Predicate<BenchmarkDto.DatasetRecord> sink) throws IOException {
+        read(existing(name), name, sink);
+    }
+
+    /**
+     * Wählt Datensätze nach Markierung und Anzahl aus.
+     *
+     * Ohne {@code sample} werden die ersten {@code limit} passenden Datensätze gelesen und
+     * die Datei danach nicht weiter; mit {@code sample} ergibt Reservoir-Sampling eine
+     * gleichverteilte Stichprobe über die ganze Datei (in Dateireihenfolge, sofern nicht
+     * gemischt wird).
+     *
+     * @param q Auswahl
+     * @return ausgewählte Datensätze
+     * @throws NoSuchFileException falls die Datei fehlt
+     * @throws IllegalArgumentException bei ungültiger Auswahl oder mehr als
+     *         BENCH_DATASET_MAX_RECORDS passenden Datensätzen ohne limit
+     */
+    public List<BenchmarkDto.DatasetRecord> select(BenchmarkDto.DatasetQuery q) throws IOException {
+        if (q == null || q.name == null) throw new IllegalArgumentException("Dataset name missing");
+        int limit = q.limit == null ? MAX_RECORDS : q.limit;
+        if (limit < 1 || limit > MAX_RECORDS) {
+            throw new IllegalArgumentException("Dataset limit must be between 1 and " + MAX_RECORDS);
+        }
+        boolean sample = Boolean.TRUE.equals(q.sample);
+        boolean unlimited = q.limit == null;
+        Random rnd = q.seed == null ? new Random() : new Random(q.seed);
+
+        List<BenchmarkDto.DatasetRecord> out = new ArrayList<>(Math.min(limit, 1024));
+        long[] seen = {0};
+        boolean[] truncated = {false};
+        forEach(q.name, r -> {
+            if (q.tag != null && (r.tags() == null || !r.tags().contains(q.tag))) return true;
+            long n = seen[0]++;
+            if (out.size() < limit) {
+                out.add(r);
+                return true;
+            }
+            if (!sample) {
+                truncated[0] = unlimited;
+                return false;
+            }
+            // Algorithmus R: der n-te Datensatz ersetzt mit Wahrscheinlichkeit limit/(n+1) einen zufälligen
+            long j = rnd.nextLong(n + 1);
+            if (j < limit) out.set((int) j, r);
+            return true;
+        });
+        if (truncated[0]) {
+            throw new IllegalArgumentException("Dataset " + q.name + " has more than " + MAX_RECORDS
+                    + " records; set limit or sample");
+        }
+        if (sample) out.sort(Comparator.comparingLong(BenchmarkDto.DatasetRecord::line));
+        if (Boolean.TRUE.equals(q.shuffle)) Collections.shuffle(out, rnd);
+        return out;
+    }
+
+    // Pfad einer Datei im Verzeichnis; nur einfache Dateinamen mit bekannter Endung
+    private Path path(String name) {
+        if (name == null || !NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid dataset name (expected *.jsonl, *.ndjson or *.csv, optionally .gz)");
+        }
+        return dir.resolve(name);
+    }
+
+    private Path existing(String name) throws NoSuchFileException {
+        Path p = path(name);
+        if (!Files.isRegularFile(p)) throw new NoSuchFileException(name);
+        return p;
+    }
+
+    private static BenchmarkDto.DatasetInfo info(Path p, Long records) throws IOException {
+        String name = p.getFileName().toString();
+        return new BenchmarkDto.DatasetInfo(name, csv(name) ? "csv" : "jsonl", gzip(name), Files.size(p),
+                Files.getLastModifiedTime(p).toInstant().toString(), records);
+    }
+
+    private static boolean gzip(String name) { return name.endsWith(".gz"); }
+
+    private static boolean csv(String name) {
+        return name.endsWith(".csv") || name.endsWith(".csv.gz");
+    }
+
+    private static void read(Path p, String name, Predicate<BenchmarkDto.DatasetRecord> sink) throws IOException {
+        try (InputStream raw = Files.newInputStream(p);
+             InputStream in = gzip(name) ? new GZIPInputStream(raw, 64 * 1024) : raw) {
+            if (csv(name)) readCsv(new InputStreamReader(in, StandardCharsets.UTF_8), sink);
+            else readJsonl(in, sink);
+        }
+    }
+
+    /**
+     * Liest JSONL blockweise und parst jede vollständige Zeile direkt auf dem Zeilenpuffer.
+     */
+    private static void readJsonl(InputStream in, Predicate<BenchmarkDto.DatasetRecord> sink) throws IOException {
+        JsonScanner sc = new JsonScanner();
+        byte[] buf = new byte[64 * 1024];
+        byte[] line = new byte[4096];
+        int len = 0;
+        long lineNo = 0;
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            int i = 0;
+            while (i < n) {
+                int nl = i;
+                while (nl < n && buf[nl] != '\n') nl++;
+                int chunk = nl - i;
+                if (len + chunk > line.length) line = Arrays.copyOf(line, Math.max(line.length * 2, len + chunk));
+                System.arraycopy(buf, i, line, len, chunk);
+                len += chunk;
+                i = nl;
+                if (nl == n) break;                                 // Zeile geht im nächsten Block weiter
+                i++;
+                if (!jsonlLine(sc, line, len, ++lineNo, sink)) return;
+                len = 0;
+            }
+        }
+        if (len > 0) jsonlLine(sc, line, len, ++lineNo, sink);
+    }
+
+    private static boolean jsonlLine(JsonScanner sc, byte[] line, int len, long lineNo,
+                                     Predicate<BenchmarkDto.DatasetRecord> sink) {
+        int off = 0;
+        if (lineNo == 1 && len >= 3 && line[0] == (byte) 0xEF && line[1] == (byte) 0xBB && line[2] == (byte) 0xBF) off = 3;  // BOM
+        if (len > off && line[len - 1] == '\r') len--;
+        if (!sc.reset(line, off, len - off).hasMore()) return true;   // Leerzeile
+
+        String id = null, prompt = null;
+        List<String> keywords = null, tags = null;
+        try {
+            sc.beginObject();
+            int k;
+            while ((k = sc.nextKey(KEYS)) != JsonScanner.END) {
+                if (sc.consumeNull()) continue;
+                switch (k) {
+                    case K_PROMPT -> prompt = sc.readString();
+                    case K_ID -> id = sc.peek() == '"' ? sc.readString() : Long.toString(sc.readLong());
+                    case K_KEYWORDS, K_KEYWORDS_SNAKE -> keywords = strings(sc);
+                    case K_TAGS -> tags = strings(sc);
+                    default -> sc.skipValue();
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Line " + lineNo + ": " + e.getMessage());
+        }
+        if (prompt == null || prompt.isBlank()) throw new IllegalArgumentException("Line " + lineNo + ": missing prompt");
+        return sink.test(new BenchmarkDto.DatasetRecord(id, prompt, keywords, tags, lineNo));
+    }
+
+    // String-Array oder einzelner String
+    private static List<String> strings(JsonScanner sc) {
+        if (sc.peek() == '"') return List.of(sc.readString());
+        List<String> out = new ArrayList<>();
+        sc.beginArray();
+        while (sc.nextElement()) {
+            String s = sc.readString();
+            if (s != null) out.add(s);
+        }
+        return out;
+    }
+
+    /**
+     * Liest CSV nach RFC 4180 zeichenweise über einen Puffer. Die erste Zeile ist die Kopfzeile.
+     */
+    private static void readCsv(Reader in, Predicate<BenchmarkDto.DatasetRecord> sink) throws IOException {
+        final int PLAIN = 0, QUOTED = 1, QUOTE_IN_QUOTED = 2;
+        char[] buf = new char[16 * 1024];
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int[] columns = null;
+        int state = PLAIN;
+        long line = 1, recordLine = 1;
+        boolean first = true;
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            for (int i = 0; i < n; i++) {
+                char c = buf[i];
+                if (first) {
+                    first = false;
+                    if (c == '\uFEFF') continue;                        // BOM
+                }
+                if (state == QUOTED) {
+                    if (c == '"') state = QUOTE_IN_QUOTED;
+                    else {
+                        if (c == '\n') line++;
+                        field.append(c);
+                    }
+                    continue;
+                }
+                if (state == QUOTE_IN_QUOTED) {
+                    state = PLAIN;
+                    if (c == '"') {                                     // "" steht für ein Anführungszeichen
+                        field.append('"');
+                        state = QUOTED;
+                        continue;
+                    }
+                }
+                switch (c) {
+                    case ',' -> {
+                        fields.add(field.toString());
+                        field.setLength(0);
+                    }
+                    case '\n' -> {
+                        fields.add(field.toString());
+                        field.setLength(0);
+                        if (columns == null) columns = csvHeader(fields);
+                        else if (!csvRecord(fields, columns, recordLine, sink)) return;
+                        fields.clear();
+                        recordLine = ++line;
+                    }
+                    case '\r' -> { }
+                    case '"' -> {
+                        if (field.isEmpty()) state = QUOTED;
+                        else field.append(c);
+                    }
+                    default -> field.append(c);
+                }
+            }
+        }
+        if (state == QUOTED) throw new IllegalArgumentException("Line " + recordLine + ": unterminated quote");
+        if (!field.isEmpty() || !fields.isEmpty()) {
+            fields.add(field.toString());
+            if (columns == null) csvHeader(fields);
+            else csvRecord(fields, columns, recordLine, sink);
+        }
+    }
+
+    // Spaltenindizes für prompt, id, expectedKeywords, tags (-1, falls nicht vorhanden)
+    private static int[] csvHeader(List<String> header) {
+        int[] cols = {-1, -1, -1, -1};
+        for (int i = 0; i < header.size(); i++) {
+            switch (header.get(i).trim().toLowerCase(Locale.ROOT)) {
+                case "prompt" -> cols[0] = i;
+                case "id" -> cols[1] = i;
+                case "expectedkeywords", "expected_keywords", "keywords" -> cols[2] = i;
+                case "tags", "tag" -> cols[3] = i;
+                default -> { }
+            }
+        }
+        if (cols[0] < 0) throw new IllegalArgumentException("Line 1: CSV header without column \"prompt\"");
+        return cols;
+    }
+
+    private static boolean csvRecord(List<String> fields, int[] cols, long line,
+                                     Predicate<BenchmarkDto.DatasetRecord> sink) {
+        if (fields.size() == 1 && fields.get(0).isBlank()) return true;   // Leerzeile
+        String prompt = cell(fields, cols[0]);
+        if (prompt == null) throw new IllegalArgumentException("Line " + line + ": missing prompt");
+        return sink.test(new BenchmarkDto.DatasetRecord(cell(fields, cols[1]), prompt,
+                list(cell(fields, cols[2])), list(cell(fields, cols[3])), line));
+    }
+
+    private static String cell(List<String> fields, int col) {
+        if (col < 0 || col >= fields.size()) return null;
+        String s = fields.get(col);
+        return s.isBlank() ? null : s;
+    }
+
+    private static List<String> list(String s) {
+        if (s == null) return null;
+        List<String> out = new ArrayList<>();
+        for (String part : LIST_SEPARATOR.split(s)) {
+            String t = part.trim();
+            if (!t.isEmpty()) out.add(t);
+        }
+        return out.isEmpty() ? null : out;
+    }
+}
@@ -0,0 +1,74 @@
+package de.example.llmbench.api;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Verzeichnis der verfügbaren LLM-Provider nach Name.
+ *
+ * Enthält Ollama und OpenAI-kompatible Server sowie alle Implementierungen von
+ * {@link LlmProvider}, die per ServiceLoader auf dem Klassenpfad gefunden werden.
+ * Ein später registrierter Provider ersetzt einen gleichnamigen.
+ */
+public final class ProviderRegistry {
+
+    private static final Logger LOG = Logger.getLogger(ProviderRegistry.class.getName());
+
+    private static final ProviderRegistry SHARED = new ProviderRegistry();
+
+    private final Map<String, LlmProvider> providers = new ConcurrentHashMap<>();
+
+    private ProviderRegistry() {
+        register(new OllamaClient());
+        register(new OpenAiClient());
+        // Fehlende oder unpassende Klassen in META-INF/services melden sich schon beim Iterieren
+        Iterator<LlmProvider> it = ServiceLoader.load(LlmProvider.class, LlmProvider.class.getClassLoader()).iterator();
+        while (true) {
+            try {
+                if (!it.hasNext()) break;
+                register(it.next());
+            } catch (ServiceConfigurationError e) {
+                // Defekte Erweiterung: die eingebauten und übrigen Provider bleiben nutzbar
+                LOG.log(Level.WARNING, "LlmProvider skipped", e);
+            }
+        }
+    }
+
+    /**
+     * Liefert das prozessweit geteilte Verzeichnis.
+     */
+    public static ProviderRegistry shared() { return SHARED; }
+
+    /**
+     * Registriert einen Provider unter seinem Namen.
+     *
+     * @param provider Implementierung
+     */
+    public void register(LlmProvider provider) {
+        providers.put(provider.name().toLowerCase(Locale.ROOT), provider);
+    }
+
+    /**
+     * Sucht einen Provider; ohne Namen wird Ollama verwendet.
+     *
+     * @param name Name aus BenchRequest.provider (Groß-/Kleinschreibung egal) oder null
+     * @return Provider oder null, falls unbekannt
+     */
+    public LlmProvider get(String name) {
+        return providers.get(name == null ? BenchmarkModels.PROVIDER_OLLAMA : name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Namen aller registrierten Provider, alphabetisch.
+     */
+    public List<String> names() {
+        return providers.keySet().stream().sorted().toList();
+    }
+}
@@ -1,6 +1,9 @@
 package de.example.llmbench.api;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 /**
  * Dienstklasse zur Bewertung der Antwortqualität anhand erwarteter Schlüsselwörter.
@@ -14,39 +17,90 @@ public final class QualityUtil {
 
     /**
      * Bewertet die Qualität eines Textes anhand einer Liste von Schlüsselwörtern.
+     * Für viele Texte mit denselben Schlüsselwörtern den Matcher einmal über
+     * {@link KeywordMatcher#compile} bauen und wiederverwenden.
      * 
      * @param text Antworttext
      * @param keywords Erwartete Schlüsselwörter
      * @return Qualitätswert zwischen 0.0 und 1.0 oder null, falls nicht bewertbar
      */
     public static Double scoreByKeywords(String text, List<String> keywords) {
-        if (text == null || text.isBlank() || keywords == null || keywords.isEmpty()) return null;
-        String norm = normalize(text);
-        int hit = 0;
-        int total = 0;
-        for (String kw : keywords) {
-            if (kw == null || kw.isBlank()) continue;
-            total++;
-            String k = normalize(kw);
-            if (k.isEmpty()) continue;
-            if (norm.contains(k)) hit++;
+        if (text == null || text.isBlank()) return null;
+        KeywordMatcher m = KeywordMatcher.compile(keywords);
+        return m == null ? null : m.score(text);
+    }
+
+    /**
+     * Berechnet die Jaccard-Ähnlichkeit der Wortmengen zweier Texte.
+     * 
+     * @param a erster Text
+     * @param b zweiter Text
+     * @return Ähnlichkeit zwischen 0.0 und 1.0 (zwei leere Texte gelten als gleich)
+     */
+    public static double jaccard(String a, String b) {
+        Set<String> wa = words(a);
+        Set<String> wb = words(b);
+        if (wa.isEmpty() && wb.isEmpty()) return 1.0;
+        int inter = 0;
+        for (String w : wa) if (wb.contains(w)) inter++;
+        return inter / (double) (wa.size() + wb.size() - inter);
+    }
+
+    /**
+     * Bewertet die Konsistenz wiederholter Antworten als mittlere Jaccard-Ähnlichkeit
+     * benachbarter Texte. Leere Texte werden ignoriert. Paarweise über alle Antworten
+     * siehe {@link TextSimilarity#consistency}.
+     * 
+     * @param texts Antworttexte in Ausführungsreihenfolge
+     * @return Konsistenz zwischen 0.0 und 1.0 oder null bei weniger als zwei Texten
+     */
+    public static Double consistency(List<String> texts) {
+        String prev = null;
+        double sum = 0;
+        int pairs = 0;
+        for (String t : texts) {
+            if (t == null || t.isBlank()) continue;
+            if (prev != null) { sum += jaccard(prev, t); pairs++; }
+            prev = t;
         }
-        if (total == 0) return null;
-        return Math.max(0.0, Math.min(1.0, hit / (double) total));
+        return pairs == 0 ? null : sum / pairs;
+    }
+
+    // Wortmenge eines normalisierten Textes
+    private static Set<String> words(String s) {
+        Set<String> out = new HashSet<>();
+        if (s == null) return out;
+        for (String w : normalize(s).split(" ")) if (!w.isEmpty()) out.add(w);
+        return out;
     }
 
     /**
-     * Normalisiert einen String für den Vergleich (Kleinschreibung, Whitespace vereinheitlichen).
+     * Normalisiert einen String für den Vergleich (Kleinschreibung, Whitespace-Folgen zu
+     * einem Leerzeichen, am Rand wie {@link String#trim()} ohne Zeichen bis U+0020, also auch
+     * ohne Steuerzeichen). Ein Durchlauf ohne Regex.
      * 
      * @param s Eingabestring
      * @return Normalisierter String
      */
-    private static String normalize(String s) {
-        return s.toLowerCase()
-                .replace('\n', ' ')
-                .replace('\r', ' ')
-                .replace('\t', ' ')
-                .replaceAll("\\s+", " ")
-                .trim();
+    static String normalize(String s) {
+        String lower = s.toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(lower.length());
+        boolean space = false;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (isSpace(c)) {
+                space = sb.length() > 0;
+                continue;
+            }
+            if (space) { sb.append(' '); space = false; }
+            sb.append(c);
+        }
+        // Steuerzeichen am Rand entfernt trim() wie die frühere Regex-Variante
+        return sb.toString().trim();
+    }
+
+    // Whitespace wie \s in Regex: Leerzeichen, \t, \n, \u000B, \f, \r
+    static boolean isSpace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
     }
 }
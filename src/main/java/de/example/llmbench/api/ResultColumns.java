@@ -0,0 +1,430 @@
+package de.example.llmbench.api;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Kompakte, spaltenweise Ablage der Einzelergebnisse eines Laufs im Speicher
+ * (Anfrage mit {@code compact: true}) – für Dauerläufe mit sehr vielen Läufen.
+ *
+ * Statt eines SingleRunResult je Lauf (Objekt mit geboxten Zahlen und Antworttext, schnell
+ * mehrere KB) liegen die Werte in primitiven Spalten zu je {@link #CHUNK} Zeilen:
+ * Zeitpunkte als long, Kennzahlen in ms als float (NaN = nicht gesetzt), Token-Zahlen als
+ * int, Provider/Modell, Knoten und Fehler als IDs eines Wörterbuchs – rund 90 Byte je Lauf.
+ * Der Antworttext wird je nach {@link TextMode} verworfen, nur als 64-Bit-Hash behalten
+ * oder in eine temporäre Datei ausgelagert. Abgeleitete Werte (z.B. overheadMs) werden nicht
+ * gespeichert, sondern beim Lesen neu berechnet.
+ *
+ * Zeilen stehen in Abschlussreihenfolge. StatsUtil und die Exporte lesen direkt aus den
+ * Spalten; {@link #forEach} erzeugt Einzelergebnisse nur vorübergehend, Zeile für Zeile.
+ * Schreiben und Lesen sind threadsicher. Im Modus SPILL muss die Ablage geschlossen werden
+ * (löscht die Datei).
+ */
+public final class ResultColumns implements AutoCloseable {
+
+    /** Umgang mit dem Antworttext. */
+    public enum TextMode {
+        /** Text verwerfen (Standard). */
+        DROP,
+        /** Nur einen 64-Bit-Hash behalten (z.B. für den Anteil identischer Antworten). */
+        HASH,
+        /** Text in eine temporäre Datei auslagern (z.B. für Konsistenz oder NDJSON mit Text). */
+        SPILL;
+
+        /**
+         * Liest den Modus aus der Anfrage ("drop", "hash", "spill"; null = DROP).
+         *
+         * @throws IllegalArgumentException bei unbekanntem Modus
+         */
+        public static TextMode parse(String s) {
+            if (s == null || s.isBlank()) return DROP;
+            try {
+                return valueOf(s.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown texts mode: " + s + " (drop, hash, spill)");
+            }
+        }
+    }
+
+    /** Zeilen je Abschnitt; neue Abschnitte werden angehängt statt Spalten umzukopieren. */
+    static final int CHUNK = 1 << 13;
+
+    // Kennzahlen in der Reihenfolge der MetricSummary-Felder von Aggregates (siehe metric)
+    static final int METRICS = 13;
+
+    // Wörterbuch: Fehlertexte werden ab dieser Größe auf die Fehlerart gekürzt
+    private static final int MAX_STRINGS = 4096;
+    private static final int NO_INT = Integer.MIN_VALUE;
+    private static final int NONE = -1;
+    private static final byte F_SUCCESS = 1, F_TEXT = 2;
+
+    // Ein Abschnitt aller Spalten
+    private static final class Chunk {
+        final long[] start = new long[CHUNK], end = new long[CHUNK], intended = new long[CHUNK];
+        final float[] headers = new float[CHUNK];
+        final short[] status = new short[CHUNK];
+        final int[] inTok = new int[CHUNK], outTok = new int[CHUNK], totalTok = new int[CHUNK], bytes = new int[CHUNK];
+        final float[] quality = new float[CHUNK], ttft = new float[CHUNK], itl = new float[CHUNK], tps = new float[CHUNK],
+                load = new float[CHUNK], promptEval = new float[CHUNK], eval = new float[CHUNK], serverTotal = new float[CHUNK],
+                queueWait = new float[CHUNK];
+        final int[] origin = new int[CHUNK], node = new int[CHUNK], error = new int[CHUNK];
+        final byte[] flags = new byte[CHUNK];
+        // HASH: Hash des Texts; SPILL: Position in der Datei
+        final long[] textRef;
+        final int[] textLen;
+
+        Chunk(TextMode mode) {
+            textRef = mode == TextMode.DROP ? null : new long[CHUNK];
+            textLen = mode == TextMode.SPILL ? new int[CHUNK] : null;
+        }
+    }
+
+    private final TextMode mode;
+    private Chunk[] chunks = new Chunk[0];
+    private volatile int size;
+    private long firstNanos = Long.MAX_VALUE, lastNanos = Long.MIN_VALUE;
+
+    // Wörterbuch für Provider/Modell-Paare, Knoten und Fehler
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final List<String[]> origins = new ArrayList<>();
+    private final Map<String, Integer> originIds = new HashMap<>();
+
+    // Auslagerungsdatei für SPILL
+    private final FileChannel spill;
+    private long spillPos;
+
+    /**
+     * Erzeugt eine leere Ablage.
+     *
+     * @param mode Umgang mit dem Antworttext
+     * @throws UncheckedIOException wenn die Auslagerungsdatei nicht angelegt werden kann
+     */
+    public ResultColumns(TextMode mode) {
+        this.mode = mode;
+        if (mode == TextMode.SPILL) {
+            try {
+                Path file = Files.createTempFile("llmbench-texts-", ".bin");
+                spill = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.DELETE_ON_CLOSE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            spill = null;
+        }
+    }
+
+    /** Umgang mit dem Antworttext. */
+    public TextMode textMode() { return mode; }
+
+    /** Anzahl gespeicherter Zeilen. */
+    public int size() { return size; }
+
+    /**
+     * Belegter Speicher der Spalten in Bytes (ohne Wörterbuch und ausgelagerte Texte).
+     */
+    public synchronized long memoryBytes() {
+        long perRow = 3 * 8 + 4 + 2 + 4 * 4 + 9 * 4 + 3 * 4 + 1
+                + (mode == TextMode.DROP ? 0 : 8) + (mode == TextMode.SPILL ? 4 : 0);
+        return (long) chunks.length * CHUNK * perRow;
+    }
+
+    /**
+     * Hängt ein Ergebnis an.
+     *
+     * @param r Einzelergebnis
+     * @param quality Qualitätswert oder null; überschreibt den Wert aus r (spart dort eine Kopie)
+     */
+    public synchronized void add(BenchmarkDto.SingleRunResult r, Double quality) {
+        int i = size;
+        if (i >> 13 == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length + 1);
+            chunks[chunks.length - 1] = new Chunk(mode);
+        }
+        Chunk c = chunks[i >> 13];
+        int o = i & (CHUNK - 1);
+        c.start[o] = r.startNanos();
+        c.end[o] = r.endNanos();
+        c.intended[o] = r.intendedStartNanos() != null ? r.intendedStartNanos() : Long.MIN_VALUE;
+        c.headers[o] = f(r.headersMs());
+        c.status[o] = (short) r.httpStatus();
+        c.inTok[o] = orNone(r.inputTokens());
+        c.outTok[o] = orNone(r.outputTokens());
+        c.totalTok[o] = orNone(r.totalTokens());
+        c.bytes[o] = orNone(r.responseBytes());
+        c.quality[o] = f(quality != null ? quality : r.quality());
+        c.ttft[o] = f(r.ttftMs());
+        c.itl[o] = f(r.itlMs());
+        c.tps[o] = f(r.tokensPerSec());
+        c.load[o] = f(r.loadMs());
+        c.promptEval[o] = f(r.promptEvalMs());
+        c.eval[o] = f(r.evalMs());
+        c.serverTotal[o] = f(r.serverTotalMs());
+        c.queueWait[o] = f(r.queueWaitMs());
+        c.origin[o] = origin(r.provider(), r.model());
+        c.node[o] = id(r.node());
+        c.error[o] = r.error() == null ? NONE
+                : id(strings.size() < MAX_STRINGS ? r.error() : ResultStore.errorKind(r.httpStatus(), r.error()));
+        byte flags = r.success() ? F_SUCCESS : 0;
+        String text = r.text();
+        // Leere Antworten zählen wie bei TextSimilarity#consistency nicht als Text
+        if (text != null && mode != TextMode.DROP && !text.isBlank()) {
+            flags |= F_TEXT;
+            if (mode == TextMode.HASH) c.textRef[o] = ResultStore.hash(text);
+            else spill(c, o, text);
+        }
+        c.flags[o] = flags;
+        firstNanos = Math.min(firstNanos, r.intendedStartNanos() != null ? r.intendedStartNanos() : r.startNanos());
+        lastNanos = Math.max(lastNanos, r.endNanos());
+        size = i + 1;
+    }
+
+    private void spill(Chunk c, int o, String text) {
+        byte[] b = text.getBytes(StandardCharsets.UTF_8);
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(b);
+            long pos = spillPos;
+            while (buf.hasRemaining()) pos += spill.write(buf, pos);
+            c.textRef[o] = spillPos;
+            c.textLen[o] = b.length;
+            spillPos = pos;
+        } catch (IOException e) {
+            // Text geht verloren, die Kennzahlen bleiben erhalten
+            c.textLen[o] = NONE;
+        }
+    }
+
+    /**
+     * Liefert die Ergebnisse nacheinander als (kurzlebige) Einzelergebnisse; die Texte nur
+     * im Modus SPILL. Zeilen, die während des Durchlaufs hinzukommen, werden nicht mehr geliefert.
+     *
+     * @param onResult Empfänger
+     */
+    public void forEach(Consumer<BenchmarkDto.SingleRunResult> onResult) {
+        int n = size;
+        for (int i = 0; i < n; i++) onResult.accept(get(i));
+    }
+
+    /**
+     * Baut das Einzelergebnis einer Zeile.
+     *
+     * @param i Zeile (0 bis size - 1)
+     */
+    public BenchmarkDto.SingleRunResult get(int i) {
+        Chunk c;
+        String[] pm;
+        String node, error;
+        synchronized (this) {
+            c = chunk(i);
+            pm = origins.get(c.origin[i & (CHUNK - 1)]);
+            node = string(c.node[i & (CHUNK - 1)]);
+            error = string(c.error[i & (CHUNK - 1)]);
+        }
+        int o = i & (CHUNK - 1);
+        long start = c.start[o];
+        return BenchmarkDto.SingleRunResult.builder(pm[0], pm[1])
+                .node(node)
+                .start(start).end(c.end[o])
+                .intendedStart(c.intended[o] != Long.MIN_VALUE ? c.intended[o] : null)
+                .httpStatus(c.status[o])
+                .success((c.flags[o] & F_SUCCESS) != 0)
+                .error(error)
+                .tokens(orNull(c.inTok[o]), orNull(c.outTok[o]), orNull(c.totalTok[o]))
+                .responseBytes(orNull(c.bytes[o]))
+                .text(mode == TextMode.SPILL ? text(i) : null)
+                .quality(orNull(c.quality[o]))
+                .streaming(orNull(c.ttft[o]), orNull(c.itl[o]), orNull(c.tps[o]))
+                .serverTimings(orNull(c.load[o]), orNull(c.promptEval[o]), orNull(c.eval[o]), orNull(c.serverTotal[o]))
+                .headers(Float.isNaN(c.headers[o]) ? null : start + Math.round(c.headers[o] * 1_000_000.0))
+                .queueWait(orNull(c.queueWait[o]))
+                .build();
+    }
+
+    /**
+     * Antworttext einer Zeile (nur im Modus SPILL, sonst null).
+     */
+    public String text(int i) {
+        if (mode != TextMode.SPILL) return null;
+        long pos;
+        int len;
+        synchronized (this) {
+            Chunk c = chunk(i);
+            int o = i & (CHUNK - 1);
+            if ((c.flags[o] & F_TEXT) == 0 || c.textLen[o] < 0) return null;
+            pos = c.textRef[o];
+            len = c.textLen[o];
+        }
+        ByteBuffer buf = ByteBuffer.allocate(len);
+        try {
+            while (buf.hasRemaining()) {
+                if (spill.read(buf, pos + buf.position()) < 0) return null;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return new String(buf.array(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Antworttexte aller Zeilen als Liste, die erst beim Zugriff aus der Datei liest
+     * (z.B. für TextSimilarity); außerhalb von SPILL sind alle Einträge null.
+     */
+    public List<String> texts() {
+        int n = size;
+        return new AbstractList<>() {
+            @Override public String get(int i) { return text(i); }
+            @Override public int size() { return n; }
+        };
+    }
+
+    /**
+     * Hashes der Antworttexte im Modus HASH.
+     *
+     * @return {Hashes, Zeilen} aller Zeilen mit Text oder null außerhalb von HASH
+     */
+    public synchronized long[][] textHashes() {
+        if (mode != TextMode.HASH) return null;
+        long[] hashes = new long[size], rows = new long[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            Chunk c = chunks[i >> 13];
+            int o = i & (CHUNK - 1);
+            if ((c.flags[o] & F_TEXT) == 0) continue;
+            hashes[n] = c.textRef[o];
+            rows[n++] = i;
+        }
+        return new long[][] { Arrays.copyOf(hashes, n), Arrays.copyOf(rows, n) };
+    }
+
+    /** Frühester (geplanter) Start aller Zeilen (System.nanoTime). */
+    public synchronized long firstStartNanos() { return firstNanos; }
+
+    /** Spätestes Ende aller Zeilen (System.nanoTime). */
+    public synchronized long lastEndNanos() { return lastNanos; }
+
+    // --- Direkter Spaltenzugriff für StatsUtil (ohne Einzelergebnisse) ---
+
+    /** Latenz ab geplantem Start in ms wie SingleRunResult#latencyMs. */
+    double latencyMs(int i) {
+        Chunk c = chunk(i);
+        int o = i & (CHUNK - 1);
+        long from = c.intended[o] != Long.MIN_VALUE ? c.intended[o] : c.start[o];
+        return (c.end[o] - from) / 1_000_000.0;
+    }
+
+    /** (Geplanter) Start einer Zeile für den Durchsatz. */
+    long startFrom(int i) {
+        Chunk c = chunk(i);
+        int o = i & (CHUNK - 1);
+        return c.intended[o] != Long.MIN_VALUE ? c.intended[o] : c.start[o];
+    }
+
+    long endNanos(int i) { return chunk(i).end[i & (CHUNK - 1)]; }
+
+    /** Knoten-ID einer Zeile oder -1. */
+    int nodeId(int i) { return chunk(i).node[i & (CHUNK - 1)]; }
+
+    /** Name zu einer Knoten-ID. */
+    synchronized String nodeName(int id) { return string(id); }
+
+    /**
+     * Kennzahl m einer Zeile (NaN, falls nicht gesetzt) in der Reihenfolge ttftMs, itlMs,
+     * tokensPerSec, loadMs, promptEvalMs, evalMs, serverTotalMs, promptTokensPerSec,
+     * evalTokensPerSec, overheadMs, headersMs, bodyMs, queueWaitMs; abgeleitete Werte wie im Builder.
+     */
+    double metric(int i, int m) {
+        Chunk c = chunk(i);
+        int o = i & (CHUNK - 1);
+        return switch (m) {
+            case 0 -> c.ttft[o];
+            case 1 -> c.itl[o];
+            case 2 -> c.tps[o];
+            case 3 -> c.load[o];
+            case 4 -> c.promptEval[o];
+            case 5 -> c.eval[o];
+            case 6 -> c.serverTotal[o];
+            case 7 -> perSec(c.inTok[o], c.promptEval[o]);
+            case 8 -> perSec(c.outTok[o], c.eval[o]);
+            case 9 -> Float.isNaN(c.serverTotal[o]) || c.end[o] <= c.start[o] ? Double.NaN
+                    : (c.end[o] - c.start[o]) / 1_000_000.0 - c.serverTotal[o];
+            case 10 -> c.headers[o];
+            case 11 -> {
+                if (Float.isNaN(c.headers[o])) yield Double.NaN;
+                double body = (c.end[o] - c.start[o]) / 1_000_000.0 - c.headers[o];
+                yield body < 0 ? Double.NaN : body;
+            }
+            case 12 -> c.queueWait[o];
+            default -> throw new IllegalArgumentException("metric " + m);
+        };
+    }
+
+    // Abschnitt einer Zeile; das Array wird nur unter dem Monitor ersetzt, Abschnitte bleiben gleich
+    private Chunk chunk(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException(i);
+        Chunk[] cs;
+        synchronized (this) { cs = chunks; }
+        return cs[i >> 13];
+    }
+
+    private static double perSec(int tokens, float ms) {
+        return tokens == NO_INT || tokens <= 0 || Float.isNaN(ms) || ms <= 0 ? Double.NaN : tokens / (ms / 1000.0);
+    }
+
+    // ID eines Provider/Modell-Paars (nur im Monitor aufrufen)
+    private int origin(String provider, String model) {
+        String key = provider + '\u0000' + model;
+        Integer id = originIds.get(key);
+        if (id != null) return id;
+        originIds.put(key, origins.size());
+        origins.add(new String[] { provider, model });
+        return origins.size() - 1;
+    }
+
+    // ID eines Strings im Wörterbuch (nur im Monitor aufrufen)
+    private int id(String s) {
+        if (s == null) return NONE;
+        Integer id = stringIds.get(s);
+        if (id != null) return id;
+        stringIds.put(s, strings.size());
+        strings.add(s);
+        return strings.size() - 1;
+    }
+
+    private String string(int id) { return id == NONE ? null : strings.get(id); }
+
+    private static float f(Double v) { return v == null ? Float.NaN : v.floatValue(); }
+
+    private static int orNone(Integer v) { return v == null ? NO_INT : v; }
+
+    private static Integer orNull(int v) { return v == NO_INT ? null : v; }
+
+    private static Double orNull(float v) { return Float.isNaN(v) ? null : (double) v; }
+
+    /**
+     * Löscht die Auslagerungsdatei (SPILL); die Kennzahlen bleiben lesbar.
+     */
+    @Override
+    public void close() {
+        if (spill == null) return;
+        try {
+            spill.close();
+        } catch (IOException e) {
+            // Datei wird beim Schließen bzw. Beenden gelöscht
+        }
+    }
+}
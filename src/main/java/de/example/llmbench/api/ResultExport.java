@@ -0,0 +1,185 @@
+package de.example.llmbench.api;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Zeilenweiser Export von Einzelergebnissen als CSV oder NDJSON.
+ *
+ * Alle Methoden hängen an einen wiederverwendbaren StringBuilder an und kommen ohne
+ * String.format aus, damit auch sehr große Läufe Zeile für Zeile geschrieben werden
+ * können, ohne das Gesamtergebnis im Speicher aufzubauen.
+ * Diese Klasse ist nicht instanziierbar.
+ */
+public final class ResultExport {
+    // Privater Konstruktor verhindert Instanziierung
+    private ResultExport() {}
+
+    /** Content-Type für NDJSON. */
+    public static final String NDJSON = "application/x-ndjson";
+
+    /** Kopfzeile des CSV-Exports. */
+    public static final String CSV_HEADER =
+            "provider,model,node,httpStatus,success,durationMs,latencyMs,inputTokens,outputTokens,totalTokens," +
+            "responseBytes,ttftMs,itlMs,tokensPerSec,loadMs,promptEvalMs,evalMs,serverTotalMs," +
+            "promptTokensPerSec,evalTokensPerSec,overheadMs,headersMs,bodyMs,queueWaitMs,quality,error\n";
+
+    /**
+     * Hängt eine CSV-Zeile (inkl. Zeilenumbruch) an.
+     *
+     * @param sb Ziel
+     * @param r Einzelergebnis
+     * @param fallbackModel Modell aus der Anfrage, falls das Ergebnis keines trägt
+     */
+    public static void appendCsv(StringBuilder sb, BenchmarkDto.SingleRunResult r, String fallbackModel) {
+        csvField(sb, r.provider()).append(',');
+        csvField(sb, r.model() != null ? r.model() : fallbackModel).append(',');
+        csvField(sb, r.node()).append(',');
+        sb.append(r.httpStatus()).append(',')
+          .append(r.success()).append(',');
+        fixed1(sb, r.durationMs()).append(',');
+        fixed1(sb, r.latencyMs()).append(',');
+        num(sb, r.inputTokens()).append(',');
+        num(sb, r.outputTokens()).append(',');
+        num(sb, r.totalTokens()).append(',');
+        num(sb, r.responseBytes()).append(',');
+        fixed1(sb, r.ttftMs()).append(',');
+        fixed1(sb, r.itlMs()).append(',');
+        fixed1(sb, r.tokensPerSec()).append(',');
+        fixed1(sb, r.loadMs()).append(',');
+        fixed1(sb, r.promptEvalMs()).append(',');
+        fixed1(sb, r.evalMs()).append(',');
+        fixed1(sb, r.serverTotalMs()).append(',');
+        fixed1(sb, r.promptTokensPerSec()).append(',');
+        fixed1(sb, r.evalTokensPerSec()).append(',');
+        fixed1(sb, r.overheadMs()).append(',');
+        fixed1(sb, r.headersMs()).append(',');
+        fixed1(sb, r.bodyMs()).append(',');
+        fixed1(sb, r.queueWaitMs()).append(',');
+        fixed3(sb, r.quality()).append(',');
+        csvField(sb, r.error()).append('\n');
+    }
+
+    /**
+     * Hängt eine NDJSON-Zeile (inkl. Zeilenumbruch) an.
+     *
+     * @param sb Ziel
+     * @param r Einzelergebnis
+     * @param includeText ob der Antworttext mit exportiert wird
+     */
+    public static void appendNdjson(StringBuilder sb, BenchmarkDto.SingleRunResult r, boolean includeText) {
+        sb.append('{');
+        sb.append("\"provider\":"); jsonString(sb, r.provider());
+        sb.append(",\"model\":"); jsonString(sb, r.model());
+        sb.append(",\"node\":"); jsonString(sb, r.node());
+        sb.append(",\"httpStatus\":").append(r.httpStatus());
+        sb.append(",\"success\":").append(r.success());
+        sb.append(",\"durationMs\":"); jsonNum(sb, r.durationMs());
+        sb.append(",\"latencyMs\":"); jsonNum(sb, r.latencyMs());
+        sb.append(",\"inputTokens\":").append(r.inputTokens());
+        sb.append(",\"outputTokens\":").append(r.outputTokens());
+        sb.append(",\"totalTokens\":").append(r.totalTokens());
+        sb.append(",\"responseBytes\":").append(r.responseBytes());
+        sb.append(",\"ttftMs\":"); jsonNum(sb, r.ttftMs());
+        sb.append(",\"itlMs\":"); jsonNum(sb, r.itlMs());
+        sb.append(",\"tokensPerSec\":"); jsonNum(sb, r.tokensPerSec());
+        sb.append(",\"loadMs\":"); jsonNum(sb, r.loadMs());
+        sb.append(",\"promptEvalMs\":"); jsonNum(sb, r.promptEvalMs());
+        sb.append(",\"evalMs\":"); jsonNum(sb, r.evalMs());
+        sb.append(",\"serverTotalMs\":"); jsonNum(sb, r.serverTotalMs());
+        sb.append(",\"promptTokensPerSec\":"); jsonNum(sb, r.promptTokensPerSec());
+        sb.append(",\"evalTokensPerSec\":"); jsonNum(sb, r.evalTokensPerSec());
+        sb.append(",\"overheadMs\":"); jsonNum(sb, r.overheadMs());
+        sb.append(",\"headersMs\":"); jsonNum(sb, r.headersMs());
+        sb.append(",\"bodyMs\":"); jsonNum(sb, r.bodyMs());
+        sb.append(",\"queueWaitMs\":"); jsonNum(sb, r.queueWaitMs());
+        sb.append(",\"quality\":"); jsonNum(sb, r.quality());
+        sb.append(",\"error\":"); jsonString(sb, r.error());
+        if (includeText) { sb.append(",\"text\":"); jsonString(sb, r.text()); }
+        sb.append("}\n");
+    }
+
+    /**
+     * Schreibt den Puffer in den Writer und leert ihn.
+     */
+    public static void drain(StringBuilder sb, Writer w) throws IOException {
+        w.append(sb);
+        sb.setLength(0);
+    }
+
+    // CSV-Feld nach RFC 4180: in Anführungszeichen, sobald Trenner, Quotes oder Umbrüche vorkommen
+    private static StringBuilder csvField(StringBuilder sb, String s) {
+        if (s == null) return sb;
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) return sb.append(s);
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        return sb.append('"');
+    }
+
+    private static StringBuilder num(StringBuilder sb, Integer i) {
+        return i == null ? sb : sb.append(i.intValue());
+    }
+
+    // Dezimalzahl mit einer Nachkommastelle ohne String.format
+    static StringBuilder fixed1(StringBuilder sb, Double v) {
+        return v == null ? sb : fixed(sb, v, 10);
+    }
+
+    // Dezimalzahl mit drei Nachkommastellen ohne String.format
+    static StringBuilder fixed3(StringBuilder sb, Double v) {
+        return v == null ? sb : fixed(sb, v, 1000);
+    }
+
+    // scale = 10^Nachkommastellen
+    private static StringBuilder fixed(StringBuilder sb, double v, long scale) {
+        if (Double.isNaN(v) || Double.isInfinite(v)) return sb;
+        long scaled = Math.round(v * scale);
+        if (scaled < 0) { sb.append('-'); scaled = -scaled; }
+        sb.append(scaled / scale).append('.');
+        long frac = scaled % scale;
+        for (long d = scale / 10; d > 0; d /= 10) {
+            sb.append((char) ('0' + frac / d));
+            frac %= d;
+        }
+        return sb;
+    }
+
+    private static void jsonNum(StringBuilder sb, Double v) {
+        if (v == null || v.isNaN() || v.isInfinite()) sb.append("null");
+        else fixed(sb, v, 1000);
+    }
+
+    // JSON-String mit vollständigem Escaping von Steuerzeichen
+    static void jsonString(StringBuilder sb, String s) {
+        if (s == null) { sb.append("null"); return; }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append("\\u00");
+                        sb.append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        sb.append('"');
+    }
+}
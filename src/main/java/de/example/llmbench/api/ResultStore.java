@@ -0,0 +1,552 @@
+package de.example.llmbench.api;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Lokale Ablage aller Benchmark-Ergebnisse für spätere Vergleiche.
+ *
+ * Die Daten liegen in {@link #DATA_DIR} in drei append-only Dateien:
+ * <ul>
+ *   <li>{@code samples.bin}: ein Datensatz fester Länge (128 Byte) je Einzelergebnis –
+ *       Zeiten, Token-Zahlen und Kennzahlen als Primitive, ohne Antworttext</li>
+ *   <li>{@code runs.bin}: ein Datensatz (64 Byte) je Batch mit Zeitstempel, Modell,
+ *       Prompt-Hash, Tag und Bereich der zugehörigen Samples – der Index für Abfragen</li>
+ *   <li>{@code strings.txt}: Wörterbuch für Provider, Modelle, Tags und Fehlerarten (eine Zeile je ID)</li>
+ * </ul>
+ * Beide Binärdateien werden memory-mapped geschrieben und gelesen. Abfragen filtern
+ * zuerst über den Run-Index und laufen dann über die Samples der passenden Batches;
+ * die Aggregates entstehen in Histogrammen fester Größe, unabhängig von der Datenmenge.
+ * Die Zeitstempel der Runs steigen monoton (beim Schreiben erzwungen), sodass Zeiträume
+ * per Binärsuche gefunden werden; für Modell, Prompt-Hash und Tag hält die Ablage im
+ * Speicher Listen der Run-IDs, die beim Öffnen aus {@code runs.bin} aufgebaut werden.
+ *
+ * Ist die Ablage abgeschaltet (BENCH_PERSIST=false) oder lässt sie sich nicht öffnen,
+ * liefert {@link #enabled()} false und {@link #append} speichert nichts. Scheitert das
+ * Schreiben eines Batches, liefert {@link #append} null und {@link #error()} den Grund.
+ */
+public final class ResultStore {
+
+    // Verzeichnis für die Dateien der Ablage (über Umgebungsvariable konfigurierbar)
+    static final String DATA_DIR = System.getenv().getOrDefault("BENCH_DATA_DIR",
+            Path.of(System.getProperty("java.io.tmpdir"), "llmbench").toString());
+    // Ablage ein-/ausschalten
+    static final boolean PERSIST = !"false".equalsIgnoreCase(System.getenv().getOrDefault("BENCH_PERSIST", "true"));
+
+    // Layout eines Samples (Offsets in Bytes)
+    static final int SAMPLE_SIZE = 128;
+    private static final int S_RUN = 0, S_STATUS = 4, S_START = 8, S_END = 16, S_INTENDED = 24,
+            S_IN_TOK = 32, S_OUT_TOK = 36, S_TOTAL_TOK = 40, S_BYTES = 44,
+            S_QUALITY = 48, S_TTFT = 56, S_ITL = 64, S_TPS = 72,
+            S_LOAD = 80, S_PROMPT_EVAL = 88, S_EVAL = 96, S_SERVER_TOTAL = 104,
+            S_ERROR = 112, S_FLAGS = 116, S_NODE = 120, S_HEADERS = 124;
+    private static final int F_SUCCESS = 1, F_INTENDED = 2, F_HEADERS = 4;
+
+    // Layout eines Runs (Offsets in Bytes)
+    static final int RUN_SIZE = 64;
+    private static final int R_EPOCH_MS = 0, R_PROMPT_HASH = 8, R_FIRST = 16, R_COUNT = 24,
+            R_MODEL = 28, R_PROVIDER = 32, R_CONCURRENCY = 36, R_SPAN = 40, R_FLAGS = 48, R_TAG = 52;
+    private static final int RF_STREAM = 1;
+
+    // Platzhalter für fehlende Werte
+    private static final int NO_INT = Integer.MIN_VALUE;
+    private static final int NO_STRING = -1;
+    // Maximale Länge einer gespeicherten Fehlerart
+    private static final int MAX_ERROR_KIND = 80;
+
+    private static final ResultStore SHARED = open(PERSIST ? Path.of(DATA_DIR) : null);
+
+    private final MappedRecordFile samples;
+    private final MappedRecordFile runs;
+    private final String openError;
+    // Letzter Schreibfehler (null nach erfolgreichem Schreiben)
+    private volatile String writeError;
+    // Wörterbuch: ID -> String und umgekehrt; Zugriff nur unter dem Monitor
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final BufferedWriter stringLog;
+    // Run-IDs je Modell, Prompt-Hash und Tag (aufsteigend); Änderungen nur unter dem Monitor
+    private final Map<Integer, RunIds> byModel = new HashMap<>();
+    private final Map<Long, RunIds> byPromptHash = new HashMap<>();
+    private final Map<Integer, RunIds> byTag = new HashMap<>();
+    private long lastEpochMs = Long.MIN_VALUE;
+
+    private ResultStore(MappedRecordFile samples, MappedRecordFile runs, BufferedWriter stringLog,
+                        List<String> strings, String openError) {
+        this.samples = samples;
+        this.runs = runs;
+        this.stringLog = stringLog;
+        this.openError = openError;
+        for (String s : strings) {
+            stringIds.put(s, this.strings.size());
+            this.strings.add(s);
+        }
+        if (runs != null) for (long id = 0; id < runs.count(); id++) index(id);
+    }
+
+    /**
+     * Liefert die prozessweit geteilte Ablage.
+     */
+    public static ResultStore shared() { return SHARED; }
+
+    /**
+     * Öffnet die Ablage im angegebenen Verzeichnis (null = abgeschaltet).
+     * Fehler beim Öffnen führen zu einer abgeschalteten Ablage mit Fehlermeldung.
+     */
+    static ResultStore open(Path dir) {
+        if (dir == null) return new ResultStore(null, null, null, List.of(), "Persistence disabled (BENCH_PERSIST=false)");
+        try {
+            Files.createDirectories(dir);
+            Path dict = dir.resolve("strings.txt");
+            List<String> strings = Files.exists(dict) ? Files.readAllLines(dict, StandardCharsets.UTF_8) : List.of();
+            BufferedWriter log = Files.newBufferedWriter(dict, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            return new ResultStore(
+                    new MappedRecordFile(dir.resolve("samples.bin"), SAMPLE_SIZE, 16 << 20),
+                    new MappedRecordFile(dir.resolve("runs.bin"), RUN_SIZE, 1 << 20),
+                    log, strings, null);
+        } catch (IOException | RuntimeException e) {
+            return new ResultStore(null, null, null, List.of(), "Cannot open result store in " + dir + ": " + e.getMessage());
+        }
+    }
+
+    /** true, wenn Ergebnisse gespeichert werden. */
+    public boolean enabled() { return samples != null; }
+
+    /**
+     * Grund, warum die Ablage abgeschaltet ist, sonst der Fehler des letzten gescheiterten
+     * {@link #append} (null, wenn danach wieder erfolgreich geschrieben wurde).
+     */
+    public String error() { return openError != null ? openError : writeError; }
+
+    /**
+     * 64-Bit-FNV-1a-Hash eines Prompts als Hex-String (null zählt als leerer Prompt).
+     */
+    public static String promptHash(String prompt) {
+        return Long.toHexString(hash(prompt));
+    }
+
+    // FNV-1a über die UTF-16-Zeichen (auch für Antworttexte, siehe ResultColumns)
+    static long hash(String prompt) {
+        long h = 0xcbf29ce484222325L;
+        String s = prompt == null ? "" : prompt;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Speichert einen Batch mit allen Einzelergebnissen.
+     *
+     * @param req Anfrage (Provider, Modell, Prompt, Parallelität)
+     * @param results Einzelergebnisse
+     * @return Run-ID oder null, wenn nichts gespeichert wurde (Schreibfehler in {@link #error()})
+     */
+    public synchronized Long append(BenchmarkDto.BenchRequest req, BenchmarkDto.SingleRunResult[] results) {
+        if (!enabled() || results == null || results.length == 0) return null;
+        // Gemeinsamer Nullpunkt für die relativen Zeiten der Samples
+        long base = Long.MAX_VALUE, last = Long.MIN_VALUE;
+        for (var r : results) {
+            base = Math.min(base, r.intendedStartNanos() != null ? r.intendedStartNanos() : r.startNanos());
+            last = Math.max(last, r.endNanos());
+        }
+        return append(req, results.length, base, last, sink -> { for (var r : results) sink.accept(r); });
+    }
+
+    /**
+     * Speichert einen kompakt gehaltenen Batch; die Samples werden Zeile für Zeile aus den
+     * Spalten gelesen.
+     *
+     * @param req Anfrage (Provider, Modell, Prompt, Parallelität)
+     * @param cols Spalten-Ablage
+     * @return Run-ID oder null, wenn nichts gespeichert wurde (Schreibfehler in {@link #error()})
+     */
+    public synchronized Long append(BenchmarkDto.BenchRequest req, ResultColumns cols) {
+        if (!enabled() || cols == null || cols.size() == 0) return null;
+        return append(req, cols.size(), cols.firstStartNanos(), cols.lastEndNanos(), cols::forEach);
+    }
+
+    // Schreibt count Samples aus rows und danach den Run-Datensatz
+    private Long append(BenchmarkDto.BenchRequest req, int count, long base, long last,
+                        Consumer<Consumer<BenchmarkDto.SingleRunResult>> rows) {
+        try {
+            long runId = runs.count();
+            long first = samples.count();
+            String[] names = { null, req.model };   // Provider, Modell
+            int[] i = { 0 };
+            rows.accept(r -> {
+                if (i[0] == count) return;
+                if (names[0] == null) names[0] = r.provider();
+                if (names[1] == null) names[1] = r.model();
+                try {
+                    writeSample(samples.reserve(i[0]++), r, runId, base);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            String provider = names[0], model = names[1];
+
+            long idx = runs.reserve(0);
+            MappedByteBuffer b = runs.buffer(idx);
+            int o = runs.offset(idx);
+            // Monoton, auch wenn die Uhr zurückgestellt wird (Binärsuche in query)
+            b.putLong(o + R_EPOCH_MS, Math.max(System.currentTimeMillis(), lastEpochMs));
+            b.putLong(o + R_PROMPT_HASH, hash(req.prompt));
+            b.putLong(o + R_FIRST, first);
+            b.putInt(o + R_COUNT, i[0]);
+            b.putInt(o + R_MODEL, id(model));
+            b.putInt(o + R_PROVIDER, id(provider != null ? provider : req.provider));
+            b.putInt(o + R_CONCURRENCY, req.concurrency == null ? 1 : req.concurrency);
+            b.putLong(o + R_SPAN, Math.max(0, last - base));
+            b.putInt(o + R_FLAGS, Boolean.TRUE.equals(req.stream) ? RF_STREAM : 0);
+            // Tag-ID um 1 verschoben: 0 bedeutet "kein Tag" (auch für ältere Datensätze)
+            b.putInt(o + R_TAG, req.tag == null || req.tag.isBlank() ? 0 : id(req.tag) + 1);
+            stringLog.flush();
+
+            // Erst die Samples, dann den Run sichtbar machen
+            samples.publish(i[0]);
+            runs.publish(1);
+            index(runId);
+            writeError = null;
+            return runId;
+        } catch (IOException | UncheckedIOException e) {
+            writeError = "Cannot write run: " + e.getMessage();
+            return null;
+        }
+    }
+
+    private void writeSample(long index, BenchmarkDto.SingleRunResult r, long runId, long base) throws IOException {
+        MappedByteBuffer b = samples.buffer(index);
+        int o = samples.offset(index);
+        b.putInt(o + S_RUN, (int) runId);
+        b.putInt(o + S_STATUS, r.httpStatus());
+        b.putLong(o + S_START, r.startNanos() - base);
+        b.putLong(o + S_END, r.endNanos() - base);
+        b.putLong(o + S_INTENDED, r.intendedStartNanos() != null ? r.intendedStartNanos() - base : 0);
+        b.putInt(o + S_IN_TOK, orNone(r.inputTokens()));
+        b.putInt(o + S_OUT_TOK, orNone(r.outputTokens()));
+        b.putInt(o + S_TOTAL_TOK, orNone(r.totalTokens()));
+        b.putInt(o + S_BYTES, orNone(r.responseBytes()));
+        b.putDouble(o + S_QUALITY, orNaN(r.quality()));
+        b.putDouble(o + S_TTFT, orNaN(r.ttftMs()));
+        b.putDouble(o + S_ITL, orNaN(r.itlMs()));
+        b.putDouble(o + S_TPS, orNaN(r.tokensPerSec()));
+        b.putDouble(o + S_LOAD, orNaN(r.loadMs()));
+        b.putDouble(o + S_PROMPT_EVAL, orNaN(r.promptEvalMs()));
+        b.putDouble(o + S_EVAL, orNaN(r.evalMs()));
+        b.putDouble(o + S_SERVER_TOTAL, orNaN(r.serverTotalMs()));
+        b.putInt(o + S_ERROR, r.error() == null ? NO_STRING : id(errorKind(r.httpStatus(), r.error())));
+        b.putInt(o + S_FLAGS, (r.success() ? F_SUCCESS : 0) | (r.intendedStartNanos() != null ? F_INTENDED : 0)
+                | (r.headersMs() != null ? F_HEADERS : 0));
+        // Knoten als ID + 1, damit ältere Samples (0) ohne Knoten bleiben
+        b.putInt(o + S_NODE, r.node() == null ? 0 : id(r.node()) + 1);
+        // Header-Zeit als float (µs-genau genug); die Lesezeit ergibt sich aus dem Ende
+        b.putFloat(o + S_HEADERS, r.headersMs() == null ? 0f : r.headersMs().floatValue());
+    }
+
+    /**
+     * Fragt gespeicherte Läufe ab. Alle Filter sind optional.
+     *
+     * @param provider Provider (exakt)
+     * @param model Modell (exakt)
+     * @param promptHash Prompt-Hash wie in {@link #promptHash(String)}
+     * @param tag Markierung aus der Anfrage (exakt)
+     * @param from frühester Zeitpunkt (inklusive)
+     * @param to spätester Zeitpunkt (exklusive)
+     * @param limit maximale Anzahl gelisteter Läufe (die Aggregates umfassen alle passenden)
+     * @return passende Läufe, neueste zuerst, und Aggregates über deren Samples
+     */
+    public BenchmarkDto.HistoryReport query(String provider, String model, String promptHash, String tag,
+                                            Instant from, Instant to, int limit) {
+        List<BenchmarkDto.RunInfo> listed = new ArrayList<>();
+        if (!enabled()) return new BenchmarkDto.HistoryReport(0, 0, listed, null);
+
+        // Filter über das Wörterbuch auflösen; unbekannte Namen passen auf nichts
+        int providerId = provider == null ? NO_STRING : lookup(provider);
+        int modelId = model == null ? NO_STRING : lookup(model);
+        int tagId = tag == null ? NO_STRING : lookup(tag);
+        if ((provider != null && providerId == NO_STRING) || (model != null && modelId == NO_STRING)
+                || (tag != null && tagId == NO_STRING)) {
+            return new BenchmarkDto.HistoryReport(0, 0, listed, null);
+        }
+        Long hash = promptHash == null ? null : Long.parseUnsignedLong(promptHash, 16);
+        long fromMs = from == null ? Long.MIN_VALUE : from.toEpochMilli();
+        long toMs = to == null ? Long.MAX_VALUE : to.toEpochMilli();
+
+        // Kandidaten: kürzeste passende ID-Liste (sonst alle Runs), beschränkt auf den Zeitraum
+        long published;
+        int[] ids = null;
+        int size;
+        synchronized (this) {
+            published = runs.count();
+            size = (int) published;
+            for (RunIds l : new RunIds[] {
+                    model == null ? null : byModel.getOrDefault(modelId, RunIds.EMPTY),
+                    hash == null ? null : byPromptHash.getOrDefault(hash, RunIds.EMPTY),
+                    tag == null ? null : byTag.getOrDefault(tagId, RunIds.EMPTY) }) {
+                if (l != null && (ids == null || l.size < size)) { ids = l.ids; size = l.size; }
+            }
+        }
+        long lo = firstAtOrAfter(fromMs, published), hi = firstAtOrAfter(toMs, published);
+        int end = ids == null ? (int) hi : lowerBound(ids, size, hi);
+        int begin = ids == null ? (int) lo : lowerBound(ids, end, lo);
+
+        LatencyHistogram latencies = new LatencyHistogram();
+        // Reihenfolge wie StatsUtil#calc; queueWaitMs (Index 12) wird nicht gespeichert und bleibt leer
+        LatencyHistogram[] metrics = new LatencyHistogram[13];
+        for (int i = 0; i < metrics.length; i++) metrics[i] = new LatencyHistogram();
+        int matched = 0;
+        long sampleCount = 0;
+        long spanNanos = 0;
+
+        for (int k = end - 1; k >= begin; k--) {
+            long id = ids == null ? k : ids[k];
+            MappedByteBuffer b = runs.buffer(id);
+            int o = runs.offset(id);
+            if (providerId != NO_STRING && b.getInt(o + R_PROVIDER) != providerId) continue;
+            if (modelId != NO_STRING && b.getInt(o + R_MODEL) != modelId) continue;
+            if (hash != null && b.getLong(o + R_PROMPT_HASH) != hash) continue;
+            if (tagId != NO_STRING && b.getInt(o + R_TAG) != tagId + 1) continue;
+
+            matched++;
+            if (listed.size() < limit) listed.add(runInfo(id));
+            long first = b.getLong(o + R_FIRST);
+            int count = b.getInt(o + R_COUNT);
+            sampleCount += count;
+            spanNanos += b.getLong(o + R_SPAN);
+            for (long s = first; s < first + count; s++) record(s, latencies, metrics);
+        }
+        if (matched == 0) return new BenchmarkDto.HistoryReport(0, 0, listed, null);
+        // Durchsatz über die Wandzeit der einzelnen Batches, nicht über die Zeit zwischen ihnen
+        double throughput = spanNanos > 0 ? sampleCount / (spanNanos / 1_000_000_000.0) : 0;
+        return new BenchmarkDto.HistoryReport(matched, sampleCount, listed,
+                StatsUtil.calc((int) Math.min(Integer.MAX_VALUE, sampleCount), latencies, throughput, metrics));
+    }
+
+    // Überträgt ein Sample in die Histogramme (Reihenfolge wie in StatsUtil#calc)
+    private void record(long s, LatencyHistogram latencies, LatencyHistogram[] metrics) {
+        MappedByteBuffer b = samples.buffer(s);
+        int o = samples.offset(s);
+        long start = b.getLong(o + S_START), end = b.getLong(o + S_END);
+        int flags = b.getInt(o + S_FLAGS);
+        long from = (flags & F_INTENDED) != 0 ? b.getLong(o + S_INTENDED) : start;
+        double latency = (end - from) / 1_000_000.0;
+        if (latency > 0) latencies.record(latency);
+        metrics[0].record(b.getDouble(o + S_TTFT));
+        metrics[1].record(b.getDouble(o + S_ITL));
+        metrics[2].record(b.getDouble(o + S_TPS));
+        metrics[3].record(b.getDouble(o + S_LOAD));
+        metrics[4].record(b.getDouble(o + S_PROMPT_EVAL));
+        double eval = b.getDouble(o + S_EVAL), promptEval = b.getDouble(o + S_PROMPT_EVAL);
+        double serverTotal = b.getDouble(o + S_SERVER_TOTAL);
+        metrics[5].record(eval);
+        metrics[6].record(serverTotal);
+        // Abgeleitete Werte wie im Builder von SingleRunResult (NaN wird nicht erfasst)
+        int in = b.getInt(o + S_IN_TOK), out = b.getInt(o + S_OUT_TOK);
+        if (in > 0 && promptEval > 0) metrics[7].record(in / (promptEval / 1000.0));
+        if (out > 0 && eval > 0) metrics[8].record(out / (eval / 1000.0));
+        if (end > start) metrics[9].record((end - start) / 1_000_000.0 - serverTotal);
+        if ((flags & F_HEADERS) != 0) {
+            double headers = b.getFloat(o + S_HEADERS);
+            metrics[10].record(headers);
+            metrics[11].record((end - start) / 1_000_000.0 - headers);
+        }
+    }
+
+    /**
+     * Liefert die ID des neuesten Laufs mit der angegebenen Markierung oder null.
+     */
+    public Long latestWithTag(String tag) {
+        if (!enabled() || tag == null) return null;
+        int tagId = lookup(tag);
+        if (tagId == NO_STRING) return null;
+        synchronized (this) {
+            RunIds l = byTag.get(tagId);
+            return l == null ? null : (long) l.ids[l.size - 1];
+        }
+    }
+
+    /** ID des zuletzt gespeicherten Laufs oder null, wenn die Ablage leer ist. */
+    public Long latest() {
+        return !enabled() || runs.count() == 0 ? null : runs.count() - 1;
+    }
+
+    /**
+     * Liefert die Metadaten eines gespeicherten Laufs oder null.
+     */
+    public BenchmarkDto.RunInfo run(long runId) {
+        if (!enabled() || runId < 0 || runId >= runs.count()) return null;
+        return runInfo(runId);
+    }
+
+    private BenchmarkDto.RunInfo runInfo(long id) {
+        MappedByteBuffer b = runs.buffer(id);
+        int o = runs.offset(id);
+        return new BenchmarkDto.RunInfo(id,
+                Instant.ofEpochMilli(b.getLong(o + R_EPOCH_MS)).toString(),
+                string(b.getInt(o + R_PROVIDER)),
+                string(b.getInt(o + R_MODEL)),
+                Long.toHexString(b.getLong(o + R_PROMPT_HASH)),
+                string(b.getInt(o + R_TAG) - 1),
+                b.getInt(o + R_COUNT),
+                b.getInt(o + R_CONCURRENCY),
+                (b.getInt(o + R_FLAGS) & RF_STREAM) != 0,
+                b.getLong(o + R_SPAN) / 1_000_000.0);
+    }
+
+    /**
+     * Liest die Einzelergebnisse eines gespeicherten Laufs nacheinander (z.B. für Exporte).
+     * Zeiten sind relativ zum ersten Start des Batches; Antworttexte werden nicht gespeichert,
+     * Fehler nur als Fehlerart (Text bis zum ersten Doppelpunkt).
+     *
+     * @param runId Run-ID
+     * @param onResult Empfänger der Einzelergebnisse
+     * @return false, wenn der Lauf nicht existiert
+     */
+    public boolean forEachSample(long runId, Consumer<BenchmarkDto.SingleRunResult> onResult) {
+        BenchmarkDto.RunInfo info = run(runId);
+        if (info == null) return false;
+        long first = runs.buffer(runId).getLong(runs.offset(runId) + R_FIRST);
+        for (long s = first; s < first + info.samples(); s++) onResult.accept(sample(s, info));
+        return true;
+    }
+
+    private BenchmarkDto.SingleRunResult sample(long s, BenchmarkDto.RunInfo run) {
+        MappedByteBuffer b = samples.buffer(s);
+        int o = samples.offset(s);
+        int flags = b.getInt(o + S_FLAGS);
+        int err = b.getInt(o + S_ERROR);
+        return BenchmarkDto.SingleRunResult.builder(run.provider(), run.model())
+                .node(string(b.getInt(o + S_NODE) - 1))
+                .start(b.getLong(o + S_START)).end(b.getLong(o + S_END))
+                .intendedStart((flags & F_INTENDED) != 0 ? b.getLong(o + S_INTENDED) : null)
+                .httpStatus(b.getInt(o + S_STATUS))
+                .success((flags & F_SUCCESS) != 0)
+                .error(err == NO_STRING ? null : string(err))
+                .tokens(orNull(b.getInt(o + S_IN_TOK)), orNull(b.getInt(o + S_OUT_TOK)), orNull(b.getInt(o + S_TOTAL_TOK)))
+                .responseBytes(orNull(b.getInt(o + S_BYTES)))
+                .quality(orNull(b.getDouble(o + S_QUALITY)))
+                .streaming(orNull(b.getDouble(o + S_TTFT)), orNull(b.getDouble(o + S_ITL)), orNull(b.getDouble(o + S_TPS)))
+                .serverTimings(orNull(b.getDouble(o + S_LOAD)), orNull(b.getDouble(o + S_PROMPT_EVAL)),
+                        orNull(b.getDouble(o + S_EVAL)), orNull(b.getDouble(o + S_SERVER_TOTAL)))
+                .headers((flags & F_HEADERS) != 0 ? b.getLong(o + S_START) + Math.round(b.getFloat(o + S_HEADERS) * 1_000_000.0) : null)
+                .build();
+    }
+
+    // Nimmt einen veröffentlichten Run in die ID-Listen auf (nur im Monitor bzw. Konstruktor)
+    private void index(long id) {
+        MappedByteBuffer b = runs.buffer(id);
+        int o = runs.offset(id);
+        byModel.computeIfAbsent(b.getInt(o + R_MODEL), k -> new RunIds()).add((int) id);
+        byPromptHash.computeIfAbsent(b.getLong(o + R_PROMPT_HASH), k -> new RunIds()).add((int) id);
+        int tag = b.getInt(o + R_TAG);
+        if (tag != 0) byTag.computeIfAbsent(tag - 1, k -> new RunIds()).add((int) id);
+        lastEpochMs = Math.max(lastEpochMs, b.getLong(o + R_EPOCH_MS));
+    }
+
+    // Erste Run-ID mit Zeitstempel >= epochMs (Binärsuche über die monotonen Zeitstempel)
+    private long firstAtOrAfter(long epochMs, long count) {
+        long lo = 0, hi = count;
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (runs.buffer(mid).getLong(runs.offset(mid) + R_EPOCH_MS) < epochMs) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // Erste Position in ids[0, size) mit Wert >= id
+    private static int lowerBound(int[] ids, int size, long id) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ids[mid] < id) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // Aufsteigende Run-IDs eines Schlüssels. Es wird nur angehängt (beim Wachsen in ein neues
+    // Array), daher bleibt eine unter dem Monitor gelesene Kombination aus ids und size gültig.
+    private static final class RunIds {
+        static final RunIds EMPTY = new RunIds();
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+    }
+
+    // Fehlerart: HTTP-Status und Text bis zum ersten Doppelpunkt, begrenzt und einzeilig (hält das
+    // Wörterbuch klein). Aus JSON-Fehlerantworten zählt die Meldung ("error" bzw. "error.message"),
+    // sonst hieße jede Fehlerart nur {"error"
+    static String errorKind(int httpStatus, String error) {
+        String text = error.strip();
+        if (text.startsWith("{")) text = jsonMessage(text);
+        int colon = text.indexOf(':');
+        String kind = colon > 0 ? text.substring(0, colon) : text;
+        if (httpStatus >= 400) kind = kind.isBlank() ? "HTTP " + httpStatus : "HTTP " + httpStatus + " " + kind;
+        else if (kind.isBlank()) kind = "error";
+        if (kind.length() > MAX_ERROR_KIND) kind = kind.substring(0, MAX_ERROR_KIND);
+        return kind.replace('\n', ' ').replace('\r', ' ').trim();
+    }
+
+    // Meldung einer JSON-Fehlerantwort (Ollama: String, OpenAI-kompatibel: Objekt mit "message")
+    private static String jsonMessage(String body) {
+        byte[] b = body.getBytes(StandardCharsets.UTF_8);
+        OpenAiJson.Fields f = new OpenAiJson.Fields();
+        try {
+            OpenAiJson.parse(new JsonScanner(b, 0, b.length), f);
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+        return f.error == null ? "" : f.error.strip();
+    }
+
+    // ID eines Strings im Wörterbuch; neue Strings werden angehängt (nur im Monitor aufrufen)
+    private int id(String s) throws IOException {
+        if (s == null) return NO_STRING;
+        String v = s.replace('\n', ' ').replace('\r', ' ');
+        Integer id = stringIds.get(v);
+        if (id != null) return id;
+        stringLog.write(v);
+        stringLog.write('\n');
+        stringIds.put(v, strings.size());
+        strings.add(v);
+        return strings.size() - 1;
+    }
+
+    private synchronized int lookup(String s) {
+        Integer id = stringIds.get(s);
+        return id == null ? NO_STRING : id;
+    }
+
+    private synchronized String string(int id) {
+        return id >= 0 && id < strings.size() ? strings.get(id) : null;
+    }
+
+    private static int orNone(Integer v) { return v == null ? NO_INT : v; }
+
+    private static Integer orNull(int v) { return v == NO_INT ? null : v; }
+
+    private static double orNaN(Double v) { return v == null ? Double.NaN : v; }
+
+    private static Double orNull(double v) { return Double.isNaN(v) ? null : v; }
+}
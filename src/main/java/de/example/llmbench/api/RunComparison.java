@@ -0,0 +1,119 @@
+package de.example.llmbench.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Vergleicht zwei gespeicherte Läufe und erkennt Regressionen.
+ *
+ * Für jede Kennzahl wird die Differenz (Kandidat minus Baseline) mit einem
+ * Bootstrap-Konfidenzintervall versehen; signifikant ist sie nur, wenn das Intervall
+ * die 0 ausschließt. Zusätzlich wird der p-Wert des Mann-Whitney-U-Tests auf den
+ * Einzelwerten angegeben. Als Regression gilt eine signifikante Verschlechterung,
+ * die größer als die Toleranz {@code maxRegressionPct} ist – Rauschen zwischen zwei
+ * Läufen schlägt damit nicht an.
+ */
+public class RunComparison {
+
+    // Bootstrap-Iterationen je Kennzahl und fester Startwert (gleiche Eingabe, gleiches Ergebnis)
+    static final int BOOTSTRAP_ITERATIONS = 2000;
+    private static final long SEED = 0x5EED;
+
+    private final ResultStore store;
+
+    public RunComparison(ResultStore store) { this.store = store; }
+
+    // Einzelwerte eines Laufs je Kennzahl, jeweils sortiert
+    private record Samples(double[] latencyMs, double[] ttftMs, double[] tokensPerSec,
+                           double[] evalTokensPerSec, double[] errors) {}
+
+    /**
+     * Vergleicht zwei gespeicherte Läufe.
+     *
+     * @param baselineId Run-ID der Baseline
+     * @param candidateId Run-ID des Kandidaten
+     * @param confidence Konfidenzniveau der Intervalle (z.B. 0.95)
+     * @param maxRegressionPct tolerierte Verschlechterung in Prozent
+     * @return Bericht mit allen Kennzahlen oder null, wenn ein Lauf nicht existiert
+     */
+    public BenchmarkDto.CompareReport compare(long baselineId, long candidateId, double confidence, double maxRegressionPct) {
+        BenchmarkDto.RunInfo base = store.run(baselineId);
+        BenchmarkDto.RunInfo cand = store.run(candidateId);
+        if (base == null || cand == null) return null;
+        Samples a = load(baselineId), b = load(candidateId);
+
+        List<BenchmarkDto.MetricDelta> metrics = new ArrayList<>();
+        add(metrics, "latencyMs.mean", false, a.latencyMs(), b.latencyMs(), Double.NaN, confidence, maxRegressionPct);
+        add(metrics, "latencyMs.p50", false, a.latencyMs(), b.latencyMs(), 0.50, confidence, maxRegressionPct);
+        add(metrics, "latencyMs.p95", false, a.latencyMs(), b.latencyMs(), 0.95, confidence, maxRegressionPct);
+        add(metrics, "latencyMs.p99", false, a.latencyMs(), b.latencyMs(), 0.99, confidence, maxRegressionPct);
+        add(metrics, "ttftMs.p50", false, a.ttftMs(), b.ttftMs(), 0.50, confidence, maxRegressionPct);
+        add(metrics, "ttftMs.p95", false, a.ttftMs(), b.ttftMs(), 0.95, confidence, maxRegressionPct);
+        add(metrics, "tokensPerSec.mean", true, a.tokensPerSec(), b.tokensPerSec(), Double.NaN, confidence, maxRegressionPct);
+        add(metrics, "evalTokensPerSec.mean", true, a.evalTokensPerSec(), b.evalTokensPerSec(), Double.NaN, confidence, maxRegressionPct);
+        add(metrics, "errorRate", false, a.errors(), b.errors(), Double.NaN, confidence, maxRegressionPct);
+
+        // Durchsatz ist ein Wert je Lauf: nur zur Information, ohne Konfidenzintervall
+        double tpA = base.spanMs() > 0 ? base.samples() / (base.spanMs() / 1000.0) : 0;
+        double tpB = cand.spanMs() > 0 ? cand.samples() / (cand.spanMs() / 1000.0) : 0;
+        metrics.add(new BenchmarkDto.MetricDelta("throughputRps", true, tpA, tpB, tpB - tpA, pct(tpA, tpB),
+                null, null, null, false, false));
+
+        List<String> regressions = new ArrayList<>();
+        for (var m : metrics) if (m.regression()) regressions.add(m.metric());
+        return new BenchmarkDto.CompareReport(base, cand, confidence, maxRegressionPct, metrics, regressions, regressions.isEmpty());
+    }
+
+    // Vergleicht eine Kennzahl; ohne Werte in einem der Läufe entfällt sie
+    private static void add(List<BenchmarkDto.MetricDelta> out, String name, boolean higherIsBetter,
+                            double[] a, double[] b, double p, double confidence, double maxRegressionPct) {
+        if (a.length == 0 || b.length == 0) return;
+        double va = stat(a, p), vb = stat(b, p);
+        double delta = vb - va;
+        Double deltaPct = pct(va, vb);
+        double[] ci = StatsUtil.bootstrapDiff(a, b, p, BOOTSTRAP_ITERATIONS, confidence, SEED);
+        boolean significant = ci != null && (ci[0] > 0 || ci[1] < 0);
+        boolean worse = higherIsBetter ? delta < 0 : delta > 0;
+        boolean regression = significant && worse && (deltaPct == null || Math.abs(deltaPct) > maxRegressionPct);
+        out.add(new BenchmarkDto.MetricDelta(name, higherIsBetter, va, vb, delta, deltaPct,
+                ci == null ? null : ci[0], ci == null ? null : ci[1],
+                StatsUtil.mannWhitneyP(a, b), significant, regression));
+    }
+
+    private static double stat(double[] sorted, double p) {
+        if (!Double.isNaN(p)) return StatsUtil.percentile(sorted, p);
+        double s = 0;
+        for (double v : sorted) s += v;
+        return s / sorted.length;
+    }
+
+    private static Double pct(double base, double cand) {
+        return base == 0 ? null : (cand - base) / base * 100.0;
+    }
+
+    // Liest die Einzelwerte eines Laufs aus der Ablage
+    private Samples load(long runId) {
+        List<BenchmarkDto.SingleRunResult> rs = new ArrayList<>();
+        store.forEachSample(runId, rs::add);
+        int n = rs.size();
+        double[] lat = new double[n], ttft = new double[n], tps = new double[n], eval = new double[n], err = new double[n];
+        int nl = 0, nt = 0, np = 0, ne = 0;
+        for (int i = 0; i < n; i++) {
+            var r = rs.get(i);
+            // wie StatsUtil#calc: alle Läufe mit Latenz > 0, unabhängig vom Erfolg
+            if (r.latencyMs() > 0) lat[nl++] = r.latencyMs();
+            if (r.ttftMs() != null) ttft[nt++] = r.ttftMs();
+            if (r.tokensPerSec() != null) tps[np++] = r.tokensPerSec();
+            if (r.evalTokensPerSec() != null) eval[ne++] = r.evalTokensPerSec();
+            err[i] = r.success() ? 0 : 1;
+        }
+        return new Samples(sorted(lat, nl), sorted(ttft, nt), sorted(tps, np), sorted(eval, ne), sorted(err, n));
+    }
+
+    private static double[] sorted(double[] d, int n) {
+        double[] out = Arrays.copyOf(d, n);
+        Arrays.sort(out);
+        return out;
+    }
+}
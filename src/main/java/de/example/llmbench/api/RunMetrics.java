@@ -0,0 +1,79 @@
+package de.example.llmbench.api;
+
+/**
+ * Live-Metriken der einzelnen Benchmark-Läufe (siehe Metrics, {@code /metrics}).
+ *
+ * Erfasst werden alle Läufe, die über {@link BenchmarkService} ausgeführt werden – also
+ * Einzel-, Matrix-, Sweep- und Job-Läufe aller Provider – jeweils mit den Labels
+ * Provider und Modell:
+ * - {@code llmbench_requests_in_flight}: gerade laufende Anfragen
+ * - {@code llmbench_requests_total}: abgeschlossene Anfragen nach Knoten und HTTP-Status
+ *   ("error", falls keine Antwort ankam, z.B. Timeout oder Verbindungsfehler)
+ * - {@code llmbench_request_errors_total}: davon fehlgeschlagene, nach HTTP-Status
+ * - {@code llmbench_request_duration_seconds}: Latenz aus Sicht des Clients
+ * - {@code llmbench_time_to_first_token_seconds}: TTFT (nur bei stream=true)
+ * - {@code llmbench_tokens_per_second}: Decode-Rate je Anfrage (Server-Timing, sonst Client-Sicht)
+ * - {@code llmbench_input_tokens_total}, {@code llmbench_output_tokens_total}: verarbeitete Tokens
+ *
+ * Diese Klasse ist nicht instanziierbar.
+ */
+final class RunMetrics {
+    // Privater Konstruktor verhindert Instanziierung
+    private RunMetrics() {}
+
+    private static final Metrics M = Metrics.shared();
+
+    private static final Metrics.Family<Metrics.Gauge> IN_FLIGHT = M.gauge("llmbench_requests_in_flight",
+            "Benchmark requests currently waiting for the provider", "provider", "model");
+    private static final Metrics.Family<Metrics.Counter> REQUESTS = M.counter("llmbench_requests_total",
+            "Completed benchmark requests", "provider", "model", "node", "status");
+    private static final Metrics.Family<Metrics.Counter> ERRORS = M.counter("llmbench_request_errors_total",
+            "Failed benchmark requests", "provider", "model", "status");
+    private static final Metrics.Family<Metrics.Histogram> LATENCY = M.histogram("llmbench_request_duration_seconds",
+            "Client-side latency of benchmark requests", Metrics.LATENCY_BUCKETS, "provider", "model");
+    private static final Metrics.Family<Metrics.Histogram> TTFT = M.histogram("llmbench_time_to_first_token_seconds",
+            "Time to first token of streamed benchmark requests", Metrics.LATENCY_BUCKETS, "provider", "model");
+    private static final Metrics.Family<Metrics.Histogram> TOKENS_PER_SEC = M.histogram("llmbench_tokens_per_second",
+            "Output tokens per second of benchmark requests", Metrics.RATE_BUCKETS, "provider", "model");
+    private static final Metrics.Family<Metrics.Counter> INPUT_TOKENS = M.counter("llmbench_input_tokens_total",
+            "Prompt tokens processed by benchmark requests", "provider", "model");
+    private static final Metrics.Family<Metrics.Counter> OUTPUT_TOKENS = M.counter("llmbench_output_tokens_total",
+            "Output tokens generated by benchmark requests", "provider", "model");
+
+    /**
+     * Markiert den Beginn einer Anfrage; muss mit {@link #finished} abgeschlossen werden.
+     *
+     * @return Gauge der laufenden Anfragen (für finished)
+     */
+    static Metrics.Gauge started(String provider, String model) {
+        if (!Metrics.ENABLED) return null;
+        Metrics.Gauge g = IN_FLIGHT.labels(provider, model);
+        g.inc();
+        return g;
+    }
+
+    /**
+     * Erfasst das Ergebnis einer Anfrage.
+     *
+     * @param inFlight Rückgabe von started
+     * @param provider Provider-Name
+     * @param model Modellname
+     * @param r Ergebnis oder null, falls der Aufruf mit einer Exception abbrach
+     */
+    static void finished(Metrics.Gauge inFlight, String provider, String model, BenchmarkDto.SingleRunResult r) {
+        if (inFlight == null) return;
+        inFlight.dec();
+        String status = r == null || r.httpStatus() <= 0 ? "error" : Integer.toString(r.httpStatus());
+        REQUESTS.labels(provider, model, r == null ? null : r.node(), status).inc();
+        if (r == null || !r.success()) {
+            ERRORS.labels(provider, model, status).inc();
+            if (r == null) return;
+        }
+        LATENCY.labels(provider, model).observe(r.durationMs() / 1000.0);
+        if (r.ttftMs() != null) TTFT.labels(provider, model).observe(r.ttftMs() / 1000.0);
+        Double rate = r.evalTokensPerSec() != null ? r.evalTokensPerSec() : r.tokensPerSec();
+        if (rate != null) TOKENS_PER_SEC.labels(provider, model).observe(rate);
+        if (r.inputTokens() != null) INPUT_TOKENS.labels(provider, model).inc(r.inputTokens());
+        if (r.outputTokens() != null) OUTPUT_TOKENS.labels(provider, model).inc(r.outputTokens());
+    }
+}
@@ -1,51 +1,422 @@
 package de.example.llmbench.api;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
 
 /**
  * Dienstklasse zur Berechnung statistischer Kennzahlen für Benchmark-Ergebnisse.
  * 
  * Bietet Methoden zur Berechnung von Durchschnitt, Minimum, Maximum und Perzentilen
- * aus einer Liste von Benchmark-Durchläufen.
+ * aus einer Liste von Benchmark-Durchläufen. Kleine Läufe werden exakt sortiert,
+ * große über ein {@link LatencyHistogram} mit fester Speichergröße ausgewertet.
  */
 public final class StatsUtil {
     // Privater Konstruktor verhindert Instanziierung
     private StatsUtil(){}
 
+    // Bis zu dieser Anzahl Werte wird exakt (sortiert) gerechnet, darüber per Histogramm
+    static final int EXACT_LIMIT = 4096;
+    // Knotenfilter für die Spalten-Ablage: alle Zeilen
+    private static final int ALL_NODES = -2;
+
     /**
      * Berechnet Aggregatwerte (Durchschnitt, Min, Max, Perzentile) für eine Liste von Durchläufen.
+     * Grundlage ist die Latenz ab geplantem Start (siehe SingleRunResult#latencyMs).
      * 
      * @param arr Array von Einzelergebnissen
      * @return Aggregates-Objekt mit statistischen Kennzahlen
      */
     public static BenchmarkDto.Aggregates calc(BenchmarkDto.SingleRunResult[] arr) {
+        return calc(arr, null);
+    }
+
+    /**
+     * Berechnet Aggregatwerte und nutzt bei großen Läufen ein bereits während der
+     * Ausführung befülltes Histogramm, statt alle Dauern zu sortieren.
+     * 
+     * @param arr Array von Einzelergebnissen
+     * @param latencies parallel befülltes Latenz-Histogramm (nur Werte > 0 wie im exakten Pfad) oder null
+     * @return Aggregates-Objekt mit statistischen Kennzahlen
+     */
+    public static BenchmarkDto.Aggregates calc(BenchmarkDto.SingleRunResult[] arr, LatencyHistogram latencies) {
+        if (arr.length > EXACT_LIMIT) {
+            // Enthält das Histogramm andere Werte als die Latenzen > 0 (z.B. Nullen), neu aufbauen,
+            // damit sich die Perzentile an der Grenze EXACT_LIMIT nicht verschieben
+            if (latencies == null || latencies.count() != positive(arr)) latencies = histogram(arr);
+            return calc(arr, latencies.count(), latencies.mean(), latencies.min(), latencies.max(), latencies::percentile);
+        }
         double[] d = Arrays.stream(arr)
-                .mapToDouble(r -> (r.endNanos() - r.startNanos()) / 1_000_000.0)
+                .mapToDouble(BenchmarkDto.SingleRunResult::latencyMs)
                 .filter(ms -> ms > 0)        // nicht nach success filtern
                 .sorted()
                 .toArray();
+        if (d.length == 0) return calc(arr, 0, 0, 0, 0, p -> 0);
+        return calc(arr, d.length, avg(d), d[0], d[d.length - 1], p -> percentile(d, p));
+    }
 
-        if (d.length == 0) {
-            return new BenchmarkDto.Aggregates(arr.length, 0, 0, 0, 0, 0, 0);
+    /**
+     * Berechnet Aggregatwerte je Knoten (siehe SingleRunResult#node). Zusammen mit den
+     * Aggregates über alle Läufe zeigt das, wie gleichmäßig der Pool verteilt und ob
+     * der Durchsatz mit der Zahl der Knoten skaliert.
+     *
+     * @param arr Array von Einzelergebnissen (darf null sein)
+     * @return Aggregates nach Knotenname sortiert oder null, wenn höchstens ein Knoten beteiligt war
+     */
+    public static Map<String, BenchmarkDto.Aggregates> byNode(BenchmarkDto.SingleRunResult[] arr) {
+        if (arr == null) return null;
+        Map<String, List<BenchmarkDto.SingleRunResult>> groups = new TreeMap<>();
+        for (var r : arr) {
+            if (r.node() != null) groups.computeIfAbsent(r.node(), k -> new ArrayList<>()).add(r);
         }
+        if (groups.size() < 2) return null;
+        Map<String, BenchmarkDto.Aggregates> out = new LinkedHashMap<>();
+        groups.forEach((node, rs) -> out.put(node, calc(rs.toArray(BenchmarkDto.SingleRunResult[]::new))));
+        return out;
+    }
+
+    /**
+     * Berechnet Aggregatwerte direkt aus einer kompakten Spalten-Ablage, ohne Einzelergebnisse
+     * zu erzeugen. Bis {@link #EXACT_LIMIT} Zeilen wird exakt sortiert, darüber laufen Latenz
+     * und alle Kennzahlen über Histogramme fester Größe (wie bei gespeicherten Läufen).
+     *
+     * @param cols Spalten-Ablage
+     * @return Aggregates-Objekt mit statistischen Kennzahlen
+     */
+    public static BenchmarkDto.Aggregates calc(ResultColumns cols) {
+        return calc(cols, ALL_NODES);
+    }
+
+    /**
+     * Aggregatwerte je Knoten aus einer Spalten-Ablage (siehe {@link #byNode(BenchmarkDto.SingleRunResult[])}).
+     *
+     * @param cols Spalten-Ablage
+     * @return Aggregates nach Knotenname sortiert oder null, wenn höchstens ein Knoten beteiligt war
+     */
+    public static Map<String, BenchmarkDto.Aggregates> byNode(ResultColumns cols) {
+        BitSet ids = new BitSet();
+        for (int i = 0, n = cols.size(); i < n; i++) {
+            int id = cols.nodeId(i);
+            if (id >= 0) ids.set(id);
+        }
+        if (ids.cardinality() < 2) return null;
+        Map<String, BenchmarkDto.Aggregates> sorted = new TreeMap<>();
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) sorted.put(cols.nodeName(id), calc(cols, id));
+        return new LinkedHashMap<>(sorted);
+    }
+
+    // Aggregates über alle Zeilen (ALL_NODES) oder nur die eines Knotens
+    private static BenchmarkDto.Aggregates calc(ResultColumns cols, int node) {
+        int size = cols.size();
+        boolean exact = size <= EXACT_LIMIT;
+        double[] lat = exact ? new double[size] : null;
+        double[][] vals = exact ? new double[ResultColumns.METRICS][size] : null;
+        int[] counts = new int[ResultColumns.METRICS];
+        LatencyHistogram latH = exact ? null : new LatencyHistogram();
+        LatencyHistogram[] hs = exact ? null : new LatencyHistogram[ResultColumns.METRICS];
+        if (!exact) for (int m = 0; m < hs.length; m++) hs[m] = new LatencyHistogram();
+
+        int rows = 0, n = 0;
+        long first = Long.MAX_VALUE, last = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            if (node != ALL_NODES && cols.nodeId(i) != node) continue;
+            rows++;
+            first = Math.min(first, cols.startFrom(i));
+            last = Math.max(last, cols.endNanos(i));
+            double ms = cols.latencyMs(i);
+            if (ms > 0) {
+                n++;
+                if (exact) lat[n - 1] = ms; else latH.record(ms);
+            }
+            for (int m = 0; m < ResultColumns.METRICS; m++) {
+                double v = cols.metric(i, m);
+                if (Double.isNaN(v)) continue;
+                if (exact) vals[m][counts[m]++] = v; else hs[m].record(v);
+            }
+        }
+        double throughput = n == 0 || last <= first ? 0 : rows / ((last - first) / 1_000_000_000.0);
+        BenchmarkDto.MetricSummary[] s = new BenchmarkDto.MetricSummary[ResultColumns.METRICS];
+        DoubleUnaryOperator perc;
+        double avg, min, max;
+        if (exact) {
+            for (int m = 0; m < s.length; m++) s[m] = summarize(Arrays.copyOf(vals[m], counts[m]));
+            double[] d = Arrays.copyOf(lat, n);
+            Arrays.sort(d);
+            perc = p -> percentile(d, p);
+            avg = n == 0 ? 0 : avg(d);
+            min = n == 0 ? 0 : d[0];
+            max = n == 0 ? 0 : d[n - 1];
+        } else {
+            for (int m = 0; m < s.length; m++) s[m] = summarize(hs[m]);
+            perc = latH::percentile;
+            avg = latH.mean();
+            min = latH.min();
+            max = latH.max();
+        }
+        return new BenchmarkDto.Aggregates(rows, avg, min, max,
+                perc.applyAsDouble(0.50), perc.applyAsDouble(0.90), perc.applyAsDouble(0.95),
+                perc.applyAsDouble(0.99), perc.applyAsDouble(0.999), throughput,
+                s[0], s[1], s[2], s[3], s[4], s[5], s[6], s[7], s[8], s[9], s[10], s[11], s[12]);
+    }
+
+    // Verteilung unsortierter Werte (null bei leerem Array)
+    private static BenchmarkDto.MetricSummary summarize(double[] d) {
+        if (d.length == 0) return null;
+        Arrays.sort(d);
+        return new BenchmarkDto.MetricSummary(d.length, avg(d), d[0], d[d.length - 1],
+                percentile(d, 0.50), percentile(d, 0.90), percentile(d, 0.95));
+    }
+
+    // Setzt die Aggregates aus Latenz-Kennzahlen und den optionalen Metriken zusammen
+    private static BenchmarkDto.Aggregates calc(BenchmarkDto.SingleRunResult[] arr, long n, double avg,
+                                                double min, double max, DoubleUnaryOperator perc) {
         return new BenchmarkDto.Aggregates(
                 arr.length,
-                avg(d),
-                d[0],
-                d[d.length - 1],
-                perc(d, 0.50),
-                perc(d, 0.90),
-                perc(d, 0.95)
+                avg,
+                min,
+                max,
+                perc.applyAsDouble(0.50),
+                perc.applyAsDouble(0.90),
+                perc.applyAsDouble(0.95),
+                perc.applyAsDouble(0.99),
+                perc.applyAsDouble(0.999),
+                n == 0 ? 0 : throughput(arr),
+                summarize(arr, BenchmarkDto.SingleRunResult::ttftMs),
+                summarize(arr, BenchmarkDto.SingleRunResult::itlMs),
+                summarize(arr, BenchmarkDto.SingleRunResult::tokensPerSec),
+                summarize(arr, BenchmarkDto.SingleRunResult::loadMs),
+                summarize(arr, BenchmarkDto.SingleRunResult::promptEvalMs),
+                summarize(arr, BenchmarkDto.SingleRunResult::evalMs),
+                summarize(arr, BenchmarkDto.SingleRunResult::serverTotalMs),
+                summarize(arr, BenchmarkDto.SingleRunResult::promptTokensPerSec),
+                summarize(arr, BenchmarkDto.SingleRunResult::evalTokensPerSec),
+                summarize(arr, BenchmarkDto.SingleRunResult::overheadMs),
+                summarize(arr, BenchmarkDto.SingleRunResult::headersMs),
+                summarize(arr, BenchmarkDto.SingleRunResult::bodyMs),
+                summarize(arr, BenchmarkDto.SingleRunResult::queueWaitMs)
         );
     }
 
-    // Berechnet den Durchschnittswert eines double-Arrays
-    private static double avg(double[] d){ double s=0; for(double x:d) s+=x; return s/d.length; }
+    /**
+     * Setzt Aggregates aus bereits befüllten Histogrammen zusammen – für Ergebnisse,
+     * die nicht als Array im Speicher liegen (z.B. gespeicherte Läufe im ResultStore).
+     * 
+     * @param runs Anzahl der Einzelergebnisse
+     * @param latencies Latenz-Histogramm
+     * @param throughputRps Durchsatz in Läufen pro Sekunde
+     * @param metrics Histogramme in der Reihenfolge der MetricSummary-Felder von Aggregates
+     *                (ttftMs, itlMs, tokensPerSec, loadMs, promptEvalMs, evalMs, serverTotalMs,
+     *                promptTokensPerSec, evalTokensPerSec, overheadMs, headersMs, bodyMs, queueWaitMs)
+     * @return Aggregates-Objekt mit statistischen Kennzahlen
+     */
+    public static BenchmarkDto.Aggregates calc(int runs, LatencyHistogram latencies, double throughputRps,
+                                               LatencyHistogram[] metrics) {
+        DoubleUnaryOperator perc = latencies::percentile;
+        return new BenchmarkDto.Aggregates(
+                runs,
+                latencies.mean(),
+                latencies.min(),
+                latencies.max(),
+                perc.applyAsDouble(0.50),
+                perc.applyAsDouble(0.90),
+                perc.applyAsDouble(0.95),
+                perc.applyAsDouble(0.99),
+                perc.applyAsDouble(0.999),
+                throughputRps,
+                summarize(metrics[0]), summarize(metrics[1]), summarize(metrics[2]),
+                summarize(metrics[3]), summarize(metrics[4]), summarize(metrics[5]), summarize(metrics[6]),
+                summarize(metrics[7]), summarize(metrics[8]), summarize(metrics[9]),
+                summarize(metrics[10]), summarize(metrics[11]), summarize(metrics[12])
+        );
+    }
+
+    /**
+     * Verteilung einer Kennzahl aus einem Histogramm (Werte < 0 sind dort nicht erfasst).
+     * 
+     * @param h Histogramm
+     * @return MetricSummary oder null, falls das Histogramm leer ist
+     */
+    public static BenchmarkDto.MetricSummary summarize(LatencyHistogram h) {
+        long n = h.count();
+        if (n == 0) return null;
+        return new BenchmarkDto.MetricSummary((int) Math.min(Integer.MAX_VALUE, n), h.mean(), h.min(), h.max(),
+                h.percentile(0.50), h.percentile(0.90), h.percentile(0.95));
+    }
 
-    // Berechnet das Perzentil p eines sortierten double-Arrays
-    private static double perc(double[] d, double p){
+    /**
+     * Erfasst die Latenzen aller Durchläufe in einem Histogramm.
+     * 
+     * @param arr Array von Einzelergebnissen
+     * @return Histogramm der Latenzen (nur Werte > 0)
+     */
+    public static LatencyHistogram histogram(BenchmarkDto.SingleRunResult[] arr) {
+        LatencyHistogram h = new LatencyHistogram();
+        for (var r : arr) {
+            double ms = r.latencyMs();
+            if (ms > 0) h.record(ms);
+        }
+        return h;
+    }
+
+    // Anzahl der Läufe mit Latenz > 0
+    private static long positive(BenchmarkDto.SingleRunResult[] arr) {
+        long n = 0;
+        for (var r : arr) if (r.latencyMs() > 0) n++;
+        return n;
+    }
+
+    /**
+     * Berechnet das Perzentil p (0..1) eines aufsteigend sortierten Arrays
+     * mit linearer Interpolation zwischen benachbarten Rängen.
+     * 
+     * @param d sortiertes Array
+     * @param p Perzentil zwischen 0 und 1 (z.B. 0.999)
+     * @return interpolierter Wert oder 0 bei leerem Array
+     */
+    public static double percentile(double[] d, double p) {
         if (d.length == 0) return 0;
-        int i = (int)Math.floor(p*(d.length-1));
-        return d[Math.max(0, Math.min(i, d.length-1))];
+        double rank = Math.max(0, Math.min(1, p)) * (d.length - 1);
+        int lo = (int) Math.floor(rank);
+        int hi = Math.min(lo + 1, d.length - 1);
+        return d[lo] + (rank - lo) * (d[hi] - d[lo]);
     }
+
+    /**
+     * Berechnet die Verteilung einer optionalen Kennzahl über alle Durchläufe.
+     * Läufe ohne Wert (null) werden ignoriert.
+     * 
+     * @param arr Array von Einzelergebnissen
+     * @param metric Zugriff auf die Kennzahl
+     * @return MetricSummary oder null, falls kein Lauf einen Wert liefert
+     */
+    public static BenchmarkDto.MetricSummary summarize(BenchmarkDto.SingleRunResult[] arr,
+                                                       Function<BenchmarkDto.SingleRunResult, Double> metric) {
+        double[] d = Arrays.stream(arr)
+                .map(metric)
+                .filter(Objects::nonNull)
+                .mapToDouble(Double::doubleValue)
+                .sorted()
+                .toArray();
+        if (d.length == 0) return null;
+        return new BenchmarkDto.MetricSummary(
+                d.length, avg(d), d[0], d[d.length - 1],
+                percentile(d, 0.50), percentile(d, 0.90), percentile(d, 0.95));
+    }
+
+    /**
+     * Bootstrap-Konfidenzintervall für die Differenz einer Kennzahl zwischen zwei
+     * Stichproben (b minus a). Beide Stichproben werden je Iteration mit Zurücklegen
+     * neu gezogen; Perzentile werden über Ziehungshäufigkeiten auf den sortierten
+     * Arrays bestimmt, damit keine Iteration sortieren muss.
+     * 
+     * @param a sortierte Stichprobe der Baseline
+     * @param b sortierte Stichprobe des Kandidaten
+     * @param p Perzentil zwischen 0 und 1 oder NaN für den Mittelwert
+     * @param iterations Anzahl der Bootstrap-Iterationen
+     * @param confidence Konfidenzniveau (z.B. 0.95)
+     * @param seed Startwert des Zufallsgenerators (für reproduzierbare Ergebnisse)
+     * @return {untere Grenze, obere Grenze} oder null, wenn eine Stichprobe leer ist
+     */
+    public static double[] bootstrapDiff(double[] a, double[] b, double p, int iterations, double confidence, long seed) {
+        if (a.length == 0 || b.length == 0 || iterations < 1) return null;
+        SplittableRandom rnd = new SplittableRandom(seed);
+        int[] countsA = new int[a.length], countsB = new int[b.length];
+        double[] diffs = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            diffs[i] = resample(b, p, rnd, countsB) - resample(a, p, rnd, countsA);
+        }
+        Arrays.sort(diffs);
+        double tail = (1 - confidence) / 2;
+        return new double[] { percentile(diffs, tail), percentile(diffs, 1 - tail) };
+    }
+
+    // Kennzahl einer Bootstrap-Stichprobe aus einem sortierten Array
+    private static double resample(double[] sorted, double p, SplittableRandom rnd, int[] counts) {
+        int n = sorted.length;
+        if (Double.isNaN(p)) {
+            double sum = 0;
+            for (int i = 0; i < n; i++) sum += sorted[rnd.nextInt(n)];
+            return sum / n;
+        }
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < n; i++) counts[rnd.nextInt(n)]++;
+        // Rang r der Stichprobe = kleinster Index, bis zu dem mehr als r Werte gezogen wurden;
+        // Interpolation zwischen benachbarten Rängen wie in percentile(double[], double)
+        double rank = Math.max(0, Math.min(1, p)) * (n - 1);
+        int lo = (int) Math.floor(rank);
+        double vLo = Double.NaN;
+        int seen = 0;
+        for (int i = 0; i < n; i++) {
+            seen += counts[i];
+            if (Double.isNaN(vLo) && seen > lo) vLo = sorted[i];
+            if (seen > lo + 1) return vLo + (rank - lo) * (sorted[i] - vLo);
+        }
+        return vLo;
+    }
+
+    /**
+     * Zweiseitiger Mann-Whitney-U-Test (Normalapproximation mit Bindungs- und
+     * Stetigkeitskorrektur): Wie wahrscheinlich ist eine mindestens so große
+     * Verschiebung zwischen den Verteilungen, wenn beide gleich sind?
+     * 
+     * @param a sortierte Stichprobe
+     * @param b sortierte Stichprobe
+     * @return p-Wert zwischen 0 und 1 oder null, wenn eine Stichprobe leer ist
+     */
+    public static Double mannWhitneyP(double[] a, double[] b) {
+        int n1 = a.length, n2 = b.length;
+        if (n1 == 0 || n2 == 0) return null;
+        long n = (long) n1 + n2;
+        // Ränge über die gemischte, sortierte Folge; Bindungen erhalten den mittleren Rang
+        double rankSumA = 0, tieTerm = 0;
+        int i = 0, j = 0;
+        long pos = 1;
+        while (i < n1 || j < n2) {
+            double v = i < n1 && (j >= n2 || a[i] <= b[j]) ? a[i] : b[j];
+            int ca = 0, cb = 0;
+            while (i < n1 && a[i] == v) { i++; ca++; }
+            while (j < n2 && b[j] == v) { j++; cb++; }
+            long t = ca + cb;
+            double avgRank = pos + (t - 1) / 2.0;
+            rankSumA += ca * avgRank;
+            tieTerm += (double) t * t * t - t;
+            pos += t;
+        }
+        double u = rankSumA - n1 * (n1 + 1) / 2.0;
+        double mu = n1 * (double) n2 / 2.0;
+        double var = n1 * (double) n2 / 12.0 * ((n + 1) - tieTerm / (n * (double) (n - 1)));
+        if (n < 2 || var <= 0) return 1.0;
+        double z = (Math.abs(u - mu) - 0.5) / Math.sqrt(var);
+        return Math.min(1.0, 2 * (1 - normalCdf(Math.max(0, z))));
+    }
+
+    // Verteilungsfunktion der Standardnormalverteilung (Abramowitz/Stegun 7.1.26, Fehler < 1.5e-7)
+    private static double normalCdf(double z) {
+        double x = Math.abs(z) / Math.sqrt(2);
+        double t = 1 / (1 + 0.3275911 * x);
+        double erf = 1 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027 + t * 1.061405429))))
+                * Math.exp(-x * x);
+        return z >= 0 ? 0.5 * (1 + erf) : 0.5 * (1 - erf);
+    }
+
+    // Abgeschlossene Läufe pro Sekunde zwischen dem ersten (geplanten) Start und dem letzten Ende
+    private static double throughput(BenchmarkDto.SingleRunResult[] arr) {
+        long first = Long.MAX_VALUE, last = Long.MIN_VALUE;
+        for (var r : arr) {
+            first = Math.min(first, r.intendedStartNanos() != null ? r.intendedStartNanos() : r.startNanos());
+            last = Math.max(last, r.endNanos());
+        }
+        return last > first ? arr.length / ((last - first) / 1_000_000_000.0) : 0;
+    }
+
+    // Berechnet den Durchschnittswert eines double-Arrays
+    private static double avg(double[] d){ double s=0; for(double x:d) s+=x; return s/d.length; }
 }
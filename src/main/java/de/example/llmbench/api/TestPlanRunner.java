@@ -0,0 +1,139 @@
+package de.example.llmbench.api;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Führt Testpläne vollständig auf dem Server aus.
+ *
+ * Die Schritte laufen direkt nacheinander auf der Last-Engine, ohne Umweg über einzelne
+ * HTTP-Aufrufe aus dem Browser. Aufwärmläufe werden vor jedem Schritt ausgeführt und
+ * nicht in die Statistik aufgenommen; für einen echten Cold Start wird das Modell vorher
+ * entladen. Ergebnis ist ein einziger, konsolidierter Bericht.
+ */
+public class TestPlanRunner {
+
+    /** Bekannte Presets (siehe {@link #preset(String, BenchmarkDto.BenchRequest)}). */
+    public static final List<String> PRESETS = List.of("coldWarm", "consistency", "parallel");
+
+    private final BenchmarkService service;
+
+    public TestPlanRunner(BenchmarkService service) { this.service = service; }
+
+    /**
+     * Führt einen Testplan aus.
+     *
+     * @param plan Testplan mit eigenen Schritten oder einem Preset
+     * @return Bericht mit einem Eintrag je (Teil-)Schritt
+     * @throws IllegalArgumentException wenn weder Schritte noch ein bekanntes Preset angegeben sind
+     */
+    public BenchmarkDto.PlanReport run(BenchmarkDto.TestPlan plan) {
+        BenchmarkDto.BenchRequest base = plan.base == null ? new BenchmarkDto.BenchRequest() : plan.base;
+        List<BenchmarkDto.PlanStep> steps = plan.steps != null && !plan.steps.isEmpty()
+                ? plan.steps : preset(plan.preset, base);
+        if (steps == null) throw new IllegalArgumentException("Unknown preset: " + plan.preset);
+        boolean includeResults = Boolean.TRUE.equals(plan.includeResults);
+
+        long start = System.nanoTime();
+        List<BenchmarkDto.StepReport> reports = new ArrayList<>();
+        for (int i = 0; i < steps.size(); i++) {
+            BenchmarkDto.PlanStep step = steps.get(i);
+            String name = step.name != null ? step.name : "Step " + (i + 1);
+            if (step.concurrencySweep != null && !step.concurrencySweep.isEmpty()) {
+                for (Integer c : step.concurrencySweep) {
+                    reports.add(runStep(name + " C" + c, base, step, c, includeResults));
+                }
+            } else {
+                reports.add(runStep(name, base, step, step.concurrency, includeResults));
+            }
+        }
+        return new BenchmarkDto.PlanReport(Instant.now().toString(),
+                plan.name != null ? plan.name : plan.preset,
+                BenchmarkDto.BenchResponse.of(base, null, null).request(),
+                (System.nanoTime() - start) / 1_000_000.0,
+                reports);
+    }
+
+    // Führt einen Schritt mit fester Parallelität aus: ggf. entladen, aufwärmen, messen
+    private BenchmarkDto.StepReport runStep(String name, BenchmarkDto.BenchRequest base, BenchmarkDto.PlanStep step,
+                                            Integer concurrency, boolean includeResults) {
+        BenchmarkDto.BenchRequest req = base.copy();
+        req.batchId = null;
+        // Der Schrittbericht braucht die Einzelergebnisse
+        req.compact = null;
+        if (step.runs != null) req.runs = step.runs;
+        if (concurrency != null) req.concurrency = concurrency;
+        if (step.stream != null) req.stream = step.stream;
+        if (Boolean.TRUE.equals(step.consistency)) req.consistency = true;
+        boolean cold = Boolean.TRUE.equals(step.coldStart);
+        int warmup = step.warmupRuns == null ? 0 : Math.max(0, step.warmupRuns);
+
+        String note = null;
+        if (cold) {
+            String err = service.unload(req);
+            if (err != null) note = "Unload failed: " + err;
+        }
+        if (warmup > 0) {
+            BenchmarkDto.BenchRequest w = req.copy();
+            w.runs = warmup;
+            w.mode = null;
+            service.stream(w, r -> { });
+        }
+
+        BenchmarkDto.BenchResponse resp = service.run(req);
+        BenchmarkDto.SingleRunResult[] results = resp.results();
+        int ok = 0;
+        List<String> texts = new ArrayList<>(results.length);
+        for (var r : results) {
+            if (r.success()) ok++;
+            texts.add(r.text());
+        }
+        Double consistency = Boolean.TRUE.equals(step.consistency) ? QualityUtil.consistency(texts) : null;
+        int conc = req.concurrency == null || req.concurrency < 1 ? 1 : req.concurrency;
+        return new BenchmarkDto.StepReport(name, conc, results.length, warmup, cold, ok, note,
+                resp.aggregates(), consistency, resp.consistency(), includeResults ? results : null);
+    }
+
+    /**
+     * Liefert die Schritte eines vordefinierten Testplans.
+     * <ul>
+     *   <li>coldWarm: ein Lauf nach dem Entladen des Modells, danach mindestens drei warme Läufe</li>
+     *   <li>consistency: mindestens zehn sequenzielle Läufe mit Konsistenzbewertung</li>
+     *   <li>parallel: dieselbe Anfrage mit Parallelität 1, 2 und 4</li>
+     * </ul>
+     *
+     * @param name Name des Presets
+     * @param base Basisanfrage (für die Anzahl der Läufe)
+     * @return Schritte oder null bei unbekanntem Preset
+     */
+    public static List<BenchmarkDto.PlanStep> preset(String name, BenchmarkDto.BenchRequest base) {
+        int runs = base.runs == null || base.runs < 1 ? 1 : base.runs;
+        if ("coldWarm".equals(name)) {
+            BenchmarkDto.PlanStep cold = step("Cold", 1, 1);
+            cold.coldStart = true;
+            BenchmarkDto.PlanStep warm = step("Warm", Math.max(3, runs), 1);
+            warm.warmupRuns = 1;
+            return List.of(cold, warm);
+        }
+        if ("consistency".equals(name)) {
+            BenchmarkDto.PlanStep s = step("Consistency", Math.max(10, runs), 1);
+            s.consistency = true;
+            return List.of(s);
+        }
+        if ("parallel".equals(name)) {
+            BenchmarkDto.PlanStep s = step("Parallel", runs, null);
+            s.concurrencySweep = List.of(1, 2, 4);
+            return List.of(s);
+        }
+        return null;
+    }
+
+    private static BenchmarkDto.PlanStep step(String name, Integer runs, Integer concurrency) {
+        BenchmarkDto.PlanStep s = new BenchmarkDto.PlanStep();
+        s.name = name;
+        s.runs = runs;
+        s.concurrency = concurrency;
+        return s;
+    }
+}
@@ -0,0 +1,238 @@
+package de.example.llmbench.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Paarweise Konsistenz wiederholter Antworten auf dem Server.
+ *
+ * Jeder Antworttext wird normalisiert (siehe QualityUtil) und in überlappende Wortfolgen
+ * der Länge {@code shingleSize} zerlegt (Shingles, als 64-Bit-Hashes). Die Ähnlichkeit
+ * zweier Texte ist die Jaccard-Ähnlichkeit ihrer Shingle-Mengen. Bis
+ * {@code BENCH_CONSISTENCY_EXACT_MAX} Texte (Standard 200) wird sie exakt berechnet,
+ * darüber über MinHash-Signaturen mit 128 Hashfunktionen geschätzt (Standardfehler ca. 0,04).
+ * Es werden höchstens {@code BENCH_CONSISTENCY_MAX_TEXTS} (Standard 2000) gleichmäßig über
+ * den Lauf verteilte Texte verglichen.
+ *
+ * Die Vergleiche laufen zeilenweise parallel im Common Pool; die Verteilung aller
+ * Paar-Ähnlichkeiten wird in 1000 Klassen gezählt, sodass der Speicherbedarf nicht mit
+ * der Zahl der Paare wächst.
+ * Diese Klasse ist nicht instanziierbar.
+ */
+public final class TextSimilarity {
+    // Privater Konstruktor verhindert Instanziierung
+    private TextSimilarity() {}
+
+    static final int EXACT_MAX = Integer.parseInt(System.getenv().getOrDefault("BENCH_CONSISTENCY_EXACT_MAX", "200"));
+    static final int MAX_TEXTS = Integer.parseInt(System.getenv().getOrDefault("BENCH_CONSISTENCY_MAX_TEXTS", "2000"));
+
+    /** Standard-Länge der Shingles in Wörtern. */
+    public static final int DEFAULT_SHINGLE = 2;
+
+    // Anzahl der MinHash-Funktionen und Klassen der Verteilung
+    private static final int HASHES = 128;
+    private static final int BINS = 1000;
+    // Feste Startwerte der Hashfunktionen (reproduzierbare Schätzungen)
+    private static final long[] SEEDS = new SplittableRandom(0x6C6C6D62656E6368L).longs(HASHES).toArray();
+
+    /**
+     * Bewertet die Konsistenz aller Antworttexte eines Laufs paarweise.
+     *
+     * @param texts Antworttexte in Ausführungsreihenfolge (null/leer wird übergangen)
+     * @param shingleSize Wörter je Shingle (mindestens 1)
+     * @return Bericht oder null bei weniger als zwei nicht-leeren Texten
+     */
+    public static BenchmarkDto.ConsistencyReport consistency(List<String> texts, int shingleSize) {
+        int k = Math.max(1, shingleSize);
+        List<Integer> index = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            String t = texts.get(i);
+            if (t != null && !t.isBlank()) index.add(i);
+        }
+        int available = index.size();
+        if (available < 2) return null;
+
+        // Zu viele Texte: gleichmäßig verteilte Auswahl
+        int n = Math.min(available, Math.max(2, MAX_TEXTS));
+        int[] pick = new int[n];
+        for (int i = 0; i < n; i++) pick[i] = index.get((int) ((long) i * available / n));
+
+        long[][] sets = new long[n][];
+        IntStream.range(0, n).parallel().forEach(i -> sets[i] = shingles(texts.get(pick[i]), k));
+        boolean exact = n <= EXACT_MAX;
+        long[][] sigs = exact ? null : new long[n][];
+        if (!exact) IntStream.range(0, n).parallel().forEach(i -> sigs[i] = minHash(sets[i]));
+
+        // Zeile i vergleicht mit allen j; Paare j > i gehen in die Verteilung, alle in den Zeilenmittelwert
+        double[] rowMean = new double[n];
+        Dist dist = IntStream.range(0, n).parallel().collect(Dist::new, (d, i) -> {
+            double sum = 0;
+            for (int j = 0; j < n; j++) {
+                if (j == i) continue;
+                double s = exact ? jaccard(sets[i], sets[j]) : estimate(sigs[i], sigs[j]);
+                sum += s;
+                if (j > i) d.add(s);
+            }
+            rowMean[i] = sum / (n - 1);
+        }, Dist::merge);
+
+        double adjacent = 0;
+        for (int i = 1; i < n; i++) adjacent += exact ? jaccard(sets[i - 1], sets[i]) : estimate(sigs[i - 1], sigs[i]);
+        int outlier = 0;
+        for (int i = 1; i < n; i++) if (rowMean[i] < rowMean[outlier]) outlier = i;
+
+        return new BenchmarkDto.ConsistencyReport(
+                n, available > n ? available : null, dist.count,
+                exact ? "exact" : "minhash", k,
+                dist.sum / dist.count, dist.min, dist.percentile(0.10), dist.percentile(0.50),
+                adjacent / (n - 1), pick[outlier], rowMean[outlier]);
+    }
+
+    /**
+     * Konsistenz aus Text-Hashes (kompakte Läufe mit {@code texts: "hash"}): zwei Antworten
+     * gelten als gleich (1), wenn ihre Hashes übereinstimmen, sonst als verschieden (0).
+     * Die Paare werden über die Größe der Gruppen gleicher Texte gezählt, nicht einzeln.
+     *
+     * @param hashes Hash je Text in Ausführungsreihenfolge
+     * @param rows Zeile je Text (für den Ausreißer)
+     * @return Bericht oder null bei weniger als zwei Texten
+     */
+    public static BenchmarkDto.ConsistencyReport identical(long[] hashes, long[] rows) {
+        int n = hashes.length;
+        if (n < 2) return null;
+        long[] sorted = hashes.clone();
+        Arrays.sort(sorted);
+        // Paare innerhalb der Gruppen sind gleich; kleinste Gruppe liefert den Ausreißer
+        long pairs = (long) n * (n - 1) / 2, same = 0, rarest = sorted[0];
+        int rarestCount = Integer.MAX_VALUE;
+        for (int i = 0, j; i < n; i = j) {
+            for (j = i + 1; j < n && sorted[j] == sorted[i]; j++) {}
+            long c = j - i;
+            same += c * (c - 1) / 2;
+            if (c < rarestCount) { rarestCount = (int) c; rarest = sorted[i]; }
+        }
+        int outlier = 0;
+        while (hashes[outlier] != rarest) outlier++;
+        long adjacent = 0;
+        for (int i = 1; i < n; i++) if (hashes[i] == hashes[i - 1]) adjacent++;
+
+        // Verteilung aus nur zwei Klassen: Rang ceil(p * Paare) wie Dist#percentile
+        long different = pairs - same;
+        double p10 = Math.max(1, (long) Math.ceil(0.10 * pairs)) <= different ? 0.0 : 1.0;
+        double p50 = Math.max(1, (long) Math.ceil(0.50 * pairs)) <= different ? 0.0 : 1.0;
+        return new BenchmarkDto.ConsistencyReport(
+                n, null, pairs, "hash", 0,
+                same / (double) pairs, different == 0 ? 1.0 : 0.0, p10, p50,
+                adjacent / (double) (n - 1), (int) rows[outlier], (rarestCount - 1) / (double) (n - 1));
+    }
+
+    /**
+     * Exakte Jaccard-Ähnlichkeit zweier Texte über Shingles der Länge k.
+     */
+    public static double similarity(String a, String b, int shingleSize) {
+        return jaccard(shingles(a, Math.max(1, shingleSize)), shingles(b, Math.max(1, shingleSize)));
+    }
+
+    // Sortierte, eindeutige Shingle-Hashes; Texte mit weniger als k Wörtern bilden ein Shingle
+    static long[] shingles(String text, int k) {
+        String norm = text == null ? "" : QualityUtil.normalize(text);
+        if (norm.isEmpty()) return new long[0];
+        String[] words = norm.split(" ");
+        long[] wordHash = new long[words.length];
+        for (int i = 0; i < words.length; i++) wordHash[i] = fnv(words[i]);
+        int count = Math.max(1, words.length - k + 1);
+        long[] out = new long[count];
+        for (int i = 0; i < count; i++) {
+            long h = 0x9E3779B97F4A7C15L;
+            for (int j = i; j < Math.min(words.length, i + k); j++) h = mix(h ^ wordHash[j]);
+            out[i] = h;
+        }
+        Arrays.sort(out);
+        int u = 0;
+        for (int i = 0; i < out.length; i++) if (i == 0 || out[i] != out[u - 1]) out[u++] = out[i];
+        return u == out.length ? out : Arrays.copyOf(out, u);
+    }
+
+    // Jaccard zweier sortierter Mengen per Merge; zwei leere Mengen gelten als gleich
+    static double jaccard(long[] a, long[] b) {
+        if (a.length == 0 && b.length == 0) return 1.0;
+        int i = 0, j = 0, inter = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) { inter++; i++; j++; }
+            else if (a[i] < b[j]) i++;
+            else j++;
+        }
+        return inter / (double) (a.length + b.length - inter);
+    }
+
+    // MinHash-Signatur: Minimum je Hashfunktion (Hash mit unterschiedlichem Startwert gemischt)
+    static long[] minHash(long[] set) {
+        long[] sig = new long[HASHES];
+        Arrays.fill(sig, Long.MAX_VALUE);
+        for (long h : set) {
+            for (int f = 0; f < HASHES; f++) {
+                long v = mix(h ^ SEEDS[f]);
+                if (v < sig[f]) sig[f] = v;
+            }
+        }
+        return sig;
+    }
+
+    // Anteil übereinstimmender Signatur-Positionen (Schätzer der Jaccard-Ähnlichkeit)
+    static double estimate(long[] a, long[] b) {
+        int eq = 0;
+        for (int f = 0; f < HASHES; f++) if (a[f] == b[f]) eq++;
+        return eq / (double) HASHES;
+    }
+
+    private static long fnv(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // Finalizer von SplitMix64
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Verteilung der Paar-Ähnlichkeiten in festen Klassen (je Teilaufgabe eine Instanz)
+    private static final class Dist {
+        final long[] bins = new long[BINS + 1];
+        long count;
+        double sum;
+        double min = 1.0;
+
+        void add(double s) {
+            bins[(int) Math.round(s * BINS)]++;
+            count++;
+            sum += s;
+            if (s < min) min = s;
+        }
+
+        void merge(Dist o) {
+            for (int i = 0; i <= BINS; i++) bins[i] += o.bins[i];
+            count += o.count;
+            sum += o.sum;
+            min = Math.min(min, o.min);
+        }
+
+        double percentile(double p) {
+            long rank = (long) Math.ceil(p * count);
+            long seen = 0;
+            for (int i = 0; i <= BINS; i++) {
+                seen += bins[i];
+                if (seen >= Math.max(1, rank)) return i / (double) BINS;
+            }
+            return 1.0;
+        }
+    }
+}
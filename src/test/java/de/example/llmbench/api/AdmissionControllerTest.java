@@ -0,0 +1,129 @@
+package de.example.llmbench.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+/**
+ * Verteilung freier Plätze, exklusive Lanes isolierter Batches und Aufräumen beendeter Batches.
+ */
+@Timeout(30)
+class AdmissionControllerTest {
+
+    private static final String LANE = "ollama/sim";
+
+    @Test
+    void freedSlotsGoToTheBatchWithFewestRunningCalls() throws Exception {
+        AdmissionController ac = new AdmissionController(2);
+        // A belegt beide Plätze, danach warten je zwei Aufrufe von A und B
+        List<AdmissionController.Permit> a = new ArrayList<>(List.of(
+                ac.acquire(LANE, "A", false), ac.acquire(LANE, "A", false)));
+        BlockingQueue<String> admitted = new LinkedBlockingQueue<>();
+        List<Thread> waiting = new ArrayList<>();
+        for (String batch : List.of("A", "A", "B", "B")) waiting.add(waiter(ac, batch, admitted));
+        awaitQueued(ac, 4);
+
+        // Der erste freie Platz geht an B (0 laufende Aufrufe statt 1), der zweite wieder an A
+        // (0 statt 1) – obwohl A zuerst gewartet hat
+        a.remove(0).close();
+        assertEquals("B", admitted.poll(5, TimeUnit.SECONDS));
+        a.remove(0).close();
+        assertEquals("A", admitted.poll(5, TimeUnit.SECONDS));
+        var batches = ac.status().lanes().get(0).batches();
+        assertEquals(1, batches.get(0).inFlight());
+        assertEquals(1, batches.get(1).inFlight());
+        for (Thread t : waiting) t.interrupt();
+        for (Thread t : waiting) t.join();
+    }
+
+    @Test
+    void isolatedBatchGetsTheLaneExclusively() throws Exception {
+        AdmissionController ac = new AdmissionController(4);
+        AdmissionController.Permit shared = ac.acquire(LANE, "A", false);
+        BlockingQueue<String> admitted = new LinkedBlockingQueue<>();
+        Thread isolated = waiter(ac, "C", true, admitted);
+        awaitQueued(ac, 1);
+
+        // Trotz freier Plätze wartet C, bis der fremde Aufruf ausgelaufen ist
+        assertNull(admitted.poll(200, TimeUnit.MILLISECONDS));
+        // Neue Aufrufe anderer Batches kommen nicht mehr dazwischen
+        Thread other = waiter(ac, "B", false, admitted);
+        awaitQueued(ac, 2);
+        shared.close();
+        assertEquals("C", admitted.poll(5, TimeUnit.SECONDS));
+        assertEquals("C", ac.status().lanes().get(0).isolatedBatch());
+        assertNull(admitted.poll(200, TimeUnit.MILLISECONDS));
+
+        // Nach dem Ende von C ist die Lane wieder frei
+        isolated.join();
+        ac.leave("C");
+        assertEquals("B", admitted.poll(5, TimeUnit.SECONDS));
+        other.interrupt();
+        other.join();
+    }
+
+    @Test
+    void finishedBatchesAndEmptyLanesAreRemoved() throws Exception {
+        AdmissionController ac = new AdmissionController(2);
+        AdmissionController.Permit p = ac.acquire(LANE, "A", true);
+        // Abmelden, während noch ein Aufruf läuft: der Anteil bleibt bis zu dessen Ende
+        ac.leave("A");
+        assertEquals(1, ac.status().lanes().size());
+        p.close();
+        assertTrue(ac.status().lanes().isEmpty());
+
+        // Eine entfernte Lane wird beim nächsten Aufruf neu angelegt
+        try (AdmissionController.Permit q = ac.acquire(LANE, "B", false)) {
+            assertEquals(1, ac.status().lanes().get(0).inFlight());
+        }
+        ac.leave("B");
+        assertTrue(ac.status().lanes().isEmpty());
+    }
+
+    @Test
+    void interruptedWaiterLeavesTheQueue() throws Exception {
+        AdmissionController ac = new AdmissionController(1);
+        AdmissionController.Permit p = ac.acquire(LANE, "A", false);
+        BlockingQueue<String> admitted = new LinkedBlockingQueue<>();
+        Thread t = waiter(ac, "B", admitted);
+        awaitQueued(ac, 1);
+        t.interrupt();
+        t.join();
+        assertEquals(0, ac.status().lanes().get(0).queued());
+        p.close();
+        assertFalse(admitted.contains("B"));
+    }
+
+    private static Thread waiter(AdmissionController ac, String batch, BlockingQueue<String> admitted) {
+        return waiter(ac, batch, false, admitted);
+    }
+
+    // Wartet auf einen Platz, meldet den Batch und hält den Platz bis zur Unterbrechung
+    private static Thread waiter(AdmissionController ac, String batch, boolean isolated, BlockingQueue<String> admitted) {
+        return Thread.ofVirtual().start(() -> {
+            try (AdmissionController.Permit p = ac.acquire(LANE, batch, isolated)) {
+                admitted.add(batch);
+                if (!isolated) Thread.sleep(Long.MAX_VALUE);
+            } catch (InterruptedException e) {
+                // Ende des Tests
+            }
+        });
+    }
+
+    private static void awaitQueued(AdmissionController ac, int queued) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (ac.status().lanes().get(0).queued() < queued) {
+            if (System.nanoTime() > deadline) throw new AssertionError("queued " + ac.status());
+            Thread.sleep(5);
+        }
+    }
+}
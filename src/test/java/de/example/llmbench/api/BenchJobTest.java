@@ -0,0 +1,163 @@
+package de.example.llmbench.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+/**
+ * Zustandsübergänge eines Jobs: beendet, vor dem Start und während des Laufs abgebrochen,
+ * fehlgeschlagen – und dass finishedAt immer zusammen mit dem Endzustand sichtbar wird.
+ */
+@Timeout(60)
+class BenchJobTest {
+
+    private static final String PROVIDER = "jobtest";
+
+    // Dauer eines Aufrufs des Test-Providers
+    private static volatile long delayMs = 1;
+
+    @BeforeAll
+    static void register() {
+        ProviderRegistry.shared().register(new LlmProvider() {
+            @Override
+            public String name() { return PROVIDER; }
+
+            @Override
+            public String baseUrl() { return "test:"; }
+
+            @Override
+            public List<String> models(int timeoutMs) { return List.of("m"); }
+
+            @Override
+            public BenchmarkDto.SingleRunResult call(String model, String prompt, double temperature, int maxTokens,
+                                                     int timeoutMs, boolean stream, String node) {
+                long start = System.nanoTime();
+                var out = BenchmarkDto.SingleRunResult.builder(PROVIDER, model).start(start);
+                try {
+                    Thread.sleep(delayMs);
+                    out.httpStatus(200).success(true).text("ok").tokens(1, 1, 2);
+                } catch (InterruptedException e) {
+                    out.success(false).error("interrupted");
+                }
+                return out.end(System.nanoTime()).build();
+            }
+        });
+    }
+
+    @Test
+    void finishedJobHasStateResponseAndFinishedAt() {
+        delayMs = 1;
+        BenchJob job = job(20);
+        job.execute(BenchmarkService.shared());
+
+        assertEquals(BenchJob.State.DONE, job.state());
+        assertTrue(job.isFinished());
+        assertNotNull(job.finishedAt());
+        BenchmarkDto.JobStatus st = job.status();
+        assertEquals("DONE", st.state());
+        assertNotNull(st.finishedAt());
+        assertEquals(20, st.completed());
+        assertEquals(20, st.aggregates().runs());
+        assertEquals(20, job.response().results().length);
+    }
+
+    @Test
+    void cancelBeforeStartFinishesImmediatelyWithoutRuns() {
+        BenchJob job = job(20);
+        job.cancel();
+
+        assertEquals(BenchJob.State.CANCELLED, job.state());
+        assertTrue(job.isFinished());
+        assertNotNull(job.status().finishedAt());
+
+        job.execute(BenchmarkService.shared());
+        assertEquals(0, job.status().completed());
+        assertNull(job.response());
+        assertEquals(BenchJob.State.CANCELLED, job.state());
+    }
+
+    @Test
+    void cancelWhileRunningFinishesOnceTheBatchHasDrained() throws Exception {
+        delayMs = 50;
+        BenchJob job = job(1000);
+        Thread runner = Thread.ofVirtual().start(() -> job.execute(BenchmarkService.shared()));
+        while (job.status().completed() == 0) Thread.sleep(5);
+
+        job.cancel();
+        assertEquals(BenchJob.State.CANCELLED, job.state());
+        // Solange der Batch ausläuft, gibt es noch keine Antwort
+        if (!job.isFinished()) assertNull(job.response());
+        runner.join();
+
+        assertTrue(job.isFinished());
+        assertEquals(BenchJob.State.CANCELLED, job.state());
+        assertNotNull(job.finishedAt());
+        assertNotNull(job.response());
+        assertTrue(job.status().completed() < 1000);
+        // Ein weiterer Abbruch ändert am beendeten Job nichts
+        job.cancel();
+        assertEquals(BenchJob.State.CANCELLED, job.state());
+    }
+
+    @Test
+    void failedJobKeepsErrorAndFinishedAt() {
+        BenchJob job = job(5);
+        job.execute(new BenchmarkService() {
+            @Override
+            public BenchmarkDto.BenchResponse run(BenchmarkDto.BenchRequest req,
+                                                  Consumer<BenchmarkDto.SingleRunResult> onResult) {
+                throw new IllegalStateException("boom");
+            }
+        });
+
+        assertEquals(BenchJob.State.FAILED, job.state());
+        assertNotNull(job.finishedAt());
+        assertNull(job.response());
+        assertTrue(job.status().error().contains("boom"), job.status().error());
+    }
+
+    @Test
+    void finalStateIsNeverVisibleWithoutFinishedAt() throws Exception {
+        delayMs = 0;
+        for (int i = 0; i < 20; i++) {
+            BenchJob job = job(200);
+            AtomicReference<String> violation = new AtomicReference<>();
+            // Plattform-Thread, damit das aktive Warten keinen Träger der virtuellen Threads blockiert
+            Thread poller = Thread.ofPlatform().start(() -> {
+                while (true) {
+                    BenchmarkDto.JobStatus st = job.status();
+                    if (!"RUNNING".equals(st.state()) && !"CANCELLED".equals(st.state()) && st.finishedAt() == null) {
+                        violation.set(st.state() + " without finishedAt");
+                    }
+                    if (st.finishedAt() != null) return;
+                    Thread.onSpinWait();
+                }
+            });
+            job.execute(BenchmarkService.shared());
+            poller.join();
+            assertNull(violation.get());
+            assertFalse(job.status().finishedAt() == null);
+        }
+    }
+
+    private static BenchJob job(int runs) {
+        BenchmarkDto.BenchRequest req = new BenchmarkDto.BenchRequest();
+        req.provider = PROVIDER;
+        req.model = "m";
+        req.prompt = "p";
+        req.runs = runs;
+        req.concurrency = 4;
+        req.timeoutMs = 10_000;
+        return new BenchJob(UUID.randomUUID().toString(), req);
+    }
+}
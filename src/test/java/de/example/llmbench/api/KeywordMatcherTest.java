@@ -0,0 +1,104 @@
+package de.example.llmbench.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Vergleicht KeywordMatcher und QualityUtil.normalize mit der früheren Bewertung
+ * (Regex-Normalisierung, {@code contains} je Schlüsselwort) auf zufälligen Eingaben.
+ */
+class KeywordMatcherTest {
+
+    private static final int CASES = 200_000;
+    // Buchstaben, Großbuchstaben, Umlaute, alle Whitespace-Zeichen von \s, geschütztes Leerzeichen und Steuerzeichen
+    private static final String ALPHABET = "abcab ABäÄß  \t\n\r\u000B\f\u0001\u001F\u00A0.";
+
+    @Test
+    void scoreEqualsPerKeywordContains() {
+        SplittableRandom rnd = new SplittableRandom(7);
+        for (int i = 0; i < CASES; i++) {
+            String text = random(rnd, rnd.nextInt(40));
+            List<String> keywords = new ArrayList<>();
+            for (int k = rnd.nextInt(1, 6); k > 0; k--) {
+                // Teils Ausschnitte des Textes (Treffer), teils zufällig
+                if (!text.isEmpty() && rnd.nextBoolean()) {
+                    int from = rnd.nextInt(text.length());
+                    keywords.add(text.substring(from, rnd.nextInt(from, text.length()) + 1));
+                } else {
+                    keywords.add(random(rnd, rnd.nextInt(6)));
+                }
+            }
+            KeywordMatcher m = KeywordMatcher.compile(keywords);
+            Double expected = legacyScore(text, keywords);
+            Double actual = m == null ? null : m.score(text);
+            if (text.isBlank()) actual = null;
+            assertEquals(expected, actual, () -> "text=" + escape(text) + " keywords=" + escape(keywords.toString()));
+            assertEquals(expected, QualityUtil.scoreByKeywords(text, keywords));
+        }
+    }
+
+    @Test
+    void normalizeEqualsRegexVariant() {
+        SplittableRandom rnd = new SplittableRandom(11);
+        for (int i = 0; i < CASES; i++) {
+            String s = random(rnd, rnd.nextInt(30));
+            assertEquals(legacyNormalize(s), QualityUtil.normalize(s), () -> escape(s));
+        }
+    }
+
+    @Test
+    void blankInputsAreNotScored() {
+        assertNull(KeywordMatcher.compile(null));
+        assertNull(KeywordMatcher.compile(List.of(" ", "\t")));
+        assertNull(QualityUtil.scoreByKeywords(" \n", List.of("a")));
+        assertEquals(0.5, QualityUtil.scoreByKeywords("Load  Test", List.of("load test", "\u0001")));
+    }
+
+    private static String random(SplittableRandom rnd, int len) {
+        char[] c = new char[len];
+        for (int i = 0; i < len; i++) c[i] = ALPHABET.charAt(rnd.nextInt(ALPHABET.length()));
+        return new String(c);
+    }
+
+    // Frühere Bewertung: normalisierter Text, contains je normalisiertem Schlüsselwort
+    private static Double legacyScore(String text, List<String> keywords) {
+        if (text == null || text.isBlank() || keywords == null || keywords.isEmpty()) return null;
+        String norm = legacyNormalize(text);
+        int hit = 0;
+        int total = 0;
+        for (String kw : keywords) {
+            if (kw == null || kw.isBlank()) continue;
+            total++;
+            String k = legacyNormalize(kw);
+            if (k.isEmpty()) continue;
+            if (norm.contains(k)) hit++;
+        }
+        if (total == 0) return null;
+        return Math.max(0.0, Math.min(1.0, hit / (double) total));
+    }
+
+    // Frühere Normalisierung per Regex (Kleinschreibung hier mit Locale.ROOT wie die neue)
+    private static String legacyNormalize(String s) {
+        return s.toLowerCase(Locale.ROOT)
+                .replace('\n', ' ')
+                .replace('\r', ' ')
+                .replace('\t', ' ')
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : s.toCharArray()) {
+            if (c < 0x20 || c > 0x7E) sb.append(String.format("\\u%04X", (int) c));
+            else sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,105 @@
+package de.example.llmbench.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Locale;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Ende-zu-Ende-Test: BenchmarkService gegen den OllamaSimulator auf einem freien Port,
+ * gepuffert und mit Streaming.
+ */
+class SimulatorBenchmarkTest {
+
+    private static final int RUNS = 8;
+    private static final int TOKENS = 12;
+    private static final double TTFT_MS = 40;
+    private static final double ITL_MS = 10;
+    private static final List<String> KEYWORDS = List.of("model", "latency", "nicht-im-wortschatz");
+
+    private static OllamaSimulator sim;
+
+    @BeforeAll
+    static void start() throws Exception {
+        // Ohne Streuung: feste TTFT und feste Abstände zwischen den Tokens
+        sim = new OllamaSimulator(new OllamaSimulator.Config(0, List.of(), 1.0, TTFT_MS, ITL_MS,
+                0, TOKENS, 0, 42, List.of("sim:latest"))).start();
+        OllamaPool pool = new OllamaPool(List.of("http://127.0.0.1:" + sim.port()), OllamaPool.LEAST_OUTSTANDING, 0);
+        ProviderRegistry.shared().register(new OllamaClient(pool));
+    }
+
+    @AfterAll
+    static void stop() {
+        if (sim != null) sim.stop();
+    }
+
+    @Test
+    void streamingMeasuresTtftItlTokensAndQuality() {
+        BenchmarkDto.BenchResponse resp = BenchmarkService.shared().run(request(true));
+
+        assertRuns(resp);
+        BenchmarkDto.Aggregates agg = resp.aggregates();
+        assertNotNull(agg.ttftMs());
+        assertEquals(RUNS, agg.ttftMs().n());
+        assertTrue(agg.ttftMs().p50() >= TTFT_MS && agg.ttftMs().p50() < TTFT_MS + 200, "ttft " + agg.ttftMs());
+        // ITL aus den einzelnen Chunk-Abständen, nicht aus den Mittelwerten je Lauf
+        assertNotNull(agg.itlMs());
+        assertTrue(agg.itlMs().n() >= RUNS * (TOKENS - 1), "itl n " + agg.itlMs().n());
+        assertTrue(agg.itlMs().p50() > ITL_MS / 2 && agg.itlMs().p50() < ITL_MS + 50, "itl " + agg.itlMs());
+        assertNotNull(agg.tokensPerSec());
+        for (var r : resp.results()) {
+            assertNotNull(r.ttftMs());
+            assertNotNull(r.itlMs());
+            assertNotNull(r.tokensPerSec());
+        }
+    }
+
+    @Test
+    void bufferedMeasuresTokensAndQualityWithoutStreamingMetrics() {
+        BenchmarkDto.BenchResponse resp = BenchmarkService.shared().run(request(false));
+
+        assertRuns(resp);
+        BenchmarkDto.Aggregates agg = resp.aggregates();
+        assertNull(agg.ttftMs());
+        assertNull(agg.itlMs());
+        // Gepuffert dauert jeder Lauf mindestens bis zum letzten Token
+        assertTrue(agg.minMs() >= TTFT_MS + (TOKENS - 1) * ITL_MS, "min " + agg.minMs());
+        for (var r : resp.results()) assertNull(r.ttftMs());
+    }
+
+    private static BenchmarkDto.BenchRequest request(boolean stream) {
+        BenchmarkDto.BenchRequest req = new BenchmarkDto.BenchRequest();
+        req.provider = BenchmarkModels.PROVIDER_OLLAMA;
+        req.model = "sim:latest";
+        req.prompt = "Describe load tests in one sentence.";
+        req.runs = RUNS;
+        req.concurrency = 4;
+        req.timeoutMs = 10_000;
+        req.stream = stream;
+        req.expectedKeywords = KEYWORDS;
+        return req;
+    }
+
+    // Gemeinsame Prüfungen: alle Läufe erfolgreich, Tokens laut Server, Qualität passend zum Text
+    private static void assertRuns(BenchmarkDto.BenchResponse resp) {
+        assertEquals(RUNS, resp.results().length);
+        assertEquals(RUNS, resp.aggregates().runs());
+        for (var r : resp.results()) {
+            assertTrue(r.success(), r.error());
+            assertEquals(200, r.httpStatus());
+            assertEquals(TOKENS, r.outputTokens());
+            assertNotNull(r.text());
+            assertEquals(TOKENS, r.text().split(" ").length, r.text());
+            String text = r.text().toLowerCase(Locale.ROOT);
+            long hits = KEYWORDS.stream().filter(text::contains).count();
+            assertNotNull(r.quality());
+            assertEquals(hits / (double) KEYWORDS.size(), r.quality(), 1e-9);
+        }
+    }
+}